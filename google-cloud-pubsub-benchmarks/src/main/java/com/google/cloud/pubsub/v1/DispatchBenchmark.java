@@ -0,0 +1,148 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.CurrentMillisClock;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+import com.google.api.gax.core.Distribution;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.ReceivedMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link MessageDispatcher#processReceivedMessages} for StreamingPull responses of 1-byte
+ * messages, from the response arriving until every message has been received and acked, with and
+ * without batched dispatch.
+ *
+ * <p>Lives in the client package because {@link MessageDispatcher} is package-private. Acks are
+ * handed to a no-op {@link MessageDispatcher.AckProcessor}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DispatchBenchmark {
+  private static final int RESPONSE_SIZE = 500;
+
+  @Param({"false", "true"})
+  public boolean batchedDispatch;
+
+  @Param({"5"})
+  public int threads;
+
+  private final Semaphore processed = new Semaphore(0);
+  private ExecutorService executor;
+  private ScheduledExecutorService systemExecutor;
+  private MessageDispatcher dispatcher;
+  private List<ReceivedMessage> response;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(threads);
+    systemExecutor = Executors.newSingleThreadScheduledExecutor();
+    MessageReceiver receiver =
+        new MessageReceiver() {
+          @Override
+          public void receiveMessage(PubsubMessage message, AckReplyConsumer consumer) {
+            consumer.ack();
+            processed.release();
+          }
+        };
+    dispatcher =
+        MessageDispatcher.newBuilder(receiver)
+            .setAckProcessor(
+                new MessageDispatcher.AckProcessor() {
+                  @Override
+                  public void sendAckOperations(List<AckRequestData> ackRequestDataList) {}
+
+                  @Override
+                  public void sendModackOperations(List<ModackRequestData> modackRequestDataList) {}
+                })
+            .setAckExpirationPadding(Subscriber.ACK_EXPIRATION_PADDING_DEFAULT)
+            .setMaxAckExtensionPeriod(Subscriber.DEFAULT_MAX_ACK_EXTENSION_PERIOD)
+            .setMinDurationPerAckExtension(Subscriber.DEFAULT_MIN_ACK_DEADLINE_EXTENSION)
+            .setMinDurationPerAckExtensionDefaultUsed(true)
+            .setMaxDurationPerAckExtension(Subscriber.DEFAULT_MAX_ACK_DEADLINE_EXTENSION)
+            .setMaxDurationPerAckExtensionDefaultUsed(true)
+            .setAckLatencyDistribution(new Distribution(600))
+            .setFlowController(
+                new FlowController(
+                    FlowControlSettings.newBuilder()
+                        .setMaxOutstandingElementCount(10_000L)
+                        .setMaxOutstandingRequestBytes(100L * 1024L * 1024L)
+                        .setLimitExceededBehavior(LimitExceededBehavior.Block)
+                        .build()))
+            .setExecutor(executor)
+            .setSystemExecutor(systemExecutor)
+            .setApiClock(CurrentMillisClock.getDefaultClock())
+            .setSubscriptionName("projects/benchmark-project/subscriptions/benchmark-subscription")
+            .setEnableBatchedDispatch(batchedDispatch)
+            .build();
+
+    response = new ArrayList<>(RESPONSE_SIZE);
+    for (int i = 0; i < RESPONSE_SIZE; i++) {
+      response.add(
+          ReceivedMessage.newBuilder()
+              .setAckId("ack-" + i)
+              .setMessage(
+                  PubsubMessage.newBuilder()
+                      .setMessageId(Integer.toString(i))
+                      .setData(ByteString.copyFrom(new byte[] {1})))
+              .build());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    executor.shutdownNow();
+    systemExecutor.shutdownNow();
+  }
+
+  /** Dispatches one response and waits until all of its messages were acked. */
+  @Benchmark
+  @OperationsPerInvocation(RESPONSE_SIZE)
+  public void processReceivedMessages() throws InterruptedException {
+    dispatcher.processReceivedMessages(response);
+    processed.acquire(RESPONSE_SIZE);
+    dispatcher.processOutstandingOperations();
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.CurrentMillisClock;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures lookups and inserts of the duplicate suppression cache ({@link MessageDeduplicator})
+ * when it is filled to capacity, and prints the memory it uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@Threads(4)
+public class DuplicateSuppressionBenchmark {
+  private static final int SAMPLE_SIZE = 1 << 16;
+
+  @Param({"1000000", "10000000"})
+  public int maxMessageIds;
+
+  private MessageDeduplicator deduplicator;
+  private String[] remembered;
+  private String[] unknown;
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next;
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    deduplicator =
+        new MessageDeduplicator(
+            Duration.ofHours(1), maxMessageIds, CurrentMillisClock.getDefaultClock());
+    for (int i = 0; i < maxMessageIds; i++) {
+      deduplicator.recordAcked(messageId(i));
+    }
+    // Only the newer half is guaranteed to be remembered once the cache has filled up.
+    Random random = new Random(1);
+    remembered = new String[SAMPLE_SIZE];
+    unknown = new String[SAMPLE_SIZE];
+    for (int i = 0; i < SAMPLE_SIZE; i++) {
+      remembered[i] = messageId(maxMessageIds / 2 + random.nextInt(maxMessageIds / 2));
+      unknown[i] = messageId(maxMessageIds + random.nextInt(Integer.MAX_VALUE - maxMessageIds));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    System.out.println(deduplicator.getStats());
+  }
+
+  /** A redelivery of a recently acked message. */
+  @Benchmark
+  public boolean lookupDuplicate(Cursor cursor) {
+    return deduplicator.isDuplicate(remembered[cursor.next++ & (SAMPLE_SIZE - 1)]);
+  }
+
+  /** A first delivery. */
+  @Benchmark
+  public boolean lookupNew(Cursor cursor) {
+    return deduplicator.isDuplicate(unknown[cursor.next++ & (SAMPLE_SIZE - 1)]);
+  }
+
+  /** Recording an ack; the cache keeps rotating generations since it is full. */
+  @Benchmark
+  public void recordAcked(Cursor cursor) {
+    deduplicator.recordAcked(unknown[cursor.next++ & (SAMPLE_SIZE - 1)]);
+  }
+
+  private static String messageId(int i) {
+    return Integer.toString(i);
+  }
+}
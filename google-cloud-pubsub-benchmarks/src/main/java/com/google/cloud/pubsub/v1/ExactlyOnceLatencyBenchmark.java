@@ -0,0 +1,199 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.CurrentMillisClock;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+import com.google.api.gax.core.Distribution;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.ReceivedMessage;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency distribution (see the p0.50 and p0.99 rows) of an exactly-once message, from
+ * the response arriving until its ack can be sent, with and without optimistic exactly-once
+ * delivery.
+ *
+ * <p>The receipt modack takes {@code receiptMillis}, or {@code slowReceiptMillis} for {@code
+ * slowReceiptPercent} percent of messages, and the receiver spends {@code processingMillis} on each
+ * message. By default the two add up; in optimistic mode they overlap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExactlyOnceLatencyBenchmark {
+  @Param({"false", "true"})
+  public boolean optimistic;
+
+  @Param({"2"})
+  public int receiptMillis;
+
+  @Param({"20"})
+  public int slowReceiptMillis;
+
+  @Param({"5"})
+  public int slowReceiptPercent;
+
+  @Param({"2"})
+  public int processingMillis;
+
+  private final Semaphore processed = new Semaphore(0);
+  private final Semaphore receipts = new Semaphore(0);
+  private final AtomicLong nextAckId = new AtomicLong();
+  private ExecutorService executor;
+  private ScheduledExecutorService systemExecutor;
+  private ScheduledExecutorService modackResponder;
+  private MessageDispatcher dispatcher;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(4);
+    systemExecutor = Executors.newSingleThreadScheduledExecutor();
+    modackResponder = Executors.newSingleThreadScheduledExecutor();
+    MessageReceiverWithAckResponse receiver =
+        new MessageReceiverWithAckResponse() {
+          @Override
+          public void receiveMessage(PubsubMessage message, AckReplyConsumerWithResponse consumer) {
+            try {
+              Thread.sleep(processingMillis);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            consumer.ack();
+            processed.release();
+          }
+        };
+    dispatcher =
+        MessageDispatcher.newBuilder(receiver)
+            .setAckProcessor(
+                new MessageDispatcher.AckProcessor() {
+                  @Override
+                  public void sendAckOperations(List<AckRequestData> ackRequestDataList) {
+                    for (AckRequestData ackRequestData : ackRequestDataList) {
+                      ackRequestData.setResponse(AckResponse.SUCCESSFUL, true);
+                    }
+                  }
+
+                  @Override
+                  public void sendModackOperations(List<ModackRequestData> modackRequestDataList) {
+                    for (ModackRequestData modackRequestData : modackRequestDataList) {
+                      if (modackRequestData.getIsReceiptModack()) {
+                        for (AckRequestData ackRequestData :
+                            modackRequestData.getAckRequestData()) {
+                          completeReceiptLater(ackRequestData);
+                        }
+                      }
+                    }
+                  }
+                })
+            .setAckExpirationPadding(Subscriber.ACK_EXPIRATION_PADDING_DEFAULT)
+            .setMaxAckExtensionPeriod(Subscriber.DEFAULT_MAX_ACK_EXTENSION_PERIOD)
+            .setMinDurationPerAckExtension(Subscriber.DEFAULT_MIN_ACK_DEADLINE_EXTENSION)
+            .setMinDurationPerAckExtensionDefaultUsed(true)
+            .setMaxDurationPerAckExtension(Subscriber.DEFAULT_MAX_ACK_DEADLINE_EXTENSION)
+            .setMaxDurationPerAckExtensionDefaultUsed(true)
+            .setAckLatencyDistribution(new Distribution(600))
+            .setFlowController(
+                new FlowController(
+                    FlowControlSettings.newBuilder()
+                        .setMaxOutstandingElementCount(1_000L)
+                        .setMaxOutstandingRequestBytes(100L * 1024L * 1024L)
+                        .setLimitExceededBehavior(LimitExceededBehavior.Block)
+                        .build()))
+            .setExecutor(executor)
+            .setSystemExecutor(systemExecutor)
+            .setApiClock(CurrentMillisClock.getDefaultClock())
+            .setSubscriptionName("projects/benchmark-project/subscriptions/benchmark-subscription")
+            .setEnableOptimisticExactlyOnceDelivery(optimistic)
+            .build();
+    dispatcher.setExactlyOnceDeliveryEnabled(true);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    modackResponder.shutdownNow();
+    executor.shutdownNow();
+    systemExecutor.shutdownNow();
+  }
+
+  /**
+   * Dispatches one message and waits until it was acked by the receiver and its receipt completed,
+   * which is when the ack is released to the service.
+   */
+  @Benchmark
+  public void receiveOneMessage() throws InterruptedException {
+    long id = nextAckId.getAndIncrement();
+    dispatcher.processReceivedMessages(
+        Collections.singletonList(
+            ReceivedMessage.newBuilder()
+                .setAckId("ack-" + id)
+                .setMessage(
+                    PubsubMessage.newBuilder()
+                        .setMessageId(Long.toString(id))
+                        .setData(ByteString.copyFromUtf8("payload")))
+                .build()));
+    // Sends the receipt modack.
+    dispatcher.processOutstandingOperations();
+    processed.acquire();
+    receipts.acquire();
+    dispatcher.processOutstandingOperations();
+  }
+
+  private void completeReceiptLater(final AckRequestData ackRequestData) {
+    int latencyMillis =
+        ThreadLocalRandom.current().nextInt(100) < slowReceiptPercent
+            ? slowReceiptMillis
+            : receiptMillis;
+    modackResponder.schedule(
+        new Runnable() {
+          @Override
+          public void run() {
+            dispatcher.notifyAckSuccess(ackRequestData);
+            receipts.release();
+          }
+        },
+        latencyMillis,
+        TimeUnit.MILLISECONDS);
+  }
+}
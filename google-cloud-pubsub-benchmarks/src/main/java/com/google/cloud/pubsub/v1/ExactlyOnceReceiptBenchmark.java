@@ -0,0 +1,202 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.CurrentMillisClock;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+import com.google.api.gax.core.Distribution;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.ReceivedMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures exactly-once delivery throughput of {@link MessageDispatcher} when receipt modacks take
+ * a variable amount of time to complete.
+ *
+ * <p>Receipt modacks are answered by an {@link MessageDispatcher.AckProcessor} that completes them
+ * after {@code fastReceiptMillis}, except for {@code slowReceiptPercent} percent of them which take
+ * {@code slowReceiptMillis}. Several responses are kept in flight, as on a live stream, so a slow
+ * receipt only costs throughput if it holds up messages behind it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExactlyOnceReceiptBenchmark {
+  private static final int RESPONSE_SIZE = 100;
+  private static final int RESPONSES_IN_FLIGHT = 8;
+
+  @Param({"1"})
+  public int fastReceiptMillis;
+
+  @Param({"50"})
+  public int slowReceiptMillis;
+
+  @Param({"0", "5"})
+  public int slowReceiptPercent;
+
+  /** Number of distinct ordering keys, or 0 to send messages without ordering keys. */
+  @Param({"0", "16"})
+  public int orderingKeys;
+
+  private final Semaphore processed = new Semaphore(0);
+  private final AtomicLong nextAckId = new AtomicLong();
+  private ExecutorService executor;
+  private ScheduledExecutorService systemExecutor;
+  private ScheduledExecutorService modackResponder;
+  private MessageDispatcher dispatcher;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(8);
+    systemExecutor = Executors.newSingleThreadScheduledExecutor();
+    modackResponder = Executors.newScheduledThreadPool(4);
+    MessageReceiverWithAckResponse receiver =
+        new MessageReceiverWithAckResponse() {
+          @Override
+          public void receiveMessage(PubsubMessage message, AckReplyConsumerWithResponse consumer) {
+            consumer.ack();
+            processed.release();
+          }
+        };
+    dispatcher =
+        MessageDispatcher.newBuilder(receiver)
+            .setAckProcessor(
+                new MessageDispatcher.AckProcessor() {
+                  @Override
+                  public void sendAckOperations(List<AckRequestData> ackRequestDataList) {
+                    for (AckRequestData ackRequestData : ackRequestDataList) {
+                      ackRequestData.setResponse(AckResponse.SUCCESSFUL, true);
+                    }
+                  }
+
+                  @Override
+                  public void sendModackOperations(List<ModackRequestData> modackRequestDataList) {
+                    for (ModackRequestData modackRequestData : modackRequestDataList) {
+                      if (modackRequestData.getIsReceiptModack()) {
+                        for (AckRequestData ackRequestData :
+                            modackRequestData.getAckRequestData()) {
+                          completeReceiptLater(ackRequestData);
+                        }
+                      }
+                    }
+                  }
+                })
+            .setAckExpirationPadding(Subscriber.ACK_EXPIRATION_PADDING_DEFAULT)
+            .setMaxAckExtensionPeriod(Subscriber.DEFAULT_MAX_ACK_EXTENSION_PERIOD)
+            .setMinDurationPerAckExtension(Subscriber.DEFAULT_MIN_ACK_DEADLINE_EXTENSION)
+            .setMinDurationPerAckExtensionDefaultUsed(true)
+            .setMaxDurationPerAckExtension(Subscriber.DEFAULT_MAX_ACK_DEADLINE_EXTENSION)
+            .setMaxDurationPerAckExtensionDefaultUsed(true)
+            .setAckLatencyDistribution(new Distribution(600))
+            .setFlowController(
+                new FlowController(
+                    FlowControlSettings.newBuilder()
+                        .setMaxOutstandingElementCount(10_000L)
+                        .setMaxOutstandingRequestBytes(100L * 1024L * 1024L)
+                        .setLimitExceededBehavior(LimitExceededBehavior.Block)
+                        .build()))
+            .setExecutor(executor)
+            .setSystemExecutor(systemExecutor)
+            .setApiClock(CurrentMillisClock.getDefaultClock())
+            .setSubscriptionName("projects/benchmark-project/subscriptions/benchmark-subscription")
+            .build();
+    dispatcher.setExactlyOnceDeliveryEnabled(true);
+    dispatcher.setMessageOrderingEnabled(orderingKeys > 0);
+
+    for (int i = 0; i < RESPONSES_IN_FLIGHT; i++) {
+      dispatchResponse();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    modackResponder.shutdownNow();
+    executor.shutdownNow();
+    systemExecutor.shutdownNow();
+  }
+
+  /** Dispatches one more response and waits for one response's worth of acked messages. */
+  @Benchmark
+  @OperationsPerInvocation(RESPONSE_SIZE)
+  public void receiveWithExactlyOnceDelivery() throws InterruptedException {
+    dispatchResponse();
+    processed.acquire(RESPONSE_SIZE);
+    dispatcher.processOutstandingOperations();
+  }
+
+  private void dispatchResponse() {
+    List<ReceivedMessage> response = new ArrayList<>(RESPONSE_SIZE);
+    for (int i = 0; i < RESPONSE_SIZE; i++) {
+      long id = nextAckId.getAndIncrement();
+      PubsubMessage.Builder message =
+          PubsubMessage.newBuilder()
+              .setMessageId(Long.toString(id))
+              .setData(ByteString.copyFromUtf8("payload"));
+      if (orderingKeys > 0) {
+        message.setOrderingKey("key-" + (id % orderingKeys));
+      }
+      response.add(ReceivedMessage.newBuilder().setAckId("ack-" + id).setMessage(message).build());
+    }
+    dispatcher.processReceivedMessages(response);
+    // Sends the receipt modacks for the new messages.
+    dispatcher.processOutstandingOperations();
+  }
+
+  private void completeReceiptLater(final AckRequestData ackRequestData) {
+    int latencyMillis =
+        ThreadLocalRandom.current().nextInt(100) < slowReceiptPercent
+            ? slowReceiptMillis
+            : fastReceiptMillis;
+    modackResponder.schedule(
+        new Runnable() {
+          @Override
+          public void run() {
+            dispatcher.notifyAckSuccess(ackRequestData);
+          }
+        },
+        latencyMillis,
+        TimeUnit.MILLISECONDS);
+  }
+}
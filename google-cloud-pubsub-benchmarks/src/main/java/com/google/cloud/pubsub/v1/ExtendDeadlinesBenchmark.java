@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.CurrentMillisClock;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+import com.google.api.gax.core.Distribution;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.ReceivedMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures one round of {@link MessageDispatcher#extendDeadlines} while the receiver holds a number
+ * of outstanding messages it has not acked yet, which is what the subscriber does periodically for
+ * the lifetime of every message.
+ *
+ * <p>Lives in the client package because {@link MessageDispatcher} is package-private. Modacks are
+ * handed to a no-op {@link MessageDispatcher.AckProcessor}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExtendDeadlinesBenchmark {
+  @Param({"1000", "10000", "100000"})
+  public int outstandingMessages;
+
+  private final Semaphore received = new Semaphore(0);
+  private final List<AckReplyConsumer> consumers = new ArrayList<>();
+  private ExecutorService executor;
+  private ScheduledExecutorService systemExecutor;
+  private MessageDispatcher dispatcher;
+
+  @Setup(Level.Trial)
+  public void setUp() throws InterruptedException {
+    executor = Executors.newSingleThreadExecutor();
+    systemExecutor = Executors.newSingleThreadScheduledExecutor();
+    MessageReceiver receiver =
+        new MessageReceiver() {
+          @Override
+          public void receiveMessage(PubsubMessage message, AckReplyConsumer consumer) {
+            // Called on the single executor thread, so the list needs no synchronization.
+            consumers.add(consumer);
+            received.release();
+          }
+        };
+    dispatcher =
+        MessageDispatcher.newBuilder(receiver)
+            .setAckProcessor(
+                new MessageDispatcher.AckProcessor() {
+                  @Override
+                  public void sendAckOperations(List<AckRequestData> ackRequestDataList) {}
+
+                  @Override
+                  public void sendModackOperations(List<ModackRequestData> modackRequestDataList) {}
+                })
+            .setAckExpirationPadding(Subscriber.ACK_EXPIRATION_PADDING_DEFAULT)
+            .setMaxAckExtensionPeriod(Subscriber.DEFAULT_MAX_ACK_EXTENSION_PERIOD)
+            .setMinDurationPerAckExtension(Subscriber.DEFAULT_MIN_ACK_DEADLINE_EXTENSION)
+            .setMinDurationPerAckExtensionDefaultUsed(true)
+            .setMaxDurationPerAckExtension(Subscriber.DEFAULT_MAX_ACK_DEADLINE_EXTENSION)
+            .setMaxDurationPerAckExtensionDefaultUsed(true)
+            .setAckLatencyDistribution(new Distribution(600))
+            .setFlowController(
+                new FlowController(
+                    FlowControlSettings.newBuilder()
+                        .setMaxOutstandingElementCount((long) outstandingMessages)
+                        .setMaxOutstandingRequestBytes(1L << 30)
+                        .setLimitExceededBehavior(LimitExceededBehavior.Block)
+                        .build()))
+            .setExecutor(executor)
+            .setSystemExecutor(systemExecutor)
+            .setApiClock(CurrentMillisClock.getDefaultClock())
+            .setSubscriptionName("projects/benchmark-project/subscriptions/benchmark-subscription")
+            .build();
+
+    List<ReceivedMessage> response = new ArrayList<>(outstandingMessages);
+    for (int i = 0; i < outstandingMessages; i++) {
+      response.add(
+          ReceivedMessage.newBuilder()
+              .setAckId("projects/benchmark-project/subscriptions/benchmark-subscription/ack-" + i)
+              .setMessage(
+                  PubsubMessage.newBuilder()
+                      .setMessageId(Integer.toString(i))
+                      .setData(ByteString.copyFrom(new byte[] {1})))
+              .build());
+    }
+    dispatcher.processReceivedMessages(response);
+    received.acquire(outstandingMessages);
+    // Sends the receipt modacks, so that only deadline extensions are measured.
+    dispatcher.processOutstandingOperations();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    for (AckReplyConsumer consumer : consumers) {
+      consumer.ack();
+    }
+    executor.shutdownNow();
+    systemExecutor.shutdownNow();
+  }
+
+  /** Builds the modacks extending the deadline of every outstanding message. */
+  @Benchmark
+  public void extendDeadlines() {
+    dispatcher.extendDeadlines();
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.pubsub.v1.SequentialExecutorService.AutoExecutor;
+import com.google.cloud.pubsub.v1.SequentialExecutorService.CallbackExecutor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the executors of {@link SequentialExecutorService}, which run the ordered publishes of
+ * the {@link Publisher} ({@link CallbackExecutor}) and the ordered messages of the {@link
+ * Subscriber} ({@link AutoExecutor}). It lives in the client package since both are
+ * package-private.
+ *
+ * <p>Each operation submits {@value #TASKS_PER_OP} trivial tasks spread over the ordering keys and
+ * waits until all of them ran.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SequentialExecutorBenchmark {
+  private static final int TASKS_PER_OP = 1000;
+
+  /** Number of distinct ordering keys the tasks are spread over. */
+  @Param({"1", "100", "10000"})
+  public int orderingKeys;
+
+  /** Size of the thread pool that runs the tasks. */
+  @Param({"1", "4"})
+  public int executorThreads;
+
+  private ExecutorService executor;
+  private AutoExecutor autoExecutor;
+  private CallbackExecutor callbackExecutor;
+  private String[] keys;
+  private int nextKey;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(executorThreads);
+    autoExecutor = new AutoExecutor(executor);
+    callbackExecutor = new CallbackExecutor(executor);
+    keys = new String[orderingKeys];
+    for (int i = 0; i < orderingKeys; i++) {
+      keys[i] = "key-" + i;
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  /** Runnables, as the subscriber submits for messages with ordering keys. */
+  @Benchmark
+  @OperationsPerInvocation(TASKS_PER_OP)
+  public void autoExecutor() throws InterruptedException {
+    final CountDownLatch done = new CountDownLatch(TASKS_PER_OP);
+    Runnable task =
+        new Runnable() {
+          @Override
+          public void run() {
+            done.countDown();
+          }
+        };
+    for (int i = 0; i < TASKS_PER_OP; i++) {
+      autoExecutor.submit(nextKey(), task);
+    }
+    done.await();
+  }
+
+  /** Callables returning futures, as the publisher submits for batches with ordering keys. */
+  @Benchmark
+  @OperationsPerInvocation(TASKS_PER_OP)
+  public List<String> callbackExecutor() throws Exception {
+    Callable<ApiFuture<String>> task =
+        new Callable<ApiFuture<String>>() {
+          @Override
+          public ApiFuture<String> call() {
+            return ApiFutures.immediateFuture("message-id");
+          }
+        };
+    List<ApiFuture<String>> futures = new ArrayList<>(TASKS_PER_OP);
+    for (int i = 0; i < TASKS_PER_OP; i++) {
+      futures.add(callbackExecutor.submit(nextKey(), task));
+    }
+    return ApiFutures.allAsList(futures).get();
+  }
+
+  private String nextKey() {
+    String key = keys[nextKey++];
+    if (nextKey == keys.length) {
+      nextKey = 0;
+    }
+    return key;
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.ReceivedMessage;
+import com.google.pubsub.v1.StreamingPullResponse;
+import io.grpc.Detachable;
+import io.grpc.HasByteBuffer;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.protobuf.ProtoUtils;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses a StreamingPull response of large messages from direct buffers, as gRPC hands them to the
+ * marshaller, with the default protobuf marshaller and with {@link
+ * AliasingStreamingPullResponseMarshaller} ({@code Subscriber.Builder.setEnableZeroCopyReceive}).
+ * Run with {@code -prof gc} to compare allocation per response.
+ *
+ * <p>Lives in the client package because the marshaller is package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ZeroCopyReceiveBenchmark {
+  // Roughly the size of the frames the transport receives data in.
+  private static final int BUFFER_SIZE = 32 * 1024;
+
+  @Param({"false", "true"})
+  public boolean zeroCopy;
+
+  @Param({"65536", "1048576"})
+  public int messageSize;
+
+  @Param({"3"})
+  public int messagesPerResponse;
+
+  private MethodDescriptor.Marshaller<StreamingPullResponse> defaultMarshaller;
+  private AliasingStreamingPullResponseMarshaller aliasingMarshaller;
+  private List<ByteBuffer> buffers;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    defaultMarshaller = ProtoUtils.marshaller(StreamingPullResponse.getDefaultInstance());
+    aliasingMarshaller = new AliasingStreamingPullResponseMarshaller();
+    Random random = new Random(1);
+    StreamingPullResponse.Builder response = StreamingPullResponse.newBuilder();
+    for (int i = 0; i < messagesPerResponse; i++) {
+      byte[] data = new byte[messageSize];
+      random.nextBytes(data);
+      response.addReceivedMessages(
+          ReceivedMessage.newBuilder()
+              .setAckId("ack-id-" + i)
+              .setMessage(
+                  PubsubMessage.newBuilder()
+                      .setMessageId("message-id-" + i)
+                      .setData(ByteString.copyFrom(data))));
+    }
+    byte[] bytes = response.build().toByteArray();
+    buffers = new ArrayList<>();
+    for (int offset = 0; offset < bytes.length; offset += BUFFER_SIZE) {
+      int length = Math.min(BUFFER_SIZE, bytes.length - offset);
+      ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+      buffer.put(bytes, offset, length).flip();
+      buffers.add(buffer);
+    }
+  }
+
+  @Benchmark
+  public StreamingPullResponse parse() {
+    BufferStream stream = new BufferStream(buffers);
+    if (!zeroCopy) {
+      return defaultMarshaller.parse(stream);
+    }
+    StreamingPullResponse response = aliasingMarshaller.parse(stream);
+    aliasingMarshaller.takeBuffers(response).run();
+    return response;
+  }
+
+  /** A stream over read-only views of direct buffers, like the ones gRPC passes to marshallers. */
+  private static class BufferStream extends InputStream
+      implements KnownLength, HasByteBuffer, Detachable {
+    private final Deque<ByteBuffer> buffers;
+
+    BufferStream(List<ByteBuffer> buffers) {
+      this.buffers = new ArrayDeque<>(buffers.size());
+      for (ByteBuffer buffer : buffers) {
+        this.buffers.add(buffer.duplicate());
+      }
+    }
+
+    private BufferStream(Deque<ByteBuffer> buffers) {
+      this.buffers = buffers;
+    }
+
+    @Override
+    public boolean byteBufferSupported() {
+      return true;
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() {
+      return buffers.isEmpty() ? null : buffers.peek().duplicate();
+    }
+
+    @Override
+    public InputStream detach() {
+      BufferStream detached = new BufferStream(new ArrayDeque<>(buffers));
+      buffers.clear();
+      return detached;
+    }
+
+    @Override
+    public int available() {
+      int available = 0;
+      for (ByteBuffer buffer : buffers) {
+        available += buffer.remaining();
+      }
+      return available;
+    }
+
+    @Override
+    public int read() {
+      if (buffers.isEmpty()) {
+        return -1;
+      }
+      int b = buffers.peek().get() & 0xFF;
+      if (!buffers.peek().hasRemaining()) {
+        buffers.poll();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (buffers.isEmpty()) {
+        return -1;
+      }
+      int read = 0;
+      while (read < len && !buffers.isEmpty()) {
+        ByteBuffer buffer = buffers.peek();
+        int step = Math.min(len - read, buffer.remaining());
+        buffer.get(b, off + read, step);
+        read += step;
+        if (!buffer.hasRemaining()) {
+          buffers.poll();
+        }
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) {
+      long skipped = 0;
+      while (skipped < n && !buffers.isEmpty()) {
+        ByteBuffer buffer = buffers.peek();
+        int step = (int) Math.min(n - skipped, buffer.remaining());
+        buffer.position(buffer.position() + step);
+        skipped += step;
+        if (!buffer.hasRemaining()) {
+          buffers.poll();
+        }
+      }
+      return skipped;
+    }
+  }
+}
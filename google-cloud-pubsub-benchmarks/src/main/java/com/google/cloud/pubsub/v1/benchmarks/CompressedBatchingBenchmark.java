@@ -0,0 +1,194 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.benchmarks;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.TopicName;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures publish throughput of a gzip-enabled {@link Publisher} sending JSON payloads to a local
+ * server over a loopback connection, with batches capped by uncompressed size and by estimated
+ * compressed size ({@link Publisher.Builder#setCompressedRequestBytesThreshold}). Prints the number
+ * of requests sent per 1000 messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CompressedBatchingBenchmark {
+  private static final int MESSAGES_PER_OP = 10000;
+  private static final int PAYLOADS = 1024;
+  private static final long REQUEST_BYTES = 1024L * 1024L;
+  private static final TopicName TOPIC = TopicName.of("benchmark-project", "benchmark-topic");
+
+  public enum BatchLimit {
+    UNCOMPRESSED_BYTES,
+    COMPRESSED_BYTES
+  }
+
+  @Param({"UNCOMPRESSED_BYTES", "COMPRESSED_BYTES"})
+  public BatchLimit batchLimit;
+
+  /** Approximate size of each JSON payload. */
+  @Param({"4096"})
+  public int payloadBytes;
+
+  private final FakePublisherService service = new FakePublisherService();
+  private Server server;
+  private ManagedChannel channel;
+  private Publisher publisher;
+  private PubsubMessage[] payloads;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    server =
+        Grpc.newServerBuilderForPort(0, InsecureServerCredentials.create())
+            .maxInboundMessageSize(2 * (int) Publisher.getApiMaxRequestBytes())
+            .addService(service)
+            .build()
+            .start();
+    channel =
+        Grpc.newChannelBuilderForAddress(
+                "localhost", server.getPort(), InsecureChannelCredentials.create())
+            .build();
+
+    Publisher.Builder builder =
+        Publisher.newBuilder(TOPIC)
+            .setChannelProvider(
+                FixedTransportChannelProvider.create(GrpcTransportChannel.create(channel)))
+            .setCredentialsProvider(NoCredentialsProvider.create())
+            .setEnableCompression(true)
+            .setBatchingSettings(
+                BatchingSettings.newBuilder()
+                    .setElementCountThreshold(Publisher.getApiMaxRequestElementCount())
+                    .setRequestByteThreshold(REQUEST_BYTES)
+                    .setDelayThresholdDuration(Duration.ofMillis(10))
+                    .build());
+    if (batchLimit == BatchLimit.COMPRESSED_BYTES) {
+      builder.setCompressedRequestBytesThreshold(REQUEST_BYTES);
+    }
+    publisher = builder.build();
+
+    Random random = new Random(1);
+    payloads = new PubsubMessage[PAYLOADS];
+    for (int i = 0; i < PAYLOADS; i++) {
+      payloads[i] =
+          PubsubMessage.newBuilder()
+              .setData(ByteString.copyFromUtf8(newOrderEvent(random, payloadBytes)))
+              .build();
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void resetCounters() {
+    service.resetCounts();
+  }
+
+  @TearDown(Level.Iteration)
+  public void printRequests() {
+    System.out.printf(
+        "%n%.2f requests per 1000 messages%n",
+        1000.0 * service.getRequestCount() / service.getMessageCount());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    publisher.shutdown();
+    publisher.awaitTermination(1, TimeUnit.MINUTES);
+    channel.shutdownNow();
+    server.shutdownNow().awaitTermination();
+  }
+
+  /** Publishes {@value #MESSAGES_PER_OP} messages and waits until all are acknowledged. */
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES_PER_OP)
+  public List<String> publish() throws Exception {
+    List<ApiFuture<String>> futures = new ArrayList<>(MESSAGES_PER_OP);
+    for (int i = 0; i < MESSAGES_PER_OP; i++) {
+      futures.add(publisher.publish(payloads[next++ & (PAYLOADS - 1)]));
+    }
+    return ApiFutures.allAsList(futures).get();
+  }
+
+  /** Returns an order event of about {@code size} bytes, with the field names JSON usually has. */
+  private static String newOrderEvent(Random random, int size) {
+    StringBuilder json = new StringBuilder(size + 256);
+    json.append("{\"eventType\":\"order.created\",\"eventId\":\"")
+        .append(Long.toHexString(random.nextLong()))
+        .append("\",\"timestamp\":\"2024-05-")
+        .append(10 + random.nextInt(20))
+        .append("T12:")
+        .append(10 + random.nextInt(50))
+        .append(":00Z\",\"customer\":{\"id\":")
+        .append(random.nextInt(1000000))
+        .append(",\"country\":\"")
+        .append(random.nextBoolean() ? "US" : "DE")
+        .append("\"},\"items\":[");
+    for (int item = 0; json.length() < size; item++) {
+      if (item > 0) {
+        json.append(',');
+      }
+      json.append("{\"sku\":\"SKU-")
+          .append(random.nextInt(100000))
+          .append("\",\"quantity\":")
+          .append(1 + random.nextInt(5))
+          .append(",\"unitPrice\":")
+          .append(random.nextInt(10000) / 100.0)
+          .append(",\"currency\":\"USD\",\"warehouse\":\"warehouse-")
+          .append(random.nextInt(20))
+          .append("\",\"giftWrap\":")
+          .append(random.nextBoolean())
+          .append('}');
+    }
+    return json.append("]}").toString();
+  }
+}
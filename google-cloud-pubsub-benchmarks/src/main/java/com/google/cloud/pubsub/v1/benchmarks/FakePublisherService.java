@@ -0,0 +1,57 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.benchmarks;
+
+import com.google.pubsub.v1.PublishRequest;
+import com.google.pubsub.v1.PublishResponse;
+import com.google.pubsub.v1.PublisherGrpc.PublisherImplBase;
+import io.grpc.stub.StreamObserver;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A publisher service that acknowledges every publish right away, counting requests and messages.
+ */
+public class FakePublisherService extends PublisherImplBase {
+  private final AtomicLong nextMessageId = new AtomicLong();
+  private final AtomicLong requestCount = new AtomicLong();
+  private final AtomicLong messageCount = new AtomicLong();
+
+  @Override
+  public void publish(PublishRequest request, StreamObserver<PublishResponse> responseObserver) {
+    requestCount.incrementAndGet();
+    messageCount.addAndGet(request.getMessagesCount());
+    PublishResponse.Builder response = PublishResponse.newBuilder();
+    for (int i = 0; i < request.getMessagesCount(); i++) {
+      response.addMessageIds(Long.toString(nextMessageId.incrementAndGet()));
+    }
+    responseObserver.onNext(response.build());
+    responseObserver.onCompleted();
+  }
+
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  public long getMessageCount() {
+    return messageCount.get();
+  }
+
+  public void resetCounts() {
+    requestCount.set(0);
+    messageCount.set(0);
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.benchmarks;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Empty;
+import com.google.pubsub.v1.AcknowledgeRequest;
+import com.google.pubsub.v1.ModifyAckDeadlineRequest;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.ReceivedMessage;
+import com.google.pubsub.v1.StreamingPullRequest;
+import com.google.pubsub.v1.StreamingPullResponse;
+import com.google.pubsub.v1.SubscriberGrpc.SubscriberImplBase;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A subscriber service that sends an endless supply of messages on every StreamingPull stream, as
+ * fast as the client asks for them.
+ *
+ * <p>Every message carries a {@value #STREAM_ATTRIBUTE} attribute holding the index of the stream
+ * it was sent on, so that benchmarks can make some streams more expensive to process than others.
+ * Acks and modacks are only counted.
+ */
+public class FakeStreamingPullService extends SubscriberImplBase {
+  public static final String STREAM_ATTRIBUTE = "stream";
+
+  private final int messagesPerResponse;
+  private final ByteString payload;
+  private final AtomicInteger openedStreams = new AtomicInteger();
+  private final AtomicLong nextMessageId = new AtomicLong();
+  private final AtomicLong ackCount = new AtomicLong();
+  private final AtomicLong modackCount = new AtomicLong();
+
+  public FakeStreamingPullService(int messagesPerResponse, int messageSizeBytes) {
+    this.messagesPerResponse = messagesPerResponse;
+    this.payload = ByteString.copyFrom(new byte[messageSizeBytes]);
+  }
+
+  @Override
+  public StreamObserver<StreamingPullRequest> streamingPull(
+      StreamObserver<StreamingPullResponse> responseObserver) {
+    final Stream stream =
+        new Stream(
+            (ServerCallStreamObserver<StreamingPullResponse>) responseObserver,
+            openedStreams.getAndIncrement());
+    stream.call.setOnReadyHandler(
+        new Runnable() {
+          @Override
+          public void run() {
+            stream.drain();
+          }
+        });
+    return new StreamObserver<StreamingPullRequest>() {
+      @Override
+      public void onNext(StreamingPullRequest request) {
+        ackCount.addAndGet(request.getAckIdsCount());
+        modackCount.addAndGet(request.getModifyDeadlineAckIdsCount());
+        if (!request.getSubscription().isEmpty()) {
+          stream.start();
+        }
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        stream.close();
+      }
+
+      @Override
+      public void onCompleted() {
+        stream.close();
+        stream.call.onCompleted();
+      }
+    };
+  }
+
+  @Override
+  public void acknowledge(AcknowledgeRequest request, StreamObserver<Empty> responseObserver) {
+    ackCount.addAndGet(request.getAckIdsCount());
+    responseObserver.onNext(Empty.getDefaultInstance());
+    responseObserver.onCompleted();
+  }
+
+  @Override
+  public void modifyAckDeadline(
+      ModifyAckDeadlineRequest request, StreamObserver<Empty> responseObserver) {
+    modackCount.addAndGet(request.getAckIdsCount());
+    responseObserver.onNext(Empty.getDefaultInstance());
+    responseObserver.onCompleted();
+  }
+
+  public long getAckCount() {
+    return ackCount.get();
+  }
+
+  public long getModackCount() {
+    return modackCount.get();
+  }
+
+  private final class Stream {
+    private final ServerCallStreamObserver<StreamingPullResponse> call;
+    private final String streamIndex;
+    private boolean started;
+    private boolean closed;
+
+    private Stream(ServerCallStreamObserver<StreamingPullResponse> call, int streamIndex) {
+      this.call = call;
+      this.streamIndex = Integer.toString(streamIndex);
+    }
+
+    synchronized void start() {
+      started = true;
+      drain();
+    }
+
+    synchronized void close() {
+      closed = true;
+    }
+
+    synchronized void drain() {
+      while (started && !closed && call.isReady()) {
+        call.onNext(nextResponse());
+      }
+    }
+
+    private StreamingPullResponse nextResponse() {
+      StreamingPullResponse.Builder response = StreamingPullResponse.newBuilder();
+      for (int i = 0; i < messagesPerResponse; i++) {
+        String id = Long.toString(nextMessageId.getAndIncrement());
+        response.addReceivedMessages(
+            ReceivedMessage.newBuilder()
+                .setAckId(id)
+                .setMessage(
+                    PubsubMessage.newBuilder()
+                        .setMessageId(id)
+                        .setData(payload)
+                        .putAttributes(STREAM_ATTRIBUTE, streamIndex)));
+      }
+      return response.build();
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.benchmarks;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/** A distribution of the latency that {@link LoadTestServer} adds to its responses. */
+public abstract class Latency {
+
+  /** Returns the next latency in nanoseconds. */
+  public abstract long nextNanos();
+
+  /** No added latency. */
+  public static Latency none() {
+    return fixed(Duration.ZERO);
+  }
+
+  /** The same latency for every response. */
+  public static Latency fixed(Duration latency) {
+    final long nanos = latency.toNanos();
+    return new Latency() {
+      @Override
+      public long nextNanos() {
+        return nanos;
+      }
+
+      @Override
+      public String toString() {
+        return "fixed(" + nanos / 1000 + "us)";
+      }
+    };
+  }
+
+  /** A latency uniformly distributed between {@code min} and {@code max}. */
+  public static Latency uniform(Duration min, Duration max) {
+    final long minNanos = min.toNanos();
+    final long maxNanos = max.toNanos();
+    if (maxNanos < minNanos) {
+      throw new IllegalArgumentException("max must not be less than min");
+    }
+    return new Latency() {
+      @Override
+      public long nextNanos() {
+        return minNanos + (long) (ThreadLocalRandom.current().nextDouble() * (maxNanos - minNanos));
+      }
+
+      @Override
+      public String toString() {
+        return "uniform(" + minNanos / 1000 + "us, " + maxNanos / 1000 + "us)";
+      }
+    };
+  }
+
+  /**
+   * {@code min} plus an exponentially distributed latency with the given mean, which gives the long
+   * tail of a real service.
+   */
+  public static Latency exponential(Duration min, Duration mean) {
+    final long minNanos = min.toNanos();
+    final double meanNanos = mean.toNanos();
+    return new Latency() {
+      @Override
+      public long nextNanos() {
+        double uniform = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return minNanos + (long) (-Math.log(uniform) * meanNanos);
+      }
+
+      @Override
+      public String toString() {
+        return "exponential(" + minNanos / 1000 + "us + " + (long) meanNanos / 1000 + "us)";
+      }
+    };
+  }
+}
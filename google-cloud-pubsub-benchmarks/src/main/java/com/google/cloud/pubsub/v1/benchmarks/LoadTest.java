@@ -0,0 +1,431 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.benchmarks;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.cloud.pubsub.v1.MessageReceiver;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.cloud.pubsub.v1.Subscriber;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.TopicName;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Runs real {@link Publisher}s and {@link Subscriber}s against a {@link LoadTestServer} and reports
+ * throughput, latency percentiles, RPC counts and GC activity, see {@link LoadTestReport}.
+ *
+ * <p>Each publisher publishes its share of the messages from its own thread, as fast as publisher
+ * flow control allows, and the subscribers ack every message. The test ends when every message was
+ * received once. Publishers and subscribers can be configured to compare settings:
+ *
+ * <pre>{@code
+ * LoadTestReport report =
+ *     LoadTest.newBuilder()
+ *         .setMessageCount(1_000_000)
+ *         .setOrderingKeys(100)
+ *         .setServer(LoadTestServer.newBuilder().setErrorRate(0.01))
+ *         .setSubscriberConfigurator(builder -> builder.setParallelPullCount(4))
+ *         .build()
+ *         .run();
+ * }</pre>
+ *
+ * <p>{@link #main} runs a few example scenarios.
+ */
+public class LoadTest {
+  private static final TopicName TOPIC = TopicName.of("load-test-project", "load-test-topic");
+  private static final ProjectSubscriptionName SUBSCRIPTION =
+      ProjectSubscriptionName.of("load-test-project", "load-test-subscription");
+  private static final String SEQUENCE_ATTRIBUTE = "sequence";
+  private static final String PUBLISH_NANOS_ATTRIBUTE = "publishNanos";
+
+  private final String name;
+  private final int messageCount;
+  private final int messageSize;
+  private final int orderingKeys;
+  private final int publisherCount;
+  private final int subscriberCount;
+  private final Duration timeout;
+  private final LoadTestServer.Builder serverBuilder;
+  private final Consumer<Publisher.Builder> publisherConfigurator;
+  private final Consumer<Subscriber.Builder> subscriberConfigurator;
+
+  private final Recorder publishLatency = new Recorder(3);
+  private final Recorder endToEndLatency = new Recorder(3);
+  private final AtomicLong failedPublishes = new AtomicLong();
+  private final AtomicLong duplicates = new AtomicLong();
+
+  private LoadTest(Builder builder) {
+    this.name = builder.name;
+    this.messageCount = builder.messageCount;
+    this.messageSize = builder.messageSize;
+    this.orderingKeys = builder.orderingKeys;
+    this.publisherCount = builder.publisherCount;
+    this.subscriberCount = builder.subscriberCount;
+    this.timeout = builder.timeout;
+    this.serverBuilder = builder.serverBuilder;
+    this.publisherConfigurator = builder.publisherConfigurator;
+    this.subscriberConfigurator = builder.subscriberConfigurator;
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /** Runs the test once. */
+  public LoadTestReport run() throws Exception {
+    LoadTestServer server = serverBuilder.start();
+    try {
+      return run(server);
+    } finally {
+      server.close();
+    }
+  }
+
+  private LoadTestReport run(LoadTestServer server) throws Exception {
+    final AtomicIntegerArray received = new AtomicIntegerArray(messageCount);
+    final CountDownLatch allReceived = new CountDownLatch(messageCount);
+    MessageReceiver receiver =
+        new MessageReceiver() {
+          @Override
+          public void receiveMessage(PubsubMessage message, AckReplyConsumer consumer) {
+            long now = System.nanoTime();
+            int sequence = Integer.parseInt(message.getAttributesOrThrow(SEQUENCE_ATTRIBUTE));
+            if (received.compareAndSet(sequence, 0, 1)) {
+              endToEndLatency.recordValue(
+                  now - Long.parseLong(message.getAttributesOrThrow(PUBLISH_NANOS_ATTRIBUTE)));
+              allReceived.countDown();
+            } else {
+              duplicates.incrementAndGet();
+            }
+            consumer.ack();
+          }
+        };
+    List<Subscriber> subscribers = new ArrayList<>(subscriberCount);
+    for (int i = 0; i < subscriberCount; i++) {
+      Subscriber.Builder builder =
+          Subscriber.newBuilder(SUBSCRIPTION, receiver)
+              .setChannelProvider(server.getChannelProvider())
+              .setCredentialsProvider(NoCredentialsProvider.create());
+      subscriberConfigurator.accept(builder);
+      Subscriber subscriber = builder.build();
+      subscriber.startAsync().awaitRunning();
+      subscribers.add(subscriber);
+    }
+
+    GcSnapshot gcBefore = GcSnapshot.take();
+    long start = System.nanoTime();
+    List<Thread> publishThreads = new ArrayList<>(publisherCount);
+    for (int i = 0; i < publisherCount; i++) {
+      final Publisher publisher = newPublisher(server);
+      final int first = (int) ((long) messageCount * i / publisherCount);
+      final int last = (int) ((long) messageCount * (i + 1) / publisherCount);
+      Thread thread =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  publish(publisher, first, last);
+                }
+              },
+              "load-test-publisher-" + i);
+      thread.start();
+      publishThreads.add(thread);
+    }
+    for (Thread thread : publishThreads) {
+      thread.join();
+    }
+    long publishEnd = System.nanoTime();
+    boolean completed =
+        allReceived.await(timeout.toNanos() - (publishEnd - start), TimeUnit.NANOSECONDS);
+    long end = System.nanoTime();
+    GcSnapshot gc = GcSnapshot.take().minus(gcBefore);
+
+    for (Subscriber subscriber : subscribers) {
+      subscriber.stopAsync();
+    }
+    for (Subscriber subscriber : subscribers) {
+      subscriber.awaitTerminated(1, TimeUnit.MINUTES);
+    }
+    return new LoadTestReport(
+        name,
+        completed,
+        messageCount,
+        messageCount - allReceived.getCount(),
+        duplicates.get(),
+        failedPublishes.get(),
+        publishEnd - start,
+        end - start,
+        publishLatency.getIntervalHistogram(),
+        endToEndLatency.getIntervalHistogram(),
+        server,
+        gc.count,
+        gc.timeMillis,
+        gc.peakHeapBytes);
+  }
+
+  private Publisher newPublisher(LoadTestServer server) throws Exception {
+    Publisher.Builder builder =
+        Publisher.newBuilder(TOPIC)
+            .setChannelProvider(server.getChannelProvider())
+            .setCredentialsProvider(NoCredentialsProvider.create())
+            .setEnableMessageOrdering(orderingKeys > 0)
+            .setBatchingSettings(
+                BatchingSettings.newBuilder()
+                    .setElementCountThreshold(100L)
+                    .setRequestByteThreshold(1000L)
+                    .setDelayThresholdDuration(Duration.ofMillis(1))
+                    .setFlowControlSettings(
+                        FlowControlSettings.newBuilder()
+                            .setMaxOutstandingElementCount(10000L)
+                            .setMaxOutstandingRequestBytes(100L * 1024L * 1024L)
+                            .setLimitExceededBehavior(LimitExceededBehavior.Block)
+                            .build())
+                    .build());
+    publisherConfigurator.accept(builder);
+    return builder.build();
+  }
+
+  /** Publishes the messages with sequence numbers in {@code [first, last)} and shuts down. */
+  private void publish(Publisher publisher, int first, int last) {
+    ByteString data = ByteString.copyFrom(new byte[messageSize]);
+    try {
+      for (int sequence = first; sequence < last; sequence++) {
+        final long publishNanos = System.nanoTime();
+        PubsubMessage.Builder message =
+            PubsubMessage.newBuilder()
+                .setData(data)
+                .putAttributes(SEQUENCE_ATTRIBUTE, Integer.toString(sequence))
+                .putAttributes(PUBLISH_NANOS_ATTRIBUTE, Long.toString(publishNanos));
+        if (orderingKeys > 0) {
+          message.setOrderingKey("key-" + sequence % orderingKeys);
+        }
+        ApiFuture<String> messageId = publisher.publish(message.build());
+        ApiFutures.addCallback(
+            messageId,
+            new ApiFutureCallback<String>() {
+              @Override
+              public void onSuccess(String messageId) {
+                publishLatency.recordValue(System.nanoTime() - publishNanos);
+              }
+
+              @Override
+              public void onFailure(Throwable t) {
+                failedPublishes.incrementAndGet();
+              }
+            },
+            MoreExecutors.directExecutor());
+      }
+    } finally {
+      publisher.shutdown();
+      try {
+        publisher.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /** GC counts and the peak heap usage since the last snapshot. */
+  private static final class GcSnapshot {
+    private final long count;
+    private final long timeMillis;
+    private final long peakHeapBytes;
+
+    private GcSnapshot(long count, long timeMillis, long peakHeapBytes) {
+      this.count = count;
+      this.timeMillis = timeMillis;
+      this.peakHeapBytes = peakHeapBytes;
+    }
+
+    /** Takes a snapshot and resets the peak heap usage. */
+    static GcSnapshot take() {
+      long count = 0;
+      long timeMillis = 0;
+      for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+        count += Math.max(0, gc.getCollectionCount());
+        timeMillis += Math.max(0, gc.getCollectionTime());
+      }
+      long peakHeapBytes = 0;
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (pool.getType() == MemoryType.HEAP) {
+          peakHeapBytes += pool.getPeakUsage().getUsed();
+          pool.resetPeakUsage();
+        }
+      }
+      return new GcSnapshot(count, timeMillis, peakHeapBytes);
+    }
+
+    GcSnapshot minus(GcSnapshot before) {
+      return new GcSnapshot(count - before.count, timeMillis - before.timeMillis, peakHeapBytes);
+    }
+  }
+
+  /** Builder of {@link LoadTest}. */
+  public static final class Builder {
+    private String name = "load-test";
+    private int messageCount = 100000;
+    private int messageSize = 1024;
+    private int orderingKeys;
+    private int publisherCount = 1;
+    private int subscriberCount = 1;
+    private Duration timeout = Duration.ofMinutes(5);
+    private LoadTestServer.Builder serverBuilder = LoadTestServer.newBuilder();
+    private Consumer<Publisher.Builder> publisherConfigurator = builder -> {};
+    private Consumer<Subscriber.Builder> subscriberConfigurator = builder -> {};
+
+    private Builder() {}
+
+    /** Name of the test in the report. */
+    public Builder setName(String name) {
+      this.name = name;
+      return this;
+    }
+
+    /** Total number of messages published, 100000 by default. */
+    public Builder setMessageCount(int messageCount) {
+      if (messageCount <= 0) {
+        throw new IllegalArgumentException("messageCount must be positive");
+      }
+      this.messageCount = messageCount;
+      return this;
+    }
+
+    /** Size of the message data, 1024 bytes by default. */
+    public Builder setMessageSize(int messageSize) {
+      this.messageSize = messageSize;
+      return this;
+    }
+
+    /** Number of ordering keys used round robin, or 0, the default, for no ordering keys. */
+    public Builder setOrderingKeys(int orderingKeys) {
+      this.orderingKeys = orderingKeys;
+      return this;
+    }
+
+    /** Number of publishers, each publishing from its own thread. 1 by default. */
+    public Builder setPublisherCount(int publisherCount) {
+      if (publisherCount <= 0) {
+        throw new IllegalArgumentException("publisherCount must be positive");
+      }
+      this.publisherCount = publisherCount;
+      return this;
+    }
+
+    /** Number of subscribers. 1 by default. */
+    public Builder setSubscriberCount(int subscriberCount) {
+      if (subscriberCount <= 0) {
+        throw new IllegalArgumentException("subscriberCount must be positive");
+      }
+      this.subscriberCount = subscriberCount;
+      return this;
+    }
+
+    /** How long to wait for all messages to be received, 5 minutes by default. */
+    public Builder setTimeout(Duration timeout) {
+      this.timeout = timeout;
+      return this;
+    }
+
+    /** Settings of the server started for each run. */
+    public Builder setServer(LoadTestServer.Builder serverBuilder) {
+      this.serverBuilder = serverBuilder;
+      return this;
+    }
+
+    /**
+     * Called with the builder of every publisher, after the channel, ordering and batching settings
+     * were set. The batching settings are the defaults plus blocking flow control at 10000
+     * messages.
+     */
+    public Builder setPublisherConfigurator(Consumer<Publisher.Builder> publisherConfigurator) {
+      this.publisherConfigurator = publisherConfigurator;
+      return this;
+    }
+
+    /** Called with the builder of every subscriber, after the channel was set. */
+    public Builder setSubscriberConfigurator(Consumer<Subscriber.Builder> subscriberConfigurator) {
+      this.subscriberConfigurator = subscriberConfigurator;
+      return this;
+    }
+
+    public LoadTest build() {
+      return new LoadTest(this);
+    }
+  }
+
+  /**
+   * Runs a few example scenarios and prints their reports. The only argument is the number of
+   * messages per scenario, 200000 by default.
+   */
+  public static void main(String[] args) throws Exception {
+    int messageCount = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    List<LoadTest> tests = new ArrayList<>();
+    tests.add(newBuilder().setName("baseline").setMessageCount(messageCount).build());
+    tests.add(
+        newBuilder()
+            .setName("ordering-keys")
+            .setMessageCount(messageCount)
+            .setOrderingKeys(1000)
+            .build());
+    tests.add(
+        newBuilder()
+            .setName("four-publishers-four-streams")
+            .setMessageCount(messageCount)
+            .setPublisherCount(4)
+            .setSubscriberConfigurator(builder -> builder.setParallelPullCount(4))
+            .build());
+    tests.add(
+        newBuilder()
+            .setName("latency-and-errors")
+            .setMessageCount(messageCount)
+            .setServer(
+                LoadTestServer.newBuilder()
+                    .setPublishLatency(
+                        Latency.exponential(Duration.ofMillis(2), Duration.ofMillis(3)))
+                    .setAckLatency(Latency.uniform(Duration.ofMillis(1), Duration.ofMillis(5)))
+                    .setErrorRate(0.01))
+            .build());
+    // Warms up the JIT, so that the first scenario is not slower than the others.
+    newBuilder().setMessageCount(Math.max(1, messageCount / 4)).build().run();
+    for (LoadTest test : tests) {
+      System.out.println(test.run());
+      System.out.println();
+    }
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Results of a {@link LoadTest} run. Latencies are in nanoseconds; publish latency is from {@code
+ * publish} until its future completes, end-to-end latency from {@code publish} until the first
+ * delivery to a receiver.
+ */
+public final class LoadTestReport {
+  private final String name;
+  private final boolean completed;
+  private final long messageCount;
+  private final long receivedMessageCount;
+  private final long duplicateCount;
+  private final long failedPublishCount;
+  private final long publishNanos;
+  private final long totalNanos;
+  private final Histogram publishLatency;
+  private final Histogram endToEndLatency;
+  private final long publishRpcCount;
+  private final long streamingPullCount;
+  private final long acknowledgeRpcCount;
+  private final long modifyAckDeadlineRpcCount;
+  private final long nackedMessageCount;
+  private final long injectedErrorCount;
+  private final long throttledCount;
+  private final long gcCount;
+  private final long gcTimeMillis;
+  private final long peakHeapBytes;
+
+  LoadTestReport(
+      String name,
+      boolean completed,
+      long messageCount,
+      long receivedMessageCount,
+      long duplicateCount,
+      long failedPublishCount,
+      long publishNanos,
+      long totalNanos,
+      Histogram publishLatency,
+      Histogram endToEndLatency,
+      LoadTestServer server,
+      long gcCount,
+      long gcTimeMillis,
+      long peakHeapBytes) {
+    this.name = name;
+    this.completed = completed;
+    this.messageCount = messageCount;
+    this.receivedMessageCount = receivedMessageCount;
+    this.duplicateCount = duplicateCount;
+    this.failedPublishCount = failedPublishCount;
+    this.publishNanos = publishNanos;
+    this.totalNanos = totalNanos;
+    this.publishLatency = publishLatency;
+    this.endToEndLatency = endToEndLatency;
+    this.publishRpcCount = server.getPublishCount();
+    this.streamingPullCount = server.getStreamingPullCount();
+    this.acknowledgeRpcCount = server.getAcknowledgeCount();
+    this.modifyAckDeadlineRpcCount = server.getModifyAckDeadlineCount();
+    this.nackedMessageCount = server.getNackedMessageCount();
+    this.injectedErrorCount = server.getInjectedErrorCount();
+    this.throttledCount = server.getThrottledCount();
+    this.gcCount = gcCount;
+    this.gcTimeMillis = gcTimeMillis;
+    this.peakHeapBytes = peakHeapBytes;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** Whether every message was received before the timeout. */
+  public boolean isCompleted() {
+    return completed;
+  }
+
+  public long getMessageCount() {
+    return messageCount;
+  }
+
+  /** Messages received at least once. */
+  public long getReceivedMessageCount() {
+    return receivedMessageCount;
+  }
+
+  /** Deliveries of messages that were already received. */
+  public long getDuplicateCount() {
+    return duplicateCount;
+  }
+
+  public long getFailedPublishCount() {
+    return failedPublishCount;
+  }
+
+  /** Messages published per second, until all publishers were shut down. */
+  public double getPublishThroughput() {
+    return perSecond(messageCount - failedPublishCount, publishNanos);
+  }
+
+  /** Messages received per second, from the first publish until the last message was received. */
+  public double getReceiveThroughput() {
+    return perSecond(receivedMessageCount, totalNanos);
+  }
+
+  public Histogram getPublishLatency() {
+    return publishLatency;
+  }
+
+  public Histogram getEndToEndLatency() {
+    return endToEndLatency;
+  }
+
+  public long getPublishRpcCount() {
+    return publishRpcCount;
+  }
+
+  public long getStreamingPullCount() {
+    return streamingPullCount;
+  }
+
+  public long getAcknowledgeRpcCount() {
+    return acknowledgeRpcCount;
+  }
+
+  public long getModifyAckDeadlineRpcCount() {
+    return modifyAckDeadlineRpcCount;
+  }
+
+  public long getNackedMessageCount() {
+    return nackedMessageCount;
+  }
+
+  public long getInjectedErrorCount() {
+    return injectedErrorCount;
+  }
+
+  public long getThrottledCount() {
+    return throttledCount;
+  }
+
+  /** Garbage collections during the run. */
+  public long getGcCount() {
+    return gcCount;
+  }
+
+  /** Time spent in garbage collections during the run. */
+  public long getGcTimeMillis() {
+    return gcTimeMillis;
+  }
+
+  /** Peak heap usage during the run, summed over the heap pools. */
+  public long getPeakHeapBytes() {
+    return peakHeapBytes;
+  }
+
+  private static double perSecond(long count, long nanos) {
+    return nanos == 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+  }
+
+  private static String percentiles(Histogram histogram) {
+    return String.format(
+        "p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms",
+        histogram.getValueAtPercentile(50) / 1e6,
+        histogram.getValueAtPercentile(99) / 1e6,
+        histogram.getValueAtPercentile(99.9) / 1e6,
+        histogram.getMaxValue() / 1e6);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%s%s%n"
+            + "  messages: %d received of %d, %d duplicates, %d failed publishes%n"
+            + "  throughput: publish %.0f msg/s, receive %.0f msg/s%n"
+            + "  publish latency: %s%n"
+            + "  end-to-end latency: %s%n"
+            + "  rpcs: %d publish, %d streaming pull, %d acknowledge, %d modify ack deadline,"
+            + " %d nacked messages, %d injected errors, %d throttled%n"
+            + "  gc: %d collections, %d ms, peak heap %d MiB",
+        name,
+        completed ? "" : " (TIMED OUT)",
+        receivedMessageCount,
+        messageCount,
+        duplicateCount,
+        failedPublishCount,
+        getPublishThroughput(),
+        getReceiveThroughput(),
+        percentiles(publishLatency),
+        percentiles(endToEndLatency),
+        publishRpcCount,
+        streamingPullCount,
+        acknowledgeRpcCount,
+        modifyAckDeadlineRpcCount,
+        nackedMessageCount,
+        injectedErrorCount,
+        throttledCount,
+        gcCount,
+        gcTimeMillis,
+        peakHeapBytes / (1024 * 1024));
+  }
+}
@@ -0,0 +1,487 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.benchmarks;
+
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.api.gax.rpc.TransportChannelProvider;
+import com.google.protobuf.Empty;
+import com.google.protobuf.Timestamp;
+import com.google.pubsub.v1.AcknowledgeRequest;
+import com.google.pubsub.v1.ModifyAckDeadlineRequest;
+import com.google.pubsub.v1.PublishRequest;
+import com.google.pubsub.v1.PublishResponse;
+import com.google.pubsub.v1.PublisherGrpc.PublisherImplBase;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.ReceivedMessage;
+import com.google.pubsub.v1.StreamingPullRequest;
+import com.google.pubsub.v1.StreamingPullResponse;
+import com.google.pubsub.v1.SubscriberGrpc.SubscriberImplBase;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process Pub/Sub server for load tests of real {@link com.google.cloud.pubsub.v1.Publisher}s
+ * and {@link com.google.cloud.pubsub.v1.Subscriber}s.
+ *
+ * <p>Published messages are kept in a single backlog and delivered over every open StreamingPull
+ * stream, as fast as the streams are ready. Acked messages are dropped and nacked messages are
+ * delivered again; leases never expire. Publish, Acknowledge and ModifyAckDeadline responses can be
+ * delayed by a {@link Latency}, can fail with {@code UNAVAILABLE} at a given rate, and publishes
+ * above a rate limit fail with {@code RESOURCE_EXHAUSTED}. All of these are retried by the client.
+ *
+ * <p>The server counts RPCs and messages, see the getters.
+ */
+public class LoadTestServer implements AutoCloseable {
+  private final Latency publishLatency;
+  private final Latency ackLatency;
+  private final double errorRate;
+  private final long maxPublishMessagesPerSecond;
+  private final int maxMessagesPerResponse;
+
+  private final Server server;
+  private final ManagedChannel channel;
+  private final ExecutorService transportExecutor;
+  private final ScheduledExecutorService responseExecutor;
+  private final Queue<PubsubMessage> backlog = new ConcurrentLinkedQueue<>();
+  private final ConcurrentHashMap<String, PubsubMessage> outstanding = new ConcurrentHashMap<>();
+  private final CopyOnWriteArraySet<Stream> streams = new CopyOnWriteArraySet<>();
+  private final AtomicLong nextMessageId = new AtomicLong();
+
+  private final AtomicLong publishCount = new AtomicLong();
+  private final AtomicLong publishedMessageCount = new AtomicLong();
+  private final AtomicLong streamingPullCount = new AtomicLong();
+  private final AtomicLong acknowledgeCount = new AtomicLong();
+  private final AtomicLong modifyAckDeadlineCount = new AtomicLong();
+  private final AtomicLong deliveredMessageCount = new AtomicLong();
+  private final AtomicLong ackedMessageCount = new AtomicLong();
+  private final AtomicLong nackedMessageCount = new AtomicLong();
+  private final AtomicLong injectedErrorCount = new AtomicLong();
+  private final AtomicLong throttledCount = new AtomicLong();
+
+  // Guarded by this.
+  private long throttleWindowStart;
+  private long throttleWindowMessages;
+
+  private LoadTestServer(Builder builder) throws IOException {
+    this.publishLatency = builder.publishLatency;
+    this.ackLatency = builder.ackLatency;
+    this.errorRate = builder.errorRate;
+    this.maxPublishMessagesPerSecond = builder.maxPublishMessagesPerSecond;
+    this.maxMessagesPerResponse = builder.maxMessagesPerResponse;
+    // The default executor of gRPC starts a thread for nearly every in-process call.
+    this.transportExecutor =
+        Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    this.responseExecutor = Executors.newScheduledThreadPool(4);
+    String serverName = InProcessServerBuilder.generateName();
+    this.server =
+        InProcessServerBuilder.forName(serverName)
+            .executor(transportExecutor)
+            .addService(new PublisherService())
+            .addService(new SubscriberService())
+            .build()
+            .start();
+    this.channel = InProcessChannelBuilder.forName(serverName).executor(transportExecutor).build();
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /** Returns a channel provider for publishers and subscribers, closed with the server. */
+  public TransportChannelProvider getChannelProvider() {
+    return FixedTransportChannelProvider.create(GrpcTransportChannel.create(channel));
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    channel.shutdownNow();
+    server.shutdownNow().awaitTermination(1, TimeUnit.MINUTES);
+    responseExecutor.shutdownNow();
+    transportExecutor.shutdownNow();
+  }
+
+  /** Publish RPCs, including failed ones. */
+  public long getPublishCount() {
+    return publishCount.get();
+  }
+
+  /** Messages published successfully. */
+  public long getPublishedMessageCount() {
+    return publishedMessageCount.get();
+  }
+
+  /** StreamingPull streams opened. */
+  public long getStreamingPullCount() {
+    return streamingPullCount.get();
+  }
+
+  /** Acknowledge RPCs, including failed ones. */
+  public long getAcknowledgeCount() {
+    return acknowledgeCount.get();
+  }
+
+  /** ModifyAckDeadline RPCs, including failed ones. */
+  public long getModifyAckDeadlineCount() {
+    return modifyAckDeadlineCount.get();
+  }
+
+  /** Messages sent on StreamingPull streams, including redeliveries. */
+  public long getDeliveredMessageCount() {
+    return deliveredMessageCount.get();
+  }
+
+  /** Messages acked successfully. */
+  public long getAckedMessageCount() {
+    return ackedMessageCount.get();
+  }
+
+  /** Messages nacked successfully, which were delivered again. */
+  public long getNackedMessageCount() {
+    return nackedMessageCount.get();
+  }
+
+  /** RPCs failed with {@code UNAVAILABLE} because of the error rate. */
+  public long getInjectedErrorCount() {
+    return injectedErrorCount.get();
+  }
+
+  /** Publish RPCs failed with {@code RESOURCE_EXHAUSTED} because of the rate limit. */
+  public long getThrottledCount() {
+    return throttledCount.get();
+  }
+
+  private boolean injectError() {
+    if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+      injectedErrorCount.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  private synchronized boolean throttle(int messages) {
+    if (maxPublishMessagesPerSecond <= 0) {
+      return false;
+    }
+    long now = System.nanoTime();
+    if (now - throttleWindowStart >= TimeUnit.SECONDS.toNanos(1)) {
+      throttleWindowStart = now;
+      throttleWindowMessages = 0;
+    }
+    if (throttleWindowMessages + messages > maxPublishMessagesPerSecond) {
+      throttledCount.incrementAndGet();
+      return true;
+    }
+    throttleWindowMessages += messages;
+    return false;
+  }
+
+  /** Runs {@code response} after a delay drawn from {@code latency}. */
+  private void respond(Latency latency, Runnable response) {
+    long delayNanos = latency.nextNanos();
+    if (delayNanos <= 0) {
+      response.run();
+    } else {
+      responseExecutor.schedule(response, delayNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void drainStreams() {
+    for (Stream stream : streams) {
+      stream.drain();
+    }
+  }
+
+  private void ack(List<String> ackIds) {
+    for (String ackId : ackIds) {
+      if (outstanding.remove(ackId) != null) {
+        ackedMessageCount.incrementAndGet();
+      }
+    }
+  }
+
+  private void modifyDeadlines(List<String> ackIds, int ackDeadlineSeconds) {
+    if (ackDeadlineSeconds > 0) {
+      return;
+    }
+    boolean redeliver = false;
+    for (String ackId : ackIds) {
+      PubsubMessage message = outstanding.remove(ackId);
+      if (message != null) {
+        nackedMessageCount.incrementAndGet();
+        backlog.add(message);
+        redeliver = true;
+      }
+    }
+    if (redeliver) {
+      drainStreams();
+    }
+  }
+
+  private final class PublisherService extends PublisherImplBase {
+    @Override
+    public void publish(
+        final PublishRequest request, final StreamObserver<PublishResponse> responseObserver) {
+      publishCount.incrementAndGet();
+      final boolean failed = injectError();
+      final boolean throttled = !failed && throttle(request.getMessagesCount());
+      respond(
+          publishLatency,
+          new Runnable() {
+            @Override
+            public void run() {
+              if (failed) {
+                responseObserver.onError(Status.UNAVAILABLE.asException());
+                return;
+              }
+              if (throttled) {
+                responseObserver.onError(Status.RESOURCE_EXHAUSTED.asException());
+                return;
+              }
+              long nowMillis = System.currentTimeMillis();
+              Timestamp publishTime =
+                  Timestamp.newBuilder()
+                      .setSeconds(nowMillis / 1000)
+                      .setNanos((int) (nowMillis % 1000) * 1000000)
+                      .build();
+              PublishResponse.Builder response = PublishResponse.newBuilder();
+              for (PubsubMessage message : request.getMessagesList()) {
+                String messageId = Long.toString(nextMessageId.incrementAndGet());
+                backlog.add(
+                    message
+                        .toBuilder()
+                        .setMessageId(messageId)
+                        .setPublishTime(publishTime)
+                        .build());
+                response.addMessageIds(messageId);
+              }
+              publishedMessageCount.addAndGet(request.getMessagesCount());
+              responseObserver.onNext(response.build());
+              responseObserver.onCompleted();
+              drainStreams();
+            }
+          });
+    }
+  }
+
+  private final class SubscriberService extends SubscriberImplBase {
+    @Override
+    public StreamObserver<StreamingPullRequest> streamingPull(
+        StreamObserver<StreamingPullResponse> responseObserver) {
+      streamingPullCount.incrementAndGet();
+      final Stream stream =
+          new Stream((ServerCallStreamObserver<StreamingPullResponse>) responseObserver);
+      stream.call.setOnReadyHandler(
+          new Runnable() {
+            @Override
+            public void run() {
+              stream.drain();
+            }
+          });
+      return new StreamObserver<StreamingPullRequest>() {
+        @Override
+        public void onNext(StreamingPullRequest request) {
+          ack(request.getAckIdsList());
+          for (int i = 0; i < request.getModifyDeadlineAckIdsCount(); i++) {
+            modifyDeadlines(
+                request.getModifyDeadlineAckIdsList().subList(i, i + 1),
+                request.getModifyDeadlineSeconds(i));
+          }
+          if (!request.getSubscription().isEmpty()) {
+            stream.start();
+          }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+          stream.close();
+        }
+
+        @Override
+        public void onCompleted() {
+          stream.close();
+          stream.call.onCompleted();
+        }
+      };
+    }
+
+    @Override
+    public void acknowledge(
+        final AcknowledgeRequest request, final StreamObserver<Empty> responseObserver) {
+      acknowledgeCount.incrementAndGet();
+      final boolean failed = injectError();
+      respond(
+          ackLatency,
+          new Runnable() {
+            @Override
+            public void run() {
+              if (failed) {
+                responseObserver.onError(Status.UNAVAILABLE.asException());
+                return;
+              }
+              ack(request.getAckIdsList());
+              responseObserver.onNext(Empty.getDefaultInstance());
+              responseObserver.onCompleted();
+            }
+          });
+    }
+
+    @Override
+    public void modifyAckDeadline(
+        final ModifyAckDeadlineRequest request, final StreamObserver<Empty> responseObserver) {
+      modifyAckDeadlineCount.incrementAndGet();
+      final boolean failed = injectError();
+      respond(
+          ackLatency,
+          new Runnable() {
+            @Override
+            public void run() {
+              if (failed) {
+                responseObserver.onError(Status.UNAVAILABLE.asException());
+                return;
+              }
+              modifyDeadlines(request.getAckIdsList(), request.getAckDeadlineSeconds());
+              responseObserver.onNext(Empty.getDefaultInstance());
+              responseObserver.onCompleted();
+            }
+          });
+    }
+  }
+
+  private final class Stream {
+    private final ServerCallStreamObserver<StreamingPullResponse> call;
+    private boolean started;
+    private boolean closed;
+
+    private Stream(ServerCallStreamObserver<StreamingPullResponse> call) {
+      this.call = call;
+    }
+
+    synchronized void start() {
+      if (!started) {
+        started = true;
+        streams.add(this);
+      }
+      drain();
+    }
+
+    synchronized void close() {
+      closed = true;
+      streams.remove(this);
+    }
+
+    synchronized void drain() {
+      while (started && !closed && call.isReady()) {
+        List<ReceivedMessage> messages = new ArrayList<>();
+        PubsubMessage message;
+        while (messages.size() < maxMessagesPerResponse && (message = backlog.poll()) != null) {
+          outstanding.put(message.getMessageId(), message);
+          messages.add(
+              ReceivedMessage.newBuilder()
+                  .setAckId(message.getMessageId())
+                  .setMessage(message)
+                  .build());
+        }
+        if (messages.isEmpty()) {
+          return;
+        }
+        deliveredMessageCount.addAndGet(messages.size());
+        call.onNext(StreamingPullResponse.newBuilder().addAllReceivedMessages(messages).build());
+      }
+    }
+  }
+
+  /** Builder of {@link LoadTestServer}. */
+  public static final class Builder {
+    private Latency publishLatency = Latency.none();
+    private Latency ackLatency = Latency.none();
+    private double errorRate;
+    private long maxPublishMessagesPerSecond;
+    private int maxMessagesPerResponse = 1000;
+
+    private Builder() {}
+
+    /** Latency of Publish responses. */
+    public Builder setPublishLatency(Latency publishLatency) {
+      this.publishLatency = publishLatency;
+      return this;
+    }
+
+    /** Latency of Acknowledge and ModifyAckDeadline responses. */
+    public Builder setAckLatency(Latency ackLatency) {
+      this.ackLatency = ackLatency;
+      return this;
+    }
+
+    /** Fraction of Publish, Acknowledge and ModifyAckDeadline RPCs failing with UNAVAILABLE. */
+    public Builder setErrorRate(double errorRate) {
+      if (errorRate < 0 || errorRate >= 1) {
+        throw new IllegalArgumentException("errorRate must be in [0, 1)");
+      }
+      this.errorRate = errorRate;
+      return this;
+    }
+
+    /**
+     * Messages accepted per second, publishes above it fail with RESOURCE_EXHAUSTED. 0, the
+     * default, means no limit.
+     */
+    public Builder setMaxPublishMessagesPerSecond(long maxPublishMessagesPerSecond) {
+      this.maxPublishMessagesPerSecond = maxPublishMessagesPerSecond;
+      return this;
+    }
+
+    /** Maximum number of messages in a StreamingPull response, 1000 by default. */
+    public Builder setMaxMessagesPerResponse(int maxMessagesPerResponse) {
+      if (maxMessagesPerResponse <= 0) {
+        throw new IllegalArgumentException("maxMessagesPerResponse must be positive");
+      }
+      this.maxMessagesPerResponse = maxMessagesPerResponse;
+      return this;
+    }
+
+    /** Starts the server. */
+    public LoadTestServer start() throws IOException {
+      return new LoadTestServer(this);
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "publishLatency=%s, ackLatency=%s, errorRate=%s, maxPublishMessagesPerSecond=%d",
+          publishLatency, ackLatency, errorRate, maxPublishMessagesPerSecond);
+    }
+  }
+}
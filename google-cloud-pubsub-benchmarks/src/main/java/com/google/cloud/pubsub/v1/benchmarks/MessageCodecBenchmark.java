@@ -0,0 +1,129 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.benchmarks;
+
+import com.google.cloud.pubsub.v1.MessageCodec;
+import com.google.cloud.pubsub.v1.ProtobufMessageCodec;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Duration;
+import com.google.protobuf.util.JsonFormat;
+import com.google.pubsub.v1.DeadLetterPolicy;
+import com.google.pubsub.v1.Encoding;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.RetryPolicy;
+import com.google.pubsub.v1.Subscription;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the throughput of building and decoding messages of a protocol buffer schema with a
+ * {@link ProtobufMessageCodec} against doing so as the {@code PublishProtobufMessagesExample} and
+ * {@code SubscribeWithProtoSchemaExample} samples do, creating a JSON printer or parser for every
+ * message. Run with {@code -prof gc} to compare the allocations per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class MessageCodecBenchmark {
+  @Param({"BINARY", "JSON"})
+  public Encoding encoding;
+
+  private MessageCodec<Subscription> codec;
+  private Subscription value;
+  private PubsubMessage message;
+
+  @Setup
+  public void setUp() {
+    codec = ProtobufMessageCodec.of(Subscription.getDefaultInstance(), encoding);
+    value =
+        Subscription.newBuilder()
+            .setName("projects/benchmark-project/subscriptions/benchmark-subscription")
+            .setTopic("projects/benchmark-project/topics/benchmark-topic")
+            .setAckDeadlineSeconds(60)
+            .setRetainAckedMessages(true)
+            .setMessageRetentionDuration(Duration.newBuilder().setSeconds(604800))
+            .putLabels("team", "orders")
+            .putLabels("environment", "production")
+            .setEnableMessageOrdering(true)
+            .setFilter("attributes.eventType = \"order.created\"")
+            .setDeadLetterPolicy(
+                DeadLetterPolicy.newBuilder()
+                    .setDeadLetterTopic("projects/benchmark-project/topics/dead-letters")
+                    .setMaxDeliveryAttempts(10))
+            .setRetryPolicy(
+                RetryPolicy.newBuilder()
+                    .setMinimumBackoff(Duration.newBuilder().setSeconds(10))
+                    .setMaximumBackoff(Duration.newBuilder().setSeconds(600)))
+            .setEnableExactlyOnceDelivery(true)
+            .build();
+    message =
+        PubsubMessage.newBuilder()
+            .setData(codec.encode(value))
+            .putAttributes(MessageCodec.SCHEMA_REVISION_ID_ATTRIBUTE, "rev-1")
+            .build();
+  }
+
+  @Benchmark
+  public PubsubMessage encodeAsSample() throws Exception {
+    PubsubMessage.Builder builder = PubsubMessage.newBuilder();
+    if (encoding == Encoding.BINARY) {
+      builder.setData(value.toByteString());
+    } else {
+      String json = JsonFormat.printer().omittingInsignificantWhitespace().print(value);
+      builder.setData(ByteString.copyFromUtf8(json));
+    }
+    return builder.build();
+  }
+
+  @Benchmark
+  public PubsubMessage encodeWithCodec() {
+    return PubsubMessage.newBuilder().setData(codec.encode(value)).build();
+  }
+
+  @Benchmark
+  public Subscription decodeAsSample() throws Exception {
+    ByteString data = message.getData();
+    if (encoding == Encoding.BINARY) {
+      return Subscription.parseFrom(data);
+    }
+    Subscription.Builder builder = Subscription.newBuilder();
+    JsonFormat.parser().merge(data.toStringUtf8(), builder);
+    return builder.build();
+  }
+
+  @Benchmark
+  public Subscription decodeWithCodec() {
+    return codec.decode(
+        message.getData(),
+        message.getAttributesOrDefault(MessageCodec.SCHEMA_REVISION_ID_ATTRIBUTE, ""));
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.benchmarks;
+
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.core.InstantiatingExecutorProvider;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.cloud.pubsub.v1.MessageReceiver;
+import com.google.cloud.pubsub.v1.Subscriber;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.PubsubMessage;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures end-to-end receive throughput of a {@link Subscriber} with several StreamingPull streams
+ * against an in-process server, comparing one executor per stream with a single shared
+ * work-stealing pool.
+ *
+ * <p>Messages from stream 0 can be made more expensive to process than the others with {@code
+ * skewedWorkTokens}; this is the case where per-stream executors leave threads idle on the cheap
+ * streams while the expensive one queues work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MultiStreamThroughputBenchmark {
+  private static final int MESSAGES_PER_OP = 1000;
+  private static final int THREADS_PER_STREAM = 5;
+  private static final ProjectSubscriptionName SUBSCRIPTION =
+      ProjectSubscriptionName.of("benchmark-project", "benchmark-subscription");
+
+  public enum ExecutorMode {
+    PER_STREAM,
+    SHARED_FORK_JOIN
+  }
+
+  @Param({"PER_STREAM", "SHARED_FORK_JOIN"})
+  public ExecutorMode executorMode;
+
+  @Param({"4"})
+  public int streams;
+
+  @Param({"100"})
+  public int workTokens;
+
+  @Param({"100", "10000"})
+  public int skewedWorkTokens;
+
+  private final Semaphore processed = new Semaphore(0);
+  private Server server;
+  private ManagedChannel channel;
+  private ForkJoinPool sharedPool;
+  private Subscriber subscriber;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    String serverName = "multi-stream-" + System.nanoTime();
+    server =
+        InProcessServerBuilder.forName(serverName)
+            .addService(new FakeStreamingPullService(100, 16))
+            .build()
+            .start();
+    channel = InProcessChannelBuilder.forName(serverName).build();
+
+    final String skewedStream = "0";
+    MessageReceiver receiver =
+        new MessageReceiver() {
+          @Override
+          public void receiveMessage(PubsubMessage message, AckReplyConsumer consumer) {
+            String stream =
+                message.getAttributesOrDefault(FakeStreamingPullService.STREAM_ATTRIBUTE, "");
+            Blackhole.consumeCPU(skewedStream.equals(stream) ? skewedWorkTokens : workTokens);
+            consumer.ack();
+            processed.release();
+          }
+        };
+
+    Subscriber.Builder builder =
+        Subscriber.newBuilder(SUBSCRIPTION, receiver)
+            .setChannelProvider(
+                FixedTransportChannelProvider.create(GrpcTransportChannel.create(channel)))
+            .setCredentialsProvider(NoCredentialsProvider.create())
+            .setParallelPullCount(streams)
+            .setFlowControlSettings(
+                FlowControlSettings.newBuilder()
+                    .setMaxOutstandingElementCount(1000L)
+                    .setMaxOutstandingRequestBytes(100L * 1024L * 1024L)
+                    .build());
+    if (executorMode == ExecutorMode.SHARED_FORK_JOIN) {
+      sharedPool =
+          new ForkJoinPool(
+              streams * THREADS_PER_STREAM,
+              ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+              null,
+              true);
+      builder.setSharedExecutor(sharedPool);
+    } else {
+      builder.setExecutorProvider(
+          InstantiatingExecutorProvider.newBuilder()
+              .setExecutorThreadCount(THREADS_PER_STREAM)
+              .build());
+    }
+    subscriber = builder.build();
+    subscriber.startAsync().awaitRunning();
+  }
+
+  @Setup(Level.Iteration)
+  public void resetCounter() {
+    processed.drainPermits();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    subscriber.stopAsync().awaitTerminated(1, TimeUnit.MINUTES);
+    if (sharedPool != null) {
+      sharedPool.shutdownNow();
+    }
+    channel.shutdownNow();
+    server.shutdownNow().awaitTermination();
+  }
+
+  /** Waits until {@value #MESSAGES_PER_OP} messages were received and acked. */
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES_PER_OP)
+  public void receiveAndAck() throws InterruptedException {
+    processed.acquire(MESSAGES_PER_OP);
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.benchmarks;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.TopicName;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.TracerProvider;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Publisher#publish} end to end against an in-process server, which covers adding
+ * messages to batches, publisher flow control, ordering keys and tracing.
+ *
+ * <p>Each operation publishes {@value #MESSAGES_PER_OP} messages and waits for all of their message
+ * IDs, so the throughput is in messages per second and the sample time is the average time per
+ * message within a burst. The number of publishing threads is set with JMH's {@code -t} option.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PublisherBenchmark {
+  private static final int MESSAGES_PER_OP = 1000;
+  private static final TopicName TOPIC = TopicName.of("benchmark-project", "benchmark-topic");
+
+  @Param({"16", "1024", "65536"})
+  public int messageSize;
+
+  /** Number of distinct ordering keys, or 0 to publish without ordering keys. */
+  @Param({"0", "1", "1000"})
+  public int orderingKeys;
+
+  /** Whether spans are created and recorded by an OpenTelemetry SDK tracer. */
+  @Param({"false", "true"})
+  public boolean tracing;
+
+  /** Whether publisher flow control is enabled, with limits that are never reached. */
+  @Param({"false", "true"})
+  public boolean flowControl;
+
+  private Server server;
+  private ManagedChannel channel;
+  private SdkTracerProvider tracerProvider;
+  private Publisher publisher;
+  private PubsubMessage[] messages;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    String serverName = InProcessServerBuilder.generateName();
+    server =
+        InProcessServerBuilder.forName(serverName)
+            .addService(new FakePublisherService())
+            .build()
+            .start();
+    channel = InProcessChannelBuilder.forName(serverName).build();
+
+    Publisher.Builder builder =
+        Publisher.newBuilder(TOPIC)
+            .setChannelProvider(
+                FixedTransportChannelProvider.create(GrpcTransportChannel.create(channel)))
+            .setCredentialsProvider(NoCredentialsProvider.create())
+            .setEnableMessageOrdering(orderingKeys > 0);
+    BatchingSettings.Builder batchingSettings =
+        BatchingSettings.newBuilder()
+            .setElementCountThreshold(100L)
+            .setRequestByteThreshold(1000L * 1000L)
+            .setDelayThresholdDuration(Duration.ofMillis(1));
+    if (flowControl) {
+      batchingSettings.setFlowControlSettings(
+          FlowControlSettings.newBuilder()
+              .setMaxOutstandingElementCount(1000L * 1000L)
+              .setMaxOutstandingRequestBytes(1L << 40)
+              .setLimitExceededBehavior(LimitExceededBehavior.Block)
+              .build());
+    }
+    builder.setBatchingSettings(batchingSettings.build());
+    if (tracing) {
+      tracerProvider = SdkTracerProvider.builder().setSampler(Sampler.alwaysOn()).build();
+      builder
+          .setEnableOpenTelemetryTracing(true)
+          .setOpenTelemetry(newOpenTelemetry(tracerProvider));
+    }
+    publisher = builder.build();
+
+    ByteString data = ByteString.copyFrom(new byte[messageSize]);
+    messages = new PubsubMessage[MESSAGES_PER_OP];
+    for (int i = 0; i < MESSAGES_PER_OP; i++) {
+      PubsubMessage.Builder message = PubsubMessage.newBuilder().setData(data);
+      if (orderingKeys > 0) {
+        message.setOrderingKey("key-" + (i % orderingKeys));
+      }
+      messages[i] = message.build();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    publisher.shutdown();
+    publisher.awaitTermination(1, TimeUnit.MINUTES);
+    if (tracerProvider != null) {
+      tracerProvider.close();
+    }
+    channel.shutdownNow();
+    server.shutdownNow().awaitTermination();
+  }
+
+  /** Publishes {@value #MESSAGES_PER_OP} messages and waits until all are acknowledged. */
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES_PER_OP)
+  public List<String> publish() throws Exception {
+    List<ApiFuture<String>> futures = new ArrayList<>(MESSAGES_PER_OP);
+    for (PubsubMessage message : messages) {
+      futures.add(publisher.publish(message));
+    }
+    return ApiFutures.allAsList(futures).get();
+  }
+
+  private static OpenTelemetry newOpenTelemetry(final TracerProvider tracerProvider) {
+    return new OpenTelemetry() {
+      @Override
+      public TracerProvider getTracerProvider() {
+        return tracerProvider;
+      }
+
+      @Override
+      public ContextPropagators getPropagators() {
+        return ContextPropagators.noop();
+      }
+    };
+  }
+}
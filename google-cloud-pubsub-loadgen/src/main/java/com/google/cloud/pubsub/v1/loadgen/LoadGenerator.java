@@ -0,0 +1,345 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.loadgen;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+import com.google.api.gax.core.CredentialsProvider;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.AlreadyExistsException;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.api.gax.rpc.TransportChannelProvider;
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.cloud.pubsub.v1.MessageReceiver;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.cloud.pubsub.v1.Subscriber;
+import com.google.cloud.pubsub.v1.SubscriptionAdminClient;
+import com.google.cloud.pubsub.v1.SubscriptionAdminSettings;
+import com.google.cloud.pubsub.v1.TopicAdminClient;
+import com.google.cloud.pubsub.v1.TopicAdminSettings;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.Subscription;
+import com.google.pubsub.v1.TopicName;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives publishers and subscribers against a Pub/Sub endpoint or emulator and writes throughput
+ * and HDR latency percentiles per report interval, followed by a total, see {@link
+ * LoadGeneratorOptions#USAGE}.
+ *
+ * <p>Every message carries its publish time in the {@value #PUBLISH_TIME_ATTRIBUTE} attribute, so
+ * that subscribers can measure the end-to-end latency, also when publishers and subscribers run in
+ * separate processes.
+ */
+public final class LoadGenerator {
+  static final String PUBLISH_TIME_ATTRIBUTE = "loadgen_publish_time_us";
+
+  private final LoadGeneratorOptions options;
+  private final LoadMetrics metrics = new LoadMetrics();
+  private final TopicName topic;
+  private final ProjectSubscriptionName subscription;
+  private volatile boolean publishing = true;
+
+  private ManagedChannel emulatorChannel;
+  private TransportChannelProvider channelProvider;
+  private CredentialsProvider credentialsProvider;
+
+  private LoadGenerator(LoadGeneratorOptions options) {
+    this.options = options;
+    this.topic = TopicName.of(options.project, options.topic);
+    this.subscription =
+        options.subscription == null
+            ? null
+            : ProjectSubscriptionName.of(options.project, options.subscription);
+  }
+
+  public static void main(String[] args) throws Exception {
+    LoadGeneratorOptions options;
+    try {
+      options = LoadGeneratorOptions.parse(args, System.getenv());
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println();
+      System.err.println(LoadGeneratorOptions.USAGE);
+      System.exit(2);
+      return;
+    }
+    PrintStream out =
+        options.output == null
+            ? System.out
+            : new PrintStream(new FileOutputStream(options.output), false, "UTF-8");
+    try {
+      new LoadGenerator(options).run(ReportWriter.create(options.format, out));
+    } finally {
+      out.flush();
+      if (out != System.out) {
+        out.close();
+      }
+    }
+    // The default executors of the clients are not daemon threads.
+    System.exit(0);
+  }
+
+  private void run(final ReportWriter writer) throws Exception {
+    if (options.emulatorHost != null) {
+      emulatorChannel =
+          ManagedChannelBuilder.forTarget(options.emulatorHost).usePlaintext().build();
+      channelProvider =
+          FixedTransportChannelProvider.create(GrpcTransportChannel.create(emulatorChannel));
+      credentialsProvider = NoCredentialsProvider.create();
+    }
+    ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+    List<Subscriber> subscribers = new ArrayList<>();
+    try {
+      if (options.createResources) {
+        createResources();
+      }
+      for (int i = 0; i < options.subscribers; i++) {
+        Subscriber subscriber = newSubscriber();
+        subscriber.startAsync().awaitRunning();
+        subscribers.add(subscriber);
+      }
+
+      reporter.scheduleAtFixedRate(
+          new Runnable() {
+            @Override
+            public void run() {
+              writer.write(metrics.nextInterval());
+            }
+          },
+          options.reportIntervalSeconds,
+          options.reportIntervalSeconds,
+          TimeUnit.SECONDS);
+
+      List<Thread> publishThreads = new ArrayList<>();
+      for (int i = 0; i < options.publishers; i++) {
+        final Publisher publisher = newPublisher();
+        final long seed = i;
+        Thread thread =
+            new Thread(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    publish(publisher, new Random(seed));
+                  }
+                },
+                "loadgen-publisher-" + i);
+        thread.start();
+        publishThreads.add(thread);
+      }
+      Thread.sleep(TimeUnit.SECONDS.toMillis(options.durationSeconds));
+      publishing = false;
+      for (Thread thread : publishThreads) {
+        thread.join();
+      }
+
+      long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.drainSeconds);
+      while (!subscribers.isEmpty()
+          && metrics.getReceived() < metrics.getPublished()
+          && System.nanoTime() < drainDeadline) {
+        Thread.sleep(100);
+      }
+    } finally {
+      reporter.shutdown();
+      reporter.awaitTermination(1, TimeUnit.MINUTES);
+      for (Subscriber subscriber : subscribers) {
+        subscriber.stopAsync();
+      }
+      for (Subscriber subscriber : subscribers) {
+        subscriber.awaitTerminated(1, TimeUnit.MINUTES);
+      }
+      if (emulatorChannel != null) {
+        emulatorChannel.shutdownNow();
+      }
+    }
+    writer.write(metrics.nextInterval());
+    writer.write(metrics.total());
+  }
+
+  private void createResources() throws Exception {
+    TopicAdminSettings.Builder topicSettings = TopicAdminSettings.newBuilder();
+    SubscriptionAdminSettings.Builder subscriptionSettings = SubscriptionAdminSettings.newBuilder();
+    if (channelProvider != null) {
+      topicSettings
+          .setTransportChannelProvider(channelProvider)
+          .setCredentialsProvider(credentialsProvider);
+      subscriptionSettings
+          .setTransportChannelProvider(channelProvider)
+          .setCredentialsProvider(credentialsProvider);
+    } else if (options.endpoint != null) {
+      topicSettings.setEndpoint(options.endpoint);
+      subscriptionSettings.setEndpoint(options.endpoint);
+    }
+    try (TopicAdminClient topicAdminClient = TopicAdminClient.create(topicSettings.build())) {
+      topicAdminClient.createTopic(topic);
+    } catch (AlreadyExistsException e) {
+      // Created by an earlier run.
+    }
+    if (subscription == null) {
+      return;
+    }
+    try (SubscriptionAdminClient subscriptionAdminClient =
+        SubscriptionAdminClient.create(subscriptionSettings.build())) {
+      subscriptionAdminClient.createSubscription(
+          Subscription.newBuilder()
+              .setName(subscription.toString())
+              .setTopic(topic.toString())
+              .setAckDeadlineSeconds(60)
+              .build());
+    } catch (AlreadyExistsException e) {
+      // Created by an earlier run.
+    }
+  }
+
+  private Publisher newPublisher() throws Exception {
+    Publisher.Builder builder =
+        Publisher.newBuilder(topic)
+            .setEnableMessageOrdering(options.orderingKeys > 0)
+            .setEnableCompression(options.compression)
+            .setCompressionBytesThreshold(options.compressionThreshold)
+            .setBatchingSettings(
+                BatchingSettings.newBuilder()
+                    .setElementCountThreshold(options.batchMessages)
+                    .setRequestByteThreshold(options.batchBytes)
+                    .setDelayThresholdDuration(Duration.ofMillis(options.batchDelayMillis))
+                    .setFlowControlSettings(
+                        FlowControlSettings.newBuilder()
+                            .setMaxOutstandingElementCount(options.publisherMaxMessages)
+                            .setMaxOutstandingRequestBytes(options.publisherMaxBytes)
+                            .setLimitExceededBehavior(LimitExceededBehavior.Block)
+                            .build())
+                    .build());
+    if (channelProvider != null) {
+      builder.setChannelProvider(channelProvider).setCredentialsProvider(credentialsProvider);
+    } else if (options.endpoint != null) {
+      builder.setEndpoint(options.endpoint);
+    }
+    return builder.build();
+  }
+
+  private Subscriber newSubscriber() {
+    MessageReceiver receiver =
+        new MessageReceiver() {
+          @Override
+          public void receiveMessage(PubsubMessage message, AckReplyConsumer consumer) {
+            String publishTime = message.getAttributesOrDefault(PUBLISH_TIME_ATTRIBUTE, null);
+            consumer.ack();
+            if (publishTime == null) {
+              metrics.recordReceived();
+            } else {
+              metrics.recordReceived(metrics.nowEpochMicros() - Long.parseLong(publishTime));
+            }
+          }
+        };
+    Subscriber.Builder builder =
+        Subscriber.newBuilder(subscription, receiver)
+            .setParallelPullCount(options.parallelPullCount)
+            .setFlowControlSettings(
+                FlowControlSettings.newBuilder()
+                    .setMaxOutstandingElementCount(options.subscriberMaxMessages)
+                    .setMaxOutstandingRequestBytes(options.subscriberMaxBytes)
+                    .build());
+    if (channelProvider != null) {
+      builder.setChannelProvider(channelProvider).setCredentialsProvider(credentialsProvider);
+    } else if (options.endpoint != null) {
+      builder.setEndpoint(options.endpoint);
+    }
+    return builder.build();
+  }
+
+  /** Publishes until the duration is over, then shuts the publisher down. */
+  private void publish(Publisher publisher, Random random) {
+    byte[] bytes = new byte[options.maxMessageSize];
+    random.nextBytes(bytes);
+    ByteString payload = ByteString.copyFrom(bytes);
+    OrderingKeyDistribution keys = null;
+    if (options.orderingKeys > 0) {
+      keys =
+          options.keyDistribution == LoadGeneratorOptions.KeyDistribution.ZIPF
+              ? OrderingKeyDistribution.zipf(options.orderingKeys, options.zipfExponent)
+              : OrderingKeyDistribution.uniform(options.orderingKeys);
+    }
+    RateLimiter rateLimiter =
+        options.publishRate > 0
+            ? RateLimiter.create(options.publishRate / options.publishers)
+            : null;
+    try {
+      while (publishing) {
+        if (rateLimiter != null) {
+          rateLimiter.acquire();
+        }
+        final int size =
+            options.minMessageSize
+                + random.nextInt(options.maxMessageSize - options.minMessageSize + 1);
+        final long publishTime = metrics.nowEpochMicros();
+        PubsubMessage.Builder message =
+            PubsubMessage.newBuilder()
+                .setData(payload.substring(0, size))
+                .putAttributes(PUBLISH_TIME_ATTRIBUTE, Long.toString(publishTime));
+        if (keys != null) {
+          message.setOrderingKey("key-" + keys.nextKey(random));
+        }
+        final String orderingKey = message.getOrderingKey();
+        ApiFuture<String> messageId = publisher.publish(message.build());
+        ApiFutures.addCallback(
+            messageId,
+            new ApiFutureCallback<String>() {
+              @Override
+              public void onSuccess(String messageId) {
+                metrics.recordPublished(size, metrics.nowEpochMicros() - publishTime);
+              }
+
+              @Override
+              public void onFailure(Throwable t) {
+                metrics.recordPublishError();
+                if (!orderingKey.isEmpty()) {
+                  // A failed publish pauses its key; keep publishing with it.
+                  publisher.resumePublish(orderingKey);
+                }
+              }
+            },
+            MoreExecutors.directExecutor());
+      }
+    } finally {
+      publisher.shutdown();
+      try {
+        publisher.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.loadgen;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/** Command line options of {@link LoadGenerator}, given as {@code --name=value}. */
+final class LoadGeneratorOptions {
+  static final String USAGE =
+      String.join(
+          "\n",
+          "Usage: java -jar loadgen.jar --project=PROJECT --topic=TOPIC [--subscription=SUB] [options]",
+          "",
+          "Connection:",
+          "  --endpoint=HOST:PORT            Pub/Sub endpoint, the default service endpoint if unset",
+          "  --emulator-host=HOST:PORT       Plaintext endpoint without credentials, such as the",
+          "                                  emulator. Defaults to $PUBSUB_EMULATOR_HOST",
+          "  --create-resources              Create the topic and subscription if they do not exist",
+          "Load:",
+          "  --publishers=N                  Publishers, each on its own thread, 0 to only receive",
+          "                                  (default 1)",
+          "  --subscribers=M                 Subscribers, 0 to only publish (default 1)",
+          "  --duration=SECONDS              How long to publish, or receive (default 60)",
+          "  --drain=SECONDS                 How long to keep receiving afterwards (default 10)",
+          "  --publish-rate=MSGS_PER_SEC     Total publish rate, 0 for as fast as possible (default 0)",
+          "  --message-size=BYTES[-BYTES]    Message size, or a uniform range (default 1024)",
+          "  --ordering-keys=K               Distinct ordering keys, 0 for none (default 0)",
+          "  --key-distribution=uniform|zipf Distribution of ordering keys (default uniform)",
+          "  --zipf-exponent=S               Exponent of the zipf distribution (default 1.0)",
+          "Publisher settings:",
+          "  --batch-messages=N              Element count threshold (default 100)",
+          "  --batch-bytes=BYTES             Request byte threshold (default 1000)",
+          "  --batch-delay-ms=MS             Delay threshold (default 1)",
+          "  --publisher-max-messages=N      Outstanding messages per publisher (default 10000)",
+          "  --publisher-max-bytes=BYTES     Outstanding bytes per publisher (default 100 MiB)",
+          "  --compression                   Compress publish requests with gzip",
+          "  --compression-threshold=BYTES   Smallest request that is compressed (default 240)",
+          "Subscriber settings:",
+          "  --parallel-pull-count=N         StreamingPull streams per subscriber (default 1)",
+          "  --subscriber-max-messages=N     Outstanding messages per subscriber (default 1000)",
+          "  --subscriber-max-bytes=BYTES    Outstanding bytes per subscriber (default 100 MiB)",
+          "Output:",
+          "  --report-interval=SECONDS       Interval of the time series (default 1)",
+          "  --format=csv|json               CSV, or one JSON object per line (default csv)",
+          "  --output=FILE                   Output file, standard output if unset");
+
+  enum KeyDistribution {
+    UNIFORM,
+    ZIPF
+  }
+
+  enum Format {
+    CSV,
+    JSON
+  }
+
+  final String project;
+  final String topic;
+  final String subscription;
+  final String endpoint;
+  final String emulatorHost;
+  final boolean createResources;
+  final int publishers;
+  final int subscribers;
+  final long durationSeconds;
+  final long drainSeconds;
+  final double publishRate;
+  final int minMessageSize;
+  final int maxMessageSize;
+  final int orderingKeys;
+  final KeyDistribution keyDistribution;
+  final double zipfExponent;
+  final long batchMessages;
+  final long batchBytes;
+  final long batchDelayMillis;
+  final long publisherMaxMessages;
+  final long publisherMaxBytes;
+  final boolean compression;
+  final long compressionThreshold;
+  final int parallelPullCount;
+  final long subscriberMaxMessages;
+  final long subscriberMaxBytes;
+  final long reportIntervalSeconds;
+  final Format format;
+  final String output;
+
+  private LoadGeneratorOptions(Map<String, String> values, Map<String, String> environment) {
+    project = required(values, "project");
+    topic = required(values, "topic");
+    subscribers = intValue(values, "subscribers", 1, 0);
+    subscription =
+        subscribers > 0 ? required(values, "subscription") : values.remove("subscription");
+    endpoint = values.remove("endpoint");
+    String emulatorHost = values.remove("emulator-host");
+    this.emulatorHost =
+        emulatorHost != null || endpoint != null
+            ? emulatorHost
+            : environment.get("PUBSUB_EMULATOR_HOST");
+    if (endpoint != null && emulatorHost != null) {
+      throw new IllegalArgumentException("--endpoint and --emulator-host cannot both be set");
+    }
+    createResources = flag(values, "create-resources");
+    publishers = intValue(values, "publishers", 1, 0);
+    if (publishers == 0 && subscribers == 0) {
+      throw new IllegalArgumentException("--publishers and --subscribers cannot both be 0");
+    }
+    durationSeconds = longValue(values, "duration", 60, 1);
+    drainSeconds = longValue(values, "drain", 10, 0);
+    publishRate = doubleValue(values, "publish-rate", 0);
+    String messageSize = values.remove("message-size");
+    if (messageSize == null) {
+      minMessageSize = 1024;
+      maxMessageSize = 1024;
+    } else {
+      int dash = messageSize.indexOf('-');
+      minMessageSize =
+          parseInt("message-size", dash < 0 ? messageSize : messageSize.substring(0, dash), 0);
+      maxMessageSize =
+          dash < 0 ? minMessageSize : parseInt("message-size", messageSize.substring(dash + 1), 0);
+      if (maxMessageSize < minMessageSize) {
+        throw new IllegalArgumentException("--message-size range must not be decreasing");
+      }
+    }
+    orderingKeys = intValue(values, "ordering-keys", 0, 0);
+    keyDistribution =
+        enumValue(values, "key-distribution", KeyDistribution.class, KeyDistribution.UNIFORM);
+    zipfExponent = doubleValue(values, "zipf-exponent", 1.0);
+    batchMessages = longValue(values, "batch-messages", 100, 1);
+    batchBytes = longValue(values, "batch-bytes", 1000, 1);
+    batchDelayMillis = longValue(values, "batch-delay-ms", 1, 1);
+    publisherMaxMessages = longValue(values, "publisher-max-messages", 10000, 1);
+    publisherMaxBytes = longValue(values, "publisher-max-bytes", 100L << 20, 1);
+    compression = flag(values, "compression");
+    compressionThreshold = longValue(values, "compression-threshold", 240, 0);
+    parallelPullCount = intValue(values, "parallel-pull-count", 1, 1);
+    subscriberMaxMessages = longValue(values, "subscriber-max-messages", 1000, 1);
+    subscriberMaxBytes = longValue(values, "subscriber-max-bytes", 100L << 20, 1);
+    reportIntervalSeconds = longValue(values, "report-interval", 1, 1);
+    format = enumValue(values, "format", Format.class, Format.CSV);
+    output = values.remove("output");
+    if (!values.isEmpty()) {
+      throw new IllegalArgumentException("Unknown options: " + values.keySet());
+    }
+  }
+
+  /** Parses the arguments, with {@code environment} providing {@code PUBSUB_EMULATOR_HOST}. */
+  static LoadGeneratorOptions parse(String[] args, Map<String, String> environment) {
+    Map<String, String> values = new HashMap<>();
+    for (String arg : args) {
+      if (!arg.startsWith("--")) {
+        throw new IllegalArgumentException("Options must start with --: " + arg);
+      }
+      int equals = arg.indexOf('=');
+      String name = equals < 0 ? arg.substring(2) : arg.substring(2, equals);
+      String value = equals < 0 ? "" : arg.substring(equals + 1);
+      if (values.put(name, value) != null) {
+        throw new IllegalArgumentException("--" + name + " is given more than once");
+      }
+    }
+    return new LoadGeneratorOptions(values, environment);
+  }
+
+  private static String required(Map<String, String> values, String name) {
+    String value = values.remove(name);
+    if (value == null || value.isEmpty()) {
+      throw new IllegalArgumentException("--" + name + " is required");
+    }
+    return value;
+  }
+
+  private static boolean flag(Map<String, String> values, String name) {
+    String value = values.remove(name);
+    return value != null && (value.isEmpty() || Boolean.parseBoolean(value));
+  }
+
+  private static <E extends Enum<E>> E enumValue(
+      Map<String, String> values, String name, Class<E> type, E defaultValue) {
+    String value = values.remove(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown --" + name + ": " + value);
+    }
+  }
+
+  private static int intValue(Map<String, String> values, String name, int defaultValue, int min) {
+    String value = values.remove(name);
+    return value == null ? defaultValue : parseInt(name, value, min);
+  }
+
+  private static long longValue(
+      Map<String, String> values, String name, long defaultValue, long min) {
+    String value = values.remove(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    long parsed;
+    try {
+      parsed = Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("--" + name + " must be a number: " + value);
+    }
+    if (parsed < min) {
+      throw new IllegalArgumentException("--" + name + " must be at least " + min);
+    }
+    return parsed;
+  }
+
+  private static double doubleValue(Map<String, String> values, String name, double defaultValue) {
+    String value = values.remove(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    double parsed;
+    try {
+      parsed = Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("--" + name + " must be a number: " + value);
+    }
+    if (!(parsed >= 0)) {
+      throw new IllegalArgumentException("--" + name + " must not be negative");
+    }
+    return parsed;
+  }
+
+  private static int parseInt(String name, String value, int min) {
+    int parsed;
+    try {
+      parsed = Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("--" + name + " must be a number: " + value);
+    }
+    if (parsed < min) {
+      throw new IllegalArgumentException("--" + name + " must be at least " + min);
+    }
+    return parsed;
+  }
+}
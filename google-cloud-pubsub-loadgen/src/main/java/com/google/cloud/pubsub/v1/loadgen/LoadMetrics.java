@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.loadgen;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Counters and latency histograms of a load generator run, recorded concurrently by publishers and
+ * subscribers and read once per report interval. Latencies are in microseconds.
+ */
+final class LoadMetrics {
+  private final long startNanos = System.nanoTime();
+  private final long startEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+
+  private final LongAdder published = new LongAdder();
+  private final LongAdder publishedBytes = new LongAdder();
+  private final LongAdder publishErrors = new LongAdder();
+  private final LongAdder received = new LongAdder();
+  private final Recorder publishLatency = new Recorder(3);
+  private final Recorder endToEndLatency = new Recorder(3);
+
+  // Only used by the reporting thread.
+  private final Histogram totalPublishLatency = new Histogram(3);
+  private final Histogram totalEndToEndLatency = new Histogram(3);
+  private Histogram intervalPublishLatency;
+  private Histogram intervalEndToEndLatency;
+  private long lastReportNanos = startNanos;
+  private long lastPublished;
+  private long lastPublishedBytes;
+  private long lastPublishErrors;
+  private long lastReceived;
+
+  /**
+   * Microseconds since the epoch, from a monotonic clock so that latencies within a process are
+   * exact. Latencies across processes are as exact as their clocks are synchronized.
+   */
+  long nowEpochMicros() {
+    return startEpochMicros + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+  }
+
+  void recordPublished(int bytes, long latencyMicros) {
+    published.increment();
+    publishedBytes.add(bytes);
+    publishLatency.recordValue(latencyMicros);
+  }
+
+  void recordPublishError() {
+    publishErrors.increment();
+  }
+
+  /** Records a message that was not published by a load generator. */
+  void recordReceived() {
+    received.increment();
+  }
+
+  void recordReceived(long endToEndLatencyMicros) {
+    received.increment();
+    endToEndLatency.recordValue(Math.max(0, endToEndLatencyMicros));
+  }
+
+  long getPublished() {
+    return published.sum();
+  }
+
+  long getReceived() {
+    return received.sum();
+  }
+
+  /** Returns the report of the interval since the last call. */
+  LoadReport nextInterval() {
+    long now = System.nanoTime();
+    intervalPublishLatency = publishLatency.getIntervalHistogram(intervalPublishLatency);
+    intervalEndToEndLatency = endToEndLatency.getIntervalHistogram(intervalEndToEndLatency);
+    totalPublishLatency.add(intervalPublishLatency);
+    totalEndToEndLatency.add(intervalEndToEndLatency);
+    long published = this.published.sum();
+    long publishedBytes = this.publishedBytes.sum();
+    long publishErrors = this.publishErrors.sum();
+    long received = this.received.sum();
+    LoadReport report =
+        new LoadReport(
+            "interval",
+            now - startNanos,
+            now - lastReportNanos,
+            published - lastPublished,
+            publishedBytes - lastPublishedBytes,
+            publishErrors - lastPublishErrors,
+            received - lastReceived,
+            intervalPublishLatency,
+            intervalEndToEndLatency);
+    lastReportNanos = now;
+    lastPublished = published;
+    lastPublishedBytes = publishedBytes;
+    lastPublishErrors = publishErrors;
+    lastReceived = received;
+    return report;
+  }
+
+  /** Returns the report of the whole run, up to the last interval. */
+  LoadReport total() {
+    long elapsedNanos = lastReportNanos - startNanos;
+    return new LoadReport(
+        "total",
+        elapsedNanos,
+        elapsedNanos,
+        lastPublished,
+        lastPublishedBytes,
+        lastPublishErrors,
+        lastReceived,
+        totalPublishLatency,
+        totalEndToEndLatency);
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.loadgen;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.Histogram;
+
+/** Throughput and latency percentiles of one report interval, or of the whole run. */
+final class LoadReport {
+  static final String[] COLUMNS = {
+    "type",
+    "elapsed_s",
+    "published",
+    "publish_rate",
+    "publish_mib_per_s",
+    "publish_errors",
+    "received",
+    "receive_rate",
+    "publish_p50_ms",
+    "publish_p99_ms",
+    "publish_p999_ms",
+    "publish_max_ms",
+    "e2e_p50_ms",
+    "e2e_p99_ms",
+    "e2e_p999_ms",
+    "e2e_max_ms"
+  };
+
+  private final String type;
+  private final long elapsedNanos;
+  private final long intervalNanos;
+  private final long published;
+  private final long publishedBytes;
+  private final long publishErrors;
+  private final long received;
+  private final Histogram publishLatency;
+  private final Histogram endToEndLatency;
+
+  LoadReport(
+      String type,
+      long elapsedNanos,
+      long intervalNanos,
+      long published,
+      long publishedBytes,
+      long publishErrors,
+      long received,
+      Histogram publishLatency,
+      Histogram endToEndLatency) {
+    this.type = type;
+    this.elapsedNanos = elapsedNanos;
+    this.intervalNanos = intervalNanos;
+    this.published = published;
+    this.publishedBytes = publishedBytes;
+    this.publishErrors = publishErrors;
+    this.received = received;
+    this.publishLatency = publishLatency;
+    this.endToEndLatency = endToEndLatency;
+  }
+
+  /** Returns the values in the order of {@link #COLUMNS}; all but the type are numbers. */
+  String[] values() {
+    return new String[] {
+      type,
+      format(elapsedNanos / 1e9),
+      Long.toString(published),
+      format(perSecond(published)),
+      format(perSecond(publishedBytes) / (1024 * 1024)),
+      Long.toString(publishErrors),
+      Long.toString(received),
+      format(perSecond(received)),
+      millis(publishLatency, 50),
+      millis(publishLatency, 99),
+      millis(publishLatency, 99.9),
+      millis(publishLatency, 100),
+      millis(endToEndLatency, 50),
+      millis(endToEndLatency, 99),
+      millis(endToEndLatency, 99.9),
+      millis(endToEndLatency, 100)
+    };
+  }
+
+  private double perSecond(long count) {
+    return intervalNanos == 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / intervalNanos;
+  }
+
+  private static String millis(Histogram histogram, double percentile) {
+    return format(histogram.getValueAtPercentile(percentile) / 1000.0);
+  }
+
+  private static String format(double value) {
+    return String.format(Locale.ROOT, "%.3f", value);
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.loadgen;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/** Picks the ordering key of each message, uniformly or following a zipf distribution. */
+abstract class OrderingKeyDistribution {
+
+  /** Returns the index of the next key, in {@code [0, keys)}. */
+  abstract int nextKey(Random random);
+
+  static OrderingKeyDistribution uniform(final int keys) {
+    return new OrderingKeyDistribution() {
+      @Override
+      int nextKey(Random random) {
+        return random.nextInt(keys);
+      }
+    };
+  }
+
+  /**
+   * Key {@code k} is picked with a probability proportional to {@code 1 / (k + 1)^exponent}, so a
+   * few keys are hot and most are cold.
+   */
+  static OrderingKeyDistribution zipf(int keys, double exponent) {
+    final double[] cumulative = new double[keys];
+    double sum = 0;
+    for (int k = 0; k < keys; k++) {
+      sum += 1.0 / Math.pow(k + 1, exponent);
+      cumulative[k] = sum;
+    }
+    for (int k = 0; k < keys; k++) {
+      cumulative[k] /= sum;
+    }
+    return new OrderingKeyDistribution() {
+      @Override
+      int nextKey(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        // Not found returns -(insertion point) - 1, and the insertion point is the key.
+        return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+      }
+    };
+  }
+}
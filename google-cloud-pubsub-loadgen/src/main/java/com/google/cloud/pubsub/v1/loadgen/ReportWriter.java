@@ -0,0 +1,81 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.loadgen;
+
+import java.io.PrintStream;
+
+/** Writes {@link LoadReport}s as CSV with a header, or as one JSON object per line. */
+abstract class ReportWriter {
+  protected final PrintStream out;
+
+  private ReportWriter(PrintStream out) {
+    this.out = out;
+  }
+
+  abstract void write(LoadReport report);
+
+  static ReportWriter create(LoadGeneratorOptions.Format format, PrintStream out) {
+    switch (format) {
+      case CSV:
+        return new CsvWriter(out);
+      case JSON:
+        return new JsonWriter(out);
+      default:
+        throw new IllegalArgumentException("Unknown format: " + format);
+    }
+  }
+
+  private static final class CsvWriter extends ReportWriter {
+    private CsvWriter(PrintStream out) {
+      super(out);
+      out.println(String.join(",", LoadReport.COLUMNS));
+      out.flush();
+    }
+
+    @Override
+    void write(LoadReport report) {
+      out.println(String.join(",", report.values()));
+      out.flush();
+    }
+  }
+
+  private static final class JsonWriter extends ReportWriter {
+    private JsonWriter(PrintStream out) {
+      super(out);
+    }
+
+    @Override
+    void write(LoadReport report) {
+      String[] values = report.values();
+      StringBuilder json = new StringBuilder("{");
+      for (int i = 0; i < values.length; i++) {
+        if (i > 0) {
+          json.append(',');
+        }
+        json.append('"').append(LoadReport.COLUMNS[i]).append("\":");
+        // The type is the only column that is not a number.
+        if (i == 0) {
+          json.append('"').append(values[i]).append('"');
+        } else {
+          json.append(values[i]);
+        }
+      }
+      out.println(json.append('}'));
+      out.flush();
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.loadgen;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LoadGeneratorOptionsTest {
+
+  @Test
+  public void testParse() {
+    LoadGeneratorOptions options =
+        LoadGeneratorOptions.parse(
+            new String[] {
+              "--project=p",
+              "--topic=t",
+              "--subscription=s",
+              "--message-size=100-2000",
+              "--key-distribution=zipf",
+              "--format=json",
+              "--compression"
+            },
+            Collections.<String, String>emptyMap());
+
+    assertThat(options.project).isEqualTo("p");
+    assertThat(options.minMessageSize).isEqualTo(100);
+    assertThat(options.maxMessageSize).isEqualTo(2000);
+    assertThat(options.keyDistribution).isEqualTo(LoadGeneratorOptions.KeyDistribution.ZIPF);
+    assertThat(options.format).isEqualTo(LoadGeneratorOptions.Format.JSON);
+    assertThat(options.compression).isTrue();
+    assertThat(options.publishers).isEqualTo(1);
+    assertThat(options.emulatorHost).isNull();
+  }
+
+  @Test
+  public void testParse_emulatorHostFromEnvironment() {
+    LoadGeneratorOptions options =
+        LoadGeneratorOptions.parse(
+            new String[] {"--project=p", "--topic=t", "--subscribers=0"},
+            ImmutableMap.of("PUBSUB_EMULATOR_HOST", "localhost:8085"));
+
+    assertThat(options.emulatorHost).isEqualTo("localhost:8085");
+    assertThat(options.subscription).isNull();
+  }
+
+  @Test
+  public void testParse_rejectsInvalidOptions() {
+    String[][] invalid = {
+      {"--project=p", "--topic=t"},
+      {"--project=p", "--topic=t", "--publishers=0", "--subscribers=0"},
+      {"--project=p", "--topic=t", "--subscription=s", "--message-size=10-5"},
+      {"--project=p", "--topic=t", "--subscription=s", "--format=xml"},
+      {"--project=p", "--topic=t", "--subscription=s", "--unknown=1"}
+    };
+    for (String[] args : invalid) {
+      try {
+        LoadGeneratorOptions.parse(args, Collections.<String, String>emptyMap());
+        fail("Expected IllegalArgumentException for " + String.join(" ", args));
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1.loadgen;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.Range;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class OrderingKeyDistributionTest {
+
+  @Test
+  public void testZipf_favorsFirstKeys() {
+    OrderingKeyDistribution distribution = OrderingKeyDistribution.zipf(100, 1.0);
+    Random random = new Random(1);
+    int[] counts = new int[100];
+    for (int i = 0; i < 100000; i++) {
+      counts[distribution.nextKey(random)]++;
+    }
+
+    // With exponent 1, key 0 has 1 / H(100) = 19% of the messages and key 1 half of that.
+    assertThat(counts[0]).isIn(Range.closed(18000, 20500));
+    assertThat((double) counts[1] / counts[0]).isWithin(0.05).of(0.5);
+    assertThat(counts[99]).isGreaterThan(0);
+  }
+
+  @Test
+  public void testUniform_staysInRange() {
+    OrderingKeyDistribution distribution = OrderingKeyDistribution.uniform(3);
+    Random random = new Random(1);
+    for (int i = 0; i < 1000; i++) {
+      assertThat(distribution.nextKey(random)).isIn(Range.closedOpen(0, 3));
+    }
+  }
+}
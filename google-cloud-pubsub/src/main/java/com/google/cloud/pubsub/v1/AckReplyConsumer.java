@@ -16,6 +16,9 @@
 
 package com.google.cloud.pubsub.v1;
 
+import com.google.api.core.BetaApi;
+import java.time.Duration;
+
 /** Accepts a reply, sending it to the service. */
 public interface AckReplyConsumer {
   /**
@@ -29,4 +32,17 @@ public interface AckReplyConsumer {
    * message.
    */
   void nack();
+
+  /**
+   * Signals that the message has not been successfully processed, and asks the service to resend it
+   * no sooner than {@code delay} from now. The delay is rounded up to whole seconds and capped at
+   * the maximum ack deadline of 10 minutes. Use this instead of {@link #nack()} to keep a message
+   * that keeps failing from being redelivered in a tight loop.
+   *
+   * <p>The default implementation ignores the delay and calls {@link #nack()}.
+   */
+  @BetaApi
+  default void nack(Duration delay) {
+    nack();
+  }
 }
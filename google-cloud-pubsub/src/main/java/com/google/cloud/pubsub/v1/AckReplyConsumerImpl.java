@@ -16,13 +16,23 @@
 package com.google.cloud.pubsub.v1;
 
 import com.google.api.core.SettableApiFuture;
+import java.time.Duration;
+import javax.annotation.Nullable;
 
 public class AckReplyConsumerImpl implements AckReplyConsumer {
   final SettableApiFuture<MessageDispatcher.AckReply> ackReplySettableApiFuture;
+  @Nullable final AckRequestData ackRequestData;
 
   public AckReplyConsumerImpl(
       final SettableApiFuture<MessageDispatcher.AckReply> ackReplySettableApiFuture) {
+    this(ackReplySettableApiFuture, null);
+  }
+
+  AckReplyConsumerImpl(
+      final SettableApiFuture<MessageDispatcher.AckReply> ackReplySettableApiFuture,
+      @Nullable final AckRequestData ackRequestData) {
     this.ackReplySettableApiFuture = ackReplySettableApiFuture;
+    this.ackRequestData = ackRequestData;
   }
 
   @Override
@@ -34,4 +44,12 @@ public class AckReplyConsumerImpl implements AckReplyConsumer {
   public void nack() {
     ackReplySettableApiFuture.set(MessageDispatcher.AckReply.NACK);
   }
+
+  @Override
+  public void nack(Duration delay) {
+    if (ackRequestData != null && !ackReplySettableApiFuture.isDone()) {
+      ackRequestData.setNackDelay(delay);
+    }
+    nack();
+  }
 }
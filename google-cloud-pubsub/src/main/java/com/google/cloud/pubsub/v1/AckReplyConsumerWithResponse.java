@@ -18,6 +18,7 @@ package com.google.cloud.pubsub.v1;
 
 import com.google.api.core.ApiFuture;
 import com.google.api.core.BetaApi;
+import java.time.Duration;
 
 /**
  * Acknowledging a message in Pub/Sub means that you are done with it, and it will not be delivered
@@ -51,4 +52,16 @@ public interface AckReplyConsumerWithResponse {
    * <p>A future representing the server response is returned
    */
   ApiFuture<AckResponse> nack();
+
+  /**
+   * Signals that the message has not been successfully processed, and asks the service to resend it
+   * no sooner than {@code delay} from now. The delay is rounded up to whole seconds and capped at
+   * the maximum ack deadline of 10 minutes.
+   *
+   * <p>A future representing the server response is returned. The default implementation ignores
+   * the delay and calls {@link #nack()}.
+   */
+  default ApiFuture<AckResponse> nack(Duration delay) {
+    return nack();
+  }
 }
@@ -17,16 +17,27 @@ package com.google.cloud.pubsub.v1;
 
 import com.google.api.core.ApiFuture;
 import com.google.api.core.SettableApiFuture;
+import java.time.Duration;
+import javax.annotation.Nullable;
 
 public class AckReplyConsumerWithResponseImpl implements AckReplyConsumerWithResponse {
   final SettableApiFuture<MessageDispatcher.AckReply> ackReplySettableApiFuture;
   final SettableApiFuture<AckResponse> messageFuture;
+  @Nullable final AckRequestData ackRequestData;
 
   public AckReplyConsumerWithResponseImpl(
       SettableApiFuture<MessageDispatcher.AckReply> ackReplySettableApiFuture,
       SettableApiFuture<AckResponse> messageFuture) {
+    this(ackReplySettableApiFuture, messageFuture, null);
+  }
+
+  AckReplyConsumerWithResponseImpl(
+      SettableApiFuture<MessageDispatcher.AckReply> ackReplySettableApiFuture,
+      SettableApiFuture<AckResponse> messageFuture,
+      @Nullable AckRequestData ackRequestData) {
     this.ackReplySettableApiFuture = ackReplySettableApiFuture;
     this.messageFuture = messageFuture;
+    this.ackRequestData = ackRequestData;
   }
 
   @Override
@@ -40,4 +51,12 @@ public class AckReplyConsumerWithResponseImpl implements AckReplyConsumerWithRes
     ackReplySettableApiFuture.set(MessageDispatcher.AckReply.NACK);
     return messageFuture;
   }
+
+  @Override
+  public ApiFuture<AckResponse> nack(Duration delay) {
+    if (ackRequestData != null && !ackReplySettableApiFuture.isDone()) {
+      ackRequestData.setNackDelay(delay);
+    }
+    return nack();
+  }
 }
@@ -17,12 +17,17 @@
 package com.google.cloud.pubsub.v1;
 
 import com.google.api.core.SettableApiFuture;
+import com.google.common.base.Preconditions;
+import java.time.Duration;
 import java.util.Optional;
 
 public class AckRequestData {
   private final String ackId;
   private final Optional<SettableApiFuture<AckResponse>> messageFuture;
   private PubsubMessageWrapper messageWrapper;
+  // Seconds before a nacked message may be redelivered, or -1 if the receiver did not ask for a
+  // delay. Written before the ack reply future is completed and read by its callback.
+  private int nackDelaySeconds = -1;
 
   protected AckRequestData(Builder builder) {
     this.ackId = builder.ackId;
@@ -69,6 +74,25 @@ public class AckRequestData {
     return this;
   }
 
+  void setNackDelay(Duration delay) {
+    nackDelaySeconds = toNackDelaySeconds(delay);
+  }
+
+  /** Rounds a redelivery delay up to whole seconds, capped at the maximum ack deadline. */
+  static int toNackDelaySeconds(Duration delay) {
+    Preconditions.checkArgument(!delay.isNegative(), "nack delay must not be negative");
+    long seconds = delay.getSeconds() + (delay.getNano() > 0 ? 1 : 0);
+    return (int) Math.min(seconds, Subscriber.MAX_STREAM_ACK_DEADLINE.getSeconds());
+  }
+
+  void setNackDelaySeconds(int nackDelaySeconds) {
+    this.nackDelaySeconds = nackDelaySeconds;
+  }
+
+  int getNackDelaySeconds() {
+    return nackDelaySeconds;
+  }
+
   public boolean hasMessageFuture() {
     return this.messageFuture.isPresent();
   }
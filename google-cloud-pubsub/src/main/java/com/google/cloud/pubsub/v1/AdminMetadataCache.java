@@ -0,0 +1,328 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.ApiClock;
+import com.google.api.core.BetaApi;
+import com.google.api.core.NanoClock;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.pubsub.v1.DetachSubscriptionRequest;
+import com.google.pubsub.v1.DetachSubscriptionResponse;
+import com.google.pubsub.v1.GetSubscriptionRequest;
+import com.google.pubsub.v1.GetTopicRequest;
+import com.google.pubsub.v1.Subscription;
+import com.google.pubsub.v1.SubscriptionName;
+import com.google.pubsub.v1.Topic;
+import com.google.pubsub.v1.TopicName;
+import com.google.pubsub.v1.UpdateSubscriptionRequest;
+import com.google.pubsub.v1.UpdateTopicRequest;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.Nullable;
+
+/**
+ * Caches the topics and subscriptions looked up with a {@link TopicAdminClient} and a {@link
+ * SubscriptionAdminClient}, for services that read their settings, such as message ordering,
+ * exactly-once delivery or schema settings, at startup and whenever their configuration reloads.
+ *
+ * <p>Each topic and subscription is cached for the expiration time after it was fetched, 5 minutes
+ * by default, and the least recently used ones are dropped once the maximum size is reached.
+ * Concurrent lookups of the same name share one RPC. Failed lookups are not cached.
+ *
+ * <p>Updates, deletions and detachments made through this cache invalidate the affected entries;
+ * those made through the clients directly, or by other processes, are only seen once the entries
+ * expire. The clients are not closed by the cache.
+ */
+@BetaApi
+public final class AdminMetadataCache {
+  static final long DEFAULT_MAXIMUM_SIZE = 1000;
+  static final Duration DEFAULT_EXPIRATION = Duration.ofMinutes(5);
+  // The number of generation counters names are spread over, see get().
+  private static final int GENERATION_STRIPES = 64;
+
+  @Nullable private final TopicAdminClient topicAdminClient;
+  @Nullable private final SubscriptionAdminClient subscriptionAdminClient;
+  private final Cache<String, Topic> topics;
+  private final Cache<String, Subscription> subscriptions;
+  // Incremented before an entry is invalidated, for the names hashing to each counter.
+  private final AtomicLongArray topicGenerations = new AtomicLongArray(GENERATION_STRIPES);
+  private final AtomicLongArray subscriptionGenerations = new AtomicLongArray(GENERATION_STRIPES);
+
+  private AdminMetadataCache(Builder builder) {
+    topicAdminClient = builder.topicAdminClient;
+    subscriptionAdminClient = builder.subscriptionAdminClient;
+    topics = newCache(builder);
+    subscriptions = newCache(builder);
+  }
+
+  private static <V> Cache<String, V> newCache(Builder builder) {
+    final ApiClock clock = builder.clock;
+    return CacheBuilder.newBuilder()
+        .maximumSize(builder.maximumSize)
+        .expireAfterWrite(builder.expiration.toNanos(), TimeUnit.NANOSECONDS)
+        .ticker(
+            new Ticker() {
+              @Override
+              public long read() {
+                return clock.nanoTime();
+              }
+            })
+        .recordStats()
+        .build();
+  }
+
+  /** Constructs a new {@link Builder}. */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns the topic, from the cache if it was fetched within the expiration time.
+   *
+   * @param topic the name of the topic, in the format {@code projects/{project}/topics/{topic}}
+   * @throws com.google.api.gax.rpc.ApiException if the topic could not be fetched
+   */
+  public Topic getTopic(final String topic) {
+    final TopicAdminClient client = requireTopicAdminClient();
+    return get(
+        topics,
+        topicGenerations,
+        topic,
+        () -> client.getTopic(GetTopicRequest.newBuilder().setTopic(topic).build()));
+  }
+
+  /** Returns the topic, from the cache if it was fetched within the expiration time. */
+  public Topic getTopic(TopicName topic) {
+    return getTopic(topic.toString());
+  }
+
+  /**
+   * Returns the subscription, from the cache if it was fetched within the expiration time.
+   *
+   * @param subscription the name of the subscription, in the format {@code
+   *     projects/{project}/subscriptions/{subscription}}
+   * @throws com.google.api.gax.rpc.ApiException if the subscription could not be fetched
+   */
+  public Subscription getSubscription(final String subscription) {
+    final SubscriptionAdminClient client = requireSubscriptionAdminClient();
+    return get(
+        subscriptions,
+        subscriptionGenerations,
+        subscription,
+        () ->
+            client.getSubscription(
+                GetSubscriptionRequest.newBuilder().setSubscription(subscription).build()));
+  }
+
+  /** Returns the subscription, from the cache if it was fetched within the expiration time. */
+  public Subscription getSubscription(SubscriptionName subscription) {
+    return getSubscription(subscription.toString());
+  }
+
+  /** Updates a topic with the {@link TopicAdminClient} and invalidates its cached entry. */
+  public Topic updateTopic(UpdateTopicRequest request) {
+    try {
+      return requireTopicAdminClient().updateTopic(request);
+    } finally {
+      invalidateTopic(request.getTopic().getName());
+    }
+  }
+
+  /**
+   * Deletes a topic with the {@link TopicAdminClient} and invalidates its cached entry and those of
+   * its subscriptions, whose topic becomes {@code _deleted-topic_}.
+   */
+  public void deleteTopic(String topic) {
+    try {
+      requireTopicAdminClient().deleteTopic(topic);
+    } finally {
+      invalidateTopic(topic);
+      for (Subscription subscription : subscriptions.asMap().values()) {
+        if (subscription.getTopic().equals(topic)) {
+          invalidateSubscription(subscription.getName());
+        }
+      }
+    }
+  }
+
+  /** Detaches a subscription with the {@link TopicAdminClient} and invalidates its cached entry. */
+  public DetachSubscriptionResponse detachSubscription(DetachSubscriptionRequest request) {
+    try {
+      return requireTopicAdminClient().detachSubscription(request);
+    } finally {
+      invalidateSubscription(request.getSubscription());
+    }
+  }
+
+  /**
+   * Updates a subscription with the {@link SubscriptionAdminClient} and invalidates its cached
+   * entry.
+   */
+  public Subscription updateSubscription(UpdateSubscriptionRequest request) {
+    try {
+      return requireSubscriptionAdminClient().updateSubscription(request);
+    } finally {
+      invalidateSubscription(request.getSubscription().getName());
+    }
+  }
+
+  /**
+   * Deletes a subscription with the {@link SubscriptionAdminClient} and invalidates its cached
+   * entry.
+   */
+  public void deleteSubscription(String subscription) {
+    try {
+      requireSubscriptionAdminClient().deleteSubscription(subscription);
+    } finally {
+      invalidateSubscription(subscription);
+    }
+  }
+
+  /** Drops the cached entry of a topic, so that the next lookup fetches it. */
+  public void invalidateTopic(String topic) {
+    topicGenerations.incrementAndGet(stripe(topic));
+    topics.invalidate(topic);
+  }
+
+  /** Drops the cached entry of a subscription, so that the next lookup fetches it. */
+  public void invalidateSubscription(String subscription) {
+    subscriptionGenerations.incrementAndGet(stripe(subscription));
+    subscriptions.invalidate(subscription);
+  }
+
+  /** Drops all cached entries. */
+  public void invalidateAll() {
+    for (int i = 0; i < GENERATION_STRIPES; i++) {
+      topicGenerations.incrementAndGet(i);
+      subscriptionGenerations.incrementAndGet(i);
+    }
+    topics.invalidateAll();
+    subscriptions.invalidateAll();
+  }
+
+  /** Returns the lookup statistics of topics and subscriptions together. */
+  public AdminMetadataCacheStats getStats() {
+    CacheStats stats = topics.stats().plus(subscriptions.stats());
+    return new AdminMetadataCacheStats(
+        stats.hitCount(),
+        stats.missCount(),
+        stats.loadExceptionCount(),
+        stats.evictionCount(),
+        topics.size() + subscriptions.size());
+  }
+
+  /**
+   * Looks up {@code name}, loading it with {@code rpc} on a miss. Invalidating an entry does not
+   * cancel a load in flight, which then caches the value fetched before the invalidation, so a
+   * lookup during which an entry with the same generation counter was invalidated removes the value
+   * it got again. This may drop a fresh value too, which is only fetched once more.
+   */
+  private static <V> V get(
+      Cache<String, V> cache, AtomicLongArray generations, String name, Callable<V> rpc) {
+    int stripe = stripe(name);
+    long generation = generations.get(stripe);
+    try {
+      V value = cache.get(name, rpc);
+      if (generations.get(stripe) != generation) {
+        cache.asMap().remove(name, value);
+      }
+      return value;
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      // The clients only throw unchecked exceptions, which are rethrown as they are.
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static int stripe(String name) {
+    return (name.hashCode() & Integer.MAX_VALUE) % GENERATION_STRIPES;
+  }
+
+  private TopicAdminClient requireTopicAdminClient() {
+    Preconditions.checkState(topicAdminClient != null, "No TopicAdminClient was set");
+    return topicAdminClient;
+  }
+
+  private SubscriptionAdminClient requireSubscriptionAdminClient() {
+    Preconditions.checkState(subscriptionAdminClient != null, "No SubscriptionAdminClient was set");
+    return subscriptionAdminClient;
+  }
+
+  /** Builder of {@link AdminMetadataCache AdminMetadataCaches}. */
+  public static final class Builder {
+    private TopicAdminClient topicAdminClient;
+    private SubscriptionAdminClient subscriptionAdminClient;
+    private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+    private Duration expiration = DEFAULT_EXPIRATION;
+    private ApiClock clock = NanoClock.getDefaultClock();
+
+    private Builder() {}
+
+    /** Sets the client topics are looked up, updated and deleted with. */
+    public Builder setTopicAdminClient(TopicAdminClient topicAdminClient) {
+      this.topicAdminClient = Preconditions.checkNotNull(topicAdminClient);
+      return this;
+    }
+
+    /** Sets the client subscriptions are looked up, updated and deleted with. */
+    public Builder setSubscriptionAdminClient(SubscriptionAdminClient subscriptionAdminClient) {
+      this.subscriptionAdminClient = Preconditions.checkNotNull(subscriptionAdminClient);
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of topics and of subscriptions that are cached, 1000 of each by
+     * default.
+     */
+    public Builder setMaximumSize(long maximumSize) {
+      Preconditions.checkArgument(maximumSize > 0, "maximumSize must be positive");
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    /** Sets how long a fetched topic or subscription is cached, 5 minutes by default. */
+    public Builder setExpiration(Duration expiration) {
+      Preconditions.checkArgument(
+          expiration.compareTo(Duration.ZERO) > 0, "expiration must be positive");
+      this.expiration = expiration;
+      return this;
+    }
+
+    /** Gives the ability to set a custom clock. */
+    Builder setClock(ApiClock clock) {
+      this.clock = Preconditions.checkNotNull(clock);
+      return this;
+    }
+
+    public AdminMetadataCache build() {
+      Preconditions.checkState(
+          topicAdminClient != null || subscriptionAdminClient != null,
+          "A TopicAdminClient or a SubscriptionAdminClient must be set");
+      return new AdminMetadataCache(this);
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.BetaApi;
+
+/** A snapshot of the lookups of an {@link AdminMetadataCache}. */
+@BetaApi
+public final class AdminMetadataCacheStats {
+  private final long hitCount;
+  private final long missCount;
+  private final long loadFailureCount;
+  private final long evictionCount;
+  private final long entryCount;
+
+  AdminMetadataCacheStats(
+      long hitCount, long missCount, long loadFailureCount, long evictionCount, long entryCount) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.loadFailureCount = loadFailureCount;
+    this.evictionCount = evictionCount;
+    this.entryCount = entryCount;
+  }
+
+  /** Number of lookups answered from the cache, including those that waited for another load. */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /** Number of lookups that sent an RPC. */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /** Fraction of lookups answered from the cache, or 0 if there were none. */
+  public double getHitRate() {
+    long lookupCount = hitCount + missCount;
+    return lookupCount == 0 ? 0 : (double) hitCount / lookupCount;
+  }
+
+  /** Number of RPCs that failed; failures are not cached. */
+  public long getLoadFailureCount() {
+    return loadFailureCount;
+  }
+
+  /** Number of entries dropped because the cache was full or the entry expired. */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Number of topics and subscriptions currently cached, including expired ones not yet dropped.
+   */
+  public long getEntryCount() {
+    return entryCount;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "AdminMetadataCacheStats{hits=%d, misses=%d, loadFailures=%d, evictions=%d, entries=%d}",
+        hitCount, missCount, loadFailureCount, evictionCount, entryCount);
+  }
+}
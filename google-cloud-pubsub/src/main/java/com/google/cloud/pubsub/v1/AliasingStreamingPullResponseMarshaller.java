@@ -0,0 +1,229 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.gax.grpc.GrpcCallSettings;
+import com.google.api.gax.rpc.BidiStreamingCallable;
+import com.google.api.gax.rpc.ClientContext;
+import com.google.api.gax.rpc.StreamingCallSettings;
+import com.google.cloud.pubsub.v1.stub.GrpcSubscriberCallableFactory;
+import com.google.common.collect.MapMaker;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
+import com.google.pubsub.v1.StreamingPullResponse;
+import io.grpc.Detachable;
+import io.grpc.HasByteBuffer;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.protobuf.ProtoUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+
+/**
+ * Parses {@link StreamingPullResponse StreamingPullResponses} without copying message data out of
+ * the buffers gRPC received it in.
+ *
+ * <p>The default marshaller copies a response into a scratch array and then copies every message's
+ * data from there into a new {@link ByteString}. This one takes ownership of the received buffers
+ * and parses with aliasing enabled, so message data are {@link ByteString ByteStrings} over those
+ * buffers. The buffers must then stay alive as long as any message of the response is in use:
+ * {@link #takeBuffers} hands them to the caller, who must release them once every message is done.
+ *
+ * <p>The buffers of a response that is never taken, because its stream was cancelled or closed
+ * before the response was delivered, are released once the response is garbage collected, or by
+ * {@link #releaseAll()} once no stream is open anymore.
+ *
+ * <p>Falls back to the default marshaller when the transport does not expose its buffers.
+ */
+final class AliasingStreamingPullResponseMarshaller
+    implements MethodDescriptor.Marshaller<StreamingPullResponse> {
+  private static final MethodDescriptor.Marshaller<StreamingPullResponse> DEFAULT_MARSHALLER =
+      ProtoUtils.marshaller(StreamingPullResponse.getDefaultInstance());
+  private static final String STREAMING_PULL_METHOD_NAME =
+      "google.pubsub.v1.Subscriber/StreamingPull";
+
+  // Buffers of parsed responses that have not been taken yet, by response identity.
+  private final ConcurrentMap<StreamingPullResponse, RetainedBuffers> retainedBuffers =
+      new MapMaker().weakKeys().makeMap();
+  // The same buffers, kept reachable until they are taken or released. Whoever removes them from
+  // here owns them.
+  private final Set<RetainedBuffers> unreleasedBuffers = ConcurrentHashMap.newKeySet();
+  // Enqueues the buffers of responses that were collected without being taken.
+  private final ReferenceQueue<StreamingPullResponse> collectedResponses = new ReferenceQueue<>();
+  private volatile boolean closed;
+
+  /** The buffers of a response, enqueued once the response is collected. */
+  private static final class RetainedBuffers extends WeakReference<StreamingPullResponse> {
+    private final InputStream buffers;
+
+    private RetainedBuffers(
+        StreamingPullResponse response,
+        InputStream buffers,
+        ReferenceQueue<StreamingPullResponse> queue) {
+      super(response, queue);
+      this.buffers = buffers;
+    }
+  }
+
+  @Override
+  public InputStream stream(StreamingPullResponse value) {
+    return DEFAULT_MARSHALLER.stream(value);
+  }
+
+  @Override
+  public StreamingPullResponse parse(InputStream stream) {
+    releaseCollected();
+    if (closed
+        || !(stream instanceof Detachable)
+        || !(stream instanceof HasByteBuffer)
+        || !((HasByteBuffer) stream).byteBufferSupported()) {
+      return DEFAULT_MARSHALLER.parse(stream);
+    }
+    InputStream detached = ((Detachable) stream).detach();
+    boolean retained = false;
+    try {
+      List<ByteString> buffers = new ArrayList<>();
+      while (detached.available() > 0) {
+        ByteBuffer buffer = ((HasByteBuffer) detached).getByteBuffer();
+        if (buffer == null) {
+          // Not expected once byteBufferSupported() returned true.
+          throw new IOException("Received buffers are not accessible");
+        }
+        buffers.add(UnsafeByteOperations.unsafeWrap(buffer));
+        detached.skip(buffer.remaining());
+      }
+      // Concatenating builds a rope over the buffers; nothing is copied.
+      CodedInputStream input = ByteString.copyFrom(buffers).newCodedInput();
+      input.enableAliasing(true);
+      input.setSizeLimit(Integer.MAX_VALUE);
+      StreamingPullResponse response = StreamingPullResponse.parseFrom(input);
+      if (response.getReceivedMessagesCount() > 0) {
+        RetainedBuffers buffersOfResponse =
+            new RetainedBuffers(response, detached, collectedResponses);
+        unreleasedBuffers.add(buffersOfResponse);
+        retainedBuffers.put(response, buffersOfResponse);
+        retained = true;
+      }
+      return response;
+    } catch (InvalidProtocolBufferException e) {
+      throw Status.INTERNAL
+          .withDescription("Invalid protobuf byte sequence")
+          .withCause(e)
+          .asRuntimeException();
+    } catch (IOException e) {
+      throw Status.INTERNAL
+          .withDescription("Failed to read StreamingPullResponse")
+          .withCause(e)
+          .asRuntimeException();
+    } finally {
+      if (!retained) {
+        closeQuietly(detached);
+      }
+    }
+  }
+
+  /**
+   * Returns a callable factory for {@link com.google.cloud.pubsub.v1.stub.GrpcSubscriberStub} that
+   * parses StreamingPull responses with this marshaller.
+   */
+  GrpcSubscriberCallableFactory newCallableFactory() {
+    return new GrpcSubscriberCallableFactory() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public <RequestT, ResponseT>
+          BidiStreamingCallable<RequestT, ResponseT> createBidiStreamingCallable(
+              GrpcCallSettings<RequestT, ResponseT> grpcCallSettings,
+              StreamingCallSettings<RequestT, ResponseT> callSettings,
+              ClientContext clientContext) {
+        MethodDescriptor<RequestT, ResponseT> methodDescriptor =
+            grpcCallSettings.getMethodDescriptor();
+        if (STREAMING_PULL_METHOD_NAME.equals(methodDescriptor.getFullMethodName())) {
+          grpcCallSettings =
+              grpcCallSettings
+                  .toBuilder()
+                  .setMethodDescriptor(
+                      methodDescriptor
+                          .toBuilder()
+                          .setResponseMarshaller(
+                              (MethodDescriptor.Marshaller<ResponseT>)
+                                  AliasingStreamingPullResponseMarshaller.this)
+                          .build())
+                  .build();
+        }
+        return super.createBidiStreamingCallable(grpcCallSettings, callSettings, clientContext);
+      }
+    };
+  }
+
+  /**
+   * Returns a callback releasing the buffers that the message data of {@code response} alias, or
+   * null if they are not retained. The caller takes ownership and must run it once no message of
+   * the response is in use anymore.
+   */
+  @Nullable
+  Runnable takeBuffers(StreamingPullResponse response) {
+    releaseCollected();
+    RetainedBuffers buffers = retainedBuffers.remove(response);
+    if (buffers == null || !unreleasedBuffers.remove(buffers)) {
+      return null;
+    }
+    return () -> closeQuietly(buffers.buffers);
+  }
+
+  /**
+   * Releases the buffers of all responses that were not taken, and parses later responses with the
+   * default marshaller. Called once no stream is open anymore, when no response is taken anymore.
+   */
+  void releaseAll() {
+    closed = true;
+    for (RetainedBuffers buffers : unreleasedBuffers) {
+      if (unreleasedBuffers.remove(buffers)) {
+        closeQuietly(buffers.buffers);
+      }
+    }
+    retainedBuffers.clear();
+  }
+
+  /** Releases the buffers of the responses that were collected without being taken. */
+  private void releaseCollected() {
+    RetainedBuffers buffers;
+    while ((buffers = (RetainedBuffers) collectedResponses.poll()) != null) {
+      if (unreleasedBuffers.remove(buffers)) {
+        closeQuietly(buffers.buffers);
+      }
+    }
+  }
+
+  private static void closeQuietly(InputStream stream) {
+    try {
+      stream.close();
+    } catch (IOException e) {
+      // Closing only releases the buffers.
+    }
+  }
+}
@@ -0,0 +1,516 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.UnsafeByteOperations;
+import com.google.pubsub.v1.Encoding;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An Avro schema, whose definition is its JSON declaration, compiled into a tree of types that
+ * messages in the Avro binary or JSON encoding are checked against.
+ *
+ * <p>Logical types are validated as their underlying types, as the Pub/Sub service does.
+ */
+final class CompiledAvroSchema implements CompiledSchema {
+  private enum Kind {
+    NULL,
+    BOOLEAN,
+    INT,
+    LONG,
+    FLOAT,
+    DOUBLE,
+    BYTES,
+    STRING,
+    RECORD,
+    ENUM,
+    ARRAY,
+    MAP,
+    UNION,
+    FIXED
+  }
+
+  private static final Set<String> PRIMITIVE_TYPES =
+      ImmutableSet.of("null", "boolean", "int", "long", "float", "double", "bytes", "string");
+
+  private static final BigDecimal MIN_INT = BigDecimal.valueOf(Integer.MIN_VALUE);
+  private static final BigDecimal MAX_INT = BigDecimal.valueOf(Integer.MAX_VALUE);
+  private static final BigDecimal MIN_LONG = BigDecimal.valueOf(Long.MIN_VALUE);
+  private static final BigDecimal MAX_LONG = BigDecimal.valueOf(Long.MAX_VALUE);
+
+  private static final class Type {
+    final Kind kind;
+    // The full name of named types, or the name of primitive types, used to select union branches.
+    final String name;
+    final List<Field> fields = new ArrayList<>();
+    List<String> symbols = ImmutableList.of();
+    Type elementType;
+    List<Type> branches = ImmutableList.of();
+    int size;
+
+    Type(Kind kind, String name) {
+      this.kind = kind;
+      this.name = name;
+    }
+  }
+
+  private static final class Field {
+    final String name;
+    final Type type;
+    final boolean hasDefault;
+
+    Field(String name, Type type, boolean hasDefault) {
+      this.name = name;
+      this.type = type;
+      this.hasDefault = hasDefault;
+    }
+  }
+
+  private static final TypeAdapter<JsonElement> JSON_ELEMENT_ADAPTER =
+      new Gson().getAdapter(JsonElement.class);
+
+  private static final Type MAP_KEY_TYPE = new Type(Kind.STRING, "string");
+
+  private final Type root;
+
+  private CompiledAvroSchema(Type root) {
+    this.root = root;
+  }
+
+  static CompiledAvroSchema compile(String definition) {
+    try {
+      return new CompiledAvroSchema(new SchemaParser().parse(parseJson(definition), ""));
+    } catch (IOException
+        | JsonParseException
+        | IllegalStateException
+        | UnsupportedOperationException
+        | NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid schema: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void validate(ByteString data, Encoding encoding) {
+    if (encoding == Encoding.BINARY) {
+      CodedInputStream input = data.newCodedInput();
+      input.setSizeLimit(Integer.MAX_VALUE);
+      try {
+        validateBinary(root, input);
+        if (!input.isAtEnd()) {
+          throw new IllegalArgumentException("Unexpected data after the end of the message");
+        }
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Truncated message", e);
+      }
+      return;
+    }
+    JsonElement json;
+    try {
+      json = parseJson(data.toStringUtf8());
+    } catch (IOException | JsonParseException | IllegalStateException e) {
+      throw new IllegalArgumentException("Malformed JSON: " + e.getMessage(), e);
+    }
+    validateJson(root, json);
+  }
+
+  /** Parses a JSON document strictly, unlike {@link com.google.gson.JsonParser}. */
+  private static JsonElement parseJson(String json) throws IOException {
+    JsonReader reader = new JsonReader(new StringReader(json));
+    JsonElement element = JSON_ELEMENT_ADAPTER.read(reader);
+    if (reader.peek() != JsonToken.END_DOCUMENT) {
+      throw new JsonParseException("Unexpected data after the end of the document");
+    }
+    return element;
+  }
+
+  private static void validateBinary(Type type, CodedInputStream input) throws IOException {
+    switch (type.kind) {
+      case NULL:
+        return;
+      case BOOLEAN:
+        byte value = input.readRawByte();
+        if (value != 0 && value != 1) {
+          throw new IllegalArgumentException("Invalid boolean " + value);
+        }
+        return;
+      case INT:
+        long intValue = input.readSInt64();
+        if (intValue < Integer.MIN_VALUE || intValue > Integer.MAX_VALUE) {
+          throw new IllegalArgumentException("Int " + intValue + " out of range");
+        }
+        return;
+      case LONG:
+        input.readSInt64();
+        return;
+      case FLOAT:
+        input.readRawLittleEndian32();
+        return;
+      case DOUBLE:
+        input.readRawLittleEndian64();
+        return;
+      case BYTES:
+        input.skipRawBytes(readLength(input));
+        return;
+      case STRING:
+        byte[] bytes = input.readRawBytes(readLength(input));
+        if (!UnsafeByteOperations.unsafeWrap(bytes).isValidUtf8()) {
+          throw new IllegalArgumentException("Invalid UTF-8 string");
+        }
+        return;
+      case RECORD:
+        for (Field field : type.fields) {
+          try {
+            validateBinary(field.type, input);
+          } catch (IllegalArgumentException e) {
+            throw fieldError(type, field, e);
+          }
+        }
+        return;
+      case ENUM:
+        readIndex(input, type.symbols.size(), type.name);
+        return;
+      case ARRAY:
+      case MAP:
+        for (long count = readBlockCount(input); count != 0; count = readBlockCount(input)) {
+          for (long i = 0; i < count; i++) {
+            if (type.kind == Kind.MAP) {
+              validateBinary(MAP_KEY_TYPE, input);
+            }
+            validateBinary(type.elementType, input);
+          }
+        }
+        return;
+      case UNION:
+        validateBinary(type.branches.get(readIndex(input, type.branches.size(), "union")), input);
+        return;
+      case FIXED:
+        input.skipRawBytes(type.size);
+        return;
+    }
+  }
+
+  private static int readLength(CodedInputStream input) throws IOException {
+    long length = input.readSInt64();
+    if (length < 0 || length > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid length " + length);
+    }
+    return (int) length;
+  }
+
+  private static int readIndex(CodedInputStream input, int count, String name) throws IOException {
+    long index = input.readSInt64();
+    if (index < 0 || index >= count) {
+      throw new IllegalArgumentException("Invalid index " + index + " of " + name);
+    }
+    return (int) index;
+  }
+
+  /** Reads the item count of the next array or map block, skipping the block size if present. */
+  private static long readBlockCount(CodedInputStream input) throws IOException {
+    long count = input.readSInt64();
+    if (count < 0) {
+      input.readSInt64();
+      return -count;
+    }
+    return count;
+  }
+
+  private static void validateJson(Type type, JsonElement json) {
+    switch (type.kind) {
+      case NULL:
+        check(json.isJsonNull(), type, json);
+        return;
+      case BOOLEAN:
+        check(json.isJsonPrimitive() && json.getAsJsonPrimitive().isBoolean(), type, json);
+        return;
+      case INT:
+        checkInteger(type, json, MIN_INT, MAX_INT);
+        return;
+      case LONG:
+        checkInteger(type, json, MIN_LONG, MAX_LONG);
+        return;
+      case FLOAT:
+      case DOUBLE:
+        check(json.isJsonPrimitive() && json.getAsJsonPrimitive().isNumber(), type, json);
+        return;
+      case BYTES:
+        check(isByteString(json), type, json);
+        return;
+      case STRING:
+        check(json.isJsonPrimitive() && json.getAsJsonPrimitive().isString(), type, json);
+        return;
+      case RECORD:
+        check(json.isJsonObject(), type, json);
+        JsonObject object = json.getAsJsonObject();
+        for (Field field : type.fields) {
+          JsonElement value = object.get(field.name);
+          if (value == null) {
+            if (!field.hasDefault) {
+              throw new IllegalArgumentException(
+                  "Missing field " + field.name + " of " + type.name);
+            }
+            continue;
+          }
+          try {
+            validateJson(field.type, value);
+          } catch (IllegalArgumentException e) {
+            throw fieldError(type, field, e);
+          }
+        }
+        for (String name : object.keySet()) {
+          if (!hasField(type, name)) {
+            throw new IllegalArgumentException("Unknown field " + name + " of " + type.name);
+          }
+        }
+        return;
+      case ENUM:
+        check(
+            json.isJsonPrimitive()
+                && json.getAsJsonPrimitive().isString()
+                && type.symbols.contains(json.getAsString()),
+            type,
+            json);
+        return;
+      case ARRAY:
+        check(json.isJsonArray(), type, json);
+        for (JsonElement element : json.getAsJsonArray()) {
+          validateJson(type.elementType, element);
+        }
+        return;
+      case MAP:
+        check(json.isJsonObject(), type, json);
+        for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject().entrySet()) {
+          validateJson(type.elementType, entry.getValue());
+        }
+        return;
+      case UNION:
+        if (json.isJsonNull()) {
+          for (Type branch : type.branches) {
+            if (branch.kind == Kind.NULL) {
+              return;
+            }
+          }
+        } else if (json.isJsonObject() && json.getAsJsonObject().size() == 1) {
+          Map.Entry<String, JsonElement> entry =
+              json.getAsJsonObject().entrySet().iterator().next();
+          for (Type branch : type.branches) {
+            if (branch.name.equals(entry.getKey())) {
+              validateJson(branch, entry.getValue());
+              return;
+            }
+          }
+        }
+        throw new IllegalArgumentException("Expected a branch of union but found " + json);
+      case FIXED:
+        check(isByteString(json) && json.getAsString().length() == type.size, type, json);
+        return;
+    }
+  }
+
+  private static boolean hasField(Type record, String name) {
+    for (Field field : record.fields) {
+      if (field.name.equals(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Whether {@code json} is a string of bytes, each encoded as a code point up to 255. */
+  private static boolean isByteString(JsonElement json) {
+    if (!json.isJsonPrimitive() || !json.getAsJsonPrimitive().isString()) {
+      return false;
+    }
+    String value = json.getAsString();
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) > 0xFF) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void checkInteger(Type type, JsonElement json, BigDecimal min, BigDecimal max) {
+    check(json.isJsonPrimitive() && json.getAsJsonPrimitive().isNumber(), type, json);
+    BigDecimal value = json.getAsBigDecimal();
+    check(
+        value.signum() == 0 || value.stripTrailingZeros().scale() <= 0,
+        type,
+        json); // Not an integer.
+    check(value.compareTo(min) >= 0 && value.compareTo(max) <= 0, type, json);
+  }
+
+  private static void check(boolean valid, Type type, JsonElement json) {
+    if (!valid) {
+      throw new IllegalArgumentException("Expected " + type.name + " but found " + json);
+    }
+  }
+
+  private static IllegalArgumentException fieldError(
+      Type record, Field field, IllegalArgumentException cause) {
+    return new IllegalArgumentException(
+        "Invalid field " + field.name + " of " + record.name + ": " + cause.getMessage(), cause);
+  }
+
+  /** Parses the JSON declaration of a schema, resolving references to named types. */
+  private static final class SchemaParser {
+    private final Map<String, Type> namedTypes = new HashMap<>();
+
+    Type parse(JsonElement json, String namespace) {
+      if (json.isJsonArray()) {
+        JsonArray array = json.getAsJsonArray();
+        ImmutableList.Builder<Type> branches = ImmutableList.builder();
+        for (JsonElement branch : array) {
+          branches.add(parse(branch, namespace));
+        }
+        Type union = new Type(Kind.UNION, "union");
+        union.branches = branches.build();
+        return union;
+      }
+      if (json.isJsonPrimitive()) {
+        return resolve(json.getAsString(), namespace);
+      }
+      JsonObject object = json.getAsJsonObject();
+      JsonElement typeElement = require(object, "type");
+      if (!typeElement.isJsonPrimitive()) {
+        return parse(typeElement, namespace);
+      }
+      String typeName = typeElement.getAsString();
+      switch (typeName) {
+        case "record":
+        case "error":
+          {
+            Type record = define(Kind.RECORD, object, namespace);
+            String recordNamespace = namespaceOf(record.name);
+            for (JsonElement fieldElement : require(object, "fields").getAsJsonArray()) {
+              JsonObject field = fieldElement.getAsJsonObject();
+              record.fields.add(
+                  new Field(
+                      require(field, "name").getAsString(),
+                      parse(require(field, "type"), recordNamespace),
+                      field.has("default")));
+            }
+            return record;
+          }
+        case "enum":
+          {
+            Type enumType = define(Kind.ENUM, object, namespace);
+            ImmutableList.Builder<String> symbols = ImmutableList.builder();
+            for (JsonElement symbol : require(object, "symbols").getAsJsonArray()) {
+              symbols.add(symbol.getAsString());
+            }
+            enumType.symbols = symbols.build();
+            return enumType;
+          }
+        case "array":
+          {
+            Type array = new Type(Kind.ARRAY, "array");
+            array.elementType = parse(require(object, "items"), namespace);
+            return array;
+          }
+        case "map":
+          {
+            Type map = new Type(Kind.MAP, "map");
+            map.elementType = parse(require(object, "values"), namespace);
+            return map;
+          }
+        case "fixed":
+          {
+            Type fixed = define(Kind.FIXED, object, namespace);
+            JsonPrimitive size = require(object, "size").getAsJsonPrimitive();
+            fixed.size = size.getAsInt();
+            if (fixed.size < 0) {
+              throw new IllegalArgumentException("Invalid size of fixed " + fixed.name);
+            }
+            return fixed;
+          }
+        default:
+          return resolve(typeName, namespace);
+      }
+    }
+
+    private Type define(Kind kind, JsonObject object, String namespace) {
+      String name = require(object, "name").getAsString();
+      if (!name.contains(".")) {
+        JsonElement explicitNamespace = object.get("namespace");
+        String typeNamespace =
+            explicitNamespace != null && !explicitNamespace.isJsonNull()
+                ? explicitNamespace.getAsString()
+                : namespace;
+        name = typeNamespace.isEmpty() ? name : typeNamespace + "." + name;
+      }
+      if (namedTypes.containsKey(name)) {
+        throw new IllegalArgumentException("Type " + name + " is defined twice");
+      }
+      Type type = new Type(kind, name);
+      // Registered before the type is parsed, so that recursive types can refer to it.
+      namedTypes.put(name, type);
+      return type;
+    }
+
+    private Type resolve(String name, String namespace) {
+      if (PRIMITIVE_TYPES.contains(name)) {
+        return new Type(Kind.valueOf(name.toUpperCase(Locale.ROOT)), name);
+      }
+      Type type = null;
+      if (!name.contains(".") && !namespace.isEmpty()) {
+        type = namedTypes.get(namespace + "." + name);
+      }
+      if (type == null) {
+        type = namedTypes.get(name);
+      }
+      if (type == null) {
+        throw new IllegalArgumentException("Unknown type " + name);
+      }
+      return type;
+    }
+
+    private static String namespaceOf(String fullName) {
+      int lastDot = fullName.lastIndexOf('.');
+      return lastDot < 0 ? "" : fullName.substring(0, lastDot);
+    }
+
+    private static JsonElement require(JsonObject object, String name) {
+      JsonElement element = object.get(name);
+      if (element == null || element.isJsonNull()) {
+        throw new IllegalArgumentException("Missing " + name + " in " + object);
+      }
+      return element;
+    }
+  }
+}
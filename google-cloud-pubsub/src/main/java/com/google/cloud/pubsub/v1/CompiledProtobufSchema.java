@@ -0,0 +1,453 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumDescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumValueDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.MessageOptions;
+import com.google.protobuf.DescriptorProtos.OneofDescriptorProto;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.util.JsonFormat;
+import com.google.pubsub.v1.Encoding;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A protocol buffer schema, whose definition is the source of a {@code .proto} file declaring one
+ * top-level message type, compiled into a {@link Descriptor}.
+ *
+ * <p>Like the Pub/Sub service, the parser does not support imports, services, extensions or groups.
+ * Options are skipped.
+ */
+final class CompiledProtobufSchema implements CompiledSchema {
+  private static final Map<String, FieldDescriptorProto.Type> SCALAR_TYPES =
+      ImmutableMap.<String, FieldDescriptorProto.Type>builder()
+          .put("double", FieldDescriptorProto.Type.TYPE_DOUBLE)
+          .put("float", FieldDescriptorProto.Type.TYPE_FLOAT)
+          .put("int32", FieldDescriptorProto.Type.TYPE_INT32)
+          .put("int64", FieldDescriptorProto.Type.TYPE_INT64)
+          .put("uint32", FieldDescriptorProto.Type.TYPE_UINT32)
+          .put("uint64", FieldDescriptorProto.Type.TYPE_UINT64)
+          .put("sint32", FieldDescriptorProto.Type.TYPE_SINT32)
+          .put("sint64", FieldDescriptorProto.Type.TYPE_SINT64)
+          .put("fixed32", FieldDescriptorProto.Type.TYPE_FIXED32)
+          .put("fixed64", FieldDescriptorProto.Type.TYPE_FIXED64)
+          .put("sfixed32", FieldDescriptorProto.Type.TYPE_SFIXED32)
+          .put("sfixed64", FieldDescriptorProto.Type.TYPE_SFIXED64)
+          .put("bool", FieldDescriptorProto.Type.TYPE_BOOL)
+          .put("string", FieldDescriptorProto.Type.TYPE_STRING)
+          .put("bytes", FieldDescriptorProto.Type.TYPE_BYTES)
+          .build();
+
+  private static final JsonFormat.Parser JSON_PARSER = JsonFormat.parser();
+
+  private final Descriptor descriptor;
+
+  private CompiledProtobufSchema(Descriptor descriptor) {
+    this.descriptor = descriptor;
+  }
+
+  static CompiledProtobufSchema compile(String definition) {
+    FileDescriptorProto file = new Parser(definition).parseFile();
+    if (file.getMessageTypeCount() == 0) {
+      throw new IllegalArgumentException("The schema does not declare a message type");
+    }
+    try {
+      FileDescriptor fileDescriptor = FileDescriptor.buildFrom(file, new FileDescriptor[0]);
+      return new CompiledProtobufSchema(fileDescriptor.getMessageTypes().get(0));
+    } catch (DescriptorValidationException e) {
+      throw new IllegalArgumentException("Invalid schema: " + e.getMessage(), e);
+    }
+  }
+
+  Descriptor getDescriptor() {
+    return descriptor;
+  }
+
+  @Override
+  public void validate(ByteString data, Encoding encoding) {
+    try {
+      if (encoding == Encoding.BINARY) {
+        DynamicMessage.parseFrom(descriptor, data);
+        return;
+      }
+      DynamicMessage.Builder message = DynamicMessage.newBuilder(descriptor);
+      JSON_PARSER.merge(data.toStringUtf8(), message);
+      if (!message.isInitialized()) {
+        throw new IllegalArgumentException(
+            "Missing required fields: " + message.findInitializationErrors());
+      }
+    } catch (InvalidProtocolBufferException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
+  }
+
+  /** A recursive descent parser of the subset of the {@code .proto} language used by schemas. */
+  private static final class Parser {
+    private final String source;
+    private int position;
+    private boolean proto3;
+
+    Parser(String source) {
+      this.source = source;
+    }
+
+    FileDescriptorProto parseFile() {
+      FileDescriptorProto.Builder file = FileDescriptorProto.newBuilder().setName("schema.proto");
+      String token;
+      while ((token = next()) != null) {
+        switch (token) {
+          case "syntax":
+            expect("=");
+            String syntax = readString();
+            if (!syntax.equals("proto2") && !syntax.equals("proto3")) {
+              throw error("Unsupported syntax " + syntax);
+            }
+            proto3 = syntax.equals("proto3");
+            file.setSyntax(syntax);
+            expect(";");
+            break;
+          case "package":
+            file.setPackage(readIdentifier());
+            expect(";");
+            break;
+          case "option":
+            skipStatement();
+            break;
+          case "message":
+            file.addMessageType(parseMessage());
+            break;
+          case "enum":
+            file.addEnumType(parseEnum());
+            break;
+          case ";":
+            break;
+          default:
+            throw error("Unsupported declaration " + token);
+        }
+      }
+      return file.build();
+    }
+
+    private DescriptorProto parseMessage() {
+      DescriptorProto.Builder message = DescriptorProto.newBuilder().setName(readIdentifier());
+      List<FieldDescriptorProto.Builder> proto3OptionalFields = new ArrayList<>();
+      expect("{");
+      String token;
+      while (!(token = required()).equals("}")) {
+        switch (token) {
+          case "message":
+            message.addNestedType(parseMessage());
+            break;
+          case "enum":
+            message.addEnumType(parseEnum());
+            break;
+          case "oneof":
+            parseOneof(message);
+            break;
+          case "option":
+          case "reserved":
+          case "extensions":
+            skipStatement();
+            break;
+          case ";":
+            break;
+          case "optional":
+            FieldDescriptorProto.Builder field =
+                parseField(required(), FieldDescriptorProto.Label.LABEL_OPTIONAL, message);
+            if (proto3) {
+              proto3OptionalFields.add(field.setProto3Optional(true));
+            }
+            message.addField(field);
+            break;
+          case "required":
+            if (proto3) {
+              throw error("Required fields are not allowed in proto3");
+            }
+            message.addField(
+                parseField(required(), FieldDescriptorProto.Label.LABEL_REQUIRED, message));
+            break;
+          case "repeated":
+            message.addField(
+                parseField(required(), FieldDescriptorProto.Label.LABEL_REPEATED, message));
+            break;
+          case "extend":
+          case "group":
+            throw error("Unsupported declaration " + token);
+          default:
+            message.addField(parseField(token, FieldDescriptorProto.Label.LABEL_OPTIONAL, message));
+        }
+      }
+      // Synthetic oneofs of proto3 optional fields come after the declared ones.
+      for (FieldDescriptorProto.Builder field : proto3OptionalFields) {
+        for (FieldDescriptorProto.Builder messageField : message.getFieldBuilderList()) {
+          if (messageField.getName().equals(field.getName())) {
+            messageField.setOneofIndex(message.getOneofDeclCount());
+          }
+        }
+        message.addOneofDecl(OneofDescriptorProto.newBuilder().setName("_" + field.getName()));
+      }
+      return message.build();
+    }
+
+    private void parseOneof(DescriptorProto.Builder message) {
+      int oneofIndex = message.getOneofDeclCount();
+      message.addOneofDecl(OneofDescriptorProto.newBuilder().setName(readIdentifier()));
+      expect("{");
+      String token;
+      while (!(token = required()).equals("}")) {
+        if (token.equals("option")) {
+          skipStatement();
+        } else if (!token.equals(";")) {
+          message.addField(
+              parseField(token, FieldDescriptorProto.Label.LABEL_OPTIONAL, message)
+                  .setOneofIndex(oneofIndex));
+        }
+      }
+    }
+
+    /** Parses a field whose type is {@code type}, adding the entry type of a map to the message. */
+    private FieldDescriptorProto.Builder parseField(
+        String type, FieldDescriptorProto.Label label, DescriptorProto.Builder message) {
+      FieldDescriptorProto.Builder field = FieldDescriptorProto.newBuilder().setLabel(label);
+      if (type.equals("map") && peek("<")) {
+        expect("<");
+        String keyType = required();
+        expect(",");
+        String valueType = required();
+        expect(">");
+        field.setName(readIdentifier());
+        String entryName = toCamelCase(field.getName()) + "Entry";
+        message.addNestedType(
+            DescriptorProto.newBuilder()
+                .setName(entryName)
+                .setOptions(MessageOptions.newBuilder().setMapEntry(true))
+                .addField(
+                    setType(FieldDescriptorProto.newBuilder(), keyType)
+                        .setName("key")
+                        .setNumber(1)
+                        .setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL))
+                .addField(
+                    setType(FieldDescriptorProto.newBuilder(), valueType)
+                        .setName("value")
+                        .setNumber(2)
+                        .setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL)));
+        field.setLabel(FieldDescriptorProto.Label.LABEL_REPEATED).setTypeName(entryName);
+      } else {
+        setType(field, type).setName(readIdentifier());
+      }
+      expect("=");
+      field.setNumber(readInteger());
+      if (peek("[")) {
+        skipBalanced("[", "]");
+      }
+      expect(";");
+      return field;
+    }
+
+    private EnumDescriptorProto parseEnum() {
+      EnumDescriptorProto.Builder enumType =
+          EnumDescriptorProto.newBuilder().setName(readIdentifier());
+      expect("{");
+      String token;
+      while (!(token = required()).equals("}")) {
+        if (token.equals("option") || token.equals("reserved")) {
+          skipStatement();
+        } else if (!token.equals(";")) {
+          expect("=");
+          enumType.addValue(
+              EnumValueDescriptorProto.newBuilder().setName(token).setNumber(readInteger()));
+          if (peek("[")) {
+            skipBalanced("[", "]");
+          }
+          expect(";");
+        }
+      }
+      return enumType.build();
+    }
+
+    private static FieldDescriptorProto.Builder setType(
+        FieldDescriptorProto.Builder field, String type) {
+      FieldDescriptorProto.Type scalarType = SCALAR_TYPES.get(type);
+      if (scalarType != null) {
+        return field.setType(scalarType);
+      }
+      if (type.equals("group")) {
+        throw new IllegalArgumentException("Groups are not supported");
+      }
+      // Message and enum types are resolved when the descriptor is built.
+      return field.setTypeName(type);
+    }
+
+    private static String toCamelCase(String name) {
+      StringBuilder camelCase = new StringBuilder(name.length());
+      boolean capitalizeNext = true;
+      for (char c : name.toCharArray()) {
+        if (c == '_') {
+          capitalizeNext = true;
+        } else if (capitalizeNext) {
+          camelCase.append(Character.toUpperCase(c));
+          capitalizeNext = false;
+        } else {
+          camelCase.append(c);
+        }
+      }
+      return camelCase.toString();
+    }
+
+    private void skipStatement() {
+      String token;
+      while (!(token = required()).equals(";")) {
+        if (token.equals("{")) {
+          position--;
+          skipBalanced("{", "}");
+        }
+      }
+    }
+
+    private void skipBalanced(String open, String close) {
+      expect(open);
+      int depth = 1;
+      while (depth > 0) {
+        String token = required();
+        if (token.equals(open)) {
+          depth++;
+        } else if (token.equals(close)) {
+          depth--;
+        }
+      }
+    }
+
+    private String readIdentifier() {
+      String token = required();
+      if (!Character.isJavaIdentifierStart(token.charAt(0)) && token.charAt(0) != '.') {
+        throw error("Expected an identifier but found " + token);
+      }
+      return token;
+    }
+
+    private int readInteger() {
+      String token = required();
+      try {
+        return Integer.decode(token);
+      } catch (NumberFormatException e) {
+        throw error("Expected a number but found " + token);
+      }
+    }
+
+    private String readString() {
+      String token = required();
+      if (token.length() < 2 || (token.charAt(0) != '"' && token.charAt(0) != '\'')) {
+        throw error("Expected a string but found " + token);
+      }
+      return token.substring(1, token.length() - 1);
+    }
+
+    private void expect(String expected) {
+      String token = required();
+      if (!token.equals(expected)) {
+        throw error("Expected " + expected + " but found " + token);
+      }
+    }
+
+    private boolean peek(String expected) {
+      int start = position;
+      String token = next();
+      position = start;
+      return expected.equals(token);
+    }
+
+    private String required() {
+      String token = next();
+      if (token == null) {
+        throw error("Unexpected end of the schema");
+      }
+      return token;
+    }
+
+    /** Returns the next token, or {@code null} at the end of the source. */
+    private String next() {
+      skipWhitespaceAndComments();
+      if (position >= source.length()) {
+        return null;
+      }
+      int start = position;
+      char c = source.charAt(position);
+      if (c == '"' || c == '\'') {
+        position++;
+        while (position < source.length() && source.charAt(position) != c) {
+          if (source.charAt(position) == '\\') {
+            position++;
+          }
+          position++;
+        }
+        position++;
+      } else if (Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '-' || c == '+') {
+        position++;
+        while (position < source.length()
+            && (Character.isLetterOrDigit(source.charAt(position))
+                || source.charAt(position) == '_'
+                || source.charAt(position) == '.')) {
+          position++;
+        }
+      } else {
+        position++;
+      }
+      return source.substring(start, Math.min(position, source.length()));
+    }
+
+    private void skipWhitespaceAndComments() {
+      while (position < source.length()) {
+        char c = source.charAt(position);
+        if (Character.isWhitespace(c)) {
+          position++;
+        } else if (source.startsWith("//", position)) {
+          int end = source.indexOf('\n', position);
+          position = end < 0 ? source.length() : end + 1;
+        } else if (source.startsWith("/*", position)) {
+          int end = source.indexOf("*/", position + 2);
+          if (end < 0) {
+            throw error("Unterminated comment");
+          }
+          position = end + 2;
+        } else {
+          return;
+        }
+      }
+    }
+
+    private IllegalArgumentException error(String message) {
+      int line = 1;
+      for (int i = 0; i < Math.min(position, source.length()); i++) {
+        if (source.charAt(i) == '\n') {
+          line++;
+        }
+      }
+      return new IllegalArgumentException("Invalid schema at line " + line + ": " + message);
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.Encoding;
+import com.google.pubsub.v1.Schema;
+
+/** A schema revision compiled once to validate messages locally, see {@link SchemaValidator}. */
+interface CompiledSchema {
+
+  /**
+   * Validates the data of a message in the given encoding.
+   *
+   * @throws IllegalArgumentException if the data does not conform to the schema
+   */
+  void validate(ByteString data, Encoding encoding);
+
+  /**
+   * Compiles the definition of {@code schema}.
+   *
+   * @throws IllegalArgumentException if the definition cannot be compiled
+   */
+  static CompiledSchema compile(Schema schema) {
+    switch (schema.getType()) {
+      case AVRO:
+        return CompiledAvroSchema.compile(schema.getDefinition());
+      case PROTOCOL_BUFFER:
+        return CompiledProtobufSchema.compile(schema.getDefinition());
+      default:
+        throw new IllegalArgumentException(
+            "Schema " + schema.getName() + " has unsupported type " + schema.getType());
+    }
+  }
+}
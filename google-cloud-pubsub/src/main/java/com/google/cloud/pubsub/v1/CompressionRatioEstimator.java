@@ -0,0 +1,172 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PublishRequest;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Deflater;
+
+/**
+ * Estimates how much gzip transport compression shrinks the publish requests of a {@link
+ * Publisher}, by compressing a sample of the requests that are sent.
+ *
+ * <p>The first request and every {@link #SAMPLE_INTERVAL}th request after it are sampled, unless
+ * another sample is being compressed. Only the first {@link #SAMPLE_BYTES} of a serialized request
+ * are compressed, so that sampling takes little time on the publishing thread whatever the size of
+ * the request. The estimate is a moving average of the sampled ratios, so that it follows slow
+ * changes in the payloads; it is 1 until the first sample.
+ */
+final class CompressionRatioEstimator {
+  static final int SAMPLE_INTERVAL = 16;
+  static final int SAMPLE_BYTES = 64 * 1024;
+  // Weight of a new sample in the moving average.
+  private static final double SAMPLE_WEIGHT = 0.25;
+  // Size of the gzip header and trailer, which deflate output does not include.
+  private static final int GZIP_OVERHEAD_BYTES = 18;
+
+  private final AtomicLong requests = new AtomicLong();
+  private final Lock lock = new ReentrantLock();
+  // Guarded by lock, along with the deflater and buffers.
+  private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+  private final byte[] input = new byte[SAMPLE_BYTES];
+  private final byte[] output = new byte[8 * 1024];
+  private final PrefixOutputStream prefix = new PrefixOutputStream();
+  private boolean sampled;
+  private boolean closed;
+  private volatile double ratio = 1;
+
+  /** The estimated ratio of compressed to uncompressed request size. */
+  double getRatio() {
+    return ratio;
+  }
+
+  /** Returns whether the next request should be passed to {@link #sample}. */
+  boolean shouldSample() {
+    return requests.getAndIncrement() % SAMPLE_INTERVAL == 0;
+  }
+
+  /** Compresses the start of the serialized request and updates the estimate. */
+  void sample(PublishRequest request) {
+    if (!lock.tryLock()) {
+      return;
+    }
+    try {
+      prefix.length = 0;
+      try {
+        request.writeTo(prefix);
+      } catch (SampleFullException e) {
+        // The prefix is complete, the rest of the request is not serialized.
+      } catch (IOException e) {
+        // The output stream does not throw otherwise.
+        throw new IllegalStateException(e);
+      }
+      compressInput(prefix.length);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Compresses the start of the serialized request and updates the estimate. */
+  void sample(ByteString encodedRequest) {
+    if (!lock.tryLock()) {
+      return;
+    }
+    try {
+      int length = Math.min(encodedRequest.size(), SAMPLE_BYTES);
+      encodedRequest.substring(0, length).copyTo(input, 0);
+      compressInput(length);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Releases the deflater; later samples are ignored. */
+  void close() {
+    lock.lock();
+    try {
+      if (!closed) {
+        closed = true;
+        deflater.end();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Compresses the first {@code length} bytes of input. Must be called with lock held. */
+  private void compressInput(int length) {
+    if (closed || length == 0) {
+      return;
+    }
+    long compressedBytes = 0;
+    try {
+      deflater.setInput(input, 0, length);
+      deflater.finish();
+      while (!deflater.finished()) {
+        compressedBytes += deflater.deflate(output);
+      }
+    } finally {
+      deflater.reset();
+    }
+    double sampleRatio = Math.min(1, (double) (compressedBytes + GZIP_OVERHEAD_BYTES) / length);
+    ratio = sampled ? ratio + SAMPLE_WEIGHT * (sampleRatio - ratio) : sampleRatio;
+    sampled = true;
+  }
+
+  /** Copies what is written into input, until it is full. */
+  private final class PrefixOutputStream extends OutputStream {
+    int length;
+
+    @Override
+    public void write(int b) throws IOException {
+      if (length == input.length) {
+        throw SampleFullException.INSTANCE;
+      }
+      input[length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      int copied = Math.min(len, input.length - length);
+      System.arraycopy(b, off, input, length, copied);
+      length += copied;
+      if (copied < len) {
+        throw SampleFullException.INSTANCE;
+      }
+    }
+  }
+
+  /** Stops serializing a request once the sample is full. */
+  private static final class SampleFullException extends IOException {
+    private static final long serialVersionUID = 1L;
+    private static final SampleFullException INSTANCE = new SampleFullException();
+
+    private SampleFullException() {
+      super("Sample is full");
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+}
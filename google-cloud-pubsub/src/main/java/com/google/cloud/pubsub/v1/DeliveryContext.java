@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.BetaApi;
+import java.time.Instant;
+
+/**
+ * Metadata about one delivery of a message, passed alongside the message to a {@link
+ * MessageReceiverWithDeliveryContext} or {@link MessageReceiverWithAckResponseAndDeliveryContext}.
+ */
+@BetaApi
+public final class DeliveryContext {
+  private final String subscription;
+  private final String ackId;
+  private final int deliveryAttempt;
+  private final long receiveTimeMillis;
+
+  DeliveryContext(String subscription, String ackId, int deliveryAttempt, long receiveTimeMillis) {
+    this.subscription = subscription;
+    this.ackId = ackId;
+    this.deliveryAttempt = deliveryAttempt;
+    this.receiveTimeMillis = receiveTimeMillis;
+  }
+
+  /** The subscription the message was received from. */
+  public String getSubscription() {
+    return subscription;
+  }
+
+  /** The ack ID of this delivery. */
+  public String getAckId() {
+    return ackId;
+  }
+
+  /**
+   * The approximate number of times the service has attempted to deliver the message, starting at
+   * 1. Only known on subscriptions with a dead letter policy; 0 otherwise.
+   */
+  public int getDeliveryAttempt() {
+    return deliveryAttempt;
+  }
+
+  /** When the subscriber received the message from the service. */
+  public Instant getReceiveTime() {
+    return Instant.ofEpochMilli(receiveTimeMillis);
+  }
+
+  @Override
+  public String toString() {
+    return "DeliveryContext{subscription="
+        + subscription
+        + ", ackId="
+        + ackId
+        + ", deliveryAttempt="
+        + deliveryAttempt
+        + ", receiveTime="
+        + getReceiveTime()
+        + "}";
+  }
+}
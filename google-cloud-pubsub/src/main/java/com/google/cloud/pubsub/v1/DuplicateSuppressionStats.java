@@ -0,0 +1,71 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.BetaApi;
+
+/**
+ * A snapshot of the duplicate suppression cache of a {@link Subscriber}, see {@link
+ * Subscriber.Builder#setDuplicateSuppression(java.time.Duration, int)}.
+ */
+@BetaApi
+public final class DuplicateSuppressionStats {
+  private final long lookupCount;
+  private final long duplicateCount;
+  private final long entryCount;
+  private final long memoryBytes;
+
+  DuplicateSuppressionStats(
+      long lookupCount, long duplicateCount, long entryCount, long memoryBytes) {
+    this.lookupCount = lookupCount;
+    this.duplicateCount = duplicateCount;
+    this.entryCount = entryCount;
+    this.memoryBytes = memoryBytes;
+  }
+
+  /** Number of received messages checked against the cache. */
+  public long getLookupCount() {
+    return lookupCount;
+  }
+
+  /** Number of received messages found to be duplicates and acked without being delivered. */
+  public long getDuplicateCount() {
+    return duplicateCount;
+  }
+
+  /** Fraction of lookups that found a duplicate, or 0 if there were none. */
+  public double getHitRate() {
+    return lookupCount == 0 ? 0 : (double) duplicateCount / lookupCount;
+  }
+
+  /** Number of message IDs currently remembered. */
+  public long getEntryCount() {
+    return entryCount;
+  }
+
+  /** Memory allocated for the remembered message IDs, in bytes. */
+  public long getMemoryBytes() {
+    return memoryBytes;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "DuplicateSuppressionStats{lookups=%d, duplicates=%d, entries=%d, memoryBytes=%d}",
+        lookupCount, duplicateCount, entryCount, memoryBytes);
+  }
+}
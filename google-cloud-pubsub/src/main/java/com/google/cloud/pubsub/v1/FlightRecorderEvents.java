@@ -0,0 +1,462 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.gax.rpc.ApiException;
+import io.grpc.Status;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * JDK Flight Recorder events for the internals of {@link Publisher} and {@link Subscriber}, such as
+ * flushed batches, RPC latencies, flow control waits and stream reconnects.
+ *
+ * <p>The events are disabled by default and are recorded once enabled in the settings of a
+ * recording, for example with {@code <event name="com.google.cloud.pubsub.v1.PublishRpc">} in a
+ * {@code .jfc} file or with {@code jdk.jfr.Recording#enable(String)}. Until then, each call site
+ * costs a check of whether its event type is enabled.
+ *
+ * <p>The library is compiled for Java 8, so the events are defined when this class is loaded with
+ * the {@code jdk.jfr.EventFactory} of JDK 11 and later, looked up reflectively. On other runtimes
+ * no event is ever enabled.
+ */
+final class FlightRecorderEvents {
+  private static final Logger logger = Logger.getLogger(FlightRecorderEvents.class.getName());
+
+  private static final String EVENT_NAME_PREFIX = "com.google.cloud.pubsub.v1.";
+  private static final String[] CATEGORY = {"Google Cloud", "Pub/Sub"};
+  private static final String OK_STATUS = "OK";
+
+  // Reasons a publisher batch is flushed.
+  static final String FLUSH_REASON_COUNT = "count";
+  static final String FLUSH_REASON_BYTES = "bytes";
+  static final String FLUSH_REASON_DELAY = "delay";
+  static final String FLUSH_REASON_FLUSH = "flush";
+  static final String FLUSH_REASON_PREVIOUS_BATCH_DONE = "previous batch done";
+
+  // Operations of ack RPCs.
+  static final String OPERATION_ACK = "ack";
+  static final String OPERATION_MODACK = "modack";
+  static final String OPERATION_NACK = "nack";
+
+  private static final EventType BATCH_FLUSHED;
+  private static final EventType PUBLISH_RPC;
+  private static final EventType PUBLISH_FLOW_CONTROL;
+  private static final EventType SEQUENTIAL_TASK_QUEUED;
+  private static final EventType STREAM_OPENED;
+  private static final EventType STREAM_CLOSED;
+  private static final EventType ACK_RPC;
+  private static final EventType LEASE_EXPIRED;
+
+  static {
+    EventTypeFactory factory = EventTypeFactory.create();
+    BATCH_FLUSHED =
+        factory.define(
+            "BatchFlushed",
+            "Publisher Batch Flushed",
+            "A batch of messages was handed over to be published",
+            field(String.class, "topic", "Topic"),
+            field(String.class, "orderingKey", "Ordering Key"),
+            field(String.class, "reason", "Reason"),
+            field(int.class, "messageCount", "Message Count"),
+            bytesField("bytes", "Size"));
+    PUBLISH_RPC =
+        factory.define(
+            "PublishRpc",
+            "Publish RPC",
+            "A publish request, from being sent until its response",
+            field(String.class, "topic", "Topic"),
+            field(String.class, "orderingKey", "Ordering Key"),
+            field(int.class, "messageCount", "Message Count"),
+            bytesField("bytes", "Size"),
+            field(String.class, "status", "Status"));
+    PUBLISH_FLOW_CONTROL =
+        factory.define(
+            "PublishFlowControl",
+            "Publisher Flow Control",
+            "A call to publish waiting for flow control",
+            field(String.class, "topic", "Topic"),
+            field(String.class, "orderingKey", "Ordering Key"),
+            bytesField("bytes", "Size"));
+    SEQUENTIAL_TASK_QUEUED =
+        factory.define(
+            "SequentialTaskQueued",
+            "Ordering Key Task Queued",
+            "A task was queued behind the running task of its ordering key",
+            field(String.class, "orderingKey", "Ordering Key"),
+            field(int.class, "queueDepth", "Queue Depth"));
+    STREAM_OPENED =
+        factory.define(
+            "StreamOpened",
+            "Streaming Pull Opened",
+            "A streaming pull was opened",
+            field(String.class, "subscription", "Subscription"),
+            field(int.class, "channelAffinity", "Channel Affinity"));
+    STREAM_CLOSED =
+        factory.define(
+            "StreamClosed",
+            "Streaming Pull Closed",
+            "A streaming pull was closed",
+            field(String.class, "subscription", "Subscription"),
+            field(int.class, "channelAffinity", "Channel Affinity"),
+            field(String.class, "status", "Status"),
+            field(boolean.class, "reconnect", "Reconnect"));
+    ACK_RPC =
+        factory.define(
+            "AckRpc",
+            "Ack RPC",
+            "An acknowledge or modify ack deadline request, from being sent until its response",
+            field(String.class, "subscription", "Subscription"),
+            field(String.class, "operation", "Operation"),
+            field(int.class, "ackIdCount", "Ack ID Count"),
+            field(int.class, "deadlineExtensionSeconds", "Deadline Extension Seconds"),
+            field(String.class, "status", "Status"));
+    LEASE_EXPIRED =
+        factory.define(
+            "LeaseExpired",
+            "Lease Expired",
+            "Messages reached the maximum ack extension period and are no longer extended",
+            field(String.class, "subscription", "Subscription"),
+            field(int.class, "messageCount", "Message Count"));
+  }
+
+  private FlightRecorderEvents() {}
+
+  static void batchFlushed(
+      String topic, String orderingKey, String reason, int messageCount, long bytes) {
+    if (BATCH_FLUSHED.isEnabled()) {
+      BATCH_FLUSHED.commit(
+          BATCH_FLUSHED.newEvent(), topic, orderingKey, reason, messageCount, bytes);
+    }
+  }
+
+  /** Starts a publish RPC event, or returns {@code null} if it is not enabled. */
+  @Nullable
+  static Object beginPublishRpc() {
+    return PUBLISH_RPC.begin();
+  }
+
+  static void endPublishRpc(
+      @Nullable Object event,
+      String topic,
+      String orderingKey,
+      int messageCount,
+      long bytes,
+      @Nullable Throwable error) {
+    if (event != null) {
+      PUBLISH_RPC.commit(event, topic, orderingKey, messageCount, bytes, statusOf(error));
+    }
+  }
+
+  /** Starts a publisher flow control event, or returns {@code null} if it is not enabled. */
+  @Nullable
+  static Object beginPublishFlowControl() {
+    return PUBLISH_FLOW_CONTROL.begin();
+  }
+
+  static void endPublishFlowControl(
+      @Nullable Object event, String topic, String orderingKey, long bytes) {
+    if (event != null) {
+      PUBLISH_FLOW_CONTROL.commit(event, topic, orderingKey, bytes);
+    }
+  }
+
+  static void sequentialTaskQueued(String orderingKey, int queueDepth) {
+    if (SEQUENTIAL_TASK_QUEUED.isEnabled()) {
+      SEQUENTIAL_TASK_QUEUED.commit(SEQUENTIAL_TASK_QUEUED.newEvent(), orderingKey, queueDepth);
+    }
+  }
+
+  static void streamOpened(String subscription, int channelAffinity) {
+    if (STREAM_OPENED.isEnabled()) {
+      STREAM_OPENED.commit(STREAM_OPENED.newEvent(), subscription, channelAffinity);
+    }
+  }
+
+  static void streamClosed(
+      String subscription, int channelAffinity, @Nullable Throwable error, boolean reconnect) {
+    if (STREAM_CLOSED.isEnabled()) {
+      STREAM_CLOSED.commit(
+          STREAM_CLOSED.newEvent(), subscription, channelAffinity, statusOf(error), reconnect);
+    }
+  }
+
+  /** Starts an ack RPC event, or returns {@code null} if it is not enabled. */
+  @Nullable
+  static Object beginAckRpc() {
+    return ACK_RPC.begin();
+  }
+
+  static void endAckRpc(
+      @Nullable Object event,
+      String subscription,
+      String operation,
+      int ackIdCount,
+      int deadlineExtensionSeconds,
+      @Nullable Throwable error) {
+    if (event != null) {
+      ACK_RPC.commit(
+          event, subscription, operation, ackIdCount, deadlineExtensionSeconds, statusOf(error));
+    }
+  }
+
+  static void leaseExpired(String subscription, int messageCount) {
+    if (LEASE_EXPIRED.isEnabled()) {
+      LEASE_EXPIRED.commit(LEASE_EXPIRED.newEvent(), subscription, messageCount);
+    }
+  }
+
+  private static String statusOf(@Nullable Throwable error) {
+    if (error == null) {
+      return OK_STATUS;
+    }
+    if (error instanceof ApiException) {
+      return ((ApiException) error).getStatusCode().getCode().name();
+    }
+    return Status.fromThrowable(error).getCode().name();
+  }
+
+  private static Field field(Class<?> type, String name, String label) {
+    return new Field(type, name, label, false);
+  }
+
+  private static Field bytesField(String name, String label) {
+    return new Field(long.class, name, label, true);
+  }
+
+  /** A field of an event type. */
+  private static final class Field {
+    final Class<?> type;
+    final String name;
+    final String label;
+    final boolean bytes;
+
+    Field(Class<?> type, String name, String label, boolean bytes) {
+      this.type = type;
+      this.name = name;
+      this.label = label;
+      this.bytes = bytes;
+    }
+  }
+
+  /** An event type, which is never enabled if Flight Recorder is not available. */
+  private static final class EventType {
+    // jdk.jfr.EventType#isEnabled and jdk.jfr.EventFactory#newEvent, bound to this event type.
+    @Nullable private final MethodHandle isEnabled;
+    @Nullable private final MethodHandle newEvent;
+    // jdk.jfr.Event#begin, #end, #set and #commit.
+    @Nullable private final MethodHandle begin;
+    @Nullable private final MethodHandle end;
+    @Nullable private final MethodHandle set;
+    @Nullable private final MethodHandle commit;
+
+    EventType(
+        @Nullable MethodHandle isEnabled,
+        @Nullable MethodHandle newEvent,
+        @Nullable MethodHandle begin,
+        @Nullable MethodHandle end,
+        @Nullable MethodHandle set,
+        @Nullable MethodHandle commit) {
+      this.isEnabled = isEnabled;
+      this.newEvent = newEvent;
+      this.begin = begin;
+      this.end = end;
+      this.set = set;
+      this.commit = commit;
+    }
+
+    boolean isEnabled() {
+      if (isEnabled == null) {
+        return false;
+      }
+      try {
+        return (boolean) isEnabled.invokeExact();
+      } catch (Throwable t) {
+        return false;
+      }
+    }
+
+    @Nullable
+    Object newEvent() {
+      try {
+        return (Object) newEvent.invokeExact();
+      } catch (Throwable t) {
+        return null;
+      }
+    }
+
+    /** Returns a new event with its start time set, or {@code null} if not enabled. */
+    @Nullable
+    Object begin() {
+      if (!isEnabled()) {
+        return null;
+      }
+      Object event = newEvent();
+      if (event != null) {
+        try {
+          begin.invokeExact(event);
+        } catch (Throwable t) {
+          return null;
+        }
+      }
+      return event;
+    }
+
+    /** Sets the fields of the event, in the order they are defined, and commits it. */
+    void commit(@Nullable Object event, Object... values) {
+      if (event == null) {
+        return;
+      }
+      try {
+        end.invokeExact(event);
+        for (int i = 0; i < values.length; i++) {
+          set.invokeExact(event, i, values[i]);
+        }
+        commit.invokeExact(event);
+      } catch (Throwable t) {
+        logger.log(Level.FINE, "Unable to commit a Flight Recorder event", t);
+      }
+    }
+  }
+
+  /** Defines event types with {@code jdk.jfr.EventFactory}, if available. */
+  private static final class EventTypeFactory {
+    private static final EventType DISABLED = new EventType(null, null, null, null, null, null);
+
+    @Nullable private final Constructor<?> annotationElementConstructor;
+    @Nullable private final Constructor<?> valueDescriptorConstructor;
+    @Nullable private final MethodHandle createFactory;
+    @Nullable private final MethodHandle begin;
+    @Nullable private final MethodHandle end;
+    @Nullable private final MethodHandle set;
+    @Nullable private final MethodHandle commit;
+
+    private EventTypeFactory(
+        @Nullable Constructor<?> annotationElementConstructor,
+        @Nullable Constructor<?> valueDescriptorConstructor,
+        @Nullable MethodHandle createFactory,
+        @Nullable MethodHandle begin,
+        @Nullable MethodHandle end,
+        @Nullable MethodHandle set,
+        @Nullable MethodHandle commit) {
+      this.annotationElementConstructor = annotationElementConstructor;
+      this.valueDescriptorConstructor = valueDescriptorConstructor;
+      this.createFactory = createFactory;
+      this.begin = begin;
+      this.end = end;
+      this.set = set;
+      this.commit = commit;
+    }
+
+    static EventTypeFactory create() {
+      try {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+        Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+        Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+        Class<?> eventClass = Class.forName("jdk.jfr.Event");
+        MethodType voidEvent = MethodType.methodType(void.class, Object.class);
+        return new EventTypeFactory(
+            annotationElementClass.getConstructor(Class.class, Object.class),
+            valueDescriptorClass.getConstructor(Class.class, String.class, List.class),
+            lookup.findStatic(
+                eventFactoryClass,
+                "create",
+                MethodType.methodType(eventFactoryClass, List.class, List.class)),
+            lookup
+                .findVirtual(eventClass, "begin", MethodType.methodType(void.class))
+                .asType(voidEvent),
+            lookup
+                .findVirtual(eventClass, "end", MethodType.methodType(void.class))
+                .asType(voidEvent),
+            lookup
+                .findVirtual(
+                    eventClass, "set", MethodType.methodType(void.class, int.class, Object.class))
+                .asType(MethodType.methodType(void.class, Object.class, int.class, Object.class)),
+            lookup
+                .findVirtual(eventClass, "commit", MethodType.methodType(void.class))
+                .asType(voidEvent));
+      } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+        logger.log(Level.FINE, "Flight Recorder events are not available", e);
+        return new EventTypeFactory(null, null, null, null, null, null, null);
+      }
+    }
+
+    EventType define(String name, String label, String description, Field... fields) {
+      if (createFactory == null) {
+        return DISABLED;
+      }
+      try {
+        List<Object> annotations =
+            Arrays.asList(
+                annotation("jdk.jfr.Name", EVENT_NAME_PREFIX + name),
+                annotation("jdk.jfr.Label", label),
+                annotation("jdk.jfr.Description", description),
+                annotation("jdk.jfr.Category", CATEGORY),
+                annotation("jdk.jfr.Enabled", false),
+                annotation("jdk.jfr.StackTrace", false));
+        List<Object> valueDescriptors = new ArrayList<>(fields.length);
+        for (Field field : fields) {
+          List<Object> fieldAnnotations = new ArrayList<>();
+          fieldAnnotations.add(annotation("jdk.jfr.Label", field.label));
+          if (field.bytes) {
+            fieldAnnotations.add(annotation("jdk.jfr.DataAmount", "BYTES"));
+          }
+          valueDescriptors.add(
+              valueDescriptorConstructor.newInstance(field.type, field.name, fieldAnnotations));
+        }
+        Object eventFactory = createFactory.invoke(annotations, valueDescriptors);
+        Object eventType = eventFactory.getClass().getMethod("getEventType").invoke(eventFactory);
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        return new EventType(
+            lookup
+                .findVirtual(
+                    Class.forName("jdk.jfr.EventType"),
+                    "isEnabled",
+                    MethodType.methodType(boolean.class))
+                .bindTo(eventType),
+            lookup
+                .findVirtual(
+                    Class.forName("jdk.jfr.EventFactory"),
+                    "newEvent",
+                    MethodType.methodType(Class.forName("jdk.jfr.Event")))
+                .bindTo(eventFactory)
+                .asType(MethodType.methodType(Object.class)),
+            begin,
+            end,
+            set,
+            commit);
+      } catch (Throwable t) {
+        logger.log(Level.FINE, "Unable to define the Flight Recorder event " + name, t);
+        return DISABLED;
+      }
+    }
+
+    private Object annotation(String annotationClassName, Object value)
+        throws ReflectiveOperationException {
+      return annotationElementConstructor.newInstance(Class.forName(annotationClassName), value);
+    }
+  }
+}
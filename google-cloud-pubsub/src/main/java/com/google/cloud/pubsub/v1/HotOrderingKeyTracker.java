@@ -0,0 +1,188 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Finds the ordering keys a {@link Publisher} publishes the most messages for, with the
+ * space-saving algorithm: a fixed number of counters is kept, and a key that is not counted yet
+ * takes over the counter with the lowest count, inheriting that count. Every key published more
+ * often than {@code 1 / capacity} of all messages is guaranteed to be counted, and a count exceeds
+ * the true count by at most the inherited count. Counts are kept since the publisher was created.
+ *
+ * <p>The counters are grouped in buckets of equal count, linked in order of count, so that both
+ * counting a message and finding a counter with the lowest count take constant time.
+ */
+final class HotOrderingKeyTracker {
+  // The number of counters kept for each key reported, for accuracy.
+  static final int COUNTERS_PER_KEY = 10;
+
+  private final int keyCount;
+  private final int capacity;
+  // Guarded by this.
+  private final Map<String, Counter> counters = new HashMap<>();
+  // The bucket with the lowest count, guarded by this.
+  @Nullable private Bucket lowest;
+
+  static final class Counter {
+    final String orderingKey;
+    final long overcount;
+    long messages;
+    long bytes;
+
+    // The bucket of the counter and its neighbours there, guarded by the tracker.
+    private Bucket bucket;
+    private Counter previous;
+    private Counter next;
+
+    Counter(String orderingKey, long overcount) {
+      this.orderingKey = orderingKey;
+      this.overcount = overcount;
+    }
+  }
+
+  /** The counters with the same count. */
+  private static final class Bucket {
+    private final long messages;
+    private Counter first;
+    private Bucket lower;
+    private Bucket higher;
+
+    private Bucket(long messages) {
+      this.messages = messages;
+    }
+  }
+
+  HotOrderingKeyTracker(int keyCount) {
+    this.keyCount = keyCount;
+    this.capacity = keyCount * COUNTERS_PER_KEY;
+  }
+
+  synchronized void record(String orderingKey, long messageSize) {
+    Counter counter = counters.get(orderingKey);
+    if (counter == null) {
+      if (counters.size() < capacity) {
+        counter = new Counter(orderingKey, 0);
+        if (lowest == null || lowest.messages != 0) {
+          insertAbove(null, new Bucket(0));
+        }
+        link(counter, lowest);
+      } else {
+        Counter min = lowest.first;
+        counters.remove(min.orderingKey);
+        counter = new Counter(orderingKey, min.messages);
+        counter.messages = min.messages;
+        counter.bytes = min.bytes;
+        // Link the new counter first, so the bucket is not removed with the evicted one.
+        link(counter, min.bucket);
+        unlink(min);
+      }
+      counters.put(orderingKey, counter);
+    }
+    long messages = counter.messages + 1;
+    Bucket higher = counter.bucket.higher;
+    if (higher == null || higher.messages != messages) {
+      higher = new Bucket(messages);
+      insertAbove(counter.bucket, higher);
+    }
+    unlink(counter);
+    link(counter, higher);
+    counter.messages = messages;
+    counter.bytes += messageSize;
+  }
+
+  /**
+   * Inserts {@code bucket} right above {@code below}, or as the lowest if {@code below} is null.
+   */
+  private void insertAbove(@Nullable Bucket below, Bucket bucket) {
+    Bucket above = below == null ? lowest : below.higher;
+    bucket.lower = below;
+    bucket.higher = above;
+    if (above != null) {
+      above.lower = bucket;
+    }
+    if (below == null) {
+      lowest = bucket;
+    } else {
+      below.higher = bucket;
+    }
+  }
+
+  private static void link(Counter counter, Bucket bucket) {
+    counter.bucket = bucket;
+    counter.previous = null;
+    counter.next = bucket.first;
+    if (bucket.first != null) {
+      bucket.first.previous = counter;
+    }
+    bucket.first = counter;
+  }
+
+  /** Removes {@code counter} from its bucket, and the bucket if it is left empty. */
+  private void unlink(Counter counter) {
+    Bucket bucket = counter.bucket;
+    if (counter.previous == null) {
+      bucket.first = counter.next;
+    } else {
+      counter.previous.next = counter.next;
+    }
+    if (counter.next != null) {
+      counter.next.previous = counter.previous;
+    }
+    counter.bucket = null;
+    counter.previous = null;
+    counter.next = null;
+    if (bucket.first == null) {
+      if (bucket.lower == null) {
+        lowest = bucket.higher;
+      } else {
+        bucket.lower.higher = bucket.higher;
+      }
+      if (bucket.higher != null) {
+        bucket.higher.lower = bucket.lower;
+      }
+    }
+  }
+
+  /** Returns copies of the counters of the most published keys, the most published first. */
+  synchronized List<Counter> getHotKeys() {
+    List<Counter> sorted = new ArrayList<>(counters.values());
+    Collections.sort(
+        sorted,
+        new Comparator<Counter>() {
+          @Override
+          public int compare(Counter a, Counter b) {
+            return Long.compare(b.messages, a.messages);
+          }
+        });
+    List<Counter> hotKeys = new ArrayList<>(Math.min(keyCount, sorted.size()));
+    for (Counter counter : sorted.subList(0, Math.min(keyCount, sorted.size()))) {
+      Counter copy = new Counter(counter.orderingKey, counter.overcount);
+      copy.messages = counter.messages;
+      copy.bytes = counter.bytes;
+      hotKeys.add(copy);
+    }
+    return hotKeys;
+  }
+}
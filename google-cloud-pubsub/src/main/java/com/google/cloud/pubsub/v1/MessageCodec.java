@@ -0,0 +1,62 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.BetaApi;
+import com.google.protobuf.ByteString;
+import java.util.function.Function;
+
+/**
+ * Converts values to and from the data of messages, in the schema and encoding of a topic. Used by
+ * {@link TypedPublisher} and {@link TypedMessageReceiver}.
+ *
+ * <p>Implementations must be thread-safe, as the publisher and subscriber call them from many
+ * threads. {@link ProtobufMessageCodec} converts protocol buffer messages; codecs of other formats,
+ * such as Avro, implement this interface and can be combined with {@link #withRevisionDecoders} to
+ * decode messages written with older or newer revisions of the schema.
+ */
+@BetaApi
+public interface MessageCodec<T> {
+  /** The attribute the service sets on received messages to the revision of their schema. */
+  String SCHEMA_REVISION_ID_ATTRIBUTE = "googclient_schemarevisionid";
+
+  /** Encodes a value as the data of a message. */
+  ByteString encode(T value);
+
+  /**
+   * Decodes the data of a message.
+   *
+   * @param data the data of the message
+   * @param schemaRevisionId the revision of the schema the data was encoded with, from the {@value
+   *     #SCHEMA_REVISION_ID_ATTRIBUTE} attribute, or an empty string if the message does not have
+   *     it
+   * @throws IllegalArgumentException if the data cannot be decoded
+   */
+  T decode(ByteString data, String schemaRevisionId);
+
+  /**
+   * Returns a codec that encodes values with {@code codec} and decodes the data of each revision of
+   * the schema with the codec returned by {@code decoderForRevision}, such as one that resolves the
+   * schema of the revision against that of {@code codec}. The decoder of a revision is created the
+   * first time a message of that revision is decoded and then reused; messages without a revision
+   * are decoded with {@code codec}.
+   */
+  static <T> MessageCodec<T> withRevisionDecoders(
+      MessageCodec<T> codec, Function<String, MessageCodec<T>> decoderForRevision) {
+    return new RevisionCachingMessageCodec<>(codec, decoderForRevision);
+  }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.ApiClock;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nullable;
+
+/**
+ * Remembers the IDs of acked messages for a time window, so that redeliveries of those messages
+ * under a new ack ID can be recognized.
+ *
+ * <p>Message IDs are stored as 64-bit hashes in two open-addressing tables of primitive longs, a
+ * current and a previous generation, instead of a {@code String} and a hash set entry. IDs are
+ * added to the current generation and looked up in both. The generations rotate every {@code
+ * window}, or earlier once the current one holds half of {@code maxMessageIds}, dropping the
+ * previous one; an ID is therefore remembered for at least {@code window} unless capacity runs out
+ * first, and for at most twice that.
+ *
+ * <p>The tables grow with the IDs they hold. The table of a dropped generation is cleared outside
+ * the lock and kept to become the next current generation, so at most three tables are allocated,
+ * which costs about 16 to 32 bytes per remembered message once {@code maxMessageIds} are
+ * remembered.
+ *
+ * <p>Two different IDs with the same 64-bit hash would be mistaken for each other; with eight
+ * million remembered IDs the chance that a new ID collides is about one in two trillion.
+ */
+final class MessageDeduplicator {
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+  private static final double MAX_LOAD_FACTOR = 0.75;
+  static final int MAX_MESSAGE_IDS = 1 << 23;
+
+  private final ApiClock clock;
+  private final long generationMillis;
+  private final int maxIdsPerGeneration;
+
+  private final Lock lock = new ReentrantLock();
+  // Guarded by lock.
+  private LongHashSet current;
+  private LongHashSet previous;
+  // A cleared table to become the next current generation, or null.
+  @Nullable private LongHashSet spare;
+  private long currentStartMillis;
+
+  private final LongAdder lookups = new LongAdder();
+  private final LongAdder duplicates = new LongAdder();
+
+  MessageDeduplicator(Duration window, int maxMessageIds, ApiClock clock) {
+    Preconditions.checkArgument(window.toMillis() > 0, "window must be positive");
+    Preconditions.checkArgument(
+        maxMessageIds >= 2 && maxMessageIds <= MAX_MESSAGE_IDS,
+        "maxMessageIds must be between 2 and %s",
+        MAX_MESSAGE_IDS);
+    this.clock = clock;
+    this.generationMillis = window.toMillis();
+    this.maxIdsPerGeneration = maxMessageIds / 2;
+    this.current = new LongHashSet(maxIdsPerGeneration);
+    this.previous = new LongHashSet(maxIdsPerGeneration);
+    this.currentStartMillis = clock.millisTime();
+  }
+
+  /** Returns whether a message with this ID was recorded as acked within the window. */
+  boolean isDuplicate(String messageId) {
+    if (messageId.isEmpty()) {
+      return false;
+    }
+    long hash = hash(messageId);
+    boolean duplicate;
+    LongHashSet dropped;
+    lock.lock();
+    try {
+      dropped = rotateIfExpired(clock.millisTime());
+      duplicate = current.contains(hash) || previous.contains(hash);
+    } finally {
+      lock.unlock();
+    }
+    recycle(dropped);
+    lookups.increment();
+    if (duplicate) {
+      duplicates.increment();
+    }
+    return duplicate;
+  }
+
+  /** Records that the message with this ID was acked. */
+  void recordAcked(String messageId) {
+    if (messageId.isEmpty()) {
+      return;
+    }
+    long hash = hash(messageId);
+    LongHashSet dropped;
+    lock.lock();
+    try {
+      dropped = rotateIfExpired(clock.millisTime());
+      if (current.size() >= maxIdsPerGeneration) {
+        // Only reached without an expiry rotation, which leaves the current generation empty.
+        dropped = rotate(clock.millisTime());
+      }
+      current.add(hash);
+    } finally {
+      lock.unlock();
+    }
+    recycle(dropped);
+  }
+
+  DuplicateSuppressionStats getStats() {
+    int entries;
+    long memoryBytes;
+    lock.lock();
+    try {
+      entries = current.size() + previous.size();
+      memoryBytes =
+          current.memoryBytes()
+              + previous.memoryBytes()
+              + (spare == null ? 0 : spare.memoryBytes());
+    } finally {
+      lock.unlock();
+    }
+    return new DuplicateSuppressionStats(lookups.sum(), duplicates.sum(), entries, memoryBytes);
+  }
+
+  /**
+   * Rotates the generations if the current one is older than the window, returning the table of the
+   * dropped generation if any. Must be called with lock held.
+   */
+  @Nullable
+  private LongHashSet rotateIfExpired(long nowMillis) {
+    long elapsed = nowMillis - currentStartMillis;
+    if (elapsed < generationMillis) {
+      return null;
+    }
+    LongHashSet dropped = rotate(nowMillis);
+    if (elapsed >= 2 * generationMillis) {
+      // Both generations are older than the window, the older of the two is left to the GC.
+      previous = new LongHashSet(maxIdsPerGeneration);
+    }
+    return dropped;
+  }
+
+  /**
+   * Drops the previous generation and starts a new one, returning the table of the dropped
+   * generation. Must be called with lock held.
+   */
+  private LongHashSet rotate(long nowMillis) {
+    LongHashSet dropped = previous;
+    previous = current;
+    current = spare != null ? spare : new LongHashSet(maxIdsPerGeneration);
+    spare = null;
+    currentStartMillis = nowMillis;
+    return dropped;
+  }
+
+  /** Clears the table of a dropped generation and keeps it for the next rotation. */
+  private void recycle(@Nullable LongHashSet dropped) {
+    if (dropped == null) {
+      return;
+    }
+    dropped.clear();
+    lock.lock();
+    try {
+      if (spare == null) {
+        spare = dropped;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static long hash(String messageId) {
+    long hash = HASH_FUNCTION.hashString(messageId, StandardCharsets.UTF_8).asLong();
+    // 0 marks an empty slot.
+    return hash == 0 ? 1 : hash;
+  }
+
+  /**
+   * An open-addressing set of non-zero longs with linear probing, which grows up to the capacity
+   * needed for {@code maxSize} values. Not thread-safe.
+   */
+  private static final class LongHashSet {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int maxCapacity;
+    private long[] table;
+    private int mask;
+    private int size;
+
+    private LongHashSet(int maxSize) {
+      int minCapacity = (int) Math.ceil(maxSize / MAX_LOAD_FACTOR);
+      int capacity = Integer.highestOneBit(minCapacity);
+      if (capacity < minCapacity) {
+        capacity <<= 1;
+      }
+      this.maxCapacity = Math.max(capacity, 2);
+      this.table = new long[Math.min(maxCapacity, INITIAL_CAPACITY)];
+      this.mask = table.length - 1;
+    }
+
+    private boolean contains(long value) {
+      for (int i = index(value); ; i = (i + 1) & mask) {
+        long slot = table[i];
+        if (slot == value) {
+          return true;
+        }
+        if (slot == 0) {
+          return false;
+        }
+      }
+    }
+
+    private void add(long value) {
+      for (int i = index(value); ; i = (i + 1) & mask) {
+        long slot = table[i];
+        if (slot == value) {
+          return;
+        }
+        if (slot == 0) {
+          table[i] = value;
+          size++;
+          if (size > table.length * MAX_LOAD_FACTOR && table.length < maxCapacity) {
+            grow();
+          }
+          return;
+        }
+      }
+    }
+
+    private void grow() {
+      long[] oldTable = table;
+      table = new long[oldTable.length * 2];
+      mask = table.length - 1;
+      for (long value : oldTable) {
+        if (value != 0) {
+          int i = index(value);
+          while (table[i] != 0) {
+            i = (i + 1) & mask;
+          }
+          table[i] = value;
+        }
+      }
+    }
+
+    private int index(long value) {
+      // The value is already a well-mixed hash.
+      return (int) (value ^ (value >>> 32)) & mask;
+    }
+
+    private int size() {
+      return size;
+    }
+
+    private void clear() {
+      if (size > 0) {
+        Arrays.fill(table, 0L);
+        size = 0;
+      }
+    }
+
+    private long memoryBytes() {
+      return 8L * table.length;
+    }
+  }
+}
@@ -31,26 +31,32 @@ import com.google.pubsub.v1.ReceivedMessage;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 
 /**
  * Dispatches messages to a message receiver while handling the messages acking and lease
@@ -64,6 +70,13 @@ class MessageDispatcher {
 
   private final Executor executor;
   private final SequentialExecutorService.AutoExecutor sequentialExecutor;
+  // Messages without an ordering key waiting for a dispatch worker when batched dispatch is
+  // enabled, and the number of workers currently draining them.
+  private final boolean enableBatchedDispatch;
+  private final int maxDispatchWorkers;
+  private final ConcurrentLinkedQueue<Runnable> dispatchQueue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger activeDispatchWorkers = new AtomicInteger();
+  private final Runnable dispatchWorker = new DispatchWorker();
   private final ScheduledExecutorService systemExecutor;
   private final ApiClock clock;
 
@@ -74,14 +87,34 @@ class MessageDispatcher {
   private final int maxDurationPerAckExtensionSeconds;
   private final boolean maxDurationPerAckExtensionDefaultUsed;
 
-  // Only one of receiver or receiverWithAckResponse will be set
+  // Only one of the receivers will be set
   private MessageReceiver receiver;
   private MessageReceiverWithAckResponse receiverWithAckResponse;
+  private MessageReceiverWithDeliveryContext receiverWithDeliveryContext;
+  private MessageReceiverWithAckResponseAndDeliveryContext
+      receiverWithAckResponseAndDeliveryContext;
 
   private final AckProcessor ackProcessor;
 
   private final FlowController flowController;
 
+  // Redelivery delay for nacks that do not specify one, doubling with every delivery attempt up to
+  // the maximum. Disabled when the initial delay is 0.
+  private final int nackBackoffInitialSeconds;
+  private final int nackBackoffMaxSeconds;
+
+  // Remembers acked message IDs to suppress redeliveries, or null if disabled. Not used with
+  // exactly-once delivery.
+  @Nullable private final MessageDeduplicator deduplicator;
+
+  // Decide which messages are delivered before they take flow control or executor capacity.
+  // Messages older than maxMessageAgeMillis are acked; 0 disables the age check.
+  @Nullable private final MessageFilter messageFilter;
+  private final long maxMessageAgeMillis;
+
+  // Whether delivered messages are copied to add the delivery attempt as an attribute.
+  private final boolean enableDeliveryAttemptAttribute;
+
   private AtomicBoolean exactlyOnceDeliveryEnabled = new AtomicBoolean(false);
   private AtomicBoolean messageOrderingEnabled = new AtomicBoolean(false);
 
@@ -93,8 +126,19 @@ class MessageDispatcher {
   private final LinkedBlockingQueue<AckRequestData> pendingAcks = new LinkedBlockingQueue<>();
   private final LinkedBlockingQueue<AckRequestData> pendingNacks = new LinkedBlockingQueue<>();
   private final LinkedBlockingQueue<AckRequestData> pendingReceipts = new LinkedBlockingQueue<>();
-  private final LinkedHashMap<String, ReceiptCompleteData> outstandingReceipts =
-      new LinkedHashMap<String, ReceiptCompleteData>();
+  // Exactly-once messages waiting for their receipt modack, by ack ID. A message without an
+  // ordering key is released as soon as its own receipt completes. Messages with an ordering key
+  // are also queued per key and released from the head of that queue, so that they are delivered
+  // in order.
+  private final ConcurrentMap<String, ReceiptCompleteData> outstandingReceipts =
+      new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, OrderedReceipts> orderedReceiptsByKey =
+      new ConcurrentHashMap<>();
+  // With optimistic exactly-once delivery, messages are dispatched right away and only their acks
+  // wait for the receipt modack. Maps ack ID to the receipt of messages whose modack is in flight.
+  private final boolean enableOptimisticExactlyOnceDelivery;
+  private final ConcurrentMap<String, OptimisticReceipt> optimisticReceipts =
+      new ConcurrentHashMap<>();
   private final AtomicInteger messageDeadlineSeconds = new AtomicInteger();
   private final AtomicBoolean extendDeadline = new AtomicBoolean(true);
   private final Lock jobLock;
@@ -107,6 +151,7 @@ class MessageDispatcher {
   private final String subscriptionName;
   private final boolean enableOpenTelemetryTracing;
   private OpenTelemetryPubsubTracer tracer = new OpenTelemetryPubsubTracer(null, false);
+  private OpenTelemetryPubsubMetrics metrics = OpenTelemetryPubsubMetrics.disabled();
 
   /** Internal representation of a reply to a Pubsub message, to be sent back to the service. */
   public enum AckReply {
@@ -120,13 +165,25 @@ class MessageDispatcher {
     private final int outstandingBytes;
     private final long receivedTimeMillis;
     private final Instant totalExpiration;
+    // Set for messages dispatched before their receipt modack completed.
+    @Nullable private final OptimisticReceipt optimisticReceipt;
+    // Set when the message data alias received buffers shared with other messages.
+    @Nullable private final SharedBuffers sharedBuffers;
+    // What still uses the message data: its reply, and the receiver while it is running.
+    private final AtomicInteger bufferUsers = new AtomicInteger(1);
 
     private AckHandler(
-        AckRequestData ackRequestData, int outstandingBytes, Instant totalExpiration) {
+        AckRequestData ackRequestData,
+        int outstandingBytes,
+        Instant totalExpiration,
+        @Nullable OptimisticReceipt optimisticReceipt,
+        @Nullable SharedBuffers sharedBuffers) {
       this.ackRequestData = ackRequestData;
       this.outstandingBytes = outstandingBytes;
       this.receivedTimeMillis = clock.millisTime();
       this.totalExpiration = totalExpiration;
+      this.optimisticReceipt = optimisticReceipt;
+      this.sharedBuffers = sharedBuffers;
     }
 
     public AckRequestData getAckRequestData() {
@@ -137,18 +194,47 @@ class MessageDispatcher {
       return this.ackRequestData.getMessageFutureIfExists();
     }
 
-    /** Stop extending deadlines for this message and free flow control. */
-    private void forget() {
+    /**
+     * Stop extending deadlines for this message and free flow control. Returns false if the message
+     * was already forgotten.
+     */
+    private boolean forget() {
       if (pendingMessages.remove(this.ackRequestData.getAckId()) == null) {
         /*
          * We're forgetting the message for the second time. Probably because we ran out of total
          * expiration, forget the message, then the user finishes working on the message, and forget
          * again. Turn the second forget into a no-op so we don't free twice.
          */
-        return;
+        return false;
+      }
+      if (sharedBuffers == null) {
+        flowController.release(1, outstandingBytes);
+        metrics.removeSubscribeOutstanding(1, outstandingBytes);
+      } else {
+        // The memory stays in use until the buffers are released.
+        flowController.release(1, 0);
+        metrics.removeSubscribeOutstanding(1, 0);
+        sharedBuffers.deferBytes(outstandingBytes);
       }
-      flowController.release(1, outstandingBytes);
       messagesWaiter.incrementPendingCount(-1);
+      return true;
+    }
+
+    /** Called before the message is passed to the receiver, which may use it until it returns. */
+    private void holdBuffersForReceiver() {
+      bufferUsers.incrementAndGet();
+    }
+
+    /**
+     * Called when a use of the message ends: the receiver replied, the receiver returned, or the
+     * message is dropped without being delivered. The buffers are released once the message is
+     * replied to and the receiver has returned, in either order. Unlike {@link #forget()}, not
+     * called when the message expires while the receiver may still be working on it.
+     */
+    private void releaseBuffers() {
+      if (sharedBuffers != null && bufferUsers.decrementAndGet() == 0) {
+        sharedBuffers.release();
+      }
     }
 
     @Override
@@ -160,33 +246,98 @@ class MessageDispatcher {
               + ", the message will be nacked.",
           t);
       this.ackRequestData.setResponse(AckResponse.OTHER, false);
-      pendingNacks.add(this.ackRequestData);
+      addPendingNack(this.ackRequestData);
+      metrics.recordNacked();
       tracer.endSubscribeProcessSpan(this.ackRequestData.getMessageWrapper(), "nack");
       forget();
+      releaseBuffers();
     }
 
     @Override
     public void onSuccess(AckReply reply) {
       switch (reply) {
         case ACK:
-          pendingAcks.add(this.ackRequestData);
+          if (deduplicator != null && !exactlyOnceDeliveryEnabled.get()) {
+            deduplicator.recordAcked(
+                this.ackRequestData.getMessageWrapper().getPubsubMessage().getMessageId());
+          }
+          if (optimisticReceipt == null || !optimisticReceipt.holdAck(this.ackRequestData)) {
+            pendingAcks.add(this.ackRequestData);
+          }
           // Record the latency rounded to the next closest integer.
           ackLatencyDistribution.record(
               Ints.saturatedCast(
                   (long) Math.ceil((clock.millisTime() - receivedTimeMillis) / 1000D)));
+          metrics.recordAcked();
           tracer.endSubscribeProcessSpan(this.ackRequestData.getMessageWrapper(), "ack");
           break;
         case NACK:
-          pendingNacks.add(this.ackRequestData);
+          addPendingNack(this.ackRequestData);
+          metrics.recordNacked();
           tracer.endSubscribeProcessSpan(this.ackRequestData.getMessageWrapper(), "nack");
           break;
         default:
           throw new IllegalArgumentException(String.format("AckReply: %s not supported", reply));
       }
       forget();
+      releaseBuffers();
+    }
+  }
+
+  /**
+   * Received buffers that the data of several messages alias, released with the last of those
+   * messages. The flow control bytes of the messages stay reserved until then, since their memory
+   * does.
+   */
+  private class SharedBuffers {
+    private final Runnable release;
+    private final AtomicInteger references;
+    private final AtomicLong deferredBytes = new AtomicLong();
+
+    private SharedBuffers(Runnable release, int references) {
+      this.release = release;
+      this.references = new AtomicInteger(references);
+    }
+
+    private void deferBytes(long bytes) {
+      deferredBytes.addAndGet(bytes);
+    }
+
+    private void release() {
+      if (references.decrementAndGet() == 0) {
+        release.run();
+        long bytes = deferredBytes.getAndSet(0);
+        if (bytes > 0) {
+          flowController.release(0, bytes);
+          metrics.removeSubscribeOutstanding(0, bytes);
+        }
+      }
     }
   }
 
+  /**
+   * Queues a nack, resolving its redelivery delay: the one given by the receiver, otherwise the
+   * backoff for the message's delivery attempt if one is configured, otherwise none.
+   */
+  private void addPendingNack(AckRequestData ackRequestData) {
+    if (ackRequestData.getNackDelaySeconds() < 0) {
+      ackRequestData.setNackDelaySeconds(
+          getNackBackoffSeconds(ackRequestData.getMessageWrapper().getDeliveryAttempt()));
+    }
+    pendingNacks.add(ackRequestData);
+  }
+
+  @InternalApi
+  int getNackBackoffSeconds(int deliveryAttempt) {
+    if (nackBackoffInitialSeconds == 0) {
+      return 0;
+    }
+    // The delivery attempt is only known when the subscription has a dead letter policy; otherwise
+    // it is 0 and the initial delay is used.
+    int doublings = Math.min(Math.max(deliveryAttempt - 1, 0), 30);
+    return (int) Math.min((long) nackBackoffInitialSeconds << doublings, nackBackoffMaxSeconds);
+  }
+
   interface AckProcessor {
     public void sendAckOperations(List<AckRequestData> ackRequestDataList);
 
@@ -216,6 +367,8 @@ class MessageDispatcher {
 
     receiver = builder.receiver;
     receiverWithAckResponse = builder.receiverWithAckResponse;
+    receiverWithDeliveryContext = builder.receiverWithDeliveryContext;
+    receiverWithAckResponseAndDeliveryContext = builder.receiverWithAckResponseAndDeliveryContext;
 
     ackProcessor = builder.ackProcessor;
     flowController = builder.flowController;
@@ -224,16 +377,40 @@ class MessageDispatcher {
     jobLock = new ReentrantLock();
     messagesWaiter = new Waiter();
     sequentialExecutor = new SequentialExecutorService.AutoExecutor(builder.executor);
+    enableBatchedDispatch = builder.enableBatchedDispatch;
+    enableOptimisticExactlyOnceDelivery = builder.enableOptimisticExactlyOnceDelivery;
+    deduplicator = builder.deduplicator;
+    messageFilter = builder.messageFilter;
+    enableDeliveryAttemptAttribute = builder.enableDeliveryAttemptAttribute;
+    maxMessageAgeMillis =
+        builder.maxMessageAge == null ? 0 : Math.max(builder.maxMessageAge.toMillis(), 1);
+    nackBackoffInitialSeconds =
+        builder.nackBackoffInitialDelay == null
+            ? 0
+            : AckRequestData.toNackDelaySeconds(builder.nackBackoffInitialDelay);
+    nackBackoffMaxSeconds =
+        builder.nackBackoffMaxDelay == null
+            ? nackBackoffInitialSeconds
+            : Math.max(
+                nackBackoffInitialSeconds,
+                AckRequestData.toNackDelaySeconds(builder.nackBackoffMaxDelay));
+    maxDispatchWorkers =
+        builder.maxDispatchWorkers > 0
+            ? builder.maxDispatchWorkers
+            : getDefaultMaxDispatchWorkers(builder.executor);
 
     subscriptionName = builder.subscriptionName;
     enableOpenTelemetryTracing = builder.enableOpenTelemetryTracing;
     if (builder.tracer != null) {
       tracer = builder.tracer;
     }
+    if (builder.metrics != null) {
+      metrics = builder.metrics;
+    }
   }
 
   private boolean shouldSetMessageFuture() {
-    return receiverWithAckResponse != null;
+    return receiverWithAckResponse != null || receiverWithAckResponseAndDeliveryContext != null;
   }
 
   void start() {
@@ -376,19 +553,25 @@ class MessageDispatcher {
   }
 
   private static class ReceiptCompleteData {
-    private OutstandingMessage outstandingMessage;
-    private Boolean receiptComplete;
-
-    private ReceiptCompleteData(OutstandingMessage outstandingMessage) {
+    private final OutstandingMessage outstandingMessage;
+    // Null for messages that are not delivered in order.
+    @Nullable private final String orderingKey;
+    // Written before the receipt is released from the head of its ordering key's queue, which
+    // happens under that queue's lock.
+    private volatile boolean receiptComplete;
+    private volatile boolean receiptFailed;
+
+    private ReceiptCompleteData(
+        OutstandingMessage outstandingMessage, @Nullable String orderingKey) {
       this.outstandingMessage = outstandingMessage;
-      this.receiptComplete = false;
+      this.orderingKey = orderingKey;
     }
 
     private OutstandingMessage getOutstandingMessage() {
       return this.outstandingMessage;
     }
 
-    private Boolean isReceiptComplete() {
+    private boolean isReceiptComplete() {
       return this.receiptComplete;
     }
 
@@ -397,10 +580,118 @@ class MessageDispatcher {
     }
   }
 
+  /**
+   * The receipt modack of a message that was dispatched optimistically. An ack from the receiver is
+   * held until the receipt succeeds, and dropped if it fails: the ack ID is then no longer valid
+   * and the message future has already been completed with the failure.
+   */
+  private static class OptimisticReceipt {
+    private enum State {
+      PENDING,
+      CONFIRMED,
+      FAILED
+    }
+
+    // Guarded by this.
+    private State state = State.PENDING;
+    @Nullable private AckRequestData heldAck;
+
+    private synchronized boolean isPending() {
+      return state == State.PENDING;
+    }
+
+    private synchronized boolean isFailed() {
+      return state == State.FAILED;
+    }
+
+    /** Returns false if the ack can be sent now. */
+    private synchronized boolean holdAck(AckRequestData ackRequestData) {
+      if (state == State.PENDING) {
+        heldAck = ackRequestData;
+      }
+      return state != State.CONFIRMED;
+    }
+
+    /** Marks the receipt as confirmed and returns the held ack, if any. */
+    @Nullable
+    private synchronized AckRequestData confirm() {
+      state = State.CONFIRMED;
+      AckRequestData ack = heldAck;
+      heldAck = null;
+      return ack;
+    }
+
+    private synchronized void fail() {
+      state = State.FAILED;
+      heldAck = null;
+    }
+  }
+
+  /** The receipts of one ordering key, in the order the messages were received. */
+  private static class OrderedReceipts {
+    private final Lock lock = new ReentrantLock();
+    // Guarded by lock.
+    private final Deque<ReceiptCompleteData> receipts = new ArrayDeque<>();
+    // Set under lock once the queue is empty and has been removed from orderedReceiptsByKey.
+    private boolean removed;
+  }
+
+  /**
+   * Builds the request for a message that is acked or nacked without being delivered to the
+   * receiver, with a subscriber span so the ack and modack RPC spans can link to it.
+   */
+  private AckRequestData newUndeliveredRequest(ReceivedMessage message) {
+    PubsubMessageWrapper messageWrapper =
+        PubsubMessageWrapper.newBuilder(
+                message.getMessage(),
+                subscriptionName,
+                message.getAckId(),
+                message.getDeliveryAttempt())
+            .build();
+    tracer.startSubscriberSpan(messageWrapper, this.exactlyOnceDeliveryEnabled.get());
+    return AckRequestData.newBuilder(message.getAckId()).setMessageWrapper(messageWrapper).build();
+  }
+
   void processReceivedMessages(List<ReceivedMessage> messages) {
-    Instant totalExpiration = now().plus(maxAckExtensionPeriod);
+    processReceivedMessages(messages, null);
+  }
+
+  /**
+   * Processes received messages whose data may alias received buffers, which {@code releaseBuffers}
+   * releases once none of the messages is in use anymore.
+   */
+  void processReceivedMessages(List<ReceivedMessage> messages, @Nullable Runnable releaseBuffers) {
+    SharedBuffers sharedBuffers =
+        releaseBuffers == null || messages.isEmpty()
+            ? null
+            : new SharedBuffers(releaseBuffers, messages.size());
+    metrics.recordReceived(messages.size());
+    long nowMillis = clock.millisTime();
+    Instant totalExpiration = Instant.ofEpochMilli(nowMillis).plus(maxAckExtensionPeriod);
     List<OutstandingMessage> outstandingBatch = new ArrayList<>(messages.size());
     for (ReceivedMessage message : messages) {
+      if (deduplicator != null
+          && !this.exactlyOnceDeliveryEnabled.get()
+          && deduplicator.isDuplicate(message.getMessage().getMessageId())) {
+        // Already processed and acked under another ack ID; ack this delivery too.
+        pendingAcks.add(newUndeliveredRequest(message));
+        release(sharedBuffers);
+        continue;
+      }
+      switch (filter(message.getMessage(), nowMillis)) {
+        case ACK:
+          pendingAcks.add(newUndeliveredRequest(message));
+          release(sharedBuffers);
+          continue;
+        case NACK:
+          AckRequestData nack = newUndeliveredRequest(message);
+          nack.setNackDelaySeconds(getNackBackoffSeconds(message.getDeliveryAttempt()));
+          pendingNacks.add(nack);
+          release(sharedBuffers);
+          continue;
+        default:
+          break;
+      }
       AckRequestData.Builder builder = AckRequestData.newBuilder(message.getAckId());
       if (shouldSetMessageFuture()) {
         builder.setMessageFuture(SettableApiFuture.create());
@@ -416,15 +707,28 @@ class MessageDispatcher {
       tracer.startSubscriberSpan(messageWrapper, this.exactlyOnceDeliveryEnabled.get());
 
       AckRequestData ackRequestData = builder.build();
+      boolean optimistic =
+          this.enableOptimisticExactlyOnceDelivery && this.exactlyOnceDeliveryEnabled.get();
       AckHandler ackHandler =
-          new AckHandler(ackRequestData, message.getMessage().getSerializedSize(), totalExpiration);
+          new AckHandler(
+              ackRequestData,
+              message.getMessage().getSerializedSize(),
+              totalExpiration,
+              optimistic ? new OptimisticReceipt() : null,
+              sharedBuffers);
       OutstandingMessage outstandingMessage = new OutstandingMessage(ackHandler);
 
-      if (this.exactlyOnceDeliveryEnabled.get()) {
+      if (this.exactlyOnceDeliveryEnabled.get() && !optimistic) {
         // For exactly once deliveries we don't add to outstanding batch because we first
         // process the receipt modack. If that is successful then we process the message.
-        synchronized (outstandingReceipts) {
-          outstandingReceipts.put(message.getAckId(), new ReceiptCompleteData(outstandingMessage));
+        String orderingKey = message.getMessage().getOrderingKey();
+        ReceiptCompleteData receipt =
+            new ReceiptCompleteData(
+                outstandingMessage,
+                messageOrderingEnabled.get() && !orderingKey.isEmpty() ? orderingKey : null);
+        outstandingReceipts.put(message.getAckId(), receipt);
+        if (receipt.orderingKey != null) {
+          addOrderedReceipt(receipt);
         }
       } else if (pendingMessages.putIfAbsent(message.getAckId(), ackHandler) != null) {
         // putIfAbsent puts ackHandler if ackID isn't previously mapped, then return the
@@ -435,8 +739,12 @@ class MessageDispatcher {
         // Don't update the existing one's total expiration either. If the user "loses" the message,
         // we want to eventually
         // totally expire so that pubsub service sends us the message again.
+        release(sharedBuffers);
         continue;
       } else {
+        if (optimistic) {
+          optimisticReceipts.put(message.getAckId(), ackHandler.optimisticReceipt);
+        }
         outstandingBatch.add(outstandingMessage);
       }
       pendingReceipts.add(ackRequestData);
@@ -444,36 +752,134 @@ class MessageDispatcher {
     processBatch(outstandingBatch);
   }
 
+  private static void release(@Nullable SharedBuffers sharedBuffers) {
+    if (sharedBuffers != null) {
+      sharedBuffers.release();
+    }
+  }
+
+  private MessageFilter.Decision filter(PubsubMessage message, long nowMillis) {
+    if (maxMessageAgeMillis > 0 && message.hasPublishTime()) {
+      long publishTimeMillis =
+          message.getPublishTime().getSeconds() * 1000
+              + message.getPublishTime().getNanos() / 1_000_000;
+      if (nowMillis - publishTimeMillis > maxMessageAgeMillis) {
+        return MessageFilter.Decision.ACK;
+      }
+    }
+    if (messageFilter == null) {
+      return MessageFilter.Decision.DELIVER;
+    }
+    try {
+      MessageFilter.Decision decision = messageFilter.filter(message);
+      return decision == null ? MessageFilter.Decision.DELIVER : decision;
+    } catch (RuntimeException e) {
+      logger.log(
+          Level.WARNING,
+          "MessageFilter failed for message ID: "
+              + message.getMessageId()
+              + ", the message will be delivered.",
+          e);
+      return MessageFilter.Decision.DELIVER;
+    }
+  }
+
   void notifyAckSuccess(AckRequestData ackRequestData) {
-    synchronized (outstandingReceipts) {
-      if (outstandingReceipts.containsKey(ackRequestData.getAckId())) {
-        outstandingReceipts.get(ackRequestData.getAckId()).notifyReceiptComplete();
-        List<OutstandingMessage> outstandingBatch = new ArrayList<>();
-
-        for (Iterator<Entry<String, ReceiptCompleteData>> it =
-                outstandingReceipts.entrySet().iterator();
-            it.hasNext(); ) {
-          Map.Entry<String, ReceiptCompleteData> receipt = it.next();
-          // If receipt is complete then add to outstandingBatch to process the batch
-          if (receipt.getValue().isReceiptComplete()) {
-            it.remove();
-            if (pendingMessages.putIfAbsent(
-                    receipt.getKey(), receipt.getValue().getOutstandingMessage().ackHandler)
-                == null) {
-              outstandingBatch.add(receipt.getValue().getOutstandingMessage());
-            }
-          } else {
-            break;
-          }
-        }
-        processBatch(outstandingBatch);
+    OptimisticReceipt optimisticReceipt = optimisticReceipts.remove(ackRequestData.getAckId());
+    if (optimisticReceipt != null) {
+      AckRequestData heldAck = optimisticReceipt.confirm();
+      if (heldAck != null) {
+        pendingAcks.add(heldAck);
       }
+      return;
+    }
+    ReceiptCompleteData receipt = outstandingReceipts.remove(ackRequestData.getAckId());
+    if (receipt == null) {
+      return;
+    }
+    receipt.notifyReceiptComplete();
+    if (receipt.orderingKey != null) {
+      releaseOrderedReceipts(receipt.orderingKey);
+    } else if (pendingMessages.putIfAbsent(
+            ackRequestData.getAckId(), receipt.getOutstandingMessage().ackHandler)
+        == null) {
+      processBatch(Collections.singletonList(receipt.getOutstandingMessage()));
+    } else {
+      receipt.getOutstandingMessage().ackHandler.releaseBuffers();
     }
   }
 
   void notifyAckFailed(AckRequestData ackRequestData) {
-    synchronized (outstandingReceipts) {
-      outstandingReceipts.remove(ackRequestData.getAckId());
+    OptimisticReceipt optimisticReceipt = optimisticReceipts.remove(ackRequestData.getAckId());
+    if (optimisticReceipt != null) {
+      optimisticReceipt.fail();
+      return;
+    }
+    ReceiptCompleteData receipt = outstandingReceipts.remove(ackRequestData.getAckId());
+    if (receipt != null) {
+      receipt.getOutstandingMessage().ackHandler.releaseBuffers();
+    }
+    if (receipt != null && receipt.orderingKey != null) {
+      // The failed message is never delivered, so it must not hold up the ones behind it.
+      receipt.receiptFailed = true;
+      releaseOrderedReceipts(receipt.orderingKey);
+    }
+  }
+
+  private void addOrderedReceipt(ReceiptCompleteData receipt) {
+    while (true) {
+      OrderedReceipts orderedReceipts =
+          orderedReceiptsByKey.computeIfAbsent(receipt.orderingKey, key -> new OrderedReceipts());
+      orderedReceipts.lock.lock();
+      try {
+        if (!orderedReceipts.removed) {
+          orderedReceipts.receipts.add(receipt);
+          return;
+        }
+      } finally {
+        orderedReceipts.lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Delivers the messages at the head of an ordering key's queue whose receipts have completed,
+   * stopping at the first one still waiting. Holding the key's lock while delivering keeps
+   * concurrent callers from handing messages of the same key to the executor out of order.
+   */
+  private void releaseOrderedReceipts(String orderingKey) {
+    OrderedReceipts orderedReceipts = orderedReceiptsByKey.get(orderingKey);
+    if (orderedReceipts == null) {
+      return;
+    }
+    orderedReceipts.lock.lock();
+    try {
+      List<OutstandingMessage> outstandingBatch = new ArrayList<>();
+      ReceiptCompleteData head;
+      while ((head = orderedReceipts.receipts.peek()) != null
+          && (head.isReceiptComplete() || head.receiptFailed)) {
+        orderedReceipts.receipts.poll();
+        OutstandingMessage outstandingMessage = head.getOutstandingMessage();
+        if (!head.isReceiptComplete()) {
+          // Failed; its buffers were released then.
+          continue;
+        }
+        if (pendingMessages.putIfAbsent(
+                outstandingMessage.ackHandler.getAckRequestData().getAckId(),
+                outstandingMessage.ackHandler)
+            == null) {
+          outstandingBatch.add(outstandingMessage);
+        } else {
+          outstandingMessage.ackHandler.releaseBuffers();
+        }
+      }
+      if (orderedReceipts.receipts.isEmpty() && !orderedReceipts.removed) {
+        orderedReceipts.removed = true;
+        orderedReceiptsByKey.remove(orderingKey, orderedReceipts);
+      }
+      processBatch(outstandingBatch);
+    } finally {
+      orderedReceipts.lock.unlock();
     }
   }
 
@@ -484,7 +890,9 @@ class MessageDispatcher {
       // shutdown will block on processing of all these messages anyway.
       tracer.startSubscribeConcurrencyControlSpan(message.messageWrapper());
       try {
-        flowController.reserve(1, message.messageWrapper().getPubsubMessage().getSerializedSize());
+        int messageSize = message.messageWrapper().getPubsubMessage().getSerializedSize();
+        flowController.reserve(1, messageSize);
+        metrics.addSubscribeOutstanding(1, messageSize);
         tracer.endSubscribeConcurrencyControlSpan(message.messageWrapper());
       } catch (FlowControlException unexpectedException) {
         // This should be a blocking flow controller and never throw an exception.
@@ -492,7 +900,9 @@ class MessageDispatcher {
             message.messageWrapper(), unexpectedException);
         throw new IllegalStateException("Flow control unexpected exception", unexpectedException);
       }
-      addDeliveryInfoCount(message.messageWrapper());
+      if (enableDeliveryAttemptAttribute) {
+        addDeliveryInfoCount(message.messageWrapper());
+      }
       processOutstandingMessage(message.ackHandler);
     }
   }
@@ -525,6 +935,7 @@ class MessageDispatcher {
         new Runnable() {
           @Override
           public void run() {
+            boolean receiverRunning = false;
             try {
               if (ackHandler
                   .totalExpiration
@@ -533,30 +944,55 @@ class MessageDispatcher {
                 // Message expired while waiting. We don't extend these messages anymore,
                 // so it was probably sent to someone else. Don't work on it.
                 // Don't nack it either, because we'd be nacking someone else's message.
-                ackHandler.forget();
+                if (ackHandler.forget()) {
+                  metrics.recordExpired();
+                }
+                ackHandler.releaseBuffers();
                 tracer.setSubscriberSpanExpirationResult(messageWrapper);
                 return;
               }
               tracer.startSubscribeProcessSpan(messageWrapper);
+              // The receiver can read the message after replying, until it returns.
+              ackHandler.holdBuffersForReceiver();
+              receiverRunning = true;
               if (shouldSetMessageFuture()) {
                 // This is the message future that is propagated to the user
                 SettableApiFuture<AckResponse> messageFuture =
                     ackHandler.getMessageFutureIfExists();
                 final AckReplyConsumerWithResponse ackReplyConsumerWithResponse =
-                    new AckReplyConsumerWithResponseImpl(ackReplySettableApiFuture, messageFuture);
-                receiverWithAckResponse.receiveMessage(message, ackReplyConsumerWithResponse);
+                    new AckReplyConsumerWithResponseImpl(
+                        ackReplySettableApiFuture, messageFuture, ackHandler.ackRequestData);
+                if (receiverWithAckResponseAndDeliveryContext != null) {
+                  receiverWithAckResponseAndDeliveryContext.receiveMessage(
+                      message, newDeliveryContext(ackHandler), ackReplyConsumerWithResponse);
+                } else {
+                  receiverWithAckResponse.receiveMessage(message, ackReplyConsumerWithResponse);
+                }
               } else {
                 final AckReplyConsumer ackReplyConsumer =
-                    new AckReplyConsumerImpl(ackReplySettableApiFuture);
-                receiver.receiveMessage(message, ackReplyConsumer);
+                    new AckReplyConsumerImpl(ackReplySettableApiFuture, ackHandler.ackRequestData);
+                if (receiverWithDeliveryContext != null) {
+                  receiverWithDeliveryContext.receiveMessage(
+                      message, newDeliveryContext(ackHandler), ackReplyConsumer);
+                } else {
+                  receiver.receiveMessage(message, ackReplyConsumer);
+                }
               }
             } catch (Exception e) {
               ackReplySettableApiFuture.setException(e);
+            } finally {
+              if (receiverRunning) {
+                ackHandler.releaseBuffers();
+              }
             }
           }
         };
     if (!messageOrderingEnabled.get() || message.getOrderingKey().isEmpty()) {
-      executor.execute(deliverMessageTask);
+      if (enableBatchedDispatch) {
+        dispatchBatched(deliverMessageTask);
+      } else {
+        executor.execute(deliverMessageTask);
+      }
     } else {
       tracer.startSubscribeSchedulerSpan(messageWrapper);
       sequentialExecutor.submit(message.getOrderingKey(), deliverMessageTask);
@@ -564,6 +1000,85 @@ class MessageDispatcher {
     }
   }
 
+  private DeliveryContext newDeliveryContext(AckHandler ackHandler) {
+    return new DeliveryContext(
+        subscriptionName,
+        ackHandler.ackRequestData.getAckId(),
+        ackHandler.ackRequestData.getMessageWrapper().getDeliveryAttempt(),
+        ackHandler.receivedTimeMillis);
+  }
+
+  /**
+   * Queues a message for the dispatch workers, starting a new worker only while fewer than {@code
+   * maxDispatchWorkers} are running. Workers keep taking messages until the queue is empty, so a
+   * response of many small messages costs one executor task per idle worker instead of one per
+   * message, and a slow message only holds up the worker running it.
+   */
+  private void dispatchBatched(Runnable deliverMessageTask) {
+    dispatchQueue.add(deliverMessageTask);
+    if (tryStartDispatchWorker()) {
+      try {
+        executor.execute(dispatchWorker);
+      } catch (RuntimeException e) {
+        activeDispatchWorkers.decrementAndGet();
+        throw e;
+      }
+    }
+  }
+
+  private boolean tryStartDispatchWorker() {
+    while (true) {
+      int active = activeDispatchWorkers.get();
+      if (active >= maxDispatchWorkers) {
+        return false;
+      }
+      if (activeDispatchWorkers.compareAndSet(active, active + 1)) {
+        return true;
+      }
+    }
+  }
+
+  private class DispatchWorker implements Runnable {
+    @Override
+    public void run() {
+      try {
+        do {
+          Runnable task;
+          while ((task = dispatchQueue.poll()) != null) {
+            task.run();
+          }
+          activeDispatchWorkers.decrementAndGet();
+          // A message queued after the last poll, while every worker looked busy, would otherwise
+          // be left behind.
+        } while (!dispatchQueue.isEmpty() && tryStartDispatchWorker());
+      } catch (Throwable t) {
+        // Only a task throws, an Error from the receiver since exceptions are caught, and this
+        // worker stops: hand the rest of the queue to a new one.
+        activeDispatchWorkers.decrementAndGet();
+        if (!dispatchQueue.isEmpty() && tryStartDispatchWorker()) {
+          try {
+            executor.execute(dispatchWorker);
+          } catch (RuntimeException e) {
+            activeDispatchWorkers.decrementAndGet();
+            t.addSuppressed(e);
+          }
+        }
+        throw t;
+      }
+    }
+  }
+
+  private static int getDefaultMaxDispatchWorkers(Executor executor) {
+    if (executor instanceof ScheduledThreadPoolExecutor) {
+      return Math.max(1, ((ScheduledThreadPoolExecutor) executor).getCorePoolSize());
+    } else if (executor instanceof ThreadPoolExecutor) {
+      return Math.max(1, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+    } else if (executor instanceof ForkJoinPool) {
+      return ((ForkJoinPool) executor).getParallelism();
+    }
+    return Subscriber.THREADS_PER_CHANNEL;
+  }
+
   /** Compute the ideal deadline, set subsequent modacks to this deadline, and return it. */
   @InternalApi
   int computeDeadlineSeconds() {
@@ -591,12 +1106,26 @@ class MessageDispatcher {
   void extendDeadlines() {
     int extendSeconds = getMessageDeadlineSeconds();
     int numAckIdToSend = 0;
+    int numExpired = 0;
     Map<Integer, ModackRequestData> deadlineExtensionModacks =
         new HashMap<Integer, ModackRequestData>();
     Instant now = now();
     Instant extendTo = now.plusSeconds(extendSeconds);
 
     for (Map.Entry<String, AckHandler> entry : pendingMessages.entrySet()) {
+      OptimisticReceipt optimisticReceipt = entry.getValue().optimisticReceipt;
+      if (optimisticReceipt != null && optimisticReceipt.isPending()) {
+        // The receipt modack in flight already extends the deadline, and its result is matched by
+        // ack ID, so it must not race with an extension of the same message.
+        continue;
+      }
+      if (optimisticReceipt != null && optimisticReceipt.isFailed()) {
+        // The ack ID is no longer valid and the ack will be dropped, so stop extending it and free
+        // its flow control now. Its buffers are released once the receiver replies, since it may
+        // still be reading the message.
+        entry.getValue().forget();
+        continue;
+      }
       String ackId = entry.getKey();
       Instant totalExpiration = entry.getValue().totalExpiration;
       if (totalExpiration.isAfter(extendTo)) {
@@ -611,7 +1140,10 @@ class MessageDispatcher {
 
       // forget removes from pendingMessages; this is OK, concurrent maps can
       // handle concurrent iterations and modifications.
-      entry.getValue().forget();
+      if (entry.getValue().forget()) {
+        metrics.recordExpired();
+        numExpired++;
+      }
       if (totalExpiration.isAfter(now)) {
         int sec = Math.max(1, (int) now.until(totalExpiration, ChronoUnit.SECONDS));
         ModackRequestData modackRequestData =
@@ -622,8 +1154,12 @@ class MessageDispatcher {
       }
     }
 
+    if (numExpired > 0) {
+      FlightRecorderEvents.leaseExpired(subscriptionName, numExpired);
+    }
     if (numAckIdToSend > 0) {
       logger.log(Level.FINER, "Sending {0} modacks", numAckIdToSend);
+      metrics.recordLeaseExtensions(numAckIdToSend);
       ackProcessor.sendModackOperations(
           new ArrayList<ModackRequestData>(deadlineExtensionModacks.values()));
     }
@@ -634,13 +1170,19 @@ class MessageDispatcher {
 
     List<ModackRequestData> modackRequestData = new ArrayList<ModackRequestData>();
 
-    // Nacks are modacks with an expiration of 0
+    // Nacks are modacks with an expiration of 0, or of their redelivery delay
     List<AckRequestData> nackRequestDataList = new ArrayList<AckRequestData>();
     pendingNacks.drainTo(nackRequestDataList);
 
-    if (!nackRequestDataList.isEmpty()) {
-      modackRequestData.add(new ModackRequestData(0, nackRequestDataList));
+    Map<Integer, ModackRequestData> nacksByDelay = new HashMap<Integer, ModackRequestData>();
+    for (AckRequestData nackRequestData : nackRequestDataList) {
+      nacksByDelay
+          .computeIfAbsent(
+              Math.max(nackRequestData.getNackDelaySeconds(), 0),
+              delaySeconds -> new ModackRequestData(delaySeconds).setIsNack(true))
+          .addAckRequestData(nackRequestData);
     }
+    modackRequestData.addAll(nacksByDelay.values());
     logger.log(Level.FINER, "Sending {0} nacks", nackRequestDataList.size());
 
     List<AckRequestData> ackRequestDataReceipts = new ArrayList<AckRequestData>();
@@ -670,6 +1212,9 @@ class MessageDispatcher {
   public static final class Builder {
     private MessageReceiver receiver;
     private MessageReceiverWithAckResponse receiverWithAckResponse;
+    private MessageReceiverWithDeliveryContext receiverWithDeliveryContext;
+    private MessageReceiverWithAckResponseAndDeliveryContext
+        receiverWithAckResponseAndDeliveryContext;
 
     private AckProcessor ackProcessor;
     private Duration ackExpirationPadding;
@@ -689,6 +1234,17 @@ class MessageDispatcher {
     private String subscriptionName;
     private boolean enableOpenTelemetryTracing;
     private OpenTelemetryPubsubTracer tracer;
+    private OpenTelemetryPubsubMetrics metrics;
+
+    private boolean enableBatchedDispatch;
+    private int maxDispatchWorkers;
+    private boolean enableOptimisticExactlyOnceDelivery;
+    private Duration nackBackoffInitialDelay;
+    private Duration nackBackoffMaxDelay;
+    private MessageDeduplicator deduplicator;
+    private MessageFilter messageFilter;
+    private Duration maxMessageAge;
+    private boolean enableDeliveryAttemptAttribute = true;
 
     protected Builder(MessageReceiver receiver) {
       this.receiver = receiver;
@@ -698,6 +1254,16 @@ class MessageDispatcher {
       this.receiverWithAckResponse = receiverWithAckResponse;
     }
 
+    protected Builder(MessageReceiverWithDeliveryContext receiverWithDeliveryContext) {
+      this.receiverWithDeliveryContext = receiverWithDeliveryContext;
+    }
+
+    protected Builder(
+        MessageReceiverWithAckResponseAndDeliveryContext
+            receiverWithAckResponseAndDeliveryContext) {
+      this.receiverWithAckResponseAndDeliveryContext = receiverWithAckResponseAndDeliveryContext;
+    }
+
     public Builder setAckProcessor(AckProcessor ackProcessor) {
       this.ackProcessor = ackProcessor;
       return this;
@@ -775,6 +1341,71 @@ class MessageDispatcher {
       return this;
     }
 
+    public Builder setMetrics(OpenTelemetryPubsubMetrics metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
+    public Builder setEnableBatchedDispatch(boolean enableBatchedDispatch) {
+      this.enableBatchedDispatch = enableBatchedDispatch;
+      return this;
+    }
+
+    /**
+     * Upper bound on concurrent batched dispatch workers. Defaults to the size of the executor when
+     * it can be determined.
+     */
+    public Builder setMaxDispatchWorkers(int maxDispatchWorkers) {
+      this.maxDispatchWorkers = maxDispatchWorkers;
+      return this;
+    }
+
+    /**
+     * With exactly-once delivery, dispatches messages while their receipt modack is in flight and
+     * holds back their acks until the receipt succeeds.
+     */
+    public Builder setEnableOptimisticExactlyOnceDelivery(
+        boolean enableOptimisticExactlyOnceDelivery) {
+      this.enableOptimisticExactlyOnceDelivery = enableOptimisticExactlyOnceDelivery;
+      return this;
+    }
+
+    /**
+     * Delays the redelivery of nacked messages that do not specify a delay by {@code initialDelay},
+     * doubled for every further delivery attempt up to {@code maxDelay}.
+     */
+    public Builder setNackBackoff(Duration initialDelay, Duration maxDelay) {
+      this.nackBackoffInitialDelay = initialDelay;
+      this.nackBackoffMaxDelay = maxDelay;
+      return this;
+    }
+
+    Builder setDeduplicator(MessageDeduplicator deduplicator) {
+      this.deduplicator = deduplicator;
+      return this;
+    }
+
+    /** Acks, nacks or delivers received messages before they are dispatched. */
+    public Builder setMessageFilter(MessageFilter messageFilter) {
+      this.messageFilter = messageFilter;
+      return this;
+    }
+
+    /** Acks received messages published longer than {@code maxMessageAge} ago, if not null. */
+    public Builder setMaxMessageAge(Duration maxMessageAge) {
+      this.maxMessageAge = maxMessageAge;
+      return this;
+    }
+
+    /**
+     * Whether delivered messages are copied to add their delivery attempt as the {@code
+     * googclient_deliveryattempt} attribute. Defaults to true.
+     */
+    public Builder setEnableDeliveryAttemptAttribute(boolean enableDeliveryAttemptAttribute) {
+      this.enableDeliveryAttemptAttribute = enableDeliveryAttemptAttribute;
+      return this;
+    }
+
     public MessageDispatcher build() {
       return new MessageDispatcher(this);
     }
@@ -787,4 +1418,13 @@ class MessageDispatcher {
   public static Builder newBuilder(MessageReceiverWithAckResponse receiverWithAckResponse) {
     return new Builder(receiverWithAckResponse);
   }
+
+  public static Builder newBuilder(MessageReceiverWithDeliveryContext receiverWithDeliveryContext) {
+    return new Builder(receiverWithDeliveryContext);
+  }
+
+  public static Builder newBuilder(
+      MessageReceiverWithAckResponseAndDeliveryContext receiverWithAckResponseAndDeliveryContext) {
+    return new Builder(receiverWithAckResponseAndDeliveryContext);
+  }
 }
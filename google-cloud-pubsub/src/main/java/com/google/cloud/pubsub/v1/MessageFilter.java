@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.BetaApi;
+import com.google.pubsub.v1.PubsubMessage;
+
+/**
+ * This interface can be implemented by users of {@link Subscriber} to decide which received
+ * messages are passed to the receiver, see {@link Subscriber.Builder#setMessageFilter}.
+ *
+ * <p>The filter is called on the thread that reads the stream, before the message is counted
+ * against flow control or handed to the executor, so it must be fast and must not block.
+ */
+@BetaApi
+public interface MessageFilter {
+
+  /** What to do with a received message. */
+  enum Decision {
+    /** Pass the message to the receiver as usual. */
+    DELIVER,
+    /** Ack the message without passing it to the receiver. */
+    ACK,
+    /** Nack the message without passing it to the receiver, so that it is redelivered. */
+    NACK
+  }
+
+  /**
+   * Called for every received message, with its attributes and publish time. Exceptions thrown by
+   * the filter are logged and the message is delivered.
+   */
+  Decision filter(PubsubMessage message);
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.BetaApi;
+import com.google.pubsub.v1.PubsubMessage;
+
+/**
+ * Like a {@link MessageReceiverWithAckResponse}, but also passed the {@link DeliveryContext} of
+ * each message, see {@link MessageReceiverWithDeliveryContext}.
+ */
+@BetaApi
+@FunctionalInterface
+public interface MessageReceiverWithAckResponseAndDeliveryContext {
+  void receiveMessage(
+      PubsubMessage message, DeliveryContext context, AckReplyConsumerWithResponse consumer);
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.BetaApi;
+import com.google.pubsub.v1.PubsubMessage;
+
+/**
+ * Like a {@link MessageReceiver}, but also passed the {@link DeliveryContext} of each message, such
+ * as its ack ID, delivery attempt and receive time.
+ *
+ * <p>Since the delivery attempt is available from the context, a {@link Subscriber} with such a
+ * receiver does not copy every message to add the {@code googclient_deliveryattempt} attribute read
+ * by {@link Subscriber#getDeliveryAttempt(PubsubMessage)}, unless {@link
+ * Subscriber.Builder#setEnableDeliveryAttemptAttribute(boolean)} is set.
+ *
+ * <p>Since {@link Subscriber#newBuilder(String, MessageReceiverWithDeliveryContext)} is also
+ * overloaded for {@link MessageReceiverWithAckResponseAndDeliveryContext}, a lambda has to be
+ * assigned to a variable of this type before it is passed.
+ */
+@BetaApi
+@FunctionalInterface
+public interface MessageReceiverWithDeliveryContext {
+  /**
+   * Called when a message is received by the subscriber. The implementation must arrange for {@link
+   * AckReplyConsumer#ack()} or {@link AckReplyConsumer#nack()} to be called after processing the
+   * {@code message}.
+   */
+  void receiveMessage(PubsubMessage message, DeliveryContext context, AckReplyConsumer consumer);
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.BetaApi;
+
+/**
+ * The failure of a publish that was replaced by a newer message before it was sent, see {@link
+ * Publisher.Builder#setCompactionAttribute(String)}. The replaced message is never published.
+ */
+@BetaApi
+public final class MessageSupersededException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  private final String orderingKey;
+  private final String compactionValue;
+
+  MessageSupersededException(String orderingKey, String compactionValue) {
+    super(
+        "Message was replaced by a newer message with ordering key "
+            + orderingKey
+            + " and compaction value "
+            + compactionValue
+            + " before it was sent");
+    this.orderingKey = orderingKey;
+    this.compactionValue = compactionValue;
+  }
+
+  /** Returns the ordering key of the replaced message. */
+  public String getOrderingKey() {
+    return orderingKey;
+  }
+
+  /** Returns the value of the compaction attribute of the replaced message. */
+  public String getCompactionValue() {
+    return compactionValue;
+  }
+}
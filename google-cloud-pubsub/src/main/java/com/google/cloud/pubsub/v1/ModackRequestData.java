@@ -22,6 +22,8 @@ class ModackRequestData {
   private final int deadlineExtensionSeconds;
   private List<AckRequestData> ackRequestData;
   private boolean isReceiptModack;
+  // Nacks with a redelivery delay are sent as modacks with a non-zero deadline.
+  private boolean isNack;
 
   ModackRequestData(int deadlineExtensionSeconds) {
     this.deadlineExtensionSeconds = deadlineExtensionSeconds;
@@ -50,6 +52,10 @@ class ModackRequestData {
     return isReceiptModack;
   }
 
+  public boolean getIsNack() {
+    return isNack || deadlineExtensionSeconds == 0;
+  }
+
   public ModackRequestData addAckRequestData(AckRequestData ackRequestData) {
     this.ackRequestData.add(ackRequestData);
     return this;
@@ -59,4 +65,9 @@ class ModackRequestData {
     this.isReceiptModack = isReceiptModack;
     return this;
   }
+
+  public ModackRequestData setIsNack(boolean isNack) {
+    this.isNack = isNack;
+    return this;
+  }
 }
@@ -0,0 +1,363 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.TopicName;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.LongHistogram;
+import io.opentelemetry.api.metrics.LongUpDownCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.semconv.trace.attributes.SemanticAttributes;
+import javax.annotation.Nullable;
+
+/**
+ * Records OpenTelemetry metrics for a {@link Publisher} or a {@link Subscriber}. Metrics are only
+ * recorded when the client is built with an {@link io.opentelemetry.api.OpenTelemetry} instance,
+ * otherwise every method returns immediately.
+ *
+ * <p>All attributes are built once, when the instruments are registered, so that recording a value
+ * does not allocate. The outstanding messages and bytes are reported by up-down counters, which
+ * exporters report like gauges.
+ */
+class OpenTelemetryPubsubMetrics {
+  static final String METER_NAME = "com.google.cloud.pubsub.v1";
+
+  private static final String PREFIX = "messaging.gcp_pubsub.";
+  private static final String MESSAGING_SYSTEM_VALUE = "gcp_pubsub";
+  private static final String PROJECT_ATTR_KEY = "gcp.project_id";
+  private static final AttributeKey<String> STATUS_ATTR_KEY =
+      AttributeKey.stringKey(PREFIX + "status");
+  private static final AttributeKey<String> OUTCOME_ATTR_KEY =
+      AttributeKey.stringKey(PREFIX + "outcome");
+  private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+  private final boolean enabled;
+
+  private final Attributes attributes;
+  private final Attributes okAttributes;
+  private final Attributes errorAttributes;
+  private final Attributes ackedAttributes;
+  private final Attributes nackedAttributes;
+  private final Attributes expiredAttributes;
+  private final Attributes ackOperationAttributes;
+  private final Attributes modackOperationAttributes;
+  private final Attributes nackOperationAttributes;
+
+  // Publisher instruments.
+  private final DoubleHistogram publishDuration;
+  private final LongHistogram publishBatchMessages;
+  private final LongHistogram publishBatchBytes;
+  private final DoubleHistogram publishFlowControlDuration;
+  private final LongUpDownCounter publishRpcsInFlight;
+  private final LongUpDownCounter publishOutstandingMessages;
+  private final LongUpDownCounter publishOutstandingBytes;
+
+  // Subscriber instruments.
+  private final LongCounter receivedMessages;
+  private final LongCounter completedMessages;
+  private final LongCounter leaseExtensions;
+  private final DoubleHistogram ackRpcDuration;
+  private final LongUpDownCounter subscribeOutstandingMessages;
+  private final LongUpDownCounter subscribeOutstandingBytes;
+  private final LongCounter streamReconnects;
+
+  /** Returns an instance that records nothing. */
+  static OpenTelemetryPubsubMetrics disabled() {
+    return new OpenTelemetryPubsubMetrics(null, "", "");
+  }
+
+  /** Returns an instance that records the metrics of a publisher to the given topic. */
+  static OpenTelemetryPubsubMetrics forTopic(@Nullable Meter meter, String topic) {
+    if (TopicName.isParsableFrom(topic)) {
+      TopicName topicName = TopicName.parse(topic);
+      return new OpenTelemetryPubsubMetrics(meter, topicName.getTopic(), topicName.getProject());
+    }
+    return new OpenTelemetryPubsubMetrics(meter, topic, "");
+  }
+
+  /** Returns an instance that records the metrics of a subscriber to the given subscription. */
+  static OpenTelemetryPubsubMetrics forSubscription(@Nullable Meter meter, String subscription) {
+    if (ProjectSubscriptionName.isParsableFrom(subscription)) {
+      ProjectSubscriptionName subscriptionName = ProjectSubscriptionName.parse(subscription);
+      return new OpenTelemetryPubsubMetrics(
+          meter, subscriptionName.getSubscription(), subscriptionName.getProject());
+    }
+    return new OpenTelemetryPubsubMetrics(meter, subscription, "");
+  }
+
+  private OpenTelemetryPubsubMetrics(
+      @Nullable Meter meter, String destinationName, String projectName) {
+    this.enabled = meter != null;
+
+    attributes =
+        Attributes.builder()
+            .put(SemanticAttributes.MESSAGING_SYSTEM, MESSAGING_SYSTEM_VALUE)
+            .put(SemanticAttributes.MESSAGING_DESTINATION_NAME, destinationName)
+            .put(PROJECT_ATTR_KEY, projectName)
+            .build();
+    okAttributes = attributes.toBuilder().put(STATUS_ATTR_KEY, "ok").build();
+    errorAttributes = attributes.toBuilder().put(STATUS_ATTR_KEY, "error").build();
+    ackedAttributes = attributes.toBuilder().put(OUTCOME_ATTR_KEY, "acked").build();
+    nackedAttributes = attributes.toBuilder().put(OUTCOME_ATTR_KEY, "nacked").build();
+    expiredAttributes = attributes.toBuilder().put(OUTCOME_ATTR_KEY, "expired").build();
+    ackOperationAttributes =
+        attributes.toBuilder().put(SemanticAttributes.MESSAGING_OPERATION, "ack").build();
+    modackOperationAttributes =
+        attributes.toBuilder().put(SemanticAttributes.MESSAGING_OPERATION, "modack").build();
+    nackOperationAttributes =
+        attributes.toBuilder().put(SemanticAttributes.MESSAGING_OPERATION, "nack").build();
+
+    if (!enabled) {
+      publishDuration = null;
+      publishBatchMessages = null;
+      publishBatchBytes = null;
+      publishFlowControlDuration = null;
+      publishRpcsInFlight = null;
+      publishOutstandingMessages = null;
+      publishOutstandingBytes = null;
+      receivedMessages = null;
+      completedMessages = null;
+      leaseExtensions = null;
+      ackRpcDuration = null;
+      subscribeOutstandingMessages = null;
+      subscribeOutstandingBytes = null;
+      streamReconnects = null;
+      return;
+    }
+
+    publishDuration =
+        meter
+            .histogramBuilder(PREFIX + "publish.duration")
+            .setDescription("Time from a call to publish until its result is set.")
+            .setUnit("s")
+            .build();
+    publishBatchMessages =
+        meter
+            .histogramBuilder(PREFIX + "publish.batch.messages")
+            .setDescription("Number of messages in each publish request.")
+            .setUnit("{message}")
+            .ofLongs()
+            .build();
+    publishBatchBytes =
+        meter
+            .histogramBuilder(PREFIX + "publish.batch.size")
+            .setDescription("Size of the messages in each publish request.")
+            .setUnit("By")
+            .ofLongs()
+            .build();
+    publishFlowControlDuration =
+        meter
+            .histogramBuilder(PREFIX + "publish.flow_control.duration")
+            .setDescription("Time a call to publish waited for flow control.")
+            .setUnit("s")
+            .build();
+    publishRpcsInFlight =
+        meter
+            .upDownCounterBuilder(PREFIX + "publish.rpcs_in_flight")
+            .setDescription("Number of publish requests awaiting a response.")
+            .setUnit("{request}")
+            .build();
+    publishOutstandingMessages =
+        meter
+            .upDownCounterBuilder(PREFIX + "publish.outstanding.messages")
+            .setDescription("Number of published messages awaiting a result.")
+            .setUnit("{message}")
+            .build();
+    publishOutstandingBytes =
+        meter
+            .upDownCounterBuilder(PREFIX + "publish.outstanding.size")
+            .setDescription("Size of the published messages awaiting a result.")
+            .setUnit("By")
+            .build();
+
+    receivedMessages =
+        meter
+            .counterBuilder(PREFIX + "subscribe.received.messages")
+            .setDescription("Number of messages received from the streaming pull.")
+            .setUnit("{message}")
+            .build();
+    completedMessages =
+        meter
+            .counterBuilder(PREFIX + "subscribe.completed.messages")
+            .setDescription("Number of messages acked, nacked or expired, by outcome.")
+            .setUnit("{message}")
+            .build();
+    leaseExtensions =
+        meter
+            .counterBuilder(PREFIX + "subscribe.lease_extensions")
+            .setDescription("Number of ack deadline extensions sent for outstanding messages.")
+            .setUnit("{message}")
+            .build();
+    ackRpcDuration =
+        meter
+            .histogramBuilder(PREFIX + "subscribe.ack_rpc.duration")
+            .setDescription("Latency of acknowledge and modify ack deadline requests.")
+            .setUnit("s")
+            .build();
+    subscribeOutstandingMessages =
+        meter
+            .upDownCounterBuilder(PREFIX + "subscribe.outstanding.messages")
+            .setDescription("Number of received messages held by flow control.")
+            .setUnit("{message}")
+            .build();
+    subscribeOutstandingBytes =
+        meter
+            .upDownCounterBuilder(PREFIX + "subscribe.outstanding.size")
+            .setDescription("Size of the received messages held by flow control.")
+            .setUnit("By")
+            .build();
+    streamReconnects =
+        meter
+            .counterBuilder(PREFIX + "subscribe.stream_reconnects")
+            .setDescription("Number of times the streaming pull was reopened.")
+            .setUnit("{reconnect}")
+            .build();
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Returns the current time to pass to the methods recording a duration, or 0 if disabled. */
+  long startTime() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  private static double secondsSince(long startNanos) {
+    return (System.nanoTime() - startNanos) / NANOS_PER_SECOND;
+  }
+
+  void recordFlowControlWait(long startNanos) {
+    if (!enabled) {
+      return;
+    }
+    publishFlowControlDuration.record(secondsSince(startNanos), attributes);
+  }
+
+  void addPublishOutstanding(int messageSize) {
+    if (!enabled) {
+      return;
+    }
+    publishOutstandingMessages.add(1, attributes);
+    publishOutstandingBytes.add(messageSize, attributes);
+  }
+
+  void removePublishOutstanding(int messageSize) {
+    if (!enabled) {
+      return;
+    }
+    publishOutstandingMessages.add(-1, attributes);
+    publishOutstandingBytes.add(-messageSize, attributes);
+  }
+
+  void recordPublishRpcStart(int messageCount, long batchSizeBytes) {
+    if (!enabled) {
+      return;
+    }
+    publishBatchMessages.record(messageCount, attributes);
+    publishBatchBytes.record(batchSizeBytes, attributes);
+    publishRpcsInFlight.add(1, attributes);
+  }
+
+  void recordPublishRpcEnd() {
+    if (!enabled) {
+      return;
+    }
+    publishRpcsInFlight.add(-1, attributes);
+  }
+
+  void recordPublishLatency(long startNanos, boolean success) {
+    if (!enabled) {
+      return;
+    }
+    publishDuration.record(secondsSince(startNanos), success ? okAttributes : errorAttributes);
+  }
+
+  void recordReceived(int messageCount) {
+    if (!enabled) {
+      return;
+    }
+    receivedMessages.add(messageCount, attributes);
+  }
+
+  void addSubscribeOutstanding(int messageCount, long bytes) {
+    if (!enabled) {
+      return;
+    }
+    subscribeOutstandingMessages.add(messageCount, attributes);
+    subscribeOutstandingBytes.add(bytes, attributes);
+  }
+
+  void removeSubscribeOutstanding(int messageCount, long bytes) {
+    if (!enabled) {
+      return;
+    }
+    subscribeOutstandingMessages.add(-messageCount, attributes);
+    subscribeOutstandingBytes.add(-bytes, attributes);
+  }
+
+  void recordAcked() {
+    if (!enabled) {
+      return;
+    }
+    completedMessages.add(1, ackedAttributes);
+  }
+
+  void recordNacked() {
+    if (!enabled) {
+      return;
+    }
+    completedMessages.add(1, nackedAttributes);
+  }
+
+  void recordExpired() {
+    if (!enabled) {
+      return;
+    }
+    completedMessages.add(1, expiredAttributes);
+  }
+
+  void recordLeaseExtensions(int messageCount) {
+    if (!enabled) {
+      return;
+    }
+    leaseExtensions.add(messageCount, attributes);
+  }
+
+  /** Records the latency of an acknowledge, or of a modify ack deadline request used as a nack. */
+  void recordAckRpcLatency(long startNanos, boolean isModack, boolean isNack) {
+    if (!enabled) {
+      return;
+    }
+    Attributes operationAttributes =
+        isNack
+            ? nackOperationAttributes
+            : isModack ? modackOperationAttributes : ackOperationAttributes;
+    ackRpcDuration.record(secondsSince(startNanos), operationAttributes);
+  }
+
+  void recordStreamReconnect() {
+    if (!enabled) {
+      return;
+    }
+    streamReconnects.add(1, attributes);
+  }
+}
@@ -392,14 +392,15 @@ public class OpenTelemetryPubsubTracer {
     Attributes linkAttributes =
         Attributes.builder().put(SemanticAttributes.MESSAGING_OPERATION, rpcOperation).build();
     for (PubsubMessageWrapper message : messages) {
-      if (message.getSubscriberSpan().getSpanContext().isSampled()) {
+      if (message.getSubscriberSpan() != null
+          && message.getSubscriberSpan().getSpanContext().isSampled()) {
         rpcSpanBuilder.addLink(message.getSubscriberSpan().getSpanContext(), linkAttributes);
       }
     }
     Span rpcSpan = rpcSpanBuilder.startSpan();
 
     for (PubsubMessageWrapper message : messages) {
-      if (rpcSpan.getSpanContext().isSampled()) {
+      if (message.getSubscriberSpan() != null && rpcSpan.getSpanContext().isSampled()) {
         message.getSubscriberSpan().addLink(rpcSpan.getSpanContext(), linkAttributes);
         switch (rpcOperation) {
           case "ack":
@@ -431,12 +432,12 @@ public class OpenTelemetryPubsubTracer {
    * Sets an error status and records an exception when an exception is thrown when handling a
    * subscribe-side RPC.
    */
-  void setSubscribeRpcSpanException(Span rpcSpan, boolean isModack, int ackDeadline, Throwable t) {
+  void setSubscribeRpcSpanException(Span rpcSpan, boolean isModack, boolean isNack, Throwable t) {
     if (!enabled) {
       return;
     }
     if (rpcSpan != null) {
-      String operation = !isModack ? "ack" : (ackDeadline == 0 ? "nack" : "modack");
+      String operation = !isModack ? "ack" : (isNack ? "nack" : "modack");
       rpcSpan.setStatus(StatusCode.ERROR, "Exception thrown on " + operation + " RPC.");
       rpcSpan.recordException(t);
       rpcSpan.end();
@@ -445,13 +446,13 @@ public class OpenTelemetryPubsubTracer {
 
   /** Adds the appropriate subscribe-side RPC end event. */
   void addEndRpcEvent(
-      PubsubMessageWrapper message, boolean rpcSampled, boolean isModack, int ackDeadline) {
+      PubsubMessageWrapper message, boolean rpcSampled, boolean isModack, boolean isNack) {
     if (!enabled || !rpcSampled) {
       return;
     }
     if (!isModack) {
       message.addAckEndEvent();
-    } else if (ackDeadline == 0) {
+    } else if (isNack) {
       message.addNackEndEvent();
     } else {
       message.addModAckEndEvent();
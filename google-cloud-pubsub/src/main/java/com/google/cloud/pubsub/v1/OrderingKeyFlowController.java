@@ -0,0 +1,137 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tracks the messages and bytes a {@link Publisher} has outstanding for each ordering key, and
+ * limits them, so that one slow or paused key cannot take up the whole flow control budget of the
+ * publisher.
+ *
+ * <p>Unlike the publisher-wide flow control, publishes blocked on a key are not served in order;
+ * all of them are woken up when any message of the key is released. Releases of other keys do not
+ * wake them.
+ */
+final class OrderingKeyFlowController {
+  private final long messageLimit;
+  private final long byteLimit;
+  private final FlowController.LimitExceededBehavior limitBehavior;
+
+  private final Lock lock = new ReentrantLock();
+  // Keys are removed once nothing is outstanding for them and no publish waits on them. Guarded by
+  // lock.
+  private final Map<String, Outstanding> outstandingByKey = new HashMap<>();
+
+  private final class Outstanding {
+    final Condition released = lock.newCondition();
+    long messages;
+    long bytes;
+    int waiters;
+  }
+
+  OrderingKeyFlowController(FlowControlSettings settings) {
+    this.messageLimit = limitOrMax(settings.getMaxOutstandingElementCount());
+    this.byteLimit = limitOrMax(settings.getMaxOutstandingRequestBytes());
+    this.limitBehavior = settings.getLimitExceededBehavior();
+  }
+
+  private static long limitOrMax(Long limit) {
+    return limit == null ? Long.MAX_VALUE : limit;
+  }
+
+  void acquire(String orderingKey, long messageSize) throws FlowController.FlowControlException {
+    boolean enforced = limitBehavior != FlowController.LimitExceededBehavior.Ignore;
+    if (enforced && messageSize > byteLimit) {
+      throw new FlowController.MaxOutstandingRequestBytesReachedException(byteLimit);
+    }
+    lock.lock();
+    try {
+      while (true) {
+        Outstanding outstanding = outstandingByKey.get(orderingKey);
+        long messages = outstanding == null ? 0 : outstanding.messages;
+        long bytes = outstanding == null ? 0 : outstanding.bytes;
+        if (!enforced || (messages < messageLimit && bytes + messageSize <= byteLimit)) {
+          if (outstanding == null) {
+            outstanding = new Outstanding();
+            outstandingByKey.put(orderingKey, outstanding);
+          }
+          outstanding.messages++;
+          outstanding.bytes += messageSize;
+          return;
+        }
+        if (limitBehavior == FlowController.LimitExceededBehavior.ThrowException) {
+          if (messages >= messageLimit) {
+            throw new FlowController.MaxOutstandingElementCountReachedException(messageLimit);
+          }
+          throw new FlowController.MaxOutstandingRequestBytesReachedException(byteLimit);
+        }
+        // The key has messages outstanding, so it has an entry, which is kept while waited on.
+        outstanding.waiters++;
+        outstanding.released.awaitUninterruptibly();
+        outstanding.waiters--;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void release(String orderingKey, long messageSize) {
+    lock.lock();
+    try {
+      Outstanding outstanding = outstandingByKey.get(orderingKey);
+      if (outstanding == null) {
+        return;
+      }
+      outstanding.messages--;
+      outstanding.bytes -= messageSize;
+      if (outstanding.waiters > 0) {
+        outstanding.released.signalAll();
+      } else if (outstanding.messages <= 0) {
+        outstandingByKey.remove(orderingKey);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  long getOutstandingMessageCount(String orderingKey) {
+    lock.lock();
+    try {
+      Outstanding outstanding = outstandingByKey.get(orderingKey);
+      return outstanding == null ? 0 : outstanding.messages;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  long getOutstandingBytes(String orderingKey) {
+    lock.lock();
+    try {
+      Outstanding outstanding = outstandingByKey.get(orderingKey);
+      return outstanding == null ? 0 : outstanding.bytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+}
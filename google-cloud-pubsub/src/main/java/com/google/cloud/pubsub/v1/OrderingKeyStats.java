@@ -0,0 +1,94 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.BetaApi;
+
+/**
+ * Publish statistics of one of the most published ordering keys of a {@link Publisher}, see {@link
+ * Publisher.Builder#setHotOrderingKeyCount(int)}.
+ *
+ * <p>Message and byte counts are since the publisher was created and are estimates: they may
+ * include up to {@link #getMaxOvercount()} messages, and their bytes, of keys that were published
+ * less.
+ */
+@BetaApi
+public final class OrderingKeyStats {
+  private final String orderingKey;
+  private final long publishedMessageCount;
+  private final long publishedBytes;
+  private final long maxOvercount;
+  private final long outstandingMessageCount;
+  private final long outstandingBytes;
+
+  OrderingKeyStats(
+      String orderingKey,
+      long publishedMessageCount,
+      long publishedBytes,
+      long maxOvercount,
+      long outstandingMessageCount,
+      long outstandingBytes) {
+    this.orderingKey = orderingKey;
+    this.publishedMessageCount = publishedMessageCount;
+    this.publishedBytes = publishedBytes;
+    this.maxOvercount = maxOvercount;
+    this.outstandingMessageCount = outstandingMessageCount;
+    this.outstandingBytes = outstandingBytes;
+  }
+
+  public String getOrderingKey() {
+    return orderingKey;
+  }
+
+  /** Estimated number of messages published with the key. */
+  public long getPublishedMessageCount() {
+    return publishedMessageCount;
+  }
+
+  /** Estimated number of bytes published with the key. */
+  public long getPublishedBytes() {
+    return publishedBytes;
+  }
+
+  /** The most by which {@link #getPublishedMessageCount()} may exceed the true count. */
+  public long getMaxOvercount() {
+    return maxOvercount;
+  }
+
+  /** Number of messages of the key that are queued or being sent. */
+  public long getOutstandingMessageCount() {
+    return outstandingMessageCount;
+  }
+
+  /** Bytes of the messages of the key that are queued or being sent. */
+  public long getOutstandingBytes() {
+    return outstandingBytes;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "OrderingKeyStats{orderingKey=%s, publishedMessages=%d, publishedBytes=%d,"
+            + " maxOvercount=%d, outstandingMessages=%d, outstandingBytes=%d}",
+        orderingKey,
+        publishedMessageCount,
+        publishedBytes,
+        maxOvercount,
+        outstandingMessageCount,
+        outstandingBytes);
+  }
+}
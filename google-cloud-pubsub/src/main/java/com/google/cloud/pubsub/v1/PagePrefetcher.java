@@ -0,0 +1,251 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.BetaApi;
+import com.google.api.gax.paging.AsyncPage;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the results of a list operation of the admin clients while the next pages are
+ * fetched, instead of fetching each page once the previous one has been iterated over as {@code
+ * iterateAll()} does.
+ *
+ * <p>Since each page request needs the token of the previous page, pages are still fetched one
+ * after the other; what is saved is the time spent waiting for a page while the previous one was
+ * processed. Up to {@code prefetchDepth} pages are fetched ahead of the page being iterated over,
+ * which bounds the memory used when the results are processed slower than they are fetched. For
+ * example, to go through all subscriptions of a project:
+ *
+ * <pre>{@code
+ * try (Stream<Subscription> subscriptions =
+ *     PagePrefetcher.streamAll(
+ *         subscriptionAdminClient
+ *             .listSubscriptions(
+ *                 ListSubscriptionsRequest.newBuilder()
+ *                     .setProject(ProjectName.of(projectId).toString())
+ *                     .setPageSize(1000)
+ *                     .build())
+ *             .getPage(),
+ *         4)) {
+ *   subscriptions.forEach(subscription -> ...);
+ * }
+ * }</pre>
+ *
+ * <p>The first page is fetched by the list call itself. The iterators are not thread-safe.
+ */
+@BetaApi
+public final class PagePrefetcher {
+  private PagePrefetcher() {}
+
+  /**
+   * Returns the results of {@code firstPage} and of the pages after it. Each call to {@link
+   * Iterable#iterator()} fetches the following pages again.
+   *
+   * @param firstPage the page returned by a list operation, such as {@code
+   *     listSubscriptions(project).getPage()}
+   * @param prefetchDepth the maximum number of pages fetched ahead of the page being iterated over
+   */
+  public static <ResourceT> Iterable<ResourceT> iterateAll(
+      final AsyncPage<ResourceT> firstPage, final int prefetchDepth) {
+    Preconditions.checkNotNull(firstPage);
+    Preconditions.checkArgument(prefetchDepth > 0, "prefetchDepth must be positive");
+    return () -> new PrefetchingIterator<>(firstPage, prefetchDepth);
+  }
+
+  /**
+   * Returns a sequential stream of the results of {@code firstPage} and of the pages after it.
+   * Closing the stream stops fetching pages.
+   *
+   * @param firstPage the page returned by a list operation, such as {@code
+   *     listSubscriptions(project).getPage()}
+   * @param prefetchDepth the maximum number of pages fetched ahead of the page being iterated over
+   */
+  public static <ResourceT> Stream<ResourceT> streamAll(
+      AsyncPage<ResourceT> firstPage, int prefetchDepth) {
+    Preconditions.checkNotNull(firstPage);
+    Preconditions.checkArgument(prefetchDepth > 0, "prefetchDepth must be positive");
+    PrefetchingIterator<ResourceT> iterator = new PrefetchingIterator<>(firstPage, prefetchDepth);
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+        .onClose(iterator::close);
+  }
+
+  /**
+   * Iterates over the values of pages that are fetched in the background, one at a time, while
+   * fewer than {@code prefetchDepth} fetched pages are waiting to be iterated over.
+   */
+  static final class PrefetchingIterator<ResourceT> implements Iterator<ResourceT> {
+    private final int prefetchDepth;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition pageFetched = lock.newCondition();
+    // Guarded by lock.
+    private final ArrayDeque<AsyncPage<ResourceT>> fetchedPages = new ArrayDeque<>();
+    private AsyncPage<ResourceT> lastFetchedPage;
+    private boolean fetching;
+    private boolean closed;
+    private Throwable failure;
+
+    private Iterator<ResourceT> values;
+
+    PrefetchingIterator(AsyncPage<ResourceT> firstPage, int prefetchDepth) {
+      this.prefetchDepth = prefetchDepth;
+      this.values = firstPage.getValues().iterator();
+      lock.lock();
+      try {
+        lastFetchedPage = firstPage;
+        fetchNextPageIfNeeded();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (!values.hasNext()) {
+        AsyncPage<ResourceT> page = takeFetchedPage();
+        if (page == null) {
+          return false;
+        }
+        values = page.getValues().iterator();
+      }
+      return true;
+    }
+
+    @Override
+    public ResourceT next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return values.next();
+    }
+
+    /** Stops fetching pages. */
+    void close() {
+      lock.lock();
+      try {
+        closed = true;
+        fetchedPages.clear();
+        pageFetched.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /** Returns the next fetched page, waiting for it if needed, or null after the last page. */
+    private AsyncPage<ResourceT> takeFetchedPage() {
+      lock.lock();
+      try {
+        while (fetchedPages.isEmpty()) {
+          if (failure != null) {
+            if (failure instanceof RuntimeException) {
+              throw (RuntimeException) failure;
+            }
+            throw new IllegalStateException(failure);
+          }
+          if (closed || (!fetching && !lastFetchedPage.hasNextPage())) {
+            return null;
+          }
+          try {
+            pageFetched.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CancellationException cancellation =
+                new CancellationException("Interrupted while waiting for the next page");
+            cancellation.initCause(e);
+            throw cancellation;
+          }
+        }
+        AsyncPage<ResourceT> page = fetchedPages.poll();
+        fetchNextPageIfNeeded();
+        return page;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /** Starts fetching the page after the last fetched one. Must be called with lock held. */
+    private void fetchNextPageIfNeeded() {
+      if (fetching
+          || closed
+          || failure != null
+          || fetchedPages.size() >= prefetchDepth
+          || !lastFetchedPage.hasNextPage()) {
+        return;
+      }
+      fetching = true;
+      ApiFuture<? extends AsyncPage<ResourceT>> nextPage;
+      try {
+        nextPage = lastFetchedPage.getNextPageAsync();
+      } catch (RuntimeException e) {
+        fetching = false;
+        failure = e;
+        pageFetched.signalAll();
+        return;
+      }
+      ApiFutures.addCallback(
+          nextPage,
+          new ApiFutureCallback<AsyncPage<ResourceT>>() {
+            @Override
+            public void onSuccess(AsyncPage<ResourceT> page) {
+              lock.lock();
+              try {
+                fetching = false;
+                if (closed) {
+                  return;
+                }
+                fetchedPages.add(page);
+                lastFetchedPage = page;
+                pageFetched.signalAll();
+                fetchNextPageIfNeeded();
+              } finally {
+                lock.unlock();
+              }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+              lock.lock();
+              try {
+                fetching = false;
+                failure = t;
+                pageFetched.signalAll();
+              } finally {
+                lock.unlock();
+              }
+            }
+          },
+          MoreExecutors.directExecutor());
+    }
+  }
+}
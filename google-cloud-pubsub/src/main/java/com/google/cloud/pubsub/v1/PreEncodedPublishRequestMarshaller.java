@@ -0,0 +1,164 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.gax.grpc.GrpcCallSettings;
+import com.google.api.gax.rpc.BatchingCallSettings;
+import com.google.api.gax.rpc.ClientContext;
+import com.google.api.gax.rpc.UnaryCallSettings;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.pubsub.v1.stub.GrpcPublisherCallableFactory;
+import com.google.common.collect.MapMaker;
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PublishRequest;
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.protobuf.ProtoUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Sends {@link PublishRequest PublishRequests} whose wire bytes were encoded ahead of time.
+ *
+ * <p>{@link #newRequest} returns a request that only carries the topic, which is all the stub needs
+ * for routing, and remembers the encoded bytes for it; when that request is sent, the encoded bytes
+ * are sent instead. Other requests are serialized as usual. The bytes are remembered only as long
+ * as the returned request is reachable, which covers retries of the call.
+ */
+final class PreEncodedPublishRequestMarshaller
+    implements MethodDescriptor.Marshaller<PublishRequest> {
+  private static final MethodDescriptor.Marshaller<PublishRequest> DEFAULT_MARSHALLER =
+      ProtoUtils.marshaller(PublishRequest.getDefaultInstance());
+  private static final String PUBLISH_METHOD_NAME = "google.pubsub.v1.Publisher/Publish";
+
+  // Encoded bytes of requests returned by newRequest, by request identity.
+  private final ConcurrentMap<PublishRequest, ByteString> encodedRequests =
+      new MapMaker().weakKeys().makeMap();
+
+  /**
+   * Returns a request to pass to the stub in place of the one {@code encodedRequest} encodes, which
+   * must be for {@code topic}.
+   */
+  PublishRequest newRequest(String topic, ByteString encodedRequest) {
+    PublishRequest request = PublishRequest.newBuilder().setTopic(topic).build();
+    encodedRequests.put(request, encodedRequest);
+    return request;
+  }
+
+  @Override
+  public InputStream stream(PublishRequest value) {
+    ByteString encodedRequest = encodedRequests.get(value);
+    return encodedRequest == null
+        ? DEFAULT_MARSHALLER.stream(value)
+        : new EncodedInputStream(encodedRequest);
+  }
+
+  @Override
+  public PublishRequest parse(InputStream stream) {
+    return DEFAULT_MARSHALLER.parse(stream);
+  }
+
+  /**
+   * Returns a callable factory for {@link com.google.cloud.pubsub.v1.stub.GrpcPublisherStub} that
+   * serializes Publish requests with this marshaller.
+   */
+  GrpcPublisherCallableFactory newCallableFactory() {
+    return new GrpcPublisherCallableFactory() {
+      @Override
+      public <RequestT, ResponseT> UnaryCallable<RequestT, ResponseT> createUnaryCallable(
+          GrpcCallSettings<RequestT, ResponseT> grpcCallSettings,
+          UnaryCallSettings<RequestT, ResponseT> callSettings,
+          ClientContext clientContext) {
+        return super.createUnaryCallable(
+            withMarshaller(grpcCallSettings), callSettings, clientContext);
+      }
+
+      @Override
+      public <RequestT, ResponseT> UnaryCallable<RequestT, ResponseT> createBatchingCallable(
+          GrpcCallSettings<RequestT, ResponseT> grpcCallSettings,
+          BatchingCallSettings<RequestT, ResponseT> callSettings,
+          ClientContext clientContext) {
+        return super.createBatchingCallable(
+            withMarshaller(grpcCallSettings), callSettings, clientContext);
+      }
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private <RequestT, ResponseT> GrpcCallSettings<RequestT, ResponseT> withMarshaller(
+      GrpcCallSettings<RequestT, ResponseT> grpcCallSettings) {
+    MethodDescriptor<RequestT, ResponseT> methodDescriptor = grpcCallSettings.getMethodDescriptor();
+    if (!PUBLISH_METHOD_NAME.equals(methodDescriptor.getFullMethodName())) {
+      return grpcCallSettings;
+    }
+    return grpcCallSettings
+        .toBuilder()
+        .setMethodDescriptor(
+            methodDescriptor
+                .toBuilder()
+                .setRequestMarshaller((MethodDescriptor.Marshaller<RequestT>) this)
+                .build())
+        .build();
+  }
+
+  /** Streams encoded bytes; draining writes them without an intermediate copy. */
+  private static final class EncodedInputStream extends InputStream
+      implements KnownLength, Drainable {
+    private final ByteString bytes;
+    private InputStream input;
+
+    private EncodedInputStream(ByteString bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public int drainTo(OutputStream target) throws IOException {
+      if (input == null) {
+        input = ByteString.EMPTY.newInput();
+        bytes.writeTo(target);
+        return bytes.size();
+      }
+      return (int) ByteStreams.copy(input, target);
+    }
+
+    @Override
+    public int read() throws IOException {
+      return input().read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return input().read(b, off, len);
+    }
+
+    @Override
+    public int available() throws IOException {
+      return input == null ? bytes.size() : input.available();
+    }
+
+    private InputStream input() {
+      if (input == null) {
+        input = bytes.newInput();
+      }
+      return input;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.BetaApi;
+import com.google.common.base.Preconditions;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import com.google.protobuf.util.JsonFormat;
+import com.google.pubsub.v1.Encoding;
+
+/**
+ * A {@link MessageCodec} of protocol buffer messages of one type, in the protocol buffer binary or
+ * JSON encoding of a topic with a {@code PROTOCOL_BUFFER} schema.
+ *
+ * <p>Messages are encoded in the JSON encoding without insignificant whitespace. Unknown fields are
+ * ignored when decoding the JSON encoding, as they are in the binary encoding, so that messages of
+ * newer revisions of the schema can be decoded.
+ */
+@BetaApi
+public final class ProtobufMessageCodec<T extends Message> implements MessageCodec<T> {
+  private static final JsonFormat.Printer JSON_PRINTER =
+      JsonFormat.printer().omittingInsignificantWhitespace();
+  private static final JsonFormat.Parser JSON_PARSER = JsonFormat.parser().ignoringUnknownFields();
+
+  private final T defaultInstance;
+  private final Parser<T> parser;
+  private final Encoding encoding;
+
+  private ProtobufMessageCodec(T defaultInstance, Encoding encoding) {
+    this.defaultInstance = defaultInstance;
+    @SuppressWarnings("unchecked")
+    Parser<T> parser = (Parser<T>) defaultInstance.getParserForType();
+    this.parser = parser;
+    this.encoding = encoding;
+  }
+
+  /**
+   * Creates a codec of messages of the type of {@code defaultInstance}, such as {@code
+   * MyMessage.getDefaultInstance()}.
+   *
+   * @param encoding the encoding of the topic, {@link Encoding#BINARY} or {@link Encoding#JSON}
+   */
+  public static <T extends Message> ProtobufMessageCodec<T> of(
+      T defaultInstance, Encoding encoding) {
+    Preconditions.checkNotNull(defaultInstance);
+    Preconditions.checkArgument(
+        encoding == Encoding.JSON || encoding == Encoding.BINARY,
+        "encoding must be JSON or BINARY");
+    return new ProtobufMessageCodec<>(defaultInstance, encoding);
+  }
+
+  /** Returns the encoding of the codec. */
+  public Encoding getEncoding() {
+    return encoding;
+  }
+
+  @Override
+  public ByteString encode(T value) {
+    if (encoding == Encoding.BINARY) {
+      return value.toByteString();
+    }
+    try {
+      return ByteString.copyFromUtf8(JSON_PRINTER.print(value));
+    } catch (InvalidProtocolBufferException e) {
+      // The printer only fails for Any fields of types it does not know.
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public T decode(ByteString data, String schemaRevisionId) {
+    try {
+      if (encoding == Encoding.BINARY) {
+        return parser.parseFrom(data);
+      }
+      Message.Builder builder = defaultInstance.newBuilderForType();
+      JSON_PARSER.merge(data.toStringUtf8(), builder);
+      @SuppressWarnings("unchecked")
+      T value = (T) builder.build();
+      return value;
+    } catch (InvalidProtocolBufferException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
+  }
+}
@@ -37,6 +37,7 @@ import com.google.api.gax.core.FixedExecutorProvider;
 import com.google.api.gax.core.InstantiatingExecutorProvider;
 import com.google.api.gax.grpc.GrpcCallContext;
 import com.google.api.gax.retrying.RetrySettings;
+import com.google.api.gax.rpc.ClientContext;
 import com.google.api.gax.rpc.HeaderProvider;
 import com.google.api.gax.rpc.NoHeaderProvider;
 import com.google.api.gax.rpc.StatusCode;
@@ -46,6 +47,7 @@ import com.google.cloud.pubsub.v1.stub.GrpcPublisherStub;
 import com.google.cloud.pubsub.v1.stub.PublisherStub;
 import com.google.cloud.pubsub.v1.stub.PublisherStubSettings;
 import com.google.common.base.Preconditions;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.CodedOutputStream;
 import com.google.pubsub.v1.PublishRequest;
 import com.google.pubsub.v1.PublishResponse;
@@ -59,6 +61,7 @@ import io.opentelemetry.api.trace.Tracer;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -66,6 +69,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -74,6 +79,7 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 
 /**
  * A Cloud Pub/Sub <a href="https://cloud.google.com/pubsub/docs/publisher">publisher</a>, that is
@@ -104,10 +110,16 @@ public class Publisher implements PublisherInterface {
 
   private final BatchingSettings batchingSettings;
   private final boolean enableMessageOrdering;
+  // Set when newer messages replace unsent older ones, see Builder#setCompactionAttribute.
+  @Nullable private final String compactionAttribute;
+  @Nullable private final SchemaValidator schemaValidator;
 
   private final Lock messagesBatchLock;
 
   private final Map<String, MessagesBatch> messagesBatches;
+  // The unsent publishes that a newer message can replace, by ordering key and then by value of the
+  // compaction attribute. Guarded by messagesBatchLock.
+  private final Map<String, Map<String, OutstandingPublish>> unsentCompactablePublishes;
 
   private final AtomicBoolean activeAlarm;
 
@@ -115,8 +127,16 @@ public class Publisher implements PublisherInterface {
 
   private final ScheduledExecutorService executor;
 
+  // Sends batches and runs publish callbacks. The same as executor unless virtual threads are used,
+  // in which case executor only runs timers.
+  private final Executor publishExecutor;
+
   private final SequentialExecutorService.CallbackExecutor sequentialExecutor;
 
+  // Runs publish callbacks for ordering keys in order when virtual threads are used, null
+  // otherwise.
+  @Nullable private final SequentialExecutorService.AutoExecutor orderedCallbackExecutor;
+
   private final AtomicBoolean shutdown;
   private final BackgroundResource backgroundResources;
   private final Waiter messagesWaiter;
@@ -124,9 +144,21 @@ public class Publisher implements PublisherInterface {
   private final ApiFunction<PubsubMessage, PubsubMessage> messageTransform;
 
   private MessageFlowController flowController = null;
+  // Set when ordering keys are limited or tracked, see
+  // Builder#setOrderingKeyFlowControlSettings and Builder#setHotOrderingKeyCount.
+  @Nullable private final OrderingKeyFlowController orderingKeyFlowController;
+  @Nullable private final HotOrderingKeyTracker hotOrderingKeyTracker;
 
   private final boolean enableCompression;
   private final long compressionBytesThreshold;
+  // Set when batches are sized by their estimated compressed size, see
+  // Builder#setCompressedRequestBytesThreshold.
+  @Nullable private final CompressionRatioEstimator compressionRatioEstimator;
+  private final long compressedRequestBytesThreshold;
+
+  // Set when batches are serialized as messages are added, see
+  // Builder#setEnableIncrementalSerialization.
+  @Nullable private final PreEncodedPublishRequestMarshaller publishRequestMarshaller;
 
   private final GrpcCallContext publishContext;
   private final GrpcCallContext publishContextWithCompression;
@@ -134,6 +166,7 @@ public class Publisher implements PublisherInterface {
   private final boolean enableOpenTelemetryTracing;
   private final OpenTelemetry openTelemetry;
   private OpenTelemetryPubsubTracer tracer = new OpenTelemetryPubsubTracer(null, false);
+  private final OpenTelemetryPubsubMetrics metrics;
 
   /** The maximum number of messages in one request. Defined by the API. */
   public static long getApiMaxRequestElementCount() {
@@ -161,10 +194,39 @@ public class Publisher implements PublisherInterface {
               flowControl.getLimitExceededBehavior());
     }
 
+    if (builder.orderingKeyFlowControlSettings != null) {
+      this.orderingKeyFlowController =
+          new OrderingKeyFlowController(builder.orderingKeyFlowControlSettings);
+    } else if (builder.hotOrderingKeyCount > 0) {
+      // Only track the outstanding messages of each key, for the hot key stats.
+      this.orderingKeyFlowController =
+          new OrderingKeyFlowController(
+              FlowControlSettings.newBuilder()
+                  .setLimitExceededBehavior(FlowController.LimitExceededBehavior.Ignore)
+                  .build());
+    } else {
+      this.orderingKeyFlowController = null;
+    }
+    this.hotOrderingKeyTracker =
+        builder.hotOrderingKeyCount > 0
+            ? new HotOrderingKeyTracker(builder.hotOrderingKeyCount)
+            : null;
     this.enableMessageOrdering = builder.enableMessageOrdering;
+    this.compactionAttribute = builder.compactionAttribute;
+    this.schemaValidator = builder.schemaValidator;
     this.messageTransform = builder.messageTransform;
     this.enableCompression = builder.enableCompression;
     this.compressionBytesThreshold = builder.compressionBytesThreshold;
+    this.compressedRequestBytesThreshold = builder.compressedRequestBytesThreshold;
+    this.compressionRatioEstimator =
+        enableCompression && compressedRequestBytesThreshold > 0
+            ? new CompressionRatioEstimator()
+            : null;
+    // Compacted messages can be removed from a batch, so they are not serialized in advance.
+    this.publishRequestMarshaller =
+        builder.enableIncrementalSerialization && compactionAttribute == null
+            ? new PreEncodedPublishRequestMarshaller()
+            : null;
     this.enableOpenTelemetryTracing = builder.enableOpenTelemetryTracing;
     this.openTelemetry = builder.openTelemetry;
     if (this.openTelemetry != null && this.enableOpenTelemetryTracing) {
@@ -174,16 +236,47 @@ public class Publisher implements PublisherInterface {
             new OpenTelemetryPubsubTracer(openTelemetryTracer, this.enableOpenTelemetryTracing);
       }
     }
+    this.metrics =
+        this.openTelemetry != null
+            ? OpenTelemetryPubsubMetrics.forTopic(
+                this.openTelemetry.getMeter(OpenTelemetryPubsubMetrics.METER_NAME), topicName)
+            : OpenTelemetryPubsubMetrics.disabled();
 
     messagesBatches = new HashMap<>();
+    unsentCompactablePublishes = new HashMap<>();
     messagesBatchLock = new ReentrantLock();
     activeAlarm = new AtomicBoolean(false);
-    executor = builder.executorProvider.getExecutor();
-    sequentialExecutor = new SequentialExecutorService.CallbackExecutor(executor);
+    ExecutorService virtualThreadExecutor = null;
+    if (builder.useVirtualThreads) {
+      virtualThreadExecutor = VirtualThreads.newVirtualThreadPerTaskExecutor("Publisher-VT-");
+      if (virtualThreadExecutor == null) {
+        logger.log(
+            Level.WARNING,
+            "Virtual threads are not supported by this runtime, using the executor provider.");
+      }
+    }
+    ExecutorProvider executorProvider = builder.executorProvider;
+    if (virtualThreadExecutor != null && executorProvider == Builder.DEFAULT_EXECUTOR_PROVIDER) {
+      // Only timers and RPC retries run on the platform executor, so keep it small.
+      executorProvider = Builder.VIRTUAL_THREADS_TIMER_EXECUTOR_PROVIDER;
+    }
+    executor = executorProvider.getExecutor();
     List<BackgroundResource> backgroundResourceList = new ArrayList<>();
-    if (builder.executorProvider.shouldAutoClose()) {
+    if (executorProvider.shouldAutoClose()) {
       backgroundResourceList.add(new ExecutorAsBackgroundResource(executor));
     }
+    if (virtualThreadExecutor != null) {
+      backgroundResourceList.add(new ExecutorAsBackgroundResource(virtualThreadExecutor));
+      publishExecutor = virtualThreadExecutor;
+      orderedCallbackExecutor = new SequentialExecutorService.AutoExecutor(virtualThreadExecutor);
+    } else {
+      publishExecutor = executor;
+      orderedCallbackExecutor = null;
+    }
+    sequentialExecutor = new SequentialExecutorService.CallbackExecutor(publishExecutor);
+    if (schemaValidator != null) {
+      schemaValidator.start(executor);
+    }
 
     // Publisher used to take maxAttempt == 0 to mean infinity, but to GAX it means don't retry.
     // We post-process this here to keep backward-compatibility.
@@ -221,7 +314,16 @@ public class Publisher implements PublisherInterface {
             StatusCode.Code.UNAVAILABLE)
         .setRetrySettings(retrySettingsBuilder.build())
         .setBatchingSettings(BatchingSettings.newBuilder().setIsEnabled(false).build());
-    this.publisherStub = GrpcPublisherStub.create(stubSettings.build());
+    if (publishRequestMarshaller != null) {
+      PublisherStubSettings publisherStubSettings = stubSettings.build();
+      this.publisherStub =
+          new GrpcPublisherStub(
+              publisherStubSettings,
+              ClientContext.create(publisherStubSettings),
+              publishRequestMarshaller.newCallableFactory()) {};
+    } else {
+      this.publisherStub = GrpcPublisherStub.create(stubSettings.build());
+    }
     backgroundResourceList.add(publisherStub);
     backgroundResources = new BackgroundResourceAggregation(backgroundResourceList);
     shutdown = new AtomicBoolean(false);
@@ -281,16 +383,38 @@ public class Publisher implements PublisherInterface {
             + "Publisher client. Please create a Publisher client with "
             + "setEnableMessageOrdering(true) in the builder.");
 
+    PubsubMessage transformedMessage = messageTransform.apply(message);
+    if (schemaValidator != null) {
+      try {
+        schemaValidator.validate(transformedMessage);
+      } catch (RuntimeException e) {
+        if (!orderingKey.isEmpty()) {
+          sequentialExecutor.stopPublish(orderingKey);
+        }
+        return ApiFutures.immediateFailedFuture(e);
+      }
+    }
     PubsubMessageWrapper messageWrapper =
-        PubsubMessageWrapper.newBuilder(messageTransform.apply(message), topicName).build();
+        PubsubMessageWrapper.newBuilder(transformedMessage, topicName).build();
     tracer.startPublisherSpan(messageWrapper);
 
-    final OutstandingPublish outstandingPublish = new OutstandingPublish(messageWrapper);
+    String compactionValue = null;
+    if (compactionAttribute != null && !orderingKey.isEmpty()) {
+      compactionValue =
+          messageWrapper.getPubsubMessage().getAttributesOrDefault(compactionAttribute, null);
+    }
+    final OutstandingPublish outstandingPublish =
+        new OutstandingPublish(messageWrapper, compactionValue, metrics.startTime());
 
-    if (flowController != null) {
+    if (flowController != null || orderingKeyFlowController != null) {
       tracer.startPublishFlowControlSpan(messageWrapper);
       try {
-        flowController.acquire(outstandingPublish.messageSize);
+        long flowControlStartNanos = metrics.startTime();
+        Object flowControlEvent = FlightRecorderEvents.beginPublishFlowControl();
+        acquireFlowControl(orderingKey, outstandingPublish.messageSize);
+        FlightRecorderEvents.endPublishFlowControl(
+            flowControlEvent, topicName, orderingKey, outstandingPublish.messageSize);
+        metrics.recordFlowControlWait(flowControlStartNanos);
         tracer.endPublishFlowControlSpan(messageWrapper);
       } catch (FlowController.FlowControlException e) {
         if (!orderingKey.isEmpty()) {
@@ -301,12 +425,14 @@ public class Publisher implements PublisherInterface {
         return outstandingPublish.publishResult;
       }
     }
+    metrics.addPublishOutstanding(outstandingPublish.messageSize);
 
     List<OutstandingBatch> batchesToSend;
     messagesBatchLock.lock();
     try {
       tracer.startPublishBatchingSpan(messageWrapper);
       if (!orderingKey.isEmpty() && sequentialExecutor.keyHasError(orderingKey)) {
+        releaseFlowControl(orderingKey, outstandingPublish);
         outstandingPublish.publishResult.setException(
             SequentialExecutorService.CallbackExecutor.CANCELLATION_EXCEPTION);
         return outstandingPublish.publishResult;
@@ -316,7 +442,9 @@ public class Publisher implements PublisherInterface {
         messagesBatch = new MessagesBatch(batchingSettings, topicNameSize, orderingKey);
         messagesBatches.put(orderingKey, messagesBatch);
       }
-
+      if (compactionValue != null) {
+        supersedeUnsentPublish(orderingKey, messagesBatch, outstandingPublish);
+      }
       batchesToSend = messagesBatch.add(outstandingPublish);
       if (!batchesToSend.isEmpty() && messagesBatch.isEmpty()) {
         messagesBatches.remove(orderingKey);
@@ -337,13 +465,17 @@ public class Publisher implements PublisherInterface {
     }
 
     messagesWaiter.incrementPendingCount(1);
+    // Counted after releasing messagesBatchLock, so that tracking does not hold it up.
+    if (hotOrderingKeyTracker != null && !orderingKey.isEmpty()) {
+      hotOrderingKeyTracker.record(orderingKey, outstandingPublish.messageSize);
+    }
 
     // For messages without ordering keys, it is okay to send batches without holding
     // messagesBatchLock.
     if (!batchesToSend.isEmpty() && orderingKey.isEmpty()) {
       for (final OutstandingBatch batch : batchesToSend) {
         logger.log(Level.FINER, "Scheduling a batch for immediate sending.");
-        executor.execute(
+        publishExecutor.execute(
             new Runnable() {
               @Override
               public void run() {
@@ -356,6 +488,29 @@ public class Publisher implements PublisherInterface {
     return outstandingPublish.publishResult;
   }
 
+  /**
+   * Returns the ordering keys with the most published messages, the most published first, or an
+   * empty list if they are not tracked. See {@link Builder#setHotOrderingKeyCount(int)}.
+   */
+  @BetaApi
+  public List<OrderingKeyStats> getHotOrderingKeys() {
+    if (hotOrderingKeyTracker == null) {
+      return Collections.emptyList();
+    }
+    List<OrderingKeyStats> hotKeys = new ArrayList<>();
+    for (HotOrderingKeyTracker.Counter counter : hotOrderingKeyTracker.getHotKeys()) {
+      hotKeys.add(
+          new OrderingKeyStats(
+              counter.orderingKey,
+              counter.messages,
+              counter.bytes,
+              counter.overcount,
+              orderingKeyFlowController.getOutstandingMessageCount(counter.orderingKey),
+              orderingKeyFlowController.getOutstandingBytes(counter.orderingKey)));
+    }
+    return hotKeys;
+  }
+
   /**
    * There may be non-recoverable problems with a request for an ordering key. In that case, all
    * subsequent requests will fail until this method is called. If the key is not currently paused,
@@ -368,6 +523,36 @@ public class Publisher implements PublisherInterface {
     sequentialExecutor.resumePublish(key);
   }
 
+  private void acquireFlowControl(String orderingKey, int messageSize)
+      throws FlowController.FlowControlException {
+    // The key's own limit is acquired first, so that a publish blocked on it does not hold on to
+    // the budget shared by all keys.
+    boolean limitKey = orderingKeyFlowController != null && !orderingKey.isEmpty();
+    if (limitKey) {
+      orderingKeyFlowController.acquire(orderingKey, messageSize);
+    }
+    if (flowController != null) {
+      try {
+        flowController.acquire(messageSize);
+      } catch (FlowController.FlowControlException e) {
+        if (limitKey) {
+          orderingKeyFlowController.release(orderingKey, messageSize);
+        }
+        throw e;
+      }
+    }
+  }
+
+  private void releaseFlowControl(String orderingKey, OutstandingPublish outstandingPublish) {
+    metrics.removePublishOutstanding(outstandingPublish.messageSize);
+    if (flowController != null) {
+      flowController.release(outstandingPublish.messageSize);
+    }
+    if (orderingKeyFlowController != null && orderingKey != null && !orderingKey.isEmpty()) {
+      orderingKeyFlowController.release(orderingKey, outstandingPublish.messageSize);
+    }
+  }
+
   private void setupAlarm() {
     if (!messagesBatches.isEmpty()) {
       if (!activeAlarm.getAndSet(true)) {
@@ -403,19 +588,27 @@ public class Publisher implements PublisherInterface {
     OutstandingBatch unorderedOutstandingBatch = null;
     messagesBatchLock.lock();
     try {
+      List<OutstandingBatch> orderedOutstandingBatches = new ArrayList<>();
       for (MessagesBatch batch : messagesBatches.values()) {
         if (!batch.isEmpty()) {
           if (!batch.orderingKey.isEmpty()) {
-            // For messages with an ordering key, we need to publish with messagesBatchLock held in
-            // order to ensure another publish doesn't slip in and send a batch before these batches
-            // we already want to send.
-            publishOutstandingBatch(batch.popOutstandingBatch());
+            orderedOutstandingBatches.add(
+                batch.popOutstandingBatch(FlightRecorderEvents.FLUSH_REASON_FLUSH));
           } else {
-            unorderedOutstandingBatch = batch.popOutstandingBatch();
+            unorderedOutstandingBatch =
+                batch.popOutstandingBatch(FlightRecorderEvents.FLUSH_REASON_FLUSH);
           }
         }
       }
+      // Clear the batches before publishing, since a publish that completes right away looks up the
+      // batch of its ordering key.
       messagesBatches.clear();
+      // For messages with an ordering key, we need to publish with messagesBatchLock held in order
+      // to ensure another publish doesn't slip in and send a batch before these batches we already
+      // want to send.
+      for (OutstandingBatch batch : orderedOutstandingBatches) {
+        publishOutstandingBatch(batch);
+      }
     } finally {
       messagesBatchLock.unlock();
     }
@@ -442,11 +635,15 @@ public class Publisher implements PublisherInterface {
           it.remove();
         } else if (key.isEmpty()) {
           // We will publish the batch with no ordering key outside messagesBatchLock.
-          unorderedOutstandingBatch = batch.popOutstandingBatch();
+          unorderedOutstandingBatch =
+              batch.popOutstandingBatch(FlightRecorderEvents.FLUSH_REASON_DELAY);
           it.remove();
         } else if (!sequentialExecutor.hasTasksInflight(key)) {
-          publishOutstandingBatch(batch.popOutstandingBatch());
+          // Remove the batch before publishing, since a publish that completes right away looks up
+          // the batch of its ordering key.
           it.remove();
+          publishOutstandingBatch(
+              batch.popOutstandingBatch(FlightRecorderEvents.FLUSH_REASON_DELAY));
         }
       }
     } finally {
@@ -468,8 +665,70 @@ public class Publisher implements PublisherInterface {
     try {
       MessagesBatch batch = messagesBatches.get(orderingKey);
       if (batch != null && !sequentialExecutor.hasTasksInflight(orderingKey)) {
-        publishOutstandingBatch(batch.popOutstandingBatch());
         messagesBatches.remove(orderingKey);
+        publishOutstandingBatch(
+            batch.popOutstandingBatch(FlightRecorderEvents.FLUSH_REASON_PREVIOUS_BATCH_DONE));
+      }
+    } finally {
+      messagesBatchLock.unlock();
+    }
+  }
+
+  /**
+   * Makes {@code outstandingPublish} the latest unsent publish of its compaction key, completing
+   * the one it replaces with a {@link MessageSupersededException}. A replaced publish is removed
+   * from {@code messagesBatch} if it is still there, or otherwise dropped when its batch is sent.
+   * Must be called with messagesBatchLock held.
+   */
+  private void supersedeUnsentPublish(
+      String orderingKey, MessagesBatch messagesBatch, OutstandingPublish outstandingPublish) {
+    Map<String, OutstandingPublish> unsentPublishes = unsentCompactablePublishes.get(orderingKey);
+    if (unsentPublishes == null) {
+      unsentPublishes = new HashMap<>();
+      unsentCompactablePublishes.put(orderingKey, unsentPublishes);
+    }
+    OutstandingPublish superseded =
+        unsentPublishes.put(outstandingPublish.compactionValue, outstandingPublish);
+    if (superseded == null
+        || !superseded.publishResult.setException(
+            new MessageSupersededException(orderingKey, superseded.compactionValue))) {
+      return;
+    }
+    superseded.superseded = true;
+    messagesBatch.remove(superseded);
+    releaseFlowControl(orderingKey, superseded);
+    tracer.endPublishBatchingSpan(superseded.messageWrapper);
+    tracer.endPublisherSpan(superseded.messageWrapper);
+    messagesWaiter.incrementPendingCount(-1);
+  }
+
+  /**
+   * Drops the publishes of the batch that were superseded after it was queued, and stops tracking
+   * the others as unsent. Superseded publishes are already completed and accounted for, so this
+   * must run before the batch is sent, succeeds or fails.
+   */
+  private void removeSupersededPublishes(OutstandingBatch outstandingBatch) {
+    if (compactionAttribute == null
+        || outstandingBatch.orderingKey == null
+        || outstandingBatch.orderingKey.isEmpty()) {
+      return;
+    }
+    messagesBatchLock.lock();
+    try {
+      Map<String, OutstandingPublish> unsentPublishes =
+          unsentCompactablePublishes.get(outstandingBatch.orderingKey);
+      Iterator<OutstandingPublish> publishes = outstandingBatch.outstandingPublishes.iterator();
+      while (publishes.hasNext()) {
+        OutstandingPublish outstandingPublish = publishes.next();
+        if (outstandingPublish.superseded) {
+          publishes.remove();
+          outstandingBatch.batchSizeBytes -= outstandingPublish.messageSize;
+        } else if (outstandingPublish.compactionValue != null && unsentPublishes != null) {
+          unsentPublishes.remove(outstandingPublish.compactionValue, outstandingPublish);
+        }
+      }
+      if (unsentPublishes != null && unsentPublishes.isEmpty()) {
+        unsentCompactablePublishes.remove(outstandingBatch.orderingKey);
       }
     } finally {
       messagesBatchLock.unlock();
@@ -477,9 +736,36 @@ public class Publisher implements PublisherInterface {
   }
 
   private ApiFuture<PublishResponse> publishCall(OutstandingBatch outstandingBatch) {
+    removeSupersededPublishes(outstandingBatch);
+    if (outstandingBatch.size() == 0) {
+      return ApiFutures.immediateFuture(PublishResponse.getDefaultInstance());
+    }
+    Object publishRpcEvent = FlightRecorderEvents.beginPublishRpc();
     GrpcCallContext context = publishContext;
+    boolean sampleCompression = false;
     if (enableCompression && outstandingBatch.batchSizeBytes >= compressionBytesThreshold) {
       context = publishContextWithCompression;
+      sampleCompression =
+          compressionRatioEstimator != null && compressionRatioEstimator.shouldSample();
+    }
+
+    if (outstandingBatch.encodedRequest != null) {
+      List<PubsubMessageWrapper> messageWrappers = outstandingBatch.getMessageWrappers();
+      for (PubsubMessageWrapper messageWrapper : messageWrappers) {
+        tracer.endPublishBatchingSpan(messageWrapper);
+      }
+      outstandingBatch.publishRpcSpan = tracer.startPublishRpcSpan(topicName, messageWrappers);
+      if (sampleCompression) {
+        compressionRatioEstimator.sample(outstandingBatch.encodedRequest);
+      }
+      return recordPublishRpc(
+          outstandingBatch,
+          publishRpcEvent,
+          publisherStub
+              .publishCallable()
+              .futureCall(
+                  publishRequestMarshaller.newRequest(topicName, outstandingBatch.encodedRequest),
+                  context));
     }
 
     int numMessagesInBatch = outstandingBatch.size();
@@ -492,14 +778,51 @@ public class Publisher implements PublisherInterface {
 
     outstandingBatch.publishRpcSpan = tracer.startPublishRpcSpan(topicName, messageWrappers);
 
-    return publisherStub
-        .publishCallable()
-        .futureCall(
-            PublishRequest.newBuilder()
-                .setTopic(topicName)
-                .addAllMessages(pubsubMessagesList)
-                .build(),
-            context);
+    PublishRequest request =
+        PublishRequest.newBuilder().setTopic(topicName).addAllMessages(pubsubMessagesList).build();
+    if (sampleCompression) {
+      compressionRatioEstimator.sample(request);
+    }
+    return recordPublishRpc(
+        outstandingBatch,
+        publishRpcEvent,
+        publisherStub.publishCallable().futureCall(request, context));
+  }
+
+  private ApiFuture<PublishResponse> recordPublishRpc(
+      final OutstandingBatch outstandingBatch,
+      @Nullable final Object publishRpcEvent,
+      ApiFuture<PublishResponse> future) {
+    if (!metrics.isEnabled() && publishRpcEvent == null) {
+      return future;
+    }
+    metrics.recordPublishRpcStart(outstandingBatch.size(), outstandingBatch.batchSizeBytes);
+    ApiFutures.addCallback(
+        future,
+        new ApiFutureCallback<PublishResponse>() {
+          @Override
+          public void onSuccess(PublishResponse response) {
+            onCompletion(null);
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            onCompletion(t);
+          }
+
+          private void onCompletion(@Nullable Throwable t) {
+            metrics.recordPublishRpcEnd();
+            FlightRecorderEvents.endPublishRpc(
+                publishRpcEvent,
+                topicName,
+                outstandingBatch.orderingKey,
+                outstandingBatch.size(),
+                outstandingBatch.batchSizeBytes,
+                t);
+          }
+        },
+        directExecutor());
+    return future;
   }
 
   private void publishOutstandingBatch(final OutstandingBatch outstandingBatch) {
@@ -511,6 +834,7 @@ public class Publisher implements PublisherInterface {
         new ApiFutureCallback<PublishResponse>() {
           @Override
           public void onSuccess(PublishResponse result) {
+            removeSupersededPublishes(outstandingBatch);
             try {
               if (result == null || result.getMessageIdsCount() != outstandingBatch.size()) {
                 outstandingBatch.onFailure(
@@ -535,6 +859,8 @@ public class Publisher implements PublisherInterface {
 
           @Override
           public void onFailure(Throwable t) {
+            // A queued batch is failed without being sent when the batch ahead of it fails.
+            removeSupersededPublishes(outstandingBatch);
             try {
               if (outstandingBatch.orderingKey != null && !outstandingBatch.orderingKey.isEmpty()) {
                 messagesBatchLock.lock();
@@ -542,11 +868,14 @@ public class Publisher implements PublisherInterface {
                   MessagesBatch messagesBatch = messagesBatches.get(outstandingBatch.orderingKey);
                   if (messagesBatch != null) {
                     for (OutstandingPublish outstanding : messagesBatch.messages) {
+                      releaseFlowControl(outstandingBatch.orderingKey, outstanding);
                       outstanding.publishResult.setException(
                           SequentialExecutorService.CallbackExecutor.CANCELLATION_EXCEPTION);
                     }
                     messagesBatches.remove(outstandingBatch.orderingKey);
                   }
+                  // The key's unsent publishes are all failed or cancelled.
+                  unsentCompactablePublishes.remove(outstandingBatch.orderingKey);
                 } finally {
                   messagesBatchLock.unlock();
                 }
@@ -572,7 +901,23 @@ public class Publisher implements PublisherInterface {
                 }
               });
     }
-    ApiFutures.addCallback(future, futureCallback, directExecutor());
+    ApiFutures.addCallback(
+        future, futureCallback, getCallbackExecutor(outstandingBatch.orderingKey));
+  }
+
+  private Executor getCallbackExecutor(final String orderingKey) {
+    if (orderedCallbackExecutor == null) {
+      return directExecutor();
+    }
+    if (orderingKey == null || orderingKey.isEmpty()) {
+      return publishExecutor;
+    }
+    return new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        orderedCallbackExecutor.submit(orderingKey, command);
+      }
+    };
   }
 
   private final class OutstandingBatch {
@@ -581,15 +926,21 @@ public class Publisher implements PublisherInterface {
     int attempt;
     int batchSizeBytes;
     final String orderingKey;
+    // The serialized PublishRequest, if messages were serialized as they were batched.
+    @Nullable final ByteString encodedRequest;
     Span publishRpcSpan;
 
     OutstandingBatch(
-        List<OutstandingPublish> outstandingPublishes, int batchSizeBytes, String orderingKey) {
+        List<OutstandingPublish> outstandingPublishes,
+        int batchSizeBytes,
+        String orderingKey,
+        @Nullable ByteString encodedRequest) {
       this.outstandingPublishes = outstandingPublishes;
       attempt = 1;
       creationTime = System.currentTimeMillis();
       this.batchSizeBytes = batchSizeBytes;
       this.orderingKey = orderingKey;
+      this.encodedRequest = encodedRequest;
     }
 
     int size() {
@@ -608,9 +959,8 @@ public class Publisher implements PublisherInterface {
       tracer.setPublishRpcSpanException(publishRpcSpan, t);
 
       for (OutstandingPublish outstandingPublish : outstandingPublishes) {
-        if (flowController != null) {
-          flowController.release(outstandingPublish.messageSize);
-        }
+        releaseFlowControl(orderingKey, outstandingPublish);
+        metrics.recordPublishLatency(outstandingPublish.publishNanos, false);
         outstandingPublish.publishResult.setException(t);
         tracer.endPublisherSpan(outstandingPublish.messageWrapper);
       }
@@ -622,9 +972,8 @@ public class Publisher implements PublisherInterface {
       Iterator<OutstandingPublish> messagesResultsIt = outstandingPublishes.iterator();
       for (String messageId : results) {
         OutstandingPublish nextPublish = messagesResultsIt.next();
-        if (flowController != null) {
-          flowController.release(nextPublish.messageSize);
-        }
+        releaseFlowControl(orderingKey, nextPublish);
+        metrics.recordPublishLatency(nextPublish.publishNanos, true);
         nextPublish.publishResult.set(messageId);
         tracer.setPublisherMessageIdSpanAttribute(nextPublish.messageWrapper, messageId);
         tracer.endPublisherSpan(nextPublish.messageWrapper);
@@ -636,10 +985,19 @@ public class Publisher implements PublisherInterface {
     final SettableApiFuture<String> publishResult;
     final PubsubMessageWrapper messageWrapper;
     final int messageSize;
-
-    OutstandingPublish(PubsubMessageWrapper messageWrapper) {
+    // The value of the compaction attribute, if a newer message can replace this one.
+    @Nullable final String compactionValue;
+    // When publish was called, if metrics are recorded.
+    final long publishNanos;
+    // Guarded by messagesBatchLock.
+    boolean superseded;
+
+    OutstandingPublish(
+        PubsubMessageWrapper messageWrapper, @Nullable String compactionValue, long publishNanos) {
       this.publishResult = SettableApiFuture.create();
       this.messageWrapper = messageWrapper;
+      this.compactionValue = compactionValue;
+      this.publishNanos = publishNanos;
       this.messageSize =
           CodedOutputStream.computeMessageSize(
               PublishRequest.MESSAGES_FIELD_NUMBER, messageWrapper.getPubsubMessage());
@@ -664,8 +1022,14 @@ public class Publisher implements PublisherInterface {
     if (currentAlarmFuture != null && activeAlarm.getAndSet(false)) {
       currentAlarmFuture.cancel(false);
     }
+    if (schemaValidator != null) {
+      schemaValidator.stop(executor);
+    }
     publishAllOutstanding();
     messagesWaiter.waitComplete();
+    if (compressionRatioEstimator != null) {
+      compressionRatioEstimator.close();
+    }
     backgroundResources.shutdown();
   }
 
@@ -764,6 +1128,10 @@ public class Publisher implements PublisherInterface {
         InstantiatingExecutorProvider.newBuilder()
             .setExecutorThreadCount(THREADS_PER_CPU * Runtime.getRuntime().availableProcessors())
             .build();
+    static final ExecutorProvider VIRTUAL_THREADS_TIMER_EXECUTOR_PROVIDER =
+        InstantiatingExecutorProvider.newBuilder()
+            .setExecutorThreadCount(Runtime.getRuntime().availableProcessors())
+            .build();
     static final boolean DEFAULT_ENABLE_COMPRESSION = false;
     static final long DEFAULT_COMPRESSION_BYTES_THRESHOLD = 240L;
 
@@ -777,6 +1145,10 @@ public class Publisher implements PublisherInterface {
     RetrySettings retrySettings = DEFAULT_RETRY_SETTINGS;
 
     private boolean enableMessageOrdering = DEFAULT_ENABLE_MESSAGE_ORDERING;
+    private String compactionAttribute = null;
+    private SchemaValidator schemaValidator = null;
+    private FlowControlSettings orderingKeyFlowControlSettings = null;
+    private int hotOrderingKeyCount = 0;
 
     private TransportChannelProvider channelProvider =
         TopicAdminSettings.defaultGrpcTransportProviderBuilder().setChannelsPerCpu(1).build();
@@ -798,6 +1170,9 @@ public class Publisher implements PublisherInterface {
 
     private boolean enableCompression = DEFAULT_ENABLE_COMPRESSION;
     private long compressionBytesThreshold = DEFAULT_COMPRESSION_BYTES_THRESHOLD;
+    private long compressedRequestBytesThreshold = 0;
+    private boolean useVirtualThreads = false;
+    private boolean enableIncrementalSerialization = false;
 
     private boolean enableOpenTelemetryTracing = false;
     private OpenTelemetry openTelemetry = null;
@@ -889,6 +1264,74 @@ public class Publisher implements PublisherInterface {
       return this;
     }
 
+    /**
+     * Replaces unsent messages with newer ones, for messages with an ordering key where only the
+     * latest value matters. A message with an ordering key and the given attribute replaces the
+     * previous message published with the same ordering key and attribute value, if that message
+     * has not been sent yet because it is still being batched or is waiting for an earlier batch of
+     * its ordering key. The future returned for the replaced message fails with a {@link
+     * MessageSupersededException}. Messages without the attribute are never replaced.
+     *
+     * <p>Only messages with an ordering key are replaced, so this requires {@link
+     * #setEnableMessageOrdering(boolean)}. Messages are not serialized incrementally when this is
+     * set, see {@link #setEnableIncrementalSerialization(boolean)}.
+     */
+    @BetaApi
+    public Builder setCompactionAttribute(String compactionAttribute) {
+      this.compactionAttribute = Preconditions.checkNotNull(compactionAttribute);
+      return this;
+    }
+
+    /**
+     * Validates messages against a schema before they are published, so that invalid messages are
+     * not sent. The future returned for an invalid message fails with a {@link
+     * SchemaValidationException}, or with the error that kept the revisions of the schema from
+     * being fetched. As with other failed publishes, the ordering key of such a message is paused
+     * until {@link Publisher#resumePublish(String)} is called.
+     *
+     * <p>Messages are validated on the publishing thread, after the message transform, see {@link
+     * SchemaValidator}. Unless the validator has its own executor, the revisions of the schema are
+     * fetched on the executor of the publisher, and messages published before they are first
+     * fetched are not validated.
+     */
+    @BetaApi
+    public Builder setSchemaValidator(SchemaValidator schemaValidator) {
+      this.schemaValidator = Preconditions.checkNotNull(schemaValidator);
+      return this;
+    }
+
+    /**
+     * Limits the messages and bytes that are outstanding for each ordering key, in addition to the
+     * flow control settings of the batching settings, which limit all messages together. This keeps
+     * a key that is slow, or paused after a failure, from taking up the whole budget and blocking
+     * the publishes of other keys.
+     *
+     * <p>When a key reaches its limit, further publishes with that key block or fail, as set by the
+     * limit exceeded behavior of {@code settings}; other keys are not affected. As with the
+     * publisher-wide limits, a publish that fails pauses its ordering key until {@link
+     * Publisher#resumePublish(String)} is called. Messages without an ordering key are not limited
+     * by these settings.
+     */
+    @BetaApi
+    public Builder setOrderingKeyFlowControlSettings(FlowControlSettings settings) {
+      this.orderingKeyFlowControlSettings = Preconditions.checkNotNull(settings);
+      return this;
+    }
+
+    /**
+     * Tracks the {@code keyCount} ordering keys with the most published messages, with their
+     * published and outstanding messages and bytes, see {@link Publisher#getHotOrderingKeys()}.
+     * Keys are counted approximately with a fixed number of counters, 10 for each key reported,
+     * over all messages published since the publisher was created. Defaults to 0, which disables
+     * tracking.
+     */
+    @BetaApi
+    public Builder setHotOrderingKeyCount(int keyCount) {
+      Preconditions.checkArgument(keyCount >= 0);
+      this.hotOrderingKeyCount = keyCount;
+      return this;
+    }
+
     /** Gives the ability to set a custom executor to be used by the library. */
     public Builder setExecutorProvider(ExecutorProvider executorProvider) {
       this.executorProvider = Preconditions.checkNotNull(executorProvider);
@@ -918,6 +1361,33 @@ public class Publisher implements PublisherInterface {
       return this;
     }
 
+    /**
+     * Sends batches and runs publish callbacks on virtual threads, so that callbacks doing blocking
+     * I/O do not tie up a platform thread. Callbacks for the same ordering key still run in order.
+     * Batching timers and RPC retries keep running on platform threads; if no executor provider is
+     * set, a smaller default pool is used for them.
+     *
+     * <p>Virtual threads require JDK 21 or later and are detected at runtime; on older runtimes a
+     * warning is logged and the executor provider is used for everything.
+     */
+    @BetaApi
+    public Builder setUseVirtualThreads(boolean useVirtualThreads) {
+      this.useVirtualThreads = useVirtualThreads;
+      return this;
+    }
+
+    /**
+     * Serializes each message into its batch's request as soon as it is added to the batch, instead
+     * of building the whole request when the batch is sent. The publisher then no longer references
+     * the {@link PubsubMessage} once it is batched, so it can be garbage collected early, and
+     * sending a batch no longer copies its messages into a new request. Defaults to false.
+     */
+    @BetaApi
+    public Builder setEnableIncrementalSerialization(boolean enableIncrementalSerialization) {
+      this.enableIncrementalSerialization = enableIncrementalSerialization;
+      return this;
+    }
+
     /** Gives the ability to enable transport compression. */
     public Builder setEnableCompression(boolean enableCompression) {
       this.enableCompression = enableCompression;
@@ -933,6 +1403,25 @@ public class Publisher implements PublisherInterface {
       return this;
     }
 
+    /**
+     * Sends a batch once its estimated compressed size reaches this many bytes, instead of once its
+     * uncompressed size reaches the request byte threshold of the batching settings. This packs
+     * more messages into each request when they compress well. Only takes effect if
+     * setEnableCompression(true) is also called.
+     *
+     * <p>The compressed size is estimated by compressing a sample of the requests that are sent.
+     * The uncompressed size of a batch is still limited to {@link #getApiMaxRequestBytes()}, which
+     * the server applies after decompressing, and the element count and delay thresholds of the
+     * batching settings still apply; the element count threshold may have to be raised for this
+     * setting to have an effect. Defaults to 0, which disables it.
+     */
+    @BetaApi
+    public Builder setCompressedRequestBytesThreshold(long compressedRequestBytesThreshold) {
+      Preconditions.checkArgument(compressedRequestBytesThreshold >= 0);
+      this.compressedRequestBytesThreshold = compressedRequestBytesThreshold;
+      return this;
+    }
+
     /**
      * OpenTelemetry will be enabled if setEnableOpenTelemetry is true and and instance of
      * OpenTelemetry has been provied. Warning: traces are subject to change. The name and
@@ -947,7 +1436,13 @@ public class Publisher implements PublisherInterface {
       return this;
     }
 
-    /** Sets the instance of OpenTelemetry for the Publisher class. */
+    /**
+     * Sets the instance of OpenTelemetry for the Publisher class.
+     *
+     * <p>When set, metrics such as publish latency, batch sizes, flow control wait and outstanding
+     * messages are recorded with its meter provider. Traces are only recorded if {@link
+     * #setEnableOpenTelemetryTracing(boolean)} is also set.
+     */
     public Builder setOpenTelemetry(OpenTelemetry openTelemetry) {
       this.openTelemetry = openTelemetry;
       return this;
@@ -1103,6 +1598,10 @@ public class Publisher implements PublisherInterface {
     private int batchedBytes;
     private String orderingKey;
     private final BatchingSettings batchingSettings;
+    // The request being serialized, created by the first add after a reset when serializing
+    // incrementally.
+    private ByteString.Output encodedRequest;
+    private CodedOutputStream encoder;
 
     private MessagesBatch(
         BatchingSettings batchingSettings, int initialBatchedBytes, String orderingKey) {
@@ -1112,8 +1611,17 @@ public class Publisher implements PublisherInterface {
       reset();
     }
 
-    private OutstandingBatch popOutstandingBatch() {
-      OutstandingBatch batch = new OutstandingBatch(messages, batchedBytes, orderingKey);
+    private void remove(OutstandingPublish outstandingPublish) {
+      if (messages.remove(outstandingPublish)) {
+        batchedBytes -= outstandingPublish.messageSize;
+      }
+    }
+
+    private OutstandingBatch popOutstandingBatch(String reason) {
+      FlightRecorderEvents.batchFlushed(
+          topicName, orderingKey, reason, messages.size(), batchedBytes);
+      OutstandingBatch batch =
+          new OutstandingBatch(messages, batchedBytes, orderingKey, takeEncodedRequest());
       reset();
       return batch;
     }
@@ -1121,6 +1629,45 @@ public class Publisher implements PublisherInterface {
     private void reset() {
       messages = new LinkedList<>();
       batchedBytes = initialBatchedBytes;
+      encodedRequest = null;
+      encoder = null;
+    }
+
+    /**
+     * Serializes the message into the request of this batch and drops the reference to it, leaving
+     * only what the tracer needs.
+     */
+    private void encode(OutstandingPublish outstandingPublish) {
+      PubsubMessageWrapper messageWrapper = outstandingPublish.messageWrapper;
+      try {
+        if (encoder == null) {
+          encodedRequest = ByteString.newOutput();
+          encoder = CodedOutputStream.newInstance(encodedRequest);
+          encoder.writeString(PublishRequest.TOPIC_FIELD_NUMBER, topicName);
+        }
+        encoder.writeMessage(
+            PublishRequest.MESSAGES_FIELD_NUMBER, messageWrapper.getPubsubMessage());
+      } catch (IOException e) {
+        // ByteString.Output does not throw.
+        throw new IllegalStateException(e);
+      }
+      messageWrapper.setPubsubMessage(null);
+    }
+
+    @Nullable
+    private ByteString takeEncodedRequest() {
+      if (publishRequestMarshaller == null) {
+        return null;
+      }
+      if (encoder == null) {
+        return PublishRequest.newBuilder().setTopic(topicName).build().toByteString();
+      }
+      try {
+        encoder.flush();
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      return encodedRequest.toByteString();
     }
 
     private boolean isEmpty() {
@@ -1139,6 +1686,15 @@ public class Publisher implements PublisherInterface {
       return getMaxBatchBytes() > 0;
     }
 
+    /** Returns whether a batch of {@code batchBytes} uncompressed bytes has to be sent. */
+    private boolean reachesMaxBatchBytes(long batchBytes) {
+      if (compressionRatioEstimator == null) {
+        return hasBatchingBytes() && batchBytes >= getMaxBatchBytes();
+      }
+      return batchBytes >= getApiMaxRequestBytes()
+          || batchBytes * compressionRatioEstimator.getRatio() >= compressedRequestBytesThreshold;
+    }
+
     private long getMaxBatchBytes() {
       return batchingSettings.getRequestByteThreshold();
     }
@@ -1146,14 +1702,15 @@ public class Publisher implements PublisherInterface {
     private List<OutstandingBatch> add(OutstandingPublish outstandingPublish) {
       List<OutstandingBatch> batchesToSend = new ArrayList<>();
       // Check if the next message makes the current batch exceed the max batch byte size.
-      if (!isEmpty()
-          && hasBatchingBytes()
-          && getBatchedBytes() + outstandingPublish.messageSize >= getMaxBatchBytes()) {
-        batchesToSend.add(popOutstandingBatch());
+      if (!isEmpty() && reachesMaxBatchBytes(getBatchedBytes() + outstandingPublish.messageSize)) {
+        batchesToSend.add(popOutstandingBatch(FlightRecorderEvents.FLUSH_REASON_BYTES));
       }
 
       messages.add(outstandingPublish);
       batchedBytes += outstandingPublish.messageSize;
+      if (publishRequestMarshaller != null) {
+        encode(outstandingPublish);
+      }
 
       // Border case: If the message to send is greater or equals to the max batch size then send it
       // immediately.
@@ -1161,9 +1718,11 @@ public class Publisher implements PublisherInterface {
       // have a batch to send.
       // Note that exceeding {@link Publisher#getApiMaxRequestBytes()} will result in failed
       // publishes without compression and may yet fail if a request is not sufficiently compressed.
-      if ((hasBatchingBytes() && getBatchedBytes() >= getMaxBatchBytes())
-          || getMessagesCount() == batchingSettings.getElementCountThreshold()) {
-        batchesToSend.add(popOutstandingBatch());
+      // When batches are sized by their compressed size, they are kept below that limit.
+      if (reachesMaxBatchBytes(getBatchedBytes())) {
+        batchesToSend.add(popOutstandingBatch(FlightRecorderEvents.FLUSH_REASON_BYTES));
+      } else if (getMessagesCount() == batchingSettings.getElementCountThreshold()) {
+        batchesToSend.add(popOutstandingBatch(FlightRecorderEvents.FLUSH_REASON_COUNT));
       }
 
       return batchesToSend;
@@ -17,7 +17,12 @@
 package com.google.cloud.pubsub.v1;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.core.BetaApi;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.UnsafeByteOperations;
 import com.google.pubsub.v1.PubsubMessage;
+import java.nio.ByteBuffer;
+import java.util.Map;
 
 /**
  * An interface for a Cloud Pub/Sub <a
@@ -52,4 +57,39 @@ public interface PublisherInterface {
    * @return the message ID wrapped in a future.
    */
   ApiFuture<String> publish(PubsubMessage message);
+
+  /**
+   * Schedules the publishing of a message whose data are the remaining bytes of {@code data},
+   * without copying them into a {@link com.google.protobuf.ByteString}. The buffer may be a heap or
+   * a direct buffer; its position and limit are not changed.
+   *
+   * <p>The publisher reads the bytes until the returned future completes, successfully or not, and
+   * then runs {@code releaseCallback}, after which the buffer may be reused, for example by
+   * returning it to a pool. The bytes must not be modified before then. The callback runs on the
+   * thread that completes the future, or on the calling thread if this method throws, and should be
+   * fast.
+   *
+   * @param data the message data.
+   * @param attributes the message attributes.
+   * @param releaseCallback run once the publisher no longer uses {@code data}.
+   * @return the message ID wrapped in a future.
+   */
+  @BetaApi
+  default ApiFuture<String> publish(
+      ByteBuffer data, Map<String, String> attributes, Runnable releaseCallback) {
+    PubsubMessage message =
+        PubsubMessage.newBuilder()
+            .setData(UnsafeByteOperations.unsafeWrap(data))
+            .putAllAttributes(attributes)
+            .build();
+    ApiFuture<String> messageIdFuture;
+    try {
+      messageIdFuture = publish(message);
+    } catch (RuntimeException e) {
+      releaseCallback.run();
+      throw e;
+    }
+    messageIdFuture.addListener(releaseCallback, MoreExecutors.directExecutor());
+    return messageIdFuture;
+  }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.common.base.Preconditions;
+import com.google.protobuf.ByteString;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * A {@link MessageCodec} that decodes the data of each schema revision with a decoder created once
+ * per revision, see {@link MessageCodec#withRevisionDecoders}.
+ *
+ * <p>Decoders are created outside of the map, since creating one may fetch the revision from the
+ * service; two threads seeing a new revision at once may both create a decoder, and one of them is
+ * kept. The map is not bounded, since a schema has few revisions.
+ */
+final class RevisionCachingMessageCodec<T> implements MessageCodec<T> {
+  private final MessageCodec<T> codec;
+  private final Function<String, MessageCodec<T>> decoderForRevision;
+  private final ConcurrentMap<String, MessageCodec<T>> decoders = new ConcurrentHashMap<>();
+
+  RevisionCachingMessageCodec(
+      MessageCodec<T> codec, Function<String, MessageCodec<T>> decoderForRevision) {
+    this.codec = Preconditions.checkNotNull(codec);
+    this.decoderForRevision = Preconditions.checkNotNull(decoderForRevision);
+  }
+
+  @Override
+  public ByteString encode(T value) {
+    return codec.encode(value);
+  }
+
+  @Override
+  public T decode(ByteString data, String schemaRevisionId) {
+    return getDecoder(schemaRevisionId).decode(data, schemaRevisionId);
+  }
+
+  private MessageCodec<T> getDecoder(String schemaRevisionId) {
+    if (schemaRevisionId.isEmpty()) {
+      return codec;
+    }
+    MessageCodec<T> decoder = decoders.get(schemaRevisionId);
+    if (decoder == null) {
+      MessageCodec<T> newDecoder =
+          Preconditions.checkNotNull(
+              decoderForRevision.apply(schemaRevisionId),
+              "No decoder for schema revision %s",
+              schemaRevisionId);
+      decoder = decoders.putIfAbsent(schemaRevisionId, newDecoder);
+      if (decoder == null) {
+        decoder = newDecoder;
+      }
+    }
+    return decoder;
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.BetaApi;
+
+/** Thrown by a {@link SchemaValidator} when a message does not conform to the schema. */
+@BetaApi
+public final class SchemaValidationException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  private final String schemaName;
+  private final String revisionId;
+
+  SchemaValidationException(String schemaName, String revisionId, Throwable cause) {
+    super(
+        "Message does not conform to schema "
+            + schemaName
+            + " at revision "
+            + revisionId
+            + ": "
+            + cause.getMessage(),
+        cause);
+    this.schemaName = schemaName;
+    this.revisionId = revisionId;
+  }
+
+  /** Returns the name of the schema the message was validated against. */
+  public String getSchemaName() {
+    return schemaName;
+  }
+
+  /** Returns the ID of the newest revision of the schema the message was validated against. */
+  public String getRevisionId() {
+    return revisionId;
+  }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.BetaApi;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.Encoding;
+import com.google.pubsub.v1.GetSchemaRequest;
+import com.google.pubsub.v1.ListSchemaRevisionsRequest;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.Schema;
+import com.google.pubsub.v1.SchemaSettings;
+import com.google.pubsub.v1.SchemaView;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Validates messages against the revisions of a schema locally, instead of calling {@link
+ * SchemaServiceClient#validateMessage} for every message.
+ *
+ * <p>The revisions are fetched with the {@link SchemaServiceClient} in the background, on the
+ * executor set with {@link Builder#setExecutor(ScheduledExecutorService)} or otherwise on the
+ * executor of the first publisher the validator is set on, and compiled once per revision ID.
+ * Validating a message never waits for them: until they are first fetched, messages are not
+ * validated locally. They are fetched again, reusing the compiled revisions that are still listed,
+ * once the refresh interval has passed; until then revisions added to the schema are not seen. If a
+ * fetch fails, the revisions fetched before keep being used and the fetch is retried with
+ * exponential backoff, up to the refresh interval. The client is not closed by the validator.
+ *
+ * <p>A message is valid if it conforms to any revision between the first and last revision IDs that
+ * were set, which defaults to all revisions, as for the {@link SchemaSettings} of a topic. The data
+ * of Avro messages is validated against the Avro binary or JSON encoding, and that of protocol
+ * buffer messages against the protocol buffer binary or JSON encoding.
+ *
+ * <p>The validator can be set on a publisher with {@link
+ * Publisher.Builder#setSchemaValidator(SchemaValidator)}, to fail the publish of invalid messages
+ * before they are sent. It is thread-safe.
+ */
+@BetaApi
+public final class SchemaValidator {
+  private static final Logger logger = Logger.getLogger(SchemaValidator.class.getName());
+
+  static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofMinutes(10);
+  static final Duration INITIAL_RETRY_DELAY = Duration.ofSeconds(1);
+
+  private final SchemaServiceClient schemaServiceClient;
+  private final String schemaName;
+  private final Encoding encoding;
+  private final String firstRevisionId;
+  private final String lastRevisionId;
+  private final long refreshIntervalNanos;
+
+  private final Lock refreshLock = new ReentrantLock();
+  // Guarded by refreshLock.
+  private Map<String, CompiledSchema> compiledRevisions = new HashMap<>();
+  private int consecutiveFailures;
+
+  private final Lock schedulingLock = new ReentrantLock();
+  // The executor revisions are fetched on, and the next fetch. Guarded by schedulingLock.
+  private ScheduledExecutorService executor;
+  private ScheduledFuture<?> nextRefresh;
+  // Changed by every start and stop, so that a fetch still running from before does not schedule
+  // another one. Guarded by schedulingLock.
+  private int generation;
+
+  // The compiled revisions, newest first, or null until they are first fetched.
+  private volatile List<Revision> revisions;
+  // Why the revisions could not be fetched, if they were never fetched.
+  private volatile RuntimeException fetchError;
+
+  private static final class Revision {
+    final String revisionId;
+    final CompiledSchema schema;
+
+    Revision(String revisionId, CompiledSchema schema) {
+      this.revisionId = revisionId;
+      this.schema = schema;
+    }
+  }
+
+  private SchemaValidator(Builder builder) {
+    schemaServiceClient = builder.schemaServiceClient;
+    schemaName = builder.schemaName;
+    encoding = builder.encoding;
+    firstRevisionId = builder.firstRevisionId;
+    lastRevisionId = builder.lastRevisionId;
+    refreshIntervalNanos = builder.refreshInterval.toNanos();
+  }
+
+  /**
+   * Constructs a new {@link Builder} of a validator of messages in the JSON encoding against all
+   * revisions of a schema.
+   *
+   * @param schemaServiceClient the client used to fetch the revisions of the schema
+   * @param schemaName the name of the schema, in the format {@code
+   *     projects/{project}/schemas/{schema}}
+   */
+  public static Builder newBuilder(SchemaServiceClient schemaServiceClient, String schemaName) {
+    return new Builder(schemaServiceClient, schemaName);
+  }
+
+  /**
+   * Constructs a new {@link Builder} of a validator of messages against the schema, encoding and
+   * revisions of the {@link SchemaSettings} of a topic.
+   */
+  public static Builder newBuilder(
+      SchemaServiceClient schemaServiceClient, SchemaSettings schemaSettings) {
+    Builder builder =
+        new Builder(schemaServiceClient, schemaSettings.getSchema())
+            .setFirstRevisionId(schemaSettings.getFirstRevisionId())
+            .setLastRevisionId(schemaSettings.getLastRevisionId());
+    if (schemaSettings.getEncoding() != Encoding.ENCODING_UNSPECIFIED) {
+      builder.setEncoding(schemaSettings.getEncoding());
+    }
+    return builder;
+  }
+
+  /** Returns the name of the schema messages are validated against. */
+  public String getSchemaName() {
+    return schemaName;
+  }
+
+  /** Returns the encoding of validated messages. */
+  public Encoding getEncoding() {
+    return encoding;
+  }
+
+  /**
+   * Validates the data of a message. The message is not validated if the revisions are still being
+   * fetched for the first time.
+   *
+   * @throws SchemaValidationException if the data does not conform to any of the revisions
+   * @throws com.google.api.gax.rpc.ApiException if the revisions could not be fetched
+   * @throws IllegalArgumentException if a revision could not be compiled
+   */
+  public void validate(PubsubMessage message) {
+    validate(message.getData());
+  }
+
+  /**
+   * Validates the data of a message. The data is not validated if the revisions are still being
+   * fetched for the first time.
+   *
+   * @throws SchemaValidationException if the data does not conform to any of the revisions
+   * @throws com.google.api.gax.rpc.ApiException if the revisions could not be fetched
+   * @throws IllegalArgumentException if a revision could not be compiled
+   */
+  public void validate(ByteString data) {
+    List<Revision> revisions = this.revisions;
+    if (revisions == null) {
+      RuntimeException error = fetchError;
+      if (error != null) {
+        throw error;
+      }
+      return;
+    }
+    IllegalArgumentException newestRevisionError = null;
+    for (Revision revision : revisions) {
+      try {
+        revision.schema.validate(data, encoding);
+        return;
+      } catch (IllegalArgumentException e) {
+        if (newestRevisionError == null) {
+          newestRevisionError = e;
+        }
+      }
+    }
+    throw new SchemaValidationException(
+        schemaName, revisions.get(0).revisionId, newestRevisionError);
+  }
+
+  /**
+   * Starts fetching the revisions on {@code executor}, unless they are already fetched on another
+   * executor.
+   */
+  void start(ScheduledExecutorService executor) {
+    schedulingLock.lock();
+    try {
+      if (this.executor != null) {
+        return;
+      }
+      this.executor = executor;
+      generation++;
+      scheduleRefresh(0);
+    } finally {
+      schedulingLock.unlock();
+    }
+  }
+
+  /** Stops fetching the revisions on {@code executor}, so that it can be shut down. */
+  void stop(ScheduledExecutorService executor) {
+    schedulingLock.lock();
+    try {
+      if (this.executor != executor) {
+        return;
+      }
+      this.executor = null;
+      generation++;
+      if (nextRefresh != null) {
+        nextRefresh.cancel(false);
+        nextRefresh = null;
+      }
+    } finally {
+      schedulingLock.unlock();
+    }
+  }
+
+  /** Schedules the next fetch. Must be called with schedulingLock held. */
+  private void scheduleRefresh(long delayNanos) {
+    final int scheduledGeneration = generation;
+    try {
+      ScheduledFuture<?> refresh =
+          executor.schedule(
+              new Runnable() {
+                @Override
+                public void run() {
+                  refresh(scheduledGeneration);
+                }
+              },
+              delayNanos,
+              TimeUnit.NANOSECONDS);
+      // An executor that ran the fetch right away has already scheduled the next one.
+      if (!refresh.isDone()) {
+        nextRefresh = refresh;
+      }
+    } catch (RejectedExecutionException e) {
+      // The executor is shut down, let the next publisher the validator is set on take over.
+      executor = null;
+      nextRefresh = null;
+    }
+  }
+
+  private void refresh(int scheduledGeneration) {
+    long delayNanos;
+    refreshLock.lock();
+    try {
+      revisions = fetchRevisions();
+      fetchError = null;
+      consecutiveFailures = 0;
+      delayNanos = refreshIntervalNanos;
+    } catch (RuntimeException e) {
+      boolean fetchedBefore = revisions != null;
+      if (!fetchedBefore) {
+        fetchError = e;
+      }
+      logger.log(
+          Level.WARNING,
+          "Failed to fetch the revisions of schema "
+              + schemaName
+              + (fetchedBefore ? ", keeping the previous ones" : ""),
+          e);
+      consecutiveFailures++;
+      delayNanos =
+          Math.min(
+              INITIAL_RETRY_DELAY.toNanos() << Math.min(consecutiveFailures - 1, 20),
+              refreshIntervalNanos);
+    } finally {
+      refreshLock.unlock();
+    }
+    schedulingLock.lock();
+    try {
+      if (executor != null && generation == scheduledGeneration) {
+        scheduleRefresh(delayNanos);
+      }
+    } finally {
+      schedulingLock.unlock();
+    }
+  }
+
+  /** Fetches and compiles the revisions, newest first. Must be called with refreshLock held. */
+  private List<Revision> fetchRevisions() {
+    ImmutableList.Builder<Schema> schemas = ImmutableList.builder();
+    if (!firstRevisionId.isEmpty() && firstRevisionId.equals(lastRevisionId)) {
+      schemas.add(
+          schemaServiceClient.getSchema(
+              GetSchemaRequest.newBuilder()
+                  .setName(schemaName + "@" + firstRevisionId)
+                  .setView(SchemaView.FULL)
+                  .build()));
+    } else {
+      // Revisions are listed newest first, so the last revision comes before the first one.
+      boolean inRange = lastRevisionId.isEmpty();
+      for (Schema schema :
+          schemaServiceClient
+              .listSchemaRevisions(
+                  ListSchemaRevisionsRequest.newBuilder()
+                      .setName(schemaName)
+                      .setView(SchemaView.FULL)
+                      .build())
+              .iterateAll()) {
+        inRange = inRange || schema.getRevisionId().equals(lastRevisionId);
+        if (inRange) {
+          schemas.add(schema);
+          if (schema.getRevisionId().equals(firstRevisionId)) {
+            break;
+          }
+        }
+      }
+    }
+
+    Map<String, CompiledSchema> compiled = new HashMap<>();
+    ImmutableList.Builder<Revision> revisions = ImmutableList.builder();
+    for (Schema schema : schemas.build()) {
+      CompiledSchema compiledSchema = compiledRevisions.get(schema.getRevisionId());
+      if (compiledSchema == null) {
+        compiledSchema = CompiledSchema.compile(schema);
+      }
+      compiled.put(schema.getRevisionId(), compiledSchema);
+      revisions.add(new Revision(schema.getRevisionId(), compiledSchema));
+    }
+    if (compiled.isEmpty()) {
+      throw new IllegalArgumentException(
+          "Schema " + schemaName + " has no revisions in the range of the validator");
+    }
+    compiledRevisions = compiled;
+    return revisions.build();
+  }
+
+  /** Builder of {@link SchemaValidator SchemaValidators}. */
+  public static final class Builder {
+    private final SchemaServiceClient schemaServiceClient;
+    private final String schemaName;
+    private Encoding encoding = Encoding.JSON;
+    private String firstRevisionId = "";
+    private String lastRevisionId = "";
+    private Duration refreshInterval = DEFAULT_REFRESH_INTERVAL;
+    private ScheduledExecutorService executor = null;
+
+    private Builder(SchemaServiceClient schemaServiceClient, String schemaName) {
+      Preconditions.checkNotNull(schemaServiceClient);
+      Preconditions.checkArgument(!schemaName.isEmpty(), "schemaName must be set");
+      this.schemaServiceClient = schemaServiceClient;
+      this.schemaName = schemaName;
+    }
+
+    /** Sets the encoding of validated messages, {@link Encoding#JSON} by default. */
+    public Builder setEncoding(Encoding encoding) {
+      Preconditions.checkArgument(
+          encoding == Encoding.JSON || encoding == Encoding.BINARY,
+          "encoding must be JSON or BINARY");
+      this.encoding = encoding;
+      return this;
+    }
+
+    /**
+     * Sets the ID of the oldest revision messages are validated against. By default, messages are
+     * validated against all revisions up to the last one.
+     */
+    public Builder setFirstRevisionId(String firstRevisionId) {
+      this.firstRevisionId = Preconditions.checkNotNull(firstRevisionId);
+      return this;
+    }
+
+    /**
+     * Sets the ID of the newest revision messages are validated against. By default, messages are
+     * validated against all revisions from the first one, including those added later.
+     */
+    public Builder setLastRevisionId(String lastRevisionId) {
+      this.lastRevisionId = Preconditions.checkNotNull(lastRevisionId);
+      return this;
+    }
+
+    /**
+     * Sets how long fetched revisions are used before they are fetched again, 10 minutes by
+     * default.
+     */
+    public Builder setRefreshInterval(Duration refreshInterval) {
+      Preconditions.checkArgument(
+          refreshInterval.compareTo(Duration.ZERO) > 0, "refreshInterval must be positive");
+      this.refreshInterval = refreshInterval;
+      return this;
+    }
+
+    /**
+     * Sets the executor the revisions are fetched on, starting with the first fetch when the
+     * validator is built. By default, they are fetched on the executor of the first publisher the
+     * validator is set on. The executor is not shut down by the validator.
+     */
+    public Builder setExecutor(ScheduledExecutorService executor) {
+      this.executor = Preconditions.checkNotNull(executor);
+      return this;
+    }
+
+    public SchemaValidator build() {
+      SchemaValidator validator = new SchemaValidator(this);
+      if (executor != null) {
+        validator.start(executor);
+      }
+      return validator;
+    }
+  }
+}
@@ -33,6 +33,8 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 interface CancellableRunnable extends Runnable {
   void cancel(Throwable e);
@@ -54,8 +56,10 @@ final class SequentialExecutorService {
    * predecessor has been completed while tasks with different keys can be run in parallel.
    */
   private abstract static class SequentialExecutor<R extends Runnable> {
-    // Maps keys to tasks.
+    // Maps keys to tasks. Guarded by tasksLock, a lock rather than a monitor so that virtual
+    // threads submitting tasks do not pin their carrier thread.
     protected final Map<String, Queue<R>> tasksByKey;
+    protected final Lock tasksLock = new ReentrantLock();
     protected final Executor executor;
 
     private SequentialExecutor(Executor executor) {
@@ -64,23 +68,30 @@ final class SequentialExecutorService {
     }
 
     boolean hasTasksInflight(String key) {
-      synchronized (tasksByKey) {
+      tasksLock.lock();
+      try {
         return tasksByKey.containsKey(key);
+      } finally {
+        tasksLock.unlock();
       }
     }
 
     protected void execute(final String key, R task) {
-      synchronized (tasksByKey) {
+      tasksLock.lock();
+      try {
         Queue<R> newTasks = tasksByKey.get(key);
         // If this key is already being handled, add it to the queue and return.
         if (newTasks != null) {
           newTasks.add(task);
+          FlightRecorderEvents.sequentialTaskQueued(key, newTasks.size());
           return;
         } else {
           newTasks = new LinkedList<>();
           newTasks.add(task);
           tasksByKey.put(key, newTasks);
         }
+      } finally {
+        tasksLock.unlock();
       }
 
       callNextTaskAsync(key);
@@ -88,13 +99,16 @@ final class SequentialExecutorService {
 
     protected void callNextTaskAsync(final String key) {
       boolean executeTask = true;
-      synchronized (tasksByKey) {
+      tasksLock.lock();
+      try {
         Queue<R> tasks = tasksByKey.get(key);
         if (tasks != null && tasks.isEmpty()) {
           // Only remove the Queue after all tasks were completed
           tasksByKey.remove(key);
           executeTask = false;
         }
+      } finally {
+        tasksLock.unlock();
       }
       if (executeTask) {
         executor.execute(
@@ -102,11 +116,14 @@ final class SequentialExecutorService {
               @Override
               public void run() {
                 R task = null;
-                synchronized (tasksByKey) {
+                tasksLock.lock();
+                try {
                   Queue<R> tasks = tasksByKey.get(key);
                   if (tasks != null && !tasks.isEmpty()) {
                     task = tasks.poll();
                   }
+                } finally {
+                  tasksLock.unlock();
                 }
                 if (task != null) {
                   task.run();
@@ -258,7 +275,8 @@ final class SequentialExecutorService {
     /** Cancels every task in the queue associated with {@code key}. */
     private void cancelQueuedTasks(final String key, Throwable e) {
       keysWithErrors.add(key);
-      synchronized (tasksByKey) {
+      tasksLock.lock();
+      try {
         final Queue<CancellableRunnable> tasks = tasksByKey.get(key);
         if (tasks != null) {
           while (!tasks.isEmpty()) {
@@ -266,6 +284,8 @@ final class SequentialExecutorService {
           }
           tasksByKey.remove(key);
         }
+      } finally {
+        tasksLock.unlock();
       }
     }
   }
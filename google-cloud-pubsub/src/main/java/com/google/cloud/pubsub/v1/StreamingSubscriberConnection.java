@@ -60,6 +60,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -96,6 +97,8 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
   private final String subscription;
   private final ScheduledExecutorService systemExecutor;
   private final MessageDispatcher messageDispatcher;
+  // Set when message data alias the received buffers, which must be handed to the dispatcher.
+  @Nullable private final AliasingStreamingPullResponseMarshaller responseMarshaller;
 
   private final FlowControlSettings flowControlSettings;
   private final boolean useLegacyFlowControl;
@@ -121,6 +124,7 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
 
   private final boolean enableOpenTelemetryTracing;
   private OpenTelemetryPubsubTracer tracer = new OpenTelemetryPubsubTracer(null, false);
+  private OpenTelemetryPubsubMetrics metrics = OpenTelemetryPubsubMetrics.disabled();
 
   private StreamingSubscriberConnection(Builder builder) {
     subscription = builder.subscription;
@@ -151,14 +155,22 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
     MessageDispatcher.Builder messageDispatcherBuilder;
     if (builder.receiver != null) {
       messageDispatcherBuilder = MessageDispatcher.newBuilder(builder.receiver);
-    } else {
+    } else if (builder.receiverWithAckResponse != null) {
       messageDispatcherBuilder = MessageDispatcher.newBuilder(builder.receiverWithAckResponse);
+    } else if (builder.receiverWithDeliveryContext != null) {
+      messageDispatcherBuilder = MessageDispatcher.newBuilder(builder.receiverWithDeliveryContext);
+    } else {
+      messageDispatcherBuilder =
+          MessageDispatcher.newBuilder(builder.receiverWithAckResponseAndDeliveryContext);
     }
 
     enableOpenTelemetryTracing = builder.enableOpenTelemetryTracing;
     if (builder.tracer != null) {
       tracer = builder.tracer;
     }
+    if (builder.metrics != null) {
+      metrics = builder.metrics;
+    }
 
     messageDispatcher =
         messageDispatcherBuilder
@@ -177,7 +189,16 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
             .setSubscriptionName(subscription)
             .setEnableOpenTelemetryTracing(enableOpenTelemetryTracing)
             .setTracer(tracer)
+            .setMetrics(metrics)
+            .setEnableBatchedDispatch(builder.enableBatchedDispatch)
+            .setEnableOptimisticExactlyOnceDelivery(builder.enableOptimisticExactlyOnceDelivery)
+            .setNackBackoff(builder.nackBackoffInitialDelay, builder.nackBackoffMaxDelay)
+            .setDeduplicator(builder.deduplicator)
+            .setMessageFilter(builder.messageFilter)
+            .setMaxMessageAge(builder.maxMessageAge)
+            .setEnableDeliveryAttemptAttribute(builder.enableDeliveryAttemptAttribute)
             .build();
+    responseMarshaller = builder.responseMarshaller;
 
     flowControlSettings = builder.flowControlSettings;
     useLegacyFlowControl = builder.useLegacyFlowControl;
@@ -254,7 +275,9 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
       setExactlyOnceDeliveryEnabled(exactlyOnceDeliveryEnabledResponse);
       messageDispatcher.setExactlyOnceDeliveryEnabled(exactlyOnceDeliveryEnabledResponse);
       messageDispatcher.setMessageOrderingEnabled(messageOrderingEnabledResponse);
-      messageDispatcher.processReceivedMessages(response.getReceivedMessagesList());
+      messageDispatcher.processReceivedMessages(
+          response.getReceivedMessagesList(),
+          responseMarshaller == null ? null : responseMarshaller.takeBuffers(response));
 
       // Only request more if we're not shutdown.
       // If errorFuture is done, the stream has either failed or hung up,
@@ -327,23 +350,28 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
     } finally {
       lock.unlock();
     }
+    FlightRecorderEvents.streamOpened(subscription, channelAffinity);
 
     ApiFutures.addCallback(
         errorFuture,
         new ApiFutureCallback<Void>() {
           @Override
           public void onSuccess(@Nullable Void result) {
+            FlightRecorderEvents.streamClosed(subscription, channelAffinity, null, isAlive());
             if (!isAlive()) {
               return;
             }
             channelReconnectBackoffMillis.set(INITIAL_CHANNEL_RECONNECT_BACKOFF.toMillis());
             // The stream was closed. And any case we want to reopen it to continue receiving
             // messages.
+            metrics.recordStreamReconnect();
             initialize();
           }
 
           @Override
           public void onFailure(Throwable cause) {
+            FlightRecorderEvents.streamClosed(
+                subscription, channelAffinity, cause, isAlive() && StatusUtil.isRetryable(cause));
             if (!isAlive()) {
               // we don't care about subscription failures when we're no longer running.
               logger.log(Level.FINE, "pull failure after service no longer running", cause);
@@ -364,6 +392,7 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
             long newBackoffMillis =
                 Math.min(backoffMillis * 2, MAX_CHANNEL_RECONNECT_BACKOFF.toMillis());
             channelReconnectBackoffMillis.set(newBackoffMillis);
+            metrics.recordStreamReconnect();
 
             systemExecutor.schedule(
                 new Runnable() {
@@ -456,7 +485,7 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
       // Creates an Ack span to be passed to the callback
       Span rpcSpan = tracer.startSubscribeRpcSpan(subscription, "ack", messagesInRequest, 0, false);
       ApiFutureCallback<Empty> callback =
-          getCallback(ackRequestDataInRequestList, 0, false, currentBackoffMillis, rpcSpan);
+          getCallback(ackRequestDataInRequestList, 0, false, false, currentBackoffMillis, rpcSpan);
       ApiFuture<Empty> ackFuture =
           subscriberStub
               .acknowledgeCallable()
@@ -489,8 +518,9 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
           }
         }
         int deadlineExtensionSeconds = modackRequestData.getDeadlineExtensionSeconds();
-        String rpcOperation = deadlineExtensionSeconds == 0 ? "nack" : "modack";
-        // Creates either a ModAck span or a Nack span depending on the given ack deadline
+        boolean isNack = modackRequestData.getIsNack();
+        String rpcOperation = isNack ? "nack" : "modack";
+        // Creates either a ModAck span or a Nack span, including nacks with a redelivery delay
         Span rpcSpan =
             tracer.startSubscribeRpcSpan(
                 subscription,
@@ -503,6 +533,7 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
                 modackRequestData.getAckRequestData(),
                 deadlineExtensionSeconds,
                 true,
+                isNack,
                 currentBackoffMillis,
                 rpcSpan);
         ApiFuture<Empty> modackFuture =
@@ -546,19 +577,34 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
       List<AckRequestData> ackRequestDataList,
       int deadlineExtensionSeconds,
       boolean isModack,
+      boolean isNack,
       long currentBackoffMillis,
       Span rpcSpan) {
     // This callback handles retries, and sets message futures
 
-    // Check if ack or nack
-    boolean setResponseOnSuccess = (!isModack || (deadlineExtensionSeconds == 0)) ? true : false;
+    // Check if ack or nack, including nacks with a redelivery delay
+    boolean setResponseOnSuccess = !isModack || isNack;
 
     boolean rpcSpanSampled = rpcSpan == null ? false : rpcSpan.getSpanContext().isSampled();
+    long rpcStartNanos = metrics.startTime();
+    Object ackRpcEvent = FlightRecorderEvents.beginAckRpc();
+    String ackRpcOperation =
+        isNack
+            ? FlightRecorderEvents.OPERATION_NACK
+            : isModack ? FlightRecorderEvents.OPERATION_MODACK : FlightRecorderEvents.OPERATION_ACK;
 
     return new ApiFutureCallback<Empty>() {
       @Override
       public void onSuccess(Empty empty) {
         ackOperationsWaiter.incrementPendingCount(-1);
+        metrics.recordAckRpcLatency(rpcStartNanos, isModack, isNack);
+        FlightRecorderEvents.endAckRpc(
+            ackRpcEvent,
+            subscription,
+            ackRpcOperation,
+            ackRequestDataList.size(),
+            deadlineExtensionSeconds,
+            null);
 
         tracer.endSubscribeRpcSpan(rpcSpan);
 
@@ -569,11 +615,8 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
           // Remove from our pending operations
           pendingRequests.remove(ackRequestData);
           tracer.addEndRpcEvent(
-              ackRequestData.getMessageWrapper(),
-              rpcSpanSampled,
-              isModack,
-              deadlineExtensionSeconds);
-          if (!isModack || deadlineExtensionSeconds == 0) {
+              ackRequestData.getMessageWrapper(), rpcSpanSampled, isModack, isNack);
+          if (!isModack || isNack) {
             tracer.endSubscriberSpan(ackRequestData.getMessageWrapper());
           }
         }
@@ -583,21 +626,26 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
       public void onFailure(Throwable t) {
         // Remove from our pending operations
         ackOperationsWaiter.incrementPendingCount(-1);
+        metrics.recordAckRpcLatency(rpcStartNanos, isModack, isNack);
+        FlightRecorderEvents.endAckRpc(
+            ackRpcEvent,
+            subscription,
+            ackRpcOperation,
+            ackRequestDataList.size(),
+            deadlineExtensionSeconds,
+            t);
 
         Level level = isAlive() ? Level.WARNING : Level.FINER;
         logger.log(level, "failed to send operations", t);
 
-        tracer.setSubscribeRpcSpanException(rpcSpan, isModack, deadlineExtensionSeconds, t);
+        tracer.setSubscribeRpcSpanException(rpcSpan, isModack, isNack, t);
 
         if (!getExactlyOnceDeliveryEnabled()) {
           if (enableOpenTelemetryTracing) {
             for (AckRequestData ackRequestData : ackRequestDataList) {
               tracer.addEndRpcEvent(
-                  ackRequestData.getMessageWrapper(),
-                  rpcSpanSampled,
-                  isModack,
-                  deadlineExtensionSeconds);
-              if (!isModack || deadlineExtensionSeconds == 0) {
+                  ackRequestData.getMessageWrapper(), rpcSpanSampled, isModack, isNack);
+              if (!isModack || isNack) {
                 tracer.endSubscriberSpan(ackRequestData.getMessageWrapper());
               }
             }
@@ -626,10 +674,7 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
                     ackRequestData.setResponse(AckResponse.INVALID, setResponseOnSuccess);
                     messageDispatcher.notifyAckFailed(ackRequestData);
                     tracer.addEndRpcEvent(
-                        ackRequestData.getMessageWrapper(),
-                        rpcSpanSampled,
-                        isModack,
-                        deadlineExtensionSeconds);
+                        ackRequestData.getMessageWrapper(), rpcSpanSampled, isModack, isNack);
                     tracer.setSubscriberSpanException(
                         ackRequestData.getMessageWrapper(), t, "Invalid ack ID");
                   } else {
@@ -637,10 +682,7 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
                     ackRequestData.setResponse(AckResponse.OTHER, setResponseOnSuccess);
                     messageDispatcher.notifyAckFailed(ackRequestData);
                     tracer.addEndRpcEvent(
-                        ackRequestData.getMessageWrapper(),
-                        rpcSpanSampled,
-                        isModack,
-                        deadlineExtensionSeconds);
+                        ackRequestData.getMessageWrapper(), rpcSpanSampled, isModack, isNack);
                     tracer.setSubscriberSpanException(
                         ackRequestData.getMessageWrapper(), t, "Unknown error message");
                     ackRequestData
@@ -652,10 +694,7 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
                   messageDispatcher.notifyAckSuccess(ackRequestData);
                   tracer.endSubscriberSpan(ackRequestData.getMessageWrapper());
                   tracer.addEndRpcEvent(
-                      ackRequestData.getMessageWrapper(),
-                      rpcSpanSampled,
-                      isModack,
-                      deadlineExtensionSeconds);
+                      ackRequestData.getMessageWrapper(), rpcSpanSampled, isModack, isNack);
                 }
                 // Remove from our pending
                 pendingRequests.remove(ackRequestData);
@@ -679,7 +718,8 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
                     // Create a new modackRequest with only the retries
                     ModackRequestData modackRequestData =
                         new ModackRequestData(
-                            deadlineExtensionSeconds, ackRequestDataArrayRetryList);
+                                deadlineExtensionSeconds, ackRequestDataArrayRetryList)
+                            .setIsNack(isNack);
                     sendModackOperations(
                         Collections.singletonList(modackRequestData), newBackoffMillis);
                   } else {
@@ -698,6 +738,9 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
   public static final class Builder {
     private MessageReceiver receiver;
     private MessageReceiverWithAckResponse receiverWithAckResponse;
+    private MessageReceiverWithDeliveryContext receiverWithDeliveryContext;
+    private MessageReceiverWithAckResponseAndDeliveryContext
+        receiverWithAckResponseAndDeliveryContext;
     private String subscription;
     private Duration ackExpirationPadding;
     private Duration maxAckExtensionPeriod;
@@ -712,12 +755,22 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
     private FlowController flowController;
     private FlowControlSettings flowControlSettings;
     private boolean useLegacyFlowControl;
-    private ScheduledExecutorService executor;
+    private Executor executor;
     private ScheduledExecutorService systemExecutor;
     private ApiClock clock;
 
     private boolean enableOpenTelemetryTracing;
     private OpenTelemetryPubsubTracer tracer;
+    private OpenTelemetryPubsubMetrics metrics;
+    private boolean enableBatchedDispatch;
+    private boolean enableOptimisticExactlyOnceDelivery;
+    private Duration nackBackoffInitialDelay;
+    private Duration nackBackoffMaxDelay;
+    private MessageDeduplicator deduplicator;
+    private MessageFilter messageFilter;
+    private Duration maxMessageAge;
+    private boolean enableDeliveryAttemptAttribute = true;
+    private AliasingStreamingPullResponseMarshaller responseMarshaller;
 
     protected Builder(MessageReceiver receiver) {
       this.receiver = receiver;
@@ -727,6 +780,16 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
       this.receiverWithAckResponse = receiverWithAckResponse;
     }
 
+    protected Builder(MessageReceiverWithDeliveryContext receiverWithDeliveryContext) {
+      this.receiverWithDeliveryContext = receiverWithDeliveryContext;
+    }
+
+    protected Builder(
+        MessageReceiverWithAckResponseAndDeliveryContext
+            receiverWithAckResponseAndDeliveryContext) {
+      this.receiverWithAckResponseAndDeliveryContext = receiverWithAckResponseAndDeliveryContext;
+    }
+
     public Builder setSubscription(String subscription) {
       this.subscription = subscription;
       return this;
@@ -794,7 +857,7 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
       return this;
     }
 
-    public Builder setExecutor(ScheduledExecutorService executor) {
+    public Builder setExecutor(Executor executor) {
       this.executor = executor;
       return this;
     }
@@ -819,6 +882,53 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
       return this;
     }
 
+    public Builder setMetrics(OpenTelemetryPubsubMetrics metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
+    public Builder setEnableBatchedDispatch(boolean enableBatchedDispatch) {
+      this.enableBatchedDispatch = enableBatchedDispatch;
+      return this;
+    }
+
+    public Builder setEnableOptimisticExactlyOnceDelivery(
+        boolean enableOptimisticExactlyOnceDelivery) {
+      this.enableOptimisticExactlyOnceDelivery = enableOptimisticExactlyOnceDelivery;
+      return this;
+    }
+
+    public Builder setNackBackoff(Duration initialDelay, Duration maxDelay) {
+      this.nackBackoffInitialDelay = initialDelay;
+      this.nackBackoffMaxDelay = maxDelay;
+      return this;
+    }
+
+    Builder setDeduplicator(MessageDeduplicator deduplicator) {
+      this.deduplicator = deduplicator;
+      return this;
+    }
+
+    public Builder setMessageFilter(MessageFilter messageFilter) {
+      this.messageFilter = messageFilter;
+      return this;
+    }
+
+    public Builder setMaxMessageAge(Duration maxMessageAge) {
+      this.maxMessageAge = maxMessageAge;
+      return this;
+    }
+
+    public Builder setEnableDeliveryAttemptAttribute(boolean enableDeliveryAttemptAttribute) {
+      this.enableDeliveryAttemptAttribute = enableDeliveryAttemptAttribute;
+      return this;
+    }
+
+    Builder setResponseMarshaller(AliasingStreamingPullResponseMarshaller responseMarshaller) {
+      this.responseMarshaller = responseMarshaller;
+      return this;
+    }
+
     public StreamingSubscriberConnection build() {
       return new StreamingSubscriberConnection(this);
     }
@@ -831,4 +941,13 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
   public static Builder newBuilder(MessageReceiverWithAckResponse receiverWithAckResponse) {
     return new Builder(receiverWithAckResponse);
   }
+
+  public static Builder newBuilder(MessageReceiverWithDeliveryContext receiverWithDeliveryContext) {
+    return new Builder(receiverWithDeliveryContext);
+  }
+
+  public static Builder newBuilder(
+      MessageReceiverWithAckResponseAndDeliveryContext receiverWithAckResponseAndDeliveryContext) {
+    return new Builder(receiverWithAckResponseAndDeliveryContext);
+  }
 }
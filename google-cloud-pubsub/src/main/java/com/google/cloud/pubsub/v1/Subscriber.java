@@ -34,6 +34,7 @@ import com.google.api.gax.core.Distribution;
 import com.google.api.gax.core.ExecutorAsBackgroundResource;
 import com.google.api.gax.core.ExecutorProvider;
 import com.google.api.gax.core.InstantiatingExecutorProvider;
+import com.google.api.gax.rpc.ClientContext;
 import com.google.api.gax.rpc.HeaderProvider;
 import com.google.api.gax.rpc.NoHeaderProvider;
 import com.google.api.gax.rpc.TransportChannelProvider;
@@ -51,6 +52,8 @@ import io.opentelemetry.api.trace.Tracer;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -93,7 +96,7 @@ import javax.annotation.Nullable;
  * details.
  */
 public class Subscriber extends AbstractApiService implements SubscriberInterface {
-  private static final int THREADS_PER_CHANNEL = 5;
+  static final int THREADS_PER_CHANNEL = 5;
   private static final int MAX_INBOUND_MESSAGE_SIZE =
       20 * 1024 * 1024; // 20MB API maximum message size.
 
@@ -147,6 +150,20 @@ public class Subscriber extends AbstractApiService implements SubscriberInterfac
 
   // The ExecutorProvider used to generate executors for processing messages.
   private final ExecutorProvider executorProvider;
+  // An executor shared by all streaming connections, if one was provided. Not owned by this class.
+  @Nullable private final Executor sharedExecutor;
+  private final boolean useVirtualThreads;
+  private final boolean enableBatchedDispatch;
+  private final boolean enableOptimisticExactlyOnceDelivery;
+  @Nullable private final java.time.Duration nackBackoffInitialDelay;
+  @Nullable private final java.time.Duration nackBackoffMaxDelay;
+  // Shared by all streams, since a redelivery may arrive on a different stream.
+  @Nullable private final MessageDeduplicator deduplicator;
+  @Nullable private final MessageFilter messageFilter;
+  @Nullable private final java.time.Duration maxMessageAge;
+  private final boolean enableDeliveryAttemptAttribute;
+  // Shared by all streams; null unless zero-copy receive is enabled.
+  @Nullable private final AliasingStreamingPullResponseMarshaller responseMarshaller;
   // An instantiation of the SystemExecutorProvider used for processing acks
   // and other system actions.
   @Nullable private final ScheduledExecutorService alarmsExecutor;
@@ -160,6 +177,9 @@ public class Subscriber extends AbstractApiService implements SubscriberInterfac
 
   private final MessageReceiver receiver;
   private final MessageReceiverWithAckResponse receiverWithAckResponse;
+  private final MessageReceiverWithDeliveryContext receiverWithDeliveryContext;
+  private final MessageReceiverWithAckResponseAndDeliveryContext
+      receiverWithAckResponseAndDeliveryContext;
   private final List<StreamingSubscriberConnection> streamingSubscriberConnections;
   private final ApiClock clock;
   private final List<BackgroundResource> backgroundResources = new ArrayList<>();
@@ -167,10 +187,13 @@ public class Subscriber extends AbstractApiService implements SubscriberInterfac
   private final boolean enableOpenTelemetryTracing;
   private final OpenTelemetry openTelemetry;
   private OpenTelemetryPubsubTracer tracer = new OpenTelemetryPubsubTracer(null, false);
+  private final OpenTelemetryPubsubMetrics metrics;
 
   private Subscriber(Builder builder) {
     receiver = builder.receiver;
     receiverWithAckResponse = builder.receiverWithAckResponse;
+    receiverWithDeliveryContext = builder.receiverWithDeliveryContext;
+    receiverWithAckResponseAndDeliveryContext = builder.receiverWithAckResponseAndDeliveryContext;
     flowControlSettings = builder.flowControlSettings;
     useLegacyFlowControl = builder.useLegacyFlowControl;
     subscriptionName = builder.subscription;
@@ -194,6 +217,31 @@ public class Subscriber extends AbstractApiService implements SubscriberInterfac
     this.numPullers = builder.parallelPullCount;
 
     executorProvider = builder.executorProvider;
+    sharedExecutor = builder.sharedExecutor;
+    useVirtualThreads = builder.useVirtualThreads;
+    enableBatchedDispatch = builder.enableBatchedDispatch;
+    enableOptimisticExactlyOnceDelivery = builder.enableOptimisticExactlyOnceDelivery;
+    nackBackoffInitialDelay = builder.nackBackoffInitialDelay;
+    nackBackoffMaxDelay = builder.nackBackoffMaxDelay;
+    deduplicator =
+        builder.duplicateSuppressionWindow == null
+            ? null
+            : new MessageDeduplicator(
+                builder.duplicateSuppressionWindow,
+                builder.duplicateSuppressionMaxMessageIds,
+                clock);
+
+    messageFilter = builder.messageFilter;
+    maxMessageAge = builder.maxMessageAge;
+    // Receivers that are passed the delivery context don't need the attribute.
+    enableDeliveryAttemptAttribute =
+        builder.enableDeliveryAttemptAttribute != null
+            ? builder.enableDeliveryAttemptAttribute
+            : receiverWithDeliveryContext == null
+                && receiverWithAckResponseAndDeliveryContext == null;
+
+    responseMarshaller =
+        builder.enableZeroCopyReceive ? new AliasingStreamingPullResponseMarshaller() : null;
 
     ExecutorProvider systemExecutorProvider = builder.systemExecutorProvider;
     alarmsExecutor = systemExecutorProvider.getExecutor();
@@ -231,6 +279,12 @@ public class Subscriber extends AbstractApiService implements SubscriberInterfac
             new OpenTelemetryPubsubTracer(openTelemetryTracer, this.enableOpenTelemetryTracing);
       }
     }
+    this.metrics =
+        this.openTelemetry != null
+            ? OpenTelemetryPubsubMetrics.forSubscription(
+                this.openTelemetry.getMeter(OpenTelemetryPubsubMetrics.METER_NAME),
+                subscriptionName)
+            : OpenTelemetryPubsubMetrics.disabled();
 
     streamingSubscriberConnections = new ArrayList<StreamingSubscriberConnection>(numPullers);
 
@@ -271,7 +325,68 @@ public class Subscriber extends AbstractApiService implements SubscriberInterfac
     return new Builder(subscription, receiver);
   }
 
-  /** Returns the delivery attempt count for a received {@link PubsubMessage} */
+  /**
+   * Constructs a new {@link Builder} for a receiver that is passed the {@link DeliveryContext} of
+   * each message.
+   *
+   * @param subscription Cloud Pub/Sub subscription to bind the subscriber to
+   * @param receiver an implementation of {@link MessageReceiverWithDeliveryContext} used to process
+   *     the received messages
+   */
+  @BetaApi
+  public static Builder newBuilder(
+      ProjectSubscriptionName subscription, MessageReceiverWithDeliveryContext receiver) {
+    return newBuilder(subscription.toString(), receiver);
+  }
+
+  /**
+   * Constructs a new {@link Builder} for a receiver that is passed the {@link DeliveryContext} of
+   * each message.
+   *
+   * @param subscription Cloud Pub/Sub subscription to bind the subscriber to
+   * @param receiver an implementation of {@link MessageReceiverWithDeliveryContext} used to process
+   *     the received messages
+   */
+  @BetaApi
+  public static Builder newBuilder(
+      String subscription, MessageReceiverWithDeliveryContext receiver) {
+    return new Builder(subscription, receiver);
+  }
+
+  /**
+   * Constructs a new {@link Builder} for a receiver that is passed the {@link DeliveryContext} of
+   * each message and the result of its ack or nack.
+   *
+   * @param subscription Cloud Pub/Sub subscription to bind the subscriber to
+   * @param receiver an implementation of {@link MessageReceiverWithAckResponseAndDeliveryContext}
+   *     used to process the received messages
+   */
+  @BetaApi
+  public static Builder newBuilder(
+      ProjectSubscriptionName subscription,
+      MessageReceiverWithAckResponseAndDeliveryContext receiver) {
+    return newBuilder(subscription.toString(), receiver);
+  }
+
+  /**
+   * Constructs a new {@link Builder} for a receiver that is passed the {@link DeliveryContext} of
+   * each message and the result of its ack or nack.
+   *
+   * @param subscription Cloud Pub/Sub subscription to bind the subscriber to
+   * @param receiver an implementation of {@link MessageReceiverWithAckResponseAndDeliveryContext}
+   *     used to process the received messages
+   */
+  @BetaApi
+  public static Builder newBuilder(
+      String subscription, MessageReceiverWithAckResponseAndDeliveryContext receiver) {
+    return new Builder(subscription, receiver);
+  }
+
+  /**
+   * Returns the delivery attempt count for a received {@link PubsubMessage}, or null if it is not
+   * known. See {@link Builder#setEnableDeliveryAttemptAttribute(boolean)}; receivers passed a
+   * {@link DeliveryContext} can use {@link DeliveryContext#getDeliveryAttempt()} instead.
+   */
   public static Integer getDeliveryAttempt(PubsubMessage message) {
     if (!message.containsAttributes("googclient_deliveryattempt")) {
       return null;
@@ -289,6 +404,16 @@ public class Subscriber extends AbstractApiService implements SubscriberInterfac
     return flowControlSettings;
   }
 
+  /**
+   * Statistics of the duplicate suppression cache, or {@code null} if duplicate suppression is not
+   * enabled. See {@link Builder#setDuplicateSuppression(java.time.Duration, int)}.
+   */
+  @BetaApi
+  @Nullable
+  public DuplicateSuppressionStats getDuplicateSuppressionStats() {
+    return deduplicator == null ? null : deduplicator.getStats();
+  }
+
   /**
    * Initiates service startup and returns immediately.
    *
@@ -333,7 +458,16 @@ public class Subscriber extends AbstractApiService implements SubscriberInterfac
     logger.log(Level.FINE, "Starting subscriber group.");
 
     try {
-      this.subscriberStub = GrpcSubscriberStub.create(subStubSettings);
+      if (responseMarshaller == null) {
+        this.subscriberStub = GrpcSubscriberStub.create(subStubSettings);
+      } else {
+        // The constructor taking a callable factory is protected.
+        this.subscriberStub =
+            new GrpcSubscriberStub(
+                subStubSettings,
+                ClientContext.create(subStubSettings),
+                responseMarshaller.newCallableFactory()) {};
+      }
     } catch (IOException e) {
       // doesn't matter what we throw, the Service will just catch it and fail to start.
       throw new IllegalStateException(e);
@@ -382,14 +516,40 @@ public class Subscriber extends AbstractApiService implements SubscriberInterfac
     stopAllStreamingConnections();
     shutdownBackgroundResources();
     subscriberStub.shutdownNow();
+    if (responseMarshaller != null) {
+      // Responses parsed but not delivered before their streams closed are not taken anymore.
+      responseMarshaller.releaseAll();
+    }
   }
 
   private void startStreamingConnections() {
     synchronized (streamingSubscriberConnections) {
+      Executor connectionsExecutor = sharedExecutor;
+      boolean batchedDispatch = enableBatchedDispatch;
+      if (connectionsExecutor == null && useVirtualThreads) {
+        ExecutorService virtualThreadExecutor =
+            VirtualThreads.newVirtualThreadPerTaskExecutor("Subscriber-VT-");
+        if (virtualThreadExecutor != null) {
+          backgroundResources.add(new ExecutorAsBackgroundResource(virtualThreadExecutor));
+          connectionsExecutor = virtualThreadExecutor;
+          // Starting a virtual thread is cheap; give every message its own.
+          batchedDispatch = false;
+        } else {
+          logger.log(
+              Level.WARNING,
+              "Virtual threads are not supported by this runtime, using the executor provider.");
+        }
+      }
       for (int i = 0; i < numPullers; i++) {
-        final ScheduledExecutorService executor = executorProvider.getExecutor();
-        if (executorProvider.shouldAutoClose()) {
-          backgroundResources.add(new ExecutorAsBackgroundResource((executor)));
+        final Executor executor;
+        if (connectionsExecutor != null) {
+          executor = connectionsExecutor;
+        } else {
+          ScheduledExecutorService connectionExecutor = executorProvider.getExecutor();
+          if (executorProvider.shouldAutoClose()) {
+            backgroundResources.add(new ExecutorAsBackgroundResource((connectionExecutor)));
+          }
+          executor = connectionExecutor;
         }
 
         StreamingSubscriberConnection.Builder streamingSubscriberConnectionBuilder;
@@ -397,6 +557,12 @@ public class Subscriber extends AbstractApiService implements SubscriberInterfac
         if (receiverWithAckResponse != null) {
           streamingSubscriberConnectionBuilder =
               StreamingSubscriberConnection.newBuilder(receiverWithAckResponse);
+        } else if (receiverWithDeliveryContext != null) {
+          streamingSubscriberConnectionBuilder =
+              StreamingSubscriberConnection.newBuilder(receiverWithDeliveryContext);
+        } else if (receiverWithAckResponseAndDeliveryContext != null) {
+          streamingSubscriberConnectionBuilder =
+              StreamingSubscriberConnection.newBuilder(receiverWithAckResponseAndDeliveryContext);
         } else {
           streamingSubscriberConnectionBuilder = StreamingSubscriberConnection.newBuilder(receiver);
         }
@@ -421,6 +587,15 @@ public class Subscriber extends AbstractApiService implements SubscriberInterfac
                 .setClock(clock)
                 .setEnableOpenTelemetryTracing(enableOpenTelemetryTracing)
                 .setTracer(tracer)
+                .setMetrics(metrics)
+                .setEnableBatchedDispatch(batchedDispatch)
+                .setEnableOptimisticExactlyOnceDelivery(enableOptimisticExactlyOnceDelivery)
+                .setNackBackoff(nackBackoffInitialDelay, nackBackoffMaxDelay)
+                .setDeduplicator(deduplicator)
+                .setMessageFilter(messageFilter)
+                .setMaxMessageAge(maxMessageAge)
+                .setEnableDeliveryAttemptAttribute(enableDeliveryAttemptAttribute)
+                .setResponseMarshaller(responseMarshaller)
                 .build();
 
         streamingSubscriberConnections.add(streamingSubscriberConnection);
@@ -504,6 +679,9 @@ public class Subscriber extends AbstractApiService implements SubscriberInterfac
     private String subscription;
     private MessageReceiver receiver;
     private MessageReceiverWithAckResponse receiverWithAckResponse;
+    private MessageReceiverWithDeliveryContext receiverWithDeliveryContext;
+    private MessageReceiverWithAckResponseAndDeliveryContext
+        receiverWithAckResponseAndDeliveryContext;
 
     private java.time.Duration maxAckExtensionPeriod = DEFAULT_MAX_ACK_EXTENSION_PERIOD;
     private java.time.Duration minDurationPerAckExtension = DEFAULT_MIN_ACK_DEADLINE_EXTENSION;
@@ -515,6 +693,18 @@ public class Subscriber extends AbstractApiService implements SubscriberInterfac
     private FlowControlSettings flowControlSettings = DEFAULT_FLOW_CONTROL_SETTINGS;
 
     private ExecutorProvider executorProvider = DEFAULT_EXECUTOR_PROVIDER;
+    private Executor sharedExecutor = null;
+    private boolean useVirtualThreads = false;
+    private boolean enableBatchedDispatch = false;
+    private boolean enableOptimisticExactlyOnceDelivery = false;
+    private java.time.Duration nackBackoffInitialDelay = null;
+    private java.time.Duration nackBackoffMaxDelay = null;
+    private java.time.Duration duplicateSuppressionWindow = null;
+    private int duplicateSuppressionMaxMessageIds;
+    private MessageFilter messageFilter = null;
+    private java.time.Duration maxMessageAge = null;
+    private Boolean enableDeliveryAttemptAttribute = null;
+    private boolean enableZeroCopyReceive = false;
     private ExecutorProvider systemExecutorProvider = null;
     private TransportChannelProvider channelProvider =
         SubscriptionAdminSettings.defaultGrpcTransportProviderBuilder()
@@ -543,6 +733,19 @@ public class Subscriber extends AbstractApiService implements SubscriberInterfac
       this.receiverWithAckResponse = receiverWithAckResponse;
     }
 
+    Builder(String subscription, MessageReceiverWithDeliveryContext receiverWithDeliveryContext) {
+      this.subscription = subscription;
+      this.receiverWithDeliveryContext = receiverWithDeliveryContext;
+    }
+
+    Builder(
+        String subscription,
+        MessageReceiverWithAckResponseAndDeliveryContext
+            receiverWithAckResponseAndDeliveryContext) {
+      this.subscription = subscription;
+      this.receiverWithAckResponseAndDeliveryContext = receiverWithAckResponseAndDeliveryContext;
+    }
+
     /**
      * {@code ChannelProvider} to use to create Channels, which must point at Cloud Pub/Sub
      * endpoint.
@@ -711,6 +914,195 @@ public class Subscriber extends AbstractApiService implements SubscriberInterfac
       return this;
     }
 
+    /**
+     * Sets a single executor that all StreamingPull streams use to process messages, instead of one
+     * executor per stream obtained from {@link #setExecutorProvider(ExecutorProvider)}.
+     *
+     * <p>With one executor per stream, a busy stream can queue work while the threads of other
+     * streams sit idle. A work-stealing pool such as {@link java.util.concurrent.ForkJoinPool}
+     * created in async mode lets any idle thread pick up that work, and the same instance may be
+     * shared by several {@link Subscriber} instances. Messages with the same ordering key are still
+     * processed one at a time.
+     *
+     * <p>The executor is owned by the caller and is not shut down when the {@link Subscriber}
+     * stops. When set, the executor provider is not used.
+     */
+    @BetaApi
+    public Builder setSharedExecutor(Executor sharedExecutor) {
+      this.sharedExecutor = Preconditions.checkNotNull(sharedExecutor);
+      return this;
+    }
+
+    /**
+     * Runs each call to the message receiver on its own virtual thread, so that receivers doing
+     * blocking I/O are limited by flow control rather than by the size of a thread pool. Lease
+     * management keeps running on the platform threads of the system executor.
+     *
+     * <p>Virtual threads require JDK 21 or later and are detected at runtime; on older runtimes a
+     * warning is logged and the executor provider is used instead. Ignored if {@link
+     * #setSharedExecutor(Executor)} is set.
+     */
+    @BetaApi
+    public Builder setUseVirtualThreads(boolean useVirtualThreads) {
+      this.useVirtualThreads = useVirtualThreads;
+      return this;
+    }
+
+    /**
+     * Delivers messages without an ordering key in batches: instead of submitting one executor task
+     * per message, at most one task per executor thread is started and each task keeps taking
+     * messages from the stream until none are left. This reduces executor overhead for responses
+     * with many small messages that are processed quickly. Every message is still acked or nacked
+     * individually, and messages with an ordering key are delivered as before.
+     *
+     * <p>Has no effect when virtual threads are used.
+     */
+    @BetaApi
+    public Builder setEnableBatchedDispatch(boolean enableBatchedDispatch) {
+      this.enableBatchedDispatch = enableBatchedDispatch;
+      return this;
+    }
+
+    /**
+     * On subscriptions with exactly-once delivery, hands each message to the receiver while its
+     * receipt modack is still in flight instead of waiting for the modack to succeed, saving one
+     * round trip per message.
+     *
+     * <p>The receiver may then start processing a message whose receipt later fails. Acks are held
+     * back until the receipt is confirmed and are never sent for a failed receipt; in that case the
+     * future returned to a {@link MessageReceiverWithAckResponse} completes with {@link
+     * AckResponse#INVALID} or {@link AckResponse#FAILED_PRECONDITION} (or {@link AckResponse#OTHER}
+     * for unexpected errors), so receivers should only commit side effects once it reports {@link
+     * AckResponse#SUCCESSFUL}.
+     *
+     * <p>Has no effect on subscriptions without exactly-once delivery.
+     */
+    @BetaApi
+    public Builder setEnableOptimisticExactlyOnceDelivery(
+        boolean enableOptimisticExactlyOnceDelivery) {
+      this.enableOptimisticExactlyOnceDelivery = enableOptimisticExactlyOnceDelivery;
+      return this;
+    }
+
+    /**
+     * Delays the redelivery of messages that are nacked without a delay, or whose receiver throws,
+     * instead of asking the service to resend them immediately. The first delivery is delayed by
+     * {@code initialDelay}, and the delay doubles with every further delivery attempt up to {@code
+     * maxDelay}. Delays are rounded up to whole seconds and capped at 10 minutes.
+     *
+     * <p>The delivery attempt is only known on subscriptions with a dead letter policy; on other
+     * subscriptions every nack is delayed by {@code initialDelay}. A delay passed to {@link
+     * AckReplyConsumer#nack(java.time.Duration)} takes precedence. Disabled by default.
+     */
+    @BetaApi
+    public Builder setNackBackoff(java.time.Duration initialDelay, java.time.Duration maxDelay) {
+      Preconditions.checkArgument(
+          !initialDelay.isNegative() && maxDelay.compareTo(initialDelay) >= 0,
+          "initialDelay must not be negative and must not exceed maxDelay");
+      this.nackBackoffInitialDelay = initialDelay;
+      this.nackBackoffMaxDelay = maxDelay;
+      return this;
+    }
+
+    /**
+     * Suppresses redeliveries of messages that were already acked. Without exactly-once delivery a
+     * message can be delivered again under a new ack ID, for example after its lease expired or a
+     * stream was reset. When duplicate suppression is enabled, the IDs of acked messages are
+     * remembered for at least {@code window}, and a message arriving again within that time is
+     * acked without being passed to the receiver.
+     *
+     * <p>At most {@code maxMessageIds} IDs are remembered, using up to about 32 bytes each; when
+     * more messages are acked within the window, the oldest IDs are forgotten early. A message is
+     * only remembered once it is acked, so a redelivery that arrives while the first delivery is
+     * still being processed is not suppressed. Message IDs are compared by a 64-bit hash, so there
+     * is a very small chance of a new message being mistaken for a duplicate.
+     *
+     * <p>Has no effect on subscriptions with exactly-once delivery. See {@link
+     * Subscriber#getDuplicateSuppressionStats()} for hit rates and memory use.
+     */
+    @BetaApi
+    public Builder setDuplicateSuppression(java.time.Duration window, int maxMessageIds) {
+      Preconditions.checkArgument(window.toMillis() > 0, "window must be positive");
+      Preconditions.checkArgument(
+          maxMessageIds >= 2 && maxMessageIds <= MessageDeduplicator.MAX_MESSAGE_IDS,
+          "maxMessageIds must be between 2 and %s",
+          MessageDeduplicator.MAX_MESSAGE_IDS);
+      this.duplicateSuppressionWindow = window;
+      this.duplicateSuppressionMaxMessageIds = maxMessageIds;
+      return this;
+    }
+
+    /**
+     * Decides for every received message whether it is passed to the receiver, or acked or nacked
+     * right away. The filter sees the message's attributes and publish time, and runs before the
+     * message is counted against flow control or handed to the executor, so rejected messages cost
+     * little more than reading them from the stream. Their acks and nacks are sent in bulk with the
+     * other pending acks, and nacked messages are subject to {@link #setNackBackoff}.
+     *
+     * <p>The filter is called on the thread that reads the stream and must not block. With message
+     * ordering, nacking a message also causes the messages after it with the same ordering key to
+     * be redelivered.
+     */
+    @BetaApi
+    public Builder setMessageFilter(MessageFilter messageFilter) {
+      this.messageFilter = Preconditions.checkNotNull(messageFilter);
+      return this;
+    }
+
+    /**
+     * Acks messages that were published more than {@code maxMessageAge} before they are received,
+     * without passing them to the receiver. This sheds stale messages cheaply, for example to catch
+     * up on a backlog when only fresh messages are of interest. The age is measured against the
+     * local clock, so it is only as accurate as the clock. Checked before the filter set with
+     * {@link #setMessageFilter}. Disabled by default.
+     */
+    @BetaApi
+    public Builder setMaxMessageAge(java.time.Duration maxMessageAge) {
+      Preconditions.checkArgument(maxMessageAge.toMillis() > 0, "maxMessageAge must be positive");
+      this.maxMessageAge = maxMessageAge;
+      return this;
+    }
+
+    /**
+     * Whether received messages are copied to add their delivery attempt as an attribute, to be
+     * read with {@link Subscriber#getDeliveryAttempt(PubsubMessage)}. This only happens on
+     * subscriptions with a dead letter policy, and copies the message and all its attributes.
+     *
+     * <p>Defaults to true, unless the receiver is a {@link MessageReceiverWithDeliveryContext} or
+     * {@link MessageReceiverWithAckResponseAndDeliveryContext}, which is passed the delivery
+     * attempt in its {@link DeliveryContext} without the copy.
+     */
+    @BetaApi
+    public Builder setEnableDeliveryAttemptAttribute(boolean enableDeliveryAttemptAttribute) {
+      this.enableDeliveryAttemptAttribute = enableDeliveryAttemptAttribute;
+      return this;
+    }
+
+    /**
+     * Parses received messages without copying their data out of the buffers the transport received
+     * them in. By default message data are copied twice while parsing; for large messages at high
+     * rates that copying is a large share of the subscriber's memory bandwidth and allocation.
+     *
+     * <p>With zero-copy receive, the data of all messages of one StreamingPull response share the
+     * response's buffers, which are released once every one of those messages has been acked or
+     * nacked and the receiver has returned from {@code receiveMessage} for it. <b>The data of a
+     * message must therefore not be used once it has been acked or nacked and {@code
+     * receiveMessage} has returned</b>, for example by keeping a reference to the message or its
+     * {@link com.google.protobuf.ByteString data} on another thread; copy what must outlive the
+     * message first. A message that is never acked or nacked keeps its whole response in memory.
+     *
+     * <p>The bytes of a message count against {@link
+     * FlowControlSettings#getMaxOutstandingRequestBytes() the flow control byte limit} until its
+     * response's buffers are released, rather than until the message itself is done, since that is
+     * when the memory becomes free. Only has an effect when the transport exposes its buffers, as
+     * the default gRPC transport does. Disabled by default.
+     */
+    @BetaApi
+    public Builder setEnableZeroCopyReceive(boolean enableZeroCopyReceive) {
+      this.enableZeroCopyReceive = enableZeroCopyReceive;
+      return this;
+    }
+
     /** {@code CredentialsProvider} to use to create Credentials to authenticate calls. */
     public Builder setCredentialsProvider(CredentialsProvider credentialsProvider) {
       this.credentialsProvider = Preconditions.checkNotNull(credentialsProvider);
@@ -767,7 +1159,13 @@ public class Subscriber extends AbstractApiService implements SubscriberInterfac
       return this;
     }
 
-    /** Sets the instance of OpenTelemetry for the Publisher class. */
+    /**
+     * Sets the instance of OpenTelemetry for the Subscriber class.
+     *
+     * <p>When set, metrics such as received, acked, nacked and expired messages, lease extensions,
+     * ack latency and stream reconnects are recorded with its meter provider. Traces are only
+     * recorded if {@link #setEnableOpenTelemetryTracing(boolean)} is also set.
+     */
     public Builder setOpenTelemetry(OpenTelemetry openTelemetry) {
       this.openTelemetry = openTelemetry;
       return this;
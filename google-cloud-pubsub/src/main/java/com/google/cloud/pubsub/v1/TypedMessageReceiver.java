@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.BetaApi;
+import com.google.common.base.Preconditions;
+import com.google.pubsub.v1.PubsubMessage;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A receiver of messages decoded by a {@link MessageCodec}, to be passed to a {@link Subscriber}
+ * with {@link #decoding(MessageCodec, TypedMessageReceiver)}.
+ */
+@BetaApi
+@FunctionalInterface
+public interface TypedMessageReceiver<T> {
+  /**
+   * Called when a message is received by the subscriber. The implementation must arrange for {@link
+   * AckReplyConsumer#ack()} or {@link AckReplyConsumer#nack()} to be called after processing the
+   * {@code value}.
+   *
+   * @param value the decoded data of the message
+   * @param message the message, for its attributes and ID
+   */
+  void receiveMessage(T value, PubsubMessage message, AckReplyConsumer consumer);
+
+  /**
+   * Returns a {@link MessageReceiver} that decodes the data of each message with {@code codec},
+   * passing the schema revision of the message, and passes the value to {@code receiver}. Messages
+   * that cannot be decoded are logged and nacked, so that they are redelivered or sent to the dead
+   * letter topic of the subscription.
+   */
+  static <T> MessageReceiver decoding(MessageCodec<T> codec, TypedMessageReceiver<T> receiver) {
+    Preconditions.checkNotNull(codec);
+    Preconditions.checkNotNull(receiver);
+    return (message, consumer) -> {
+      T value;
+      try {
+        value =
+            codec.decode(
+                message.getData(),
+                message.getAttributesOrDefault(MessageCodec.SCHEMA_REVISION_ID_ATTRIBUTE, ""));
+      } catch (RuntimeException e) {
+        Logger.getLogger(TypedMessageReceiver.class.getName())
+            .log(Level.WARNING, "Failed to decode message " + message.getMessageId(), e);
+        consumer.nack();
+        return;
+      }
+      receiver.receiveMessage(value, message, consumer);
+    };
+  }
+}
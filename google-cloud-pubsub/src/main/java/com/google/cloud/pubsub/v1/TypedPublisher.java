@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.BetaApi;
+import com.google.common.base.Preconditions;
+import com.google.pubsub.v1.PubsubMessage;
+
+/**
+ * Publishes values encoded by a {@link MessageCodec} with a {@link Publisher}.
+ *
+ * <p>The publisher is not owned by this class and has to be shut down by the caller.
+ */
+@BetaApi
+public final class TypedPublisher<T> {
+  private final Publisher publisher;
+  private final MessageCodec<T> codec;
+
+  private TypedPublisher(Publisher publisher, MessageCodec<T> codec) {
+    this.publisher = publisher;
+    this.codec = codec;
+  }
+
+  /**
+   * Creates a typed publisher that publishes values encoded by {@code codec} with {@code
+   * publisher}.
+   */
+  public static <T> TypedPublisher<T> of(Publisher publisher, MessageCodec<T> codec) {
+    return new TypedPublisher<>(
+        Preconditions.checkNotNull(publisher), Preconditions.checkNotNull(codec));
+  }
+
+  /** Returns the publisher that values are published with. */
+  public Publisher getPublisher() {
+    return publisher;
+  }
+
+  /**
+   * Publishes a value. Returns a future that fails with an {@link IllegalArgumentException} if the
+   * value cannot be encoded, or else as described in {@link Publisher#publish(PubsubMessage)}.
+   */
+  public ApiFuture<String> publish(T value) {
+    return publish(value, PubsubMessage.getDefaultInstance());
+  }
+
+  /**
+   * Publishes a value with the attributes and ordering key of {@code template}, whose data is
+   * replaced by the encoded value.
+   */
+  public ApiFuture<String> publish(T value, PubsubMessage template) {
+    PubsubMessage message;
+    try {
+      message = template.toBuilder().setData(codec.encode(value)).build();
+    } catch (RuntimeException e) {
+      return ApiFutures.immediateFailedFuture(e);
+    }
+    return publisher.publish(message);
+  }
+}
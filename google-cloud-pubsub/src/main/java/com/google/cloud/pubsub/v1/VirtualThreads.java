@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * Creates executors that run every task on a new virtual thread when the runtime supports them (JDK
+ * 21 and later).
+ *
+ * <p>The library is compiled for Java 8, so the virtual thread API is looked up reflectively once.
+ */
+final class VirtualThreads {
+  private static final Logger logger = Logger.getLogger(VirtualThreads.class.getName());
+
+  // Thread.Builder.OfVirtual instance factory and Executors.newThreadPerTaskExecutor, or null when
+  // virtual threads are not available.
+  @Nullable private static final Method OF_VIRTUAL;
+  @Nullable private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+  static {
+    Method ofVirtual = null;
+    Method newThreadPerTaskExecutor = null;
+    try {
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      newThreadPerTaskExecutor =
+          Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+    } catch (NoSuchMethodException | SecurityException e) {
+      ofVirtual = null;
+      newThreadPerTaskExecutor = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+  }
+
+  private VirtualThreads() {}
+
+  /** Returns whether the running JVM supports virtual threads. */
+  static boolean isSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Returns an executor that starts a new virtual thread named {@code namePrefix} followed by a
+   * counter for every task, or {@code null} if virtual threads are not supported by this runtime.
+   */
+  @Nullable
+  static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+    if (!isSupported()) {
+      return null;
+    }
+    try {
+      Object builder = OF_VIRTUAL.invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      builder =
+          builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+      ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+      return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      logger.log(Level.WARNING, "Unable to create a virtual thread executor", e);
+      return null;
+    }
+  }
+}
@@ -17,37 +17,50 @@
 package com.google.cloud.pubsub.v1;
 
 import com.google.api.core.InternalApi;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A barrier kind of object that helps keep track of pending actions and synchronously wait until
  * all have completed.
  */
 class Waiter {
+  // A lock rather than a monitor, so that virtual threads blocked here do not pin their carrier.
+  private final Lock lock = new ReentrantLock();
+  private final Condition completed = lock.newCondition();
   private int pendingCount;
 
   Waiter() {
     pendingCount = 0;
   }
 
-  public synchronized void incrementPendingCount(int delta) {
-    this.pendingCount += delta;
-    if (pendingCount == 0) {
-      notifyAll();
+  public void incrementPendingCount(int delta) {
+    lock.lock();
+    try {
+      this.pendingCount += delta;
+      if (pendingCount == 0) {
+        completed.signalAll();
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
-  public synchronized void waitComplete() {
+  public void waitComplete() {
     boolean interrupted = false;
+    lock.lock();
     try {
       while (pendingCount > 0) {
         try {
-          wait();
+          completed.await();
         } catch (InterruptedException e) {
           // Ignored, uninterruptibly.
           interrupted = true;
         }
       }
     } finally {
+      lock.unlock();
       if (interrupted) {
         Thread.currentThread().interrupt();
       }
@@ -56,6 +69,11 @@ class Waiter {
 
   @InternalApi
   public int pendingCount() {
-    return pendingCount;
+    lock.lock();
+    try {
+      return pendingCount;
+    } finally {
+      lock.unlock();
+    }
   }
 }
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.ApiCallContext;
+import com.google.api.gax.rpc.ApiExceptionFactory;
+import com.google.api.gax.rpc.NotFoundException;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.pubsub.v1.stub.PublisherStub;
+import com.google.cloud.pubsub.v1.stub.SubscriberStub;
+import com.google.protobuf.Empty;
+import com.google.pubsub.v1.DeleteSubscriptionRequest;
+import com.google.pubsub.v1.DeleteTopicRequest;
+import com.google.pubsub.v1.GetSubscriptionRequest;
+import com.google.pubsub.v1.GetTopicRequest;
+import com.google.pubsub.v1.Subscription;
+import com.google.pubsub.v1.SubscriptionName;
+import com.google.pubsub.v1.Topic;
+import com.google.pubsub.v1.TopicName;
+import com.google.pubsub.v1.UpdateSubscriptionRequest;
+import com.google.pubsub.v1.UpdateTopicRequest;
+import io.grpc.Status;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class AdminMetadataCacheTest {
+  private static final TopicName TOPIC_NAME = TopicName.of("project", "topic");
+  private static final SubscriptionName SUBSCRIPTION_NAME =
+      SubscriptionName.of("project", "subscription");
+
+  private final FakeClock clock = new FakeClock();
+  private final FakePublisherStub publisherStub = new FakePublisherStub();
+  private final FakeSubscriberStub subscriberStub = new FakeSubscriberStub();
+  private final AdminMetadataCache cache =
+      AdminMetadataCache.newBuilder()
+          .setTopicAdminClient(TopicAdminClient.create(publisherStub))
+          .setSubscriptionAdminClient(SubscriptionAdminClient.create(subscriberStub))
+          .setExpiration(java.time.Duration.ofMinutes(1))
+          .setMaximumSize(2)
+          .setClock(clock)
+          .build();
+
+  @Test
+  public void testCachesUntilExpiration() {
+    assertThat(cache.getTopic(TOPIC_NAME).getName()).isEqualTo(TOPIC_NAME.toString());
+    clock.advance(59, TimeUnit.SECONDS);
+    assertThat(cache.getTopic(TOPIC_NAME.toString()).getName()).isEqualTo(TOPIC_NAME.toString());
+    assertThat(publisherStub.getTopicCount.get()).isEqualTo(1);
+
+    clock.advance(1, TimeUnit.SECONDS);
+    cache.getTopic(TOPIC_NAME);
+    assertThat(publisherStub.getTopicCount.get()).isEqualTo(2);
+
+    AdminMetadataCacheStats stats = cache.getStats();
+    assertThat(stats.getHitCount()).isEqualTo(1);
+    assertThat(stats.getMissCount()).isEqualTo(2);
+    assertThat(stats.getEntryCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    cache.getSubscription("projects/project/subscriptions/a");
+    cache.getSubscription("projects/project/subscriptions/b");
+    cache.getSubscription("projects/project/subscriptions/a");
+    cache.getSubscription("projects/project/subscriptions/c");
+    cache.getSubscription("projects/project/subscriptions/a");
+    assertThat(subscriberStub.getSubscriptionCount.get()).isEqualTo(3);
+
+    cache.getSubscription("projects/project/subscriptions/b");
+    assertThat(subscriberStub.getSubscriptionCount.get()).isEqualTo(4);
+    assertThat(cache.getStats().getEvictionCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testConcurrentLookupsShareRpc() throws Exception {
+    SettableApiFuture<Topic> response = SettableApiFuture.create();
+    publisherStub.getTopic = request -> response;
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      CountDownLatch started = new CountDownLatch(4);
+      List<Future<Topic>> lookups = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        lookups.add(
+            executor.submit(
+                () -> {
+                  started.countDown();
+                  return cache.getTopic(TOPIC_NAME);
+                }));
+      }
+      started.await();
+      // Give the lookups time to wait for the RPC of the first one.
+      Thread.sleep(100);
+      Topic topic = Topic.newBuilder().setName(TOPIC_NAME.toString()).build();
+      response.set(topic);
+      for (Future<Topic> lookup : lookups) {
+        assertThat(lookup.get()).isEqualTo(topic);
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(publisherStub.getTopicCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testFailuresAreNotCached() {
+    publisherStub.getTopic =
+        request ->
+            ApiFutures.immediateFailedFuture(
+                ApiExceptionFactory.createException(
+                    null, GrpcStatusCode.of(Status.Code.NOT_FOUND), false));
+    try {
+      cache.getTopic(TOPIC_NAME);
+      fail("Expected a NotFoundException");
+    } catch (NotFoundException e) {
+      // expected
+    }
+
+    publisherStub.getTopic = FakePublisherStub::topicOf;
+    cache.getTopic(TOPIC_NAME);
+    assertThat(publisherStub.getTopicCount.get()).isEqualTo(2);
+    assertThat(cache.getStats().getLoadFailureCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testUpdatesAndDeletionsInvalidate() {
+    cache.getTopic(TOPIC_NAME);
+    cache.updateTopic(
+        UpdateTopicRequest.newBuilder()
+            .setTopic(Topic.newBuilder().setName(TOPIC_NAME.toString()))
+            .build());
+    cache.getTopic(TOPIC_NAME);
+    assertThat(publisherStub.getTopicCount.get()).isEqualTo(2);
+
+    cache.getSubscription(SUBSCRIPTION_NAME);
+    cache.updateSubscription(
+        UpdateSubscriptionRequest.newBuilder()
+            .setSubscription(Subscription.newBuilder().setName(SUBSCRIPTION_NAME.toString()))
+            .build());
+    cache.getSubscription(SUBSCRIPTION_NAME);
+    cache.deleteSubscription(SUBSCRIPTION_NAME.toString());
+    cache.getSubscription(SUBSCRIPTION_NAME);
+    assertThat(subscriberStub.getSubscriptionCount.get()).isEqualTo(3);
+
+    // Deleting the topic also invalidates its subscriptions.
+    cache.deleteTopic(TOPIC_NAME.toString());
+    cache.getTopic(TOPIC_NAME);
+    cache.getSubscription(SUBSCRIPTION_NAME);
+    assertThat(publisherStub.getTopicCount.get()).isEqualTo(3);
+    assertThat(subscriberStub.getSubscriptionCount.get()).isEqualTo(4);
+  }
+
+  @Test
+  public void testUpdateDuringLookupIsNotCachedOver() throws Exception {
+    SettableApiFuture<Topic> staleResponse = SettableApiFuture.create();
+    CountDownLatch rpcStarted = new CountDownLatch(1);
+    publisherStub.getTopic =
+        request -> {
+          rpcStarted.countDown();
+          return staleResponse;
+        };
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Topic> lookup = executor.submit(() -> cache.getTopic(TOPIC_NAME));
+      rpcStarted.await();
+
+      // The topic is updated while the lookup fetched before the update is in flight.
+      Topic updated =
+          Topic.newBuilder().setName(TOPIC_NAME.toString()).putLabels("version", "2").build();
+      cache.updateTopic(UpdateTopicRequest.newBuilder().setTopic(updated).build());
+      Topic stale =
+          Topic.newBuilder().setName(TOPIC_NAME.toString()).putLabels("version", "1").build();
+      staleResponse.set(stale);
+      assertThat(lookup.get()).isEqualTo(stale);
+    } finally {
+      executor.shutdown();
+    }
+
+    publisherStub.getTopic =
+        request ->
+            ApiFutures.immediateFuture(
+                Topic.newBuilder()
+                    .setName(TOPIC_NAME.toString())
+                    .putLabels("version", "2")
+                    .build());
+    assertThat(cache.getTopic(TOPIC_NAME).getLabelsMap()).containsEntry("version", "2");
+    assertThat(publisherStub.getTopicCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testRequiresClientOfLookup() {
+    AdminMetadataCache topicCache =
+        AdminMetadataCache.newBuilder()
+            .setTopicAdminClient(TopicAdminClient.create(publisherStub))
+            .build();
+    try {
+      topicCache.getSubscription(SUBSCRIPTION_NAME);
+      fail("Expected an IllegalStateException");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  /** A stub that answers topic lookups, updates and deletions without a server. */
+  private static class FakePublisherStub extends PublisherStub {
+    final AtomicInteger getTopicCount = new AtomicInteger();
+    volatile Function<GetTopicRequest, ApiFuture<Topic>> getTopic = FakePublisherStub::topicOf;
+
+    static ApiFuture<Topic> topicOf(GetTopicRequest request) {
+      return ApiFutures.immediateFuture(Topic.newBuilder().setName(request.getTopic()).build());
+    }
+
+    @Override
+    public UnaryCallable<GetTopicRequest, Topic> getTopicCallable() {
+      return new UnaryCallable<GetTopicRequest, Topic>() {
+        @Override
+        public ApiFuture<Topic> futureCall(GetTopicRequest request, ApiCallContext context) {
+          getTopicCount.incrementAndGet();
+          return getTopic.apply(request);
+        }
+      };
+    }
+
+    @Override
+    public UnaryCallable<UpdateTopicRequest, Topic> updateTopicCallable() {
+      return new UnaryCallable<UpdateTopicRequest, Topic>() {
+        @Override
+        public ApiFuture<Topic> futureCall(UpdateTopicRequest request, ApiCallContext context) {
+          return ApiFutures.immediateFuture(request.getTopic());
+        }
+      };
+    }
+
+    @Override
+    public UnaryCallable<DeleteTopicRequest, Empty> deleteTopicCallable() {
+      return new UnaryCallable<DeleteTopicRequest, Empty>() {
+        @Override
+        public ApiFuture<Empty> futureCall(DeleteTopicRequest request, ApiCallContext context) {
+          return ApiFutures.immediateFuture(Empty.getDefaultInstance());
+        }
+      };
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public void shutdown() {}
+
+    @Override
+    public boolean isShutdown() {
+      return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return false;
+    }
+
+    @Override
+    public void shutdownNow() {}
+
+    @Override
+    public boolean awaitTermination(long duration, TimeUnit unit) {
+      return true;
+    }
+  }
+
+  /** A stub that answers subscription lookups, updates and deletions without a server. */
+  private static class FakeSubscriberStub extends SubscriberStub {
+    final AtomicInteger getSubscriptionCount = new AtomicInteger();
+
+    @Override
+    public UnaryCallable<GetSubscriptionRequest, Subscription> getSubscriptionCallable() {
+      return new UnaryCallable<GetSubscriptionRequest, Subscription>() {
+        @Override
+        public ApiFuture<Subscription> futureCall(
+            GetSubscriptionRequest request, ApiCallContext context) {
+          getSubscriptionCount.incrementAndGet();
+          return ApiFutures.immediateFuture(
+              Subscription.newBuilder()
+                  .setName(request.getSubscription())
+                  .setTopic(TOPIC_NAME.toString())
+                  .build());
+        }
+      };
+    }
+
+    @Override
+    public UnaryCallable<UpdateSubscriptionRequest, Subscription> updateSubscriptionCallable() {
+      return new UnaryCallable<UpdateSubscriptionRequest, Subscription>() {
+        @Override
+        public ApiFuture<Subscription> futureCall(
+            UpdateSubscriptionRequest request, ApiCallContext context) {
+          return ApiFutures.immediateFuture(request.getSubscription());
+        }
+      };
+    }
+
+    @Override
+    public UnaryCallable<DeleteSubscriptionRequest, Empty> deleteSubscriptionCallable() {
+      return new UnaryCallable<DeleteSubscriptionRequest, Empty>() {
+        @Override
+        public ApiFuture<Empty> futureCall(
+            DeleteSubscriptionRequest request, ApiCallContext context) {
+          return ApiFutures.immediateFuture(Empty.getDefaultInstance());
+        }
+      };
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public void shutdown() {}
+
+    @Override
+    public boolean isShutdown() {
+      return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return false;
+    }
+
+    @Override
+    public void shutdownNow() {}
+
+    @Override
+    public boolean awaitTermination(long duration, TimeUnit unit) {
+      return true;
+    }
+  }
+}
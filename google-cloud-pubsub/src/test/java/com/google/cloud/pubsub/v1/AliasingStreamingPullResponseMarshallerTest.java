@@ -0,0 +1,225 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.ReceivedMessage;
+import com.google.pubsub.v1.StreamingPullResponse;
+import io.grpc.Detachable;
+import io.grpc.HasByteBuffer;
+import io.grpc.KnownLength;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class AliasingStreamingPullResponseMarshallerTest {
+  private static final StreamingPullResponse RESPONSE =
+      StreamingPullResponse.newBuilder()
+          .addReceivedMessages(newReceivedMessage("ACK-ID-1", 1000))
+          .addReceivedMessages(newReceivedMessage("ACK-ID-2", 3000))
+          .build();
+
+  private final AliasingStreamingPullResponseMarshaller marshaller =
+      new AliasingStreamingPullResponseMarshaller();
+
+  @Test
+  public void testParse_retainsBuffersUntilReleased() {
+    AtomicBoolean closed = new AtomicBoolean();
+    // Split so that one message spans two buffers.
+    StreamingPullResponse response =
+        marshaller.parse(new BufferStream(RESPONSE.toByteArray(), 2500, closed));
+
+    assertThat(response).isEqualTo(RESPONSE);
+    assertFalse(closed.get());
+    Runnable releaseBuffers = marshaller.takeBuffers(response);
+    assertNull(marshaller.takeBuffers(response));
+    assertFalse(closed.get());
+    releaseBuffers.run();
+    assertTrue(closed.get());
+  }
+
+  @Test
+  public void testParse_responseWithoutMessagesReleasedRightAway() {
+    AtomicBoolean closed = new AtomicBoolean();
+    StreamingPullResponse empty =
+        StreamingPullResponse.newBuilder()
+            .setSubscriptionProperties(
+                StreamingPullResponse.SubscriptionProperties.newBuilder()
+                    .setExactlyOnceDeliveryEnabled(true))
+            .build();
+    StreamingPullResponse response =
+        marshaller.parse(new BufferStream(empty.toByteArray(), 1024, closed));
+
+    assertThat(response).isEqualTo(empty);
+    assertTrue(closed.get());
+    assertNull(marshaller.takeBuffers(response));
+  }
+
+  @Test
+  public void testReleaseAll_releasesBuffersNotTaken() {
+    AtomicBoolean takenClosed = new AtomicBoolean();
+    AtomicBoolean notTakenClosed = new AtomicBoolean();
+    StreamingPullResponse taken =
+        marshaller.parse(new BufferStream(RESPONSE.toByteArray(), 2500, takenClosed));
+    Runnable releaseTaken = marshaller.takeBuffers(taken);
+    StreamingPullResponse notTaken =
+        marshaller.parse(new BufferStream(RESPONSE.toByteArray(), 2500, notTakenClosed));
+
+    marshaller.releaseAll();
+    assertTrue(notTakenClosed.get());
+    assertFalse(takenClosed.get());
+    assertNull(marshaller.takeBuffers(notTaken));
+    releaseTaken.run();
+    assertTrue(takenClosed.get());
+
+    // Later responses are copied.
+    AtomicBoolean laterClosed = new AtomicBoolean();
+    StreamingPullResponse later =
+        marshaller.parse(new BufferStream(RESPONSE.toByteArray(), 2500, laterClosed));
+    assertThat(later).isEqualTo(RESPONSE);
+    assertNull(marshaller.takeBuffers(later));
+  }
+
+  @Test
+  public void testParse_releasesBuffersOfCollectedResponses() throws Exception {
+    AtomicBoolean closed = new AtomicBoolean();
+    // The response is dropped without being taken, as when its stream is cancelled.
+    marshaller.parse(new BufferStream(RESPONSE.toByteArray(), 2500, closed));
+
+    StreamingPullResponse empty = StreamingPullResponse.getDefaultInstance();
+    for (int i = 0; i < 100 && !closed.get(); i++) {
+      System.gc();
+      Thread.sleep(10);
+      marshaller.parse(new BufferStream(empty.toByteArray(), 1024, new AtomicBoolean()));
+    }
+    assertTrue(closed.get());
+  }
+
+  @Test
+  public void testParse_fallsBackWithoutBufferAccess() {
+    StreamingPullResponse response =
+        marshaller.parse(new ByteArrayInputStream(RESPONSE.toByteArray()));
+
+    assertThat(response).isEqualTo(RESPONSE);
+    assertNull(marshaller.takeBuffers(response));
+  }
+
+  private static ReceivedMessage newReceivedMessage(String ackId, int size) {
+    byte[] data = new byte[size];
+    for (int i = 0; i < size; i++) {
+      data[i] = (byte) i;
+    }
+    return ReceivedMessage.newBuilder()
+        .setAckId(ackId)
+        .setMessage(PubsubMessage.newBuilder().setData(ByteString.copyFrom(data)))
+        .build();
+  }
+
+  /** A stream over direct buffers, like the ones gRPC passes to marshallers. */
+  private static class BufferStream extends InputStream
+      implements KnownLength, HasByteBuffer, Detachable {
+    private final Deque<ByteBuffer> buffers;
+    private final AtomicBoolean closed;
+
+    BufferStream(byte[] bytes, int bufferSize, AtomicBoolean closed) {
+      this.buffers = new ArrayDeque<>();
+      for (int offset = 0; offset < bytes.length; offset += bufferSize) {
+        int length = Math.min(bufferSize, bytes.length - offset);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+        buffer.put(bytes, offset, length).flip();
+        buffers.add(buffer);
+      }
+      this.closed = closed;
+    }
+
+    private BufferStream(Deque<ByteBuffer> buffers, AtomicBoolean closed) {
+      this.buffers = buffers;
+      this.closed = closed;
+    }
+
+    @Override
+    public boolean byteBufferSupported() {
+      return true;
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() {
+      return buffers.isEmpty() ? null : buffers.peek().duplicate();
+    }
+
+    @Override
+    public InputStream detach() {
+      BufferStream detached = new BufferStream(new ArrayDeque<>(buffers), closed);
+      buffers.clear();
+      return detached;
+    }
+
+    @Override
+    public int available() {
+      int available = 0;
+      for (ByteBuffer buffer : buffers) {
+        available += buffer.remaining();
+      }
+      return available;
+    }
+
+    @Override
+    public int read() {
+      if (buffers.isEmpty()) {
+        return -1;
+      }
+      int b = buffers.peek().get() & 0xFF;
+      if (!buffers.peek().hasRemaining()) {
+        buffers.poll();
+      }
+      return b;
+    }
+
+    @Override
+    public long skip(long n) {
+      long skipped = 0;
+      while (skipped < n && !buffers.isEmpty()) {
+        ByteBuffer buffer = buffers.peek();
+        int step = (int) Math.min(n - skipped, buffer.remaining());
+        buffer.position(buffer.position() + step);
+        skipped += step;
+        if (!buffer.hasRemaining()) {
+          buffers.poll();
+        }
+      }
+      return skipped;
+    }
+
+    @Override
+    public void close() {
+      closed.set(true);
+    }
+  }
+}
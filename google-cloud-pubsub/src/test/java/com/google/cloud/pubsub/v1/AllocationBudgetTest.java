@@ -0,0 +1,408 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController;
+import com.google.api.gax.core.Distribution;
+import com.google.api.gax.core.FixedExecutorProvider;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PublishRequest;
+import com.google.pubsub.v1.PublishResponse;
+import com.google.pubsub.v1.PublisherGrpc.PublisherImplBase;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.ReceivedMessage;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.opentelemetry.sdk.testing.junit4.OpenTelemetryRule;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Guards the bytes allocated per message on the publish and receive paths against a stored budget.
+ *
+ * <p>Everything runs on the test thread, so that {@code ThreadMXBean#getThreadAllocatedBytes}
+ * accounts for all of it: the executors run tasks inline and the in-process server and channel use
+ * a direct executor. The figures include the in-process transport and the fakes, which allocate
+ * little and the same for every configuration.
+ *
+ * <p>Each budget is about 1.25 times the allocation measured when it was set, to absorb differences
+ * between JVMs. If a change reduces allocations, lower the budget to keep it; if a change has to
+ * allocate more, raise it in the same change so that the cost is reviewed.
+ */
+@RunWith(JUnit4.class)
+public class AllocationBudgetTest {
+  // Bytes allocated per message.
+  private static final long PUBLISH_BUDGET = 3200;
+  private static final long PUBLISH_ORDERING_BUDGET = 3200;
+  private static final long PUBLISH_COMPRESSION_BUDGET = 3200;
+  private static final long PUBLISH_TRACING_BUDGET = 7700;
+  private static final long RECEIVE_BUDGET = 2100;
+  private static final long RECEIVE_ORDERING_BUDGET = 2100;
+  private static final long RECEIVE_EXACTLY_ONCE_BUDGET = 2200;
+  private static final long RECEIVE_TRACING_BUDGET = 6400;
+
+  private static final String TOPIC = "projects/test-project/topics/test-topic";
+  private static final String SUBSCRIPTION = "projects/test-project/subscriptions/test-sub";
+  private static final int MESSAGES_PER_ROUND = 1000;
+  private static final int MESSAGES_PER_BATCH = 100;
+  private static final int ORDERING_KEYS = 10;
+  private static final int WARM_UP_ROUNDS = 20;
+  private static final int MEASURED_ROUNDS = 5;
+  private static final ByteString DATA = ByteString.copyFromUtf8(repeat('x', 100));
+
+  private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+      ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+          ? (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()
+          : null;
+
+  private interface Round {
+    void run() throws Exception;
+  }
+
+  private Server server;
+  private ManagedChannel channel;
+  private FakeScheduledExecutorService executor;
+
+  @Before
+  public void setUp() throws Exception {
+    assumeTrue(
+        THREAD_MX_BEAN != null
+            && THREAD_MX_BEAN.isThreadAllocatedMemorySupported()
+            && THREAD_MX_BEAN.isThreadAllocatedMemoryEnabled());
+    server =
+        InProcessServerBuilder.forName("allocation-test")
+            .directExecutor()
+            .addService(new AcknowledgingPublisher())
+            .build()
+            .start();
+    channel = InProcessChannelBuilder.forName("allocation-test").directExecutor().build();
+    executor = new FakeScheduledExecutorService();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (channel != null) {
+      channel.shutdownNow();
+    }
+    if (server != null) {
+      server.shutdownNow().awaitTermination();
+    }
+  }
+
+  @Test
+  public void testPublish() throws Exception {
+    assertPublishWithinBudget("plain", newPublisherBuilder(), false, PUBLISH_BUDGET);
+  }
+
+  @Test
+  public void testPublishWithOrderingKeys() throws Exception {
+    assertPublishWithinBudget(
+        "ordering",
+        newPublisherBuilder().setEnableMessageOrdering(true),
+        true,
+        PUBLISH_ORDERING_BUDGET);
+  }
+
+  @Test
+  public void testPublishWithCompression() throws Exception {
+    assertPublishWithinBudget(
+        "compression",
+        newPublisherBuilder().setEnableCompression(true).setCompressionBytesThreshold(1),
+        false,
+        PUBLISH_COMPRESSION_BUDGET);
+  }
+
+  @Test
+  public void testPublishWithTracing() throws Exception {
+    OpenTelemetryRule openTelemetryTesting = OpenTelemetryRule.create();
+    assertPublishWithinBudget(
+        "tracing",
+        newPublisherBuilder()
+            .setOpenTelemetry(openTelemetryTesting.getOpenTelemetry())
+            .setEnableOpenTelemetryTracing(true),
+        false,
+        PUBLISH_TRACING_BUDGET,
+        openTelemetryTesting);
+  }
+
+  @Test
+  public void testReceive() throws Exception {
+    assertReceiveWithinBudget("plain", newMessageDispatcherBuilder(), false, false, RECEIVE_BUDGET);
+  }
+
+  @Test
+  public void testReceiveWithOrderingKeys() throws Exception {
+    assertReceiveWithinBudget(
+        "ordering", newMessageDispatcherBuilder(), true, false, RECEIVE_ORDERING_BUDGET);
+  }
+
+  @Test
+  public void testReceiveWithExactlyOnceDelivery() throws Exception {
+    assertReceiveWithinBudget(
+        "exactly-once", newMessageDispatcherBuilder(), false, true, RECEIVE_EXACTLY_ONCE_BUDGET);
+  }
+
+  @Test
+  public void testReceiveWithTracing() throws Exception {
+    OpenTelemetryRule openTelemetryTesting = OpenTelemetryRule.create();
+    assertReceiveWithinBudget(
+        "tracing",
+        newMessageDispatcherBuilder()
+            .setEnableOpenTelemetryTracing(true)
+            .setTracer(
+                new OpenTelemetryPubsubTracer(
+                    openTelemetryTesting.getOpenTelemetry().getTracer("test"), true)),
+        false,
+        false,
+        RECEIVE_TRACING_BUDGET,
+        openTelemetryTesting);
+  }
+
+  private void assertPublishWithinBudget(
+      String configuration, Publisher.Builder builder, boolean ordered, long budget)
+      throws Exception {
+    assertPublishWithinBudget(configuration, builder, ordered, budget, null);
+  }
+
+  private void assertPublishWithinBudget(
+      String configuration,
+      Publisher.Builder builder,
+      boolean ordered,
+      long budget,
+      OpenTelemetryRule openTelemetryTesting)
+      throws Exception {
+    final Publisher publisher = builder.build();
+    final List<PubsubMessage> messages = new ArrayList<>(MESSAGES_PER_ROUND);
+    for (int i = 0; i < MESSAGES_PER_ROUND; i++) {
+      PubsubMessage.Builder message = PubsubMessage.newBuilder().setData(DATA);
+      if (ordered) {
+        message.setOrderingKey("key-" + (i % ORDERING_KEYS));
+      }
+      messages.add(message.build());
+    }
+    final List<ApiFuture<String>> results = new ArrayList<>(MESSAGES_PER_ROUND);
+    long bytesPerMessage =
+        measure(
+            () -> {
+              for (PubsubMessage message : messages) {
+                results.add(publisher.publish(message));
+              }
+              for (ApiFuture<String> result : results) {
+                assertThat(result.isDone()).isTrue();
+              }
+              results.clear();
+              if (openTelemetryTesting != null) {
+                openTelemetryTesting.clearSpans();
+              }
+            });
+    publisher.shutdown();
+    publisher.awaitTermination(1, TimeUnit.MINUTES);
+
+    assertWithMessage("Bytes allocated per published message (%s)", configuration)
+        .that(bytesPerMessage)
+        .isAtMost(budget);
+  }
+
+  private void assertReceiveWithinBudget(
+      String configuration,
+      MessageDispatcher.Builder builder,
+      boolean ordered,
+      boolean exactlyOnce,
+      long budget)
+      throws Exception {
+    assertReceiveWithinBudget(configuration, builder, ordered, exactlyOnce, budget, null);
+  }
+
+  private void assertReceiveWithinBudget(
+      String configuration,
+      MessageDispatcher.Builder builder,
+      boolean ordered,
+      boolean exactlyOnce,
+      long budget,
+      OpenTelemetryRule openTelemetryTesting)
+      throws Exception {
+    final AcknowledgingAckProcessor ackProcessor = new AcknowledgingAckProcessor();
+    final MessageDispatcher messageDispatcher = builder.setAckProcessor(ackProcessor).build();
+    ackProcessor.messageDispatcher = messageDispatcher;
+    messageDispatcher.setMessageDeadlineSeconds(10);
+    messageDispatcher.setExactlyOnceDeliveryEnabled(exactlyOnce);
+
+    final List<List<ReceivedMessage>> responses = new ArrayList<>();
+    for (int i = 0; i < MESSAGES_PER_ROUND; i += MESSAGES_PER_BATCH) {
+      List<ReceivedMessage> response = new ArrayList<>(MESSAGES_PER_BATCH);
+      for (int j = i; j < i + MESSAGES_PER_BATCH; j++) {
+        PubsubMessage.Builder message =
+            PubsubMessage.newBuilder().setData(DATA).setMessageId(Integer.toString(j));
+        if (ordered) {
+          message.setOrderingKey("key-" + (j % ORDERING_KEYS));
+        }
+        response.add(ReceivedMessage.newBuilder().setAckId("ack-" + j).setMessage(message).build());
+      }
+      responses.add(response);
+    }
+    long bytesPerMessage =
+        measure(
+            () -> {
+              ackProcessor.acks = 0;
+              for (List<ReceivedMessage> response : responses) {
+                messageDispatcher.processReceivedMessages(response);
+                // Sends the receipts, then the acks of the messages delivered once their receipts
+                // succeeded with exactly once delivery.
+                messageDispatcher.processOutstandingOperations();
+                messageDispatcher.processOutstandingOperations();
+              }
+              assertThat(ackProcessor.acks).isEqualTo(MESSAGES_PER_ROUND);
+              if (openTelemetryTesting != null) {
+                openTelemetryTesting.clearSpans();
+              }
+            });
+
+    assertWithMessage("Bytes allocated per received and acked message (%s)", configuration)
+        .that(bytesPerMessage)
+        .isAtMost(budget);
+  }
+
+  /**
+   * Returns the fewest bytes allocated per message by the test thread in a round, after warming up
+   * so that the measured code is compiled.
+   */
+  private static long measure(Round round) throws Exception {
+    long threadId = Thread.currentThread().getId();
+    for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+      round.run();
+    }
+    long fewestBytes = Long.MAX_VALUE;
+    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+      long before = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+      round.run();
+      fewestBytes =
+          Math.min(fewestBytes, THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - before);
+    }
+    return fewestBytes / MESSAGES_PER_ROUND;
+  }
+
+  private Publisher.Builder newPublisherBuilder() {
+    return Publisher.newBuilder(TOPIC)
+        .setBatchingSettings(
+            BatchingSettings.newBuilder()
+                .setElementCountThreshold((long) MESSAGES_PER_BATCH)
+                .setRequestByteThreshold(1000L * 1000L)
+                .setDelayThresholdDuration(Duration.ofHours(1))
+                .build())
+        .setExecutorProvider(FixedExecutorProvider.create(executor))
+        .setChannelProvider(
+            FixedTransportChannelProvider.create(GrpcTransportChannel.create(channel)))
+        .setCredentialsProvider(NoCredentialsProvider.create());
+  }
+
+  private MessageDispatcher.Builder newMessageDispatcherBuilder() {
+    return MessageDispatcher.newBuilder(
+            (PubsubMessage message, AckReplyConsumer consumer) -> consumer.ack())
+        .setAckExpirationPadding(Subscriber.ACK_EXPIRATION_PADDING_DEFAULT)
+        .setMaxAckExtensionPeriod(Duration.ofMinutes(60))
+        .setMinDurationPerAckExtension(Subscriber.DEFAULT_MIN_ACK_DEADLINE_EXTENSION)
+        .setMinDurationPerAckExtensionDefaultUsed(true)
+        .setMaxDurationPerAckExtension(Subscriber.DEFAULT_MAX_ACK_DEADLINE_EXTENSION)
+        .setMaxDurationPerAckExtensionDefaultUsed(true)
+        .setAckLatencyDistribution(new Distribution(601))
+        .setFlowController(
+            new FlowController(
+                FlowControlSettings.newBuilder()
+                    .setLimitExceededBehavior(FlowController.LimitExceededBehavior.Ignore)
+                    .build()))
+        .setExecutor(MoreExecutors.directExecutor())
+        .setSystemExecutor(executor)
+        .setApiClock(new FakeClock())
+        .setSubscriptionName(SUBSCRIPTION);
+  }
+
+  private static String repeat(char c, int count) {
+    StringBuilder builder = new StringBuilder(count);
+    for (int i = 0; i < count; i++) {
+      builder.append(c);
+    }
+    return builder.toString();
+  }
+
+  /** Publisher service that acknowledges every message with responses built in advance. */
+  private static class AcknowledgingPublisher extends PublisherImplBase {
+    private final PublishResponse[] responses = new PublishResponse[MESSAGES_PER_BATCH + 1];
+
+    AcknowledgingPublisher() {
+      for (int size = 0; size < responses.length; size++) {
+        PublishResponse.Builder response = PublishResponse.newBuilder();
+        for (int i = 0; i < size; i++) {
+          response.addMessageIds(Integer.toString(i));
+        }
+        responses[size] = response.build();
+      }
+    }
+
+    @Override
+    public void publish(PublishRequest request, StreamObserver<PublishResponse> responseObserver) {
+      responseObserver.onNext(responses[request.getMessagesCount()]);
+      responseObserver.onCompleted();
+    }
+  }
+
+  /** Completes every ack and modack right away, as the streaming pull connection would. */
+  private static class AcknowledgingAckProcessor implements MessageDispatcher.AckProcessor {
+    MessageDispatcher messageDispatcher;
+    int acks;
+
+    @Override
+    public void sendAckOperations(List<AckRequestData> ackRequestDataList) {
+      for (AckRequestData ackRequestData : ackRequestDataList) {
+        ackRequestData.setResponse(AckResponse.SUCCESSFUL, true);
+        messageDispatcher.notifyAckSuccess(ackRequestData);
+        acks++;
+      }
+    }
+
+    @Override
+    public void sendModackOperations(List<ModackRequestData> modackRequestDataList) {
+      for (ModackRequestData modackRequestData : modackRequestDataList) {
+        for (AckRequestData ackRequestData : modackRequestData.getAckRequestData()) {
+          ackRequestData.setResponse(AckResponse.SUCCESSFUL, false);
+          messageDispatcher.notifyAckSuccess(ackRequestData);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import static org.junit.Assert.fail;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.Encoding;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CompiledAvroSchemaTest {
+  private static final String DEFINITION =
+      "{\"type\": \"record\", \"name\": \"Order\", \"namespace\": \"example\", \"fields\": ["
+          + "{\"name\": \"id\", \"type\": \"string\"},"
+          + "{\"name\": \"quantity\", \"type\": \"int\"},"
+          + "{\"name\": \"status\", \"type\": {\"type\": \"enum\", \"name\": \"Status\","
+          + " \"symbols\": [\"NEW\", \"SHIPPED\"]}},"
+          + "{\"name\": \"tags\", \"type\": {\"type\": \"array\", \"items\": \"string\"}},"
+          + "{\"name\": \"note\", \"type\": [\"null\", \"string\"], \"default\": null},"
+          + "{\"name\": \"parent\", \"type\": [\"null\", \"Order\"], \"default\": null}"
+          + "]}";
+
+  private final CompiledAvroSchema schema = CompiledAvroSchema.compile(DEFINITION);
+
+  @Test
+  public void testValidatesBinaryMessage() {
+    // id "ab", quantity -2, status SHIPPED, tags ["c"], note "d", parent null.
+    schema.validate(
+        bytes(0x04, 'a', 'b', 0x03, 0x02, 0x02, 0x02, 'c', 0x00, 0x02, 0x02, 'd', 0x00),
+        Encoding.BINARY);
+    // A nested parent with an empty note and tags, in a block with a byte size.
+    schema.validate(
+        bytes(
+            0x02, 'a', 0x00, 0x00, 0x00, 0x00, 0x02, 0x02, 'b', 0x00, 0x00, 0x01, 0x04, 0x02, 'c',
+            0x00, 0x00, 0x00),
+        Encoding.BINARY);
+
+    // Truncated.
+    assertInvalid(bytes(0x04, 'a'), Encoding.BINARY);
+    // Status index out of range.
+    assertInvalid(bytes(0x02, 'a', 0x00, 0x04, 0x00, 0x00, 0x00), Encoding.BINARY);
+    // Union index out of range.
+    assertInvalid(bytes(0x02, 'a', 0x00, 0x00, 0x00, 0x04, 0x00), Encoding.BINARY);
+    // Quantity out of the range of an int.
+    assertInvalid(
+        bytes(0x02, 'a', 0x80, 0x80, 0x80, 0x80, 0x10, 0x00, 0x00, 0x00, 0x00), Encoding.BINARY);
+    // Trailing data.
+    assertInvalid(bytes(0x02, 'a', 0x00, 0x00, 0x00, 0x00, 0x00, 0x00), Encoding.BINARY);
+    // Invalid UTF-8.
+    assertInvalid(bytes(0x02, 0xff, 0x00, 0x00, 0x00, 0x00, 0x00), Encoding.BINARY);
+  }
+
+  @Test
+  public void testValidatesJsonMessage() {
+    schema.validate(
+        json(
+            "{\"id\": \"a\", \"quantity\": 3, \"status\": \"NEW\", \"tags\": [\"b\"],"
+                + " \"note\": {\"string\": \"c\"}, \"parent\": {\"example.Order\": {\"id\": \"d\","
+                + " \"quantity\": 1.0, \"status\": \"SHIPPED\", \"tags\": [], \"parent\": null}}}"),
+        Encoding.JSON);
+
+    assertInvalid(json("{\"id\": \"a\", \"status\": \"NEW\", \"tags\": []}"), Encoding.JSON);
+    assertInvalid(
+        json("{\"id\": \"a\", \"quantity\": 1.5, \"status\": \"NEW\", \"tags\": []}"),
+        Encoding.JSON);
+    assertInvalid(
+        json("{\"id\": \"a\", \"quantity\": 3000000000, \"status\": \"NEW\", \"tags\": []}"),
+        Encoding.JSON);
+    assertInvalid(
+        json("{\"id\": \"a\", \"quantity\": 1, \"status\": \"LOST\", \"tags\": []}"),
+        Encoding.JSON);
+    assertInvalid(
+        json(
+            "{\"id\": \"a\", \"quantity\": 1, \"status\": \"NEW\", \"tags\": [], \"note\": \"c\"}"),
+        Encoding.JSON);
+    assertInvalid(
+        json("{\"id\": \"a\", \"quantity\": 1, \"status\": \"NEW\", \"tags\": [], \"x\": 1}"),
+        Encoding.JSON);
+    assertInvalid(json("{"), Encoding.JSON);
+  }
+
+  @Test
+  public void testValidatesFixedAndMap() {
+    CompiledAvroSchema schema =
+        CompiledAvroSchema.compile(
+            "{\"type\": \"map\", \"values\": {\"type\": \"fixed\", \"name\": \"Pair\", \"size\": 2}}");
+
+    schema.validate(bytes(0x02, 0x02, 'k', 0x01, 0x02, 0x00), Encoding.BINARY);
+    schema.validate(json("{\"k\": \"\\u0001\\u00ff\"}"), Encoding.JSON);
+    assertInvalid(schema, bytes(0x02, 0x02, 'k', 0x01), Encoding.BINARY);
+    assertInvalid(schema, json("{\"k\": \"abc\"}"), Encoding.JSON);
+    assertInvalid(schema, json("{\"k\": \"\\u0100a\"}"), Encoding.JSON);
+  }
+
+  @Test
+  public void testRejectsInvalidDefinitions() {
+    assertInvalidDefinition("{\"type\": \"record\", \"name\": \"A\"}");
+    assertInvalidDefinition(
+        "{\"type\": \"record\", \"name\": \"A\", \"fields\": ["
+            + "{\"name\": \"b\", \"type\": \"B\"}]}");
+    assertInvalidDefinition("\"unknown\"");
+    assertInvalidDefinition("{\"type\": \"fixed\", \"name\": \"F\", \"size\": \"two\"}");
+    assertInvalidDefinition("not json {");
+  }
+
+  private void assertInvalid(ByteString data, Encoding encoding) {
+    assertInvalid(schema, data, encoding);
+  }
+
+  private static void assertInvalid(CompiledAvroSchema schema, ByteString data, Encoding encoding) {
+    try {
+      schema.validate(data, encoding);
+      fail("Expected an IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private static void assertInvalidDefinition(String definition) {
+    try {
+      CompiledAvroSchema.compile(definition);
+      fail("Expected an IllegalArgumentException for " + definition);
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private static ByteString bytes(int... values) {
+    byte[] bytes = new byte[values.length];
+    for (int i = 0; i < values.length; i++) {
+      bytes[i] = (byte) values[i];
+    }
+    return ByteString.copyFrom(bytes);
+  }
+
+  private static ByteString json(String json) {
+    return ByteString.copyFromUtf8(json);
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.pubsub.v1.Encoding;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CompiledProtobufSchemaTest {
+  private static final String PROTO3_DEFINITION =
+      "// An order.\n"
+          + "syntax = \"proto3\";\n"
+          + "package example.orders;\n"
+          + "option java_package = \"com.example\";\n"
+          + "message Order {\n"
+          + "  /* The order ID. */\n"
+          + "  string id = 1;\n"
+          + "  int64 quantity = 2 [deprecated = true];\n"
+          + "  Status status = 3;\n"
+          + "  repeated Item items = 4;\n"
+          + "  map<string, int32> counts = 5;\n"
+          + "  optional string note = 6;\n"
+          + "  oneof payment {\n"
+          + "    string card = 7;\n"
+          + "    string voucher = 8;\n"
+          + "  }\n"
+          + "  reserved 9, 10;\n"
+          + "  enum Status {\n"
+          + "    STATUS_UNSPECIFIED = 0;\n"
+          + "    SHIPPED = 1;\n"
+          + "  }\n"
+          + "  message Item {\n"
+          + "    string sku = 1;\n"
+          + "  }\n"
+          + "}\n";
+
+  private static final String PROTO2_DEFINITION =
+      "syntax = \"proto2\";\n"
+          + "message Reading {\n"
+          + "  required string sensor = 1;\n"
+          + "  optional double value = 2 [default = -1.5];\n"
+          + "}\n";
+
+  @Test
+  public void testCompilesFieldsOfFirstMessage() {
+    Descriptor descriptor = CompiledProtobufSchema.compile(PROTO3_DEFINITION).getDescriptor();
+
+    assertThat(descriptor.getFullName()).isEqualTo("example.orders.Order");
+    assertThat(descriptor.findFieldByName("status").getEnumType().getName()).isEqualTo("Status");
+    assertThat(descriptor.findFieldByName("items").isRepeated()).isTrue();
+    assertThat(descriptor.findFieldByName("counts").isMapField()).isTrue();
+    assertThat(descriptor.findFieldByName("note").hasPresence()).isTrue();
+    assertThat(descriptor.findFieldByName("voucher").getContainingOneof().getName())
+        .isEqualTo("payment");
+  }
+
+  @Test
+  public void testValidatesBinaryMessage() {
+    CompiledProtobufSchema schema = CompiledProtobufSchema.compile(PROTO3_DEFINITION);
+    Descriptor descriptor = schema.getDescriptor();
+    FieldDescriptor id = descriptor.findFieldByName("id");
+    ByteString data =
+        DynamicMessage.newBuilder(descriptor).setField(id, "order-1").build().toByteString();
+
+    schema.validate(data, Encoding.BINARY);
+
+    try {
+      // A string field with a length longer than the data.
+      schema.validate(ByteString.copyFrom(new byte[] {0x0a, 0x05, 'a'}), Encoding.BINARY);
+      fail("Expected an IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testValidatesJsonMessage() {
+    CompiledProtobufSchema schema = CompiledProtobufSchema.compile(PROTO3_DEFINITION);
+
+    schema.validate(
+        ByteString.copyFromUtf8(
+            "{\"id\": \"order-1\", \"quantity\": \"3\", \"status\": \"SHIPPED\","
+                + " \"items\": [{\"sku\": \"a\"}], \"counts\": {\"a\": 1}, \"card\": \"visa\"}"),
+        Encoding.JSON);
+
+    assertInvalidJson(schema, "{\"unknown\": 1}");
+    assertInvalidJson(schema, "{\"status\": \"LOST\"}");
+    assertInvalidJson(schema, "{\"quantity\": \"many\"}");
+    assertInvalidJson(schema, "not json");
+  }
+
+  @Test
+  public void testValidatesRequiredFieldsOfProto2() {
+    CompiledProtobufSchema schema = CompiledProtobufSchema.compile(PROTO2_DEFINITION);
+
+    schema.validate(ByteString.copyFromUtf8("{\"sensor\": \"s1\"}"), Encoding.JSON);
+    assertInvalidJson(schema, "{\"value\": 2.5}");
+    try {
+      schema.validate(ByteString.EMPTY, Encoding.BINARY);
+      fail("Expected an IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testRejectsUnsupportedDefinitions() {
+    assertInvalidDefinition("syntax = \"proto3\";");
+    assertInvalidDefinition("import \"other.proto\"; message A { Other other = 1; }");
+    assertInvalidDefinition("message A { Missing missing = 1; }");
+    assertInvalidDefinition("message A { string a = 1 }");
+    assertInvalidDefinition("service S { rpc Call(A) returns (A); }");
+    assertInvalidDefinition("syntax = \"proto3\"; message A { required string a = 1; }");
+  }
+
+  private static void assertInvalidJson(CompiledProtobufSchema schema, String json) {
+    try {
+      schema.validate(ByteString.copyFromUtf8(json), Encoding.JSON);
+      fail("Expected an IllegalArgumentException for " + json);
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private static void assertInvalidDefinition(String definition) {
+    try {
+      CompiledProtobufSchema.compile(definition);
+      fail("Expected an IllegalArgumentException for " + definition);
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.base.Strings;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PublishRequest;
+import com.google.pubsub.v1.PubsubMessage;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CompressionRatioEstimatorTest {
+
+  @Test
+  public void testSamplesFirstAndEveryIntervalRequest() {
+    CompressionRatioEstimator estimator = new CompressionRatioEstimator();
+    assertTrue(estimator.shouldSample());
+    for (int i = 1; i < CompressionRatioEstimator.SAMPLE_INTERVAL; i++) {
+      assertFalse(estimator.shouldSample());
+    }
+    assertTrue(estimator.shouldSample());
+  }
+
+  @Test
+  public void testRatioOfCompressibleAndRandomRequests() {
+    CompressionRatioEstimator estimator = new CompressionRatioEstimator();
+    assertThat(estimator.getRatio()).isEqualTo(1.0);
+
+    PublishRequest compressible = newRequest(ByteString.copyFromUtf8(Strings.repeat("{}", 5000)));
+    estimator.sample(compressible);
+    assertThat(estimator.getRatio()).isLessThan(0.05);
+    // Encoded requests are estimated the same.
+    CompressionRatioEstimator encodedEstimator = new CompressionRatioEstimator();
+    encodedEstimator.sample(compressible.toByteString());
+    assertThat(encodedEstimator.getRatio()).isEqualTo(estimator.getRatio());
+
+    byte[] random = new byte[10000];
+    new Random(1).nextBytes(random);
+    for (int i = 0; i < 20; i++) {
+      estimator.sample(newRequest(ByteString.copyFrom(random)));
+    }
+    assertThat(estimator.getRatio()).isGreaterThan(0.95);
+    assertThat(estimator.getRatio()).isAtMost(1.0);
+  }
+
+  @Test
+  public void testSamplesOnlyStartOfLargeRequests() {
+    byte[] random = new byte[1024 * 1024];
+    new Random(1).nextBytes(random);
+    PublishRequest request =
+        PublishRequest.newBuilder()
+            .setTopic("projects/p/topics/t")
+            .addMessages(
+                PubsubMessage.newBuilder()
+                    .setData(
+                        ByteString.copyFromUtf8(
+                            Strings.repeat("{}", CompressionRatioEstimator.SAMPLE_BYTES))))
+            .addMessages(PubsubMessage.newBuilder().setData(ByteString.copyFrom(random)))
+            .build();
+
+    // The random data after the sample is not compressed.
+    CompressionRatioEstimator estimator = new CompressionRatioEstimator();
+    estimator.sample(request);
+    assertThat(estimator.getRatio()).isLessThan(0.05);
+    CompressionRatioEstimator encodedEstimator = new CompressionRatioEstimator();
+    encodedEstimator.sample(request.toByteString());
+    assertThat(encodedEstimator.getRatio()).isEqualTo(estimator.getRatio());
+  }
+
+  @Test
+  public void testIgnoresSamplesAfterClose() {
+    CompressionRatioEstimator estimator = new CompressionRatioEstimator();
+    estimator.close();
+    estimator.sample(newRequest(ByteString.copyFromUtf8(Strings.repeat("{}", 5000))));
+    assertThat(estimator.getRatio()).isEqualTo(1.0);
+    estimator.close();
+  }
+
+  private static PublishRequest newRequest(ByteString data) {
+    return PublishRequest.newBuilder()
+        .setTopic("projects/p/topics/t")
+        .addMessages(PubsubMessage.newBuilder().setData(data))
+        .build();
+  }
+}
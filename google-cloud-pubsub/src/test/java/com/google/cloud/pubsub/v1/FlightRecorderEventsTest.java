@@ -0,0 +1,174 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+import io.grpc.Status;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class FlightRecorderEventsTest {
+  private static final String TOPIC = "projects/test-project/topics/test-topic";
+  private static final String SUBSCRIPTION = "projects/test-project/subscriptions/test-sub";
+
+  // A jdk.jfr.Recording, used reflectively since the tests are compiled for Java 8.
+  private Object recording;
+  private File recordingFile;
+
+  @Before
+  public void setUp() throws Exception {
+    Class<?> recordingClass;
+    try {
+      recordingClass = Class.forName("jdk.jfr.Recording");
+    } catch (ClassNotFoundException e) {
+      recordingClass = null;
+    }
+    assumeTrue(recordingClass != null);
+    recording = recordingClass.getConstructor().newInstance();
+    recordingFile = File.createTempFile("pubsub", ".jfr");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (recording != null) {
+      recording.getClass().getMethod("close").invoke(recording);
+    }
+    if (recordingFile != null) {
+      recordingFile.delete();
+    }
+  }
+
+  @Test
+  public void testEventsDisabledByDefault() throws Exception {
+    invoke(recording, "start");
+
+    assertNull(FlightRecorderEvents.beginPublishRpc());
+    assertNull(FlightRecorderEvents.beginAckRpc());
+    FlightRecorderEvents.batchFlushed(TOPIC, "", FlightRecorderEvents.FLUSH_REASON_COUNT, 1, 10);
+
+    assertThat(stopAndReadEvents()).isEmpty();
+  }
+
+  @Test
+  public void testEnabledEventsAreRecorded() throws Exception {
+    enable("BatchFlushed");
+    enable("PublishRpc");
+    enable("AckRpc");
+    enable("StreamClosed");
+    invoke(recording, "start");
+
+    FlightRecorderEvents.batchFlushed(TOPIC, "key", FlightRecorderEvents.FLUSH_REASON_BYTES, 3, 42);
+    Object publishRpc = FlightRecorderEvents.beginPublishRpc();
+    FlightRecorderEvents.endPublishRpc(publishRpc, TOPIC, "", 3, 42, null);
+    Object ackRpc = FlightRecorderEvents.beginAckRpc();
+    FlightRecorderEvents.endAckRpc(
+        ackRpc,
+        SUBSCRIPTION,
+        FlightRecorderEvents.OPERATION_MODACK,
+        5,
+        60,
+        Status.UNAVAILABLE.asRuntimeException());
+    FlightRecorderEvents.streamClosed(SUBSCRIPTION, 1, null, true);
+    // Not enabled.
+    FlightRecorderEvents.streamOpened(SUBSCRIPTION, 1);
+
+    List<Object> events = stopAndReadEvents();
+    assertThat(events).hasSize(4);
+    List<String> names = new ArrayList<>();
+    for (Object event : events) {
+      names.add(eventName(event));
+      switch (eventName(event)) {
+        case "com.google.cloud.pubsub.v1.BatchFlushed":
+          assertThat(getValue(event, "topic")).isEqualTo(TOPIC);
+          assertThat(getValue(event, "orderingKey")).isEqualTo("key");
+          assertThat(getValue(event, "reason")).isEqualTo("bytes");
+          assertThat(getValue(event, "messageCount")).isEqualTo(3);
+          assertThat(getValue(event, "bytes")).isEqualTo(42L);
+          break;
+        case "com.google.cloud.pubsub.v1.PublishRpc":
+          assertThat(getValue(event, "messageCount")).isEqualTo(3);
+          assertThat(getValue(event, "status")).isEqualTo("OK");
+          break;
+        case "com.google.cloud.pubsub.v1.AckRpc":
+          assertThat(getValue(event, "subscription")).isEqualTo(SUBSCRIPTION);
+          assertThat(getValue(event, "operation")).isEqualTo("modack");
+          assertThat(getValue(event, "ackIdCount")).isEqualTo(5);
+          assertThat(getValue(event, "deadlineExtensionSeconds")).isEqualTo(60);
+          assertThat(getValue(event, "status")).isEqualTo("UNAVAILABLE");
+          break;
+        case "com.google.cloud.pubsub.v1.StreamClosed":
+          assertThat(getValue(event, "reconnect")).isEqualTo(true);
+          break;
+        default:
+          break;
+      }
+    }
+    assertThat(names)
+        .containsExactly(
+            "com.google.cloud.pubsub.v1.BatchFlushed",
+            "com.google.cloud.pubsub.v1.PublishRpc",
+            "com.google.cloud.pubsub.v1.AckRpc",
+            "com.google.cloud.pubsub.v1.StreamClosed");
+  }
+
+  private void enable(String eventName) throws Exception {
+    recording
+        .getClass()
+        .getMethod("enable", String.class)
+        .invoke(recording, "com.google.cloud.pubsub.v1." + eventName);
+  }
+
+  /** Stops the recording and returns the events from this library, as jdk.jfr.RecordedEvent. */
+  private List<Object> stopAndReadEvents() throws Exception {
+    invoke(recording, "stop");
+    recording.getClass().getMethod("dump", Path.class).invoke(recording, recordingFile.toPath());
+    Method readAllEvents =
+        Class.forName("jdk.jfr.consumer.RecordingFile").getMethod("readAllEvents", Path.class);
+    List<Object> events = new ArrayList<>();
+    for (Object event : (List<?>) readAllEvents.invoke(null, recordingFile.toPath())) {
+      if (eventName(event).startsWith("com.google.cloud.pubsub.v1.")) {
+        events.add(event);
+      }
+    }
+    return events;
+  }
+
+  private static String eventName(Object event) throws Exception {
+    Object eventType = invoke(event, "getEventType");
+    return (String) invoke(eventType, "getName");
+  }
+
+  private static Object getValue(Object event, String field) throws Exception {
+    return event.getClass().getMethod("getValue", String.class).invoke(event, field);
+  }
+
+  private static Object invoke(Object target, String method) throws Exception {
+    return target.getClass().getMethod(method).invoke(target);
+  }
+}
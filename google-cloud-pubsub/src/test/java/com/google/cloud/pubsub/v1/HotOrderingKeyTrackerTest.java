@@ -0,0 +1,98 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class HotOrderingKeyTrackerTest {
+
+  @Test
+  public void testCountsKeysExactlyWhileCountersRemain() {
+    HotOrderingKeyTracker tracker = new HotOrderingKeyTracker(2);
+    for (int i = 0; i < 5; i++) {
+      tracker.record("a", 10);
+    }
+    tracker.record("b", 100);
+    tracker.record("c", 1);
+    tracker.record("b", 100);
+
+    List<HotOrderingKeyTracker.Counter> hotKeys = tracker.getHotKeys();
+    assertThat(hotKeys).hasSize(2);
+    assertThat(hotKeys.get(0).orderingKey).isEqualTo("a");
+    assertThat(hotKeys.get(0).messages).isEqualTo(5);
+    assertThat(hotKeys.get(0).bytes).isEqualTo(50);
+    assertThat(hotKeys.get(0).overcount).isEqualTo(0);
+    assertThat(hotKeys.get(1).orderingKey).isEqualTo("b");
+    assertThat(hotKeys.get(1).messages).isEqualTo(2);
+    assertThat(hotKeys.get(1).bytes).isEqualTo(200);
+  }
+
+  @Test
+  public void testNewKeyTakesOverLowestCounter() {
+    HotOrderingKeyTracker tracker = new HotOrderingKeyTracker(1);
+    // Fill all 10 counters, key-i with i + 1 messages.
+    for (int i = 0; i < HotOrderingKeyTracker.COUNTERS_PER_KEY; i++) {
+      for (int j = 0; j <= i; j++) {
+        tracker.record("key-" + i, 1);
+      }
+    }
+    for (int i = 0; i < 10; i++) {
+      tracker.record("new", 2);
+    }
+
+    // The new key inherited the single message of key-0.
+    List<HotOrderingKeyTracker.Counter> hotKeys = tracker.getHotKeys();
+    assertThat(hotKeys).hasSize(1);
+    assertThat(hotKeys.get(0).orderingKey).isEqualTo("new");
+    assertThat(hotKeys.get(0).messages).isEqualTo(11);
+    assertThat(hotKeys.get(0).bytes).isEqualTo(21);
+    assertThat(hotKeys.get(0).overcount).isEqualTo(1);
+  }
+
+  @Test
+  public void testFindsHotKeysAmongManyColdKeys() {
+    HotOrderingKeyTracker tracker = new HotOrderingKeyTracker(3);
+    for (int i = 0; i < 100000; i++) {
+      // 20% and 10% of messages go to two hot keys, the rest to 10000 cold keys.
+      String key;
+      if (i % 10 < 2) {
+        key = "hot-1";
+      } else if (i % 10 == 2) {
+        key = "hot-2";
+      } else {
+        key = "cold-" + (i % 10000);
+      }
+      tracker.record(key, 1);
+    }
+
+    List<HotOrderingKeyTracker.Counter> hotKeys = tracker.getHotKeys();
+    assertThat(hotKeys).hasSize(3);
+    assertThat(hotKeys.get(0).orderingKey).isEqualTo("hot-1");
+    assertThat(hotKeys.get(1).orderingKey).isEqualTo("hot-2");
+    for (HotOrderingKeyTracker.Counter counter : hotKeys.subList(0, 2)) {
+      long trueCount = counter.orderingKey.equals("hot-1") ? 20000 : 10000;
+      assertThat(counter.messages).isAtLeast(trueCount);
+      assertThat(counter.messages - counter.overcount).isAtMost(trueCount);
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.Encoding;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.Topic;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MessageCodecTest {
+  private static final Topic TOPIC =
+      Topic.newBuilder().setName("projects/p/topics/t").putLabels("team", "orders").build();
+
+  @Test
+  public void testProtobufCodecBinary() {
+    ProtobufMessageCodec<Topic> codec =
+        ProtobufMessageCodec.of(Topic.getDefaultInstance(), Encoding.BINARY);
+
+    ByteString data = codec.encode(TOPIC);
+    assertThat(data).isEqualTo(TOPIC.toByteString());
+    assertThat(codec.decode(data, "")).isEqualTo(TOPIC);
+    assertInvalid(codec, ByteString.copyFrom(new byte[] {0x0a, 0x05, 'a'}));
+  }
+
+  @Test
+  public void testProtobufCodecJson() {
+    ProtobufMessageCodec<Topic> codec =
+        ProtobufMessageCodec.of(Topic.getDefaultInstance(), Encoding.JSON);
+
+    ByteString data = codec.encode(TOPIC);
+    assertThat(data.toStringUtf8())
+        .isEqualTo("{\"name\":\"projects/p/topics/t\",\"labels\":{\"team\":\"orders\"}}");
+    // The reused buffer does not leak the previous message.
+    assertThat(codec.encode(Topic.getDefaultInstance()).toStringUtf8()).isEqualTo("{}");
+    assertThat(codec.decode(data, "")).isEqualTo(TOPIC);
+    // Fields added by a newer revision are ignored.
+    assertThat(
+            codec.decode(
+                ByteString.copyFromUtf8("{\"name\":\"projects/p/topics/t\",\"newField\":1}"),
+                "rev-2"))
+        .isEqualTo(Topic.newBuilder().setName("projects/p/topics/t").build());
+    assertInvalid(codec, ByteString.copyFromUtf8("{\"name\":"));
+  }
+
+  @Test
+  public void testProtobufCodecRejectsUnspecifiedEncoding() {
+    try {
+      ProtobufMessageCodec.of(Topic.getDefaultInstance(), Encoding.ENCODING_UNSPECIFIED);
+      fail("Expected an IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testRevisionDecodersAreCreatedOncePerRevision() {
+    List<String> createdRevisions = new ArrayList<>();
+    MessageCodec<String> codec =
+        MessageCodec.withRevisionDecoders(
+            new PrefixCodec(""),
+            revisionId -> {
+              createdRevisions.add(revisionId);
+              return new PrefixCodec(revisionId + ":");
+            });
+
+    assertThat(codec.encode("a")).isEqualTo(ByteString.copyFromUtf8("a"));
+    assertThat(codec.decode(ByteString.copyFromUtf8("a"), "")).isEqualTo("a");
+    assertThat(codec.decode(ByteString.copyFromUtf8("a"), "rev-1")).isEqualTo("rev-1:a");
+    assertThat(codec.decode(ByteString.copyFromUtf8("b"), "rev-1")).isEqualTo("rev-1:b");
+    assertThat(codec.decode(ByteString.copyFromUtf8("c"), "rev-2")).isEqualTo("rev-2:c");
+    assertThat(createdRevisions).containsExactly("rev-1", "rev-2").inOrder();
+  }
+
+  @Test
+  public void testDecodingReceiver() {
+    ProtobufMessageCodec<Topic> codec =
+        ProtobufMessageCodec.of(Topic.getDefaultInstance(), Encoding.BINARY);
+    List<Topic> received = new ArrayList<>();
+    MessageReceiver receiver =
+        TypedMessageReceiver.decoding(
+            codec,
+            (Topic value, PubsubMessage message, AckReplyConsumer consumer) -> {
+              received.add(value);
+              consumer.ack();
+            });
+    AtomicInteger acks = new AtomicInteger();
+    AtomicInteger nacks = new AtomicInteger();
+    AckReplyConsumer consumer =
+        new AckReplyConsumer() {
+          @Override
+          public void ack() {
+            acks.incrementAndGet();
+          }
+
+          @Override
+          public void nack() {
+            nacks.incrementAndGet();
+          }
+        };
+
+    receiver.receiveMessage(
+        PubsubMessage.newBuilder()
+            .setData(TOPIC.toByteString())
+            .putAttributes(MessageCodec.SCHEMA_REVISION_ID_ATTRIBUTE, "rev-1")
+            .build(),
+        consumer);
+    receiver.receiveMessage(
+        PubsubMessage.newBuilder()
+            .setData(ByteString.copyFrom(new byte[] {0x0a, 0x05, 'a'}))
+            .build(),
+        consumer);
+
+    assertThat(received).containsExactly(TOPIC);
+    assertThat(acks.get()).isEqualTo(1);
+    assertThat(nacks.get()).isEqualTo(1);
+  }
+
+  private static void assertInvalid(MessageCodec<?> codec, ByteString data) {
+    try {
+      codec.decode(data, "");
+      fail("Expected an IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  /** Decodes data as a string with a prefix. */
+  private static final class PrefixCodec implements MessageCodec<String> {
+    private final String prefix;
+
+    PrefixCodec(String prefix) {
+      this.prefix = prefix;
+    }
+
+    @Override
+    public ByteString encode(String value) {
+      return ByteString.copyFromUtf8(value);
+    }
+
+    @Override
+    public String decode(ByteString data, String schemaRevisionId) {
+      return prefix + data.toStringUtf8();
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MessageDeduplicatorTest {
+  private final FakeClock clock = new FakeClock();
+
+  @Test
+  public void testRecordedIdIsDuplicate() {
+    MessageDeduplicator deduplicator = new MessageDeduplicator(Duration.ofMinutes(1), 100, clock);
+
+    assertFalse(deduplicator.isDuplicate("id-1"));
+    deduplicator.recordAcked("id-1");
+    assertTrue(deduplicator.isDuplicate("id-1"));
+    assertFalse(deduplicator.isDuplicate("id-2"));
+    assertFalse(deduplicator.isDuplicate(""));
+
+    DuplicateSuppressionStats stats = deduplicator.getStats();
+    assertThat(stats.getLookupCount()).isEqualTo(3);
+    assertThat(stats.getDuplicateCount()).isEqualTo(1);
+    assertThat(stats.getEntryCount()).isEqualTo(1);
+    assertThat(stats.getMemoryBytes()).isGreaterThan(0L);
+  }
+
+  @Test
+  public void testIdRememberedForAtLeastWindow() {
+    MessageDeduplicator deduplicator = new MessageDeduplicator(Duration.ofMinutes(1), 100, clock);
+    deduplicator.recordAcked("id-1");
+
+    clock.advance(59, TimeUnit.SECONDS);
+    deduplicator.recordAcked("id-2");
+    clock.advance(2, TimeUnit.SECONDS);
+    assertTrue(deduplicator.isDuplicate("id-1"));
+    assertTrue(deduplicator.isDuplicate("id-2"));
+
+    clock.advance(2, TimeUnit.MINUTES);
+    assertFalse(deduplicator.isDuplicate("id-1"));
+    assertFalse(deduplicator.isDuplicate("id-2"));
+    assertThat(deduplicator.getStats().getEntryCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testOldestIdsForgottenWhenFull() {
+    MessageDeduplicator deduplicator = new MessageDeduplicator(Duration.ofMinutes(1), 4, clock);
+    for (int i = 0; i < 6; i++) {
+      deduplicator.recordAcked("id-" + i);
+    }
+
+    assertThat(deduplicator.getStats().getEntryCount()).isAtMost(4);
+    assertFalse(deduplicator.isDuplicate("id-0"));
+    assertTrue(deduplicator.isDuplicate("id-4"));
+    assertTrue(deduplicator.isDuplicate("id-5"));
+  }
+
+  @Test
+  public void testTablesGrowWithRememberedIds() {
+    MessageDeduplicator deduplicator =
+        new MessageDeduplicator(Duration.ofMinutes(1), MessageDeduplicator.MAX_MESSAGE_IDS, clock);
+    long initialMemoryBytes = deduplicator.getStats().getMemoryBytes();
+    assertThat(initialMemoryBytes).isAtMost(64 * 1024L);
+
+    for (int i = 0; i < 10000; i++) {
+      deduplicator.recordAcked("id-" + i);
+    }
+    for (int i = 0; i < 10000; i++) {
+      assertTrue(deduplicator.isDuplicate("id-" + i));
+    }
+    assertFalse(deduplicator.isDuplicate("id-10000"));
+    assertThat(deduplicator.getStats().getEntryCount()).isEqualTo(10000);
+    assertThat(deduplicator.getStats().getMemoryBytes()).isGreaterThan(initialMemoryBytes);
+  }
+
+  @Test
+  public void testDroppedTablesAreClearedForReuse() {
+    MessageDeduplicator deduplicator = new MessageDeduplicator(Duration.ofMinutes(1), 4000, clock);
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < 2000; i++) {
+        deduplicator.recordAcked("id-" + round + "-" + i);
+      }
+      clock.advance(1, TimeUnit.MINUTES);
+    }
+
+    // The last round is within the window, in a recycled table.
+    for (int i = 0; i < 2000; i++) {
+      assertFalse(deduplicator.isDuplicate("id-3-" + i));
+      assertTrue(deduplicator.isDuplicate("id-4-" + i));
+    }
+    assertThat(deduplicator.getStats().getEntryCount()).isEqualTo(2000);
+  }
+}
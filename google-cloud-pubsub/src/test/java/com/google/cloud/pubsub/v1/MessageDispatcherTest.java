@@ -24,13 +24,21 @@ import com.google.api.gax.batching.FlowController;
 import com.google.api.gax.core.Distribution;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.Timestamp;
 import com.google.pubsub.v1.PubsubMessage;
 import com.google.pubsub.v1.ReceivedMessage;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.testing.junit4.OpenTelemetryRule;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
@@ -39,6 +47,7 @@ public class MessageDispatcherTest {
   private static final int DELIVERY_INFO_COUNT = 3;
   private static final String ACK_ID = "ACK-ID";
   private static final String ORDERING_KEY = "KEY";
+  private static final String TRACED_SUBSCRIPTION = "projects/test-project/subscriptions/test-sub";
   private static final ReceivedMessage TEST_MESSAGE =
       ReceivedMessage.newBuilder()
           .setAckId(ACK_ID)
@@ -74,6 +83,7 @@ public class MessageDispatcherTest {
   private Distribution mockAckLatencyDistribution;
 
   private MessageDispatcher.AckProcessor mockAckProcessor;
+  private FlowController mockFlowController;
   private FakeClock clock;
   private boolean messageContainsDeliveryAttempt;
 
@@ -92,6 +102,7 @@ public class MessageDispatcherTest {
     mockAckLatencyDistribution = mock(Distribution.class);
 
     mockAckProcessor = mock(MessageDispatcher.AckProcessor.class);
+    mockFlowController = mock(FlowController.class);
     messageContainsDeliveryAttempt = true;
 
     consumers = new LinkedBlockingQueue<>();
@@ -229,6 +240,152 @@ public class MessageDispatcherTest {
             any(AckReplyConsumerWithResponse.class));
   }
 
+  @Test
+  public void testReceiptsForExactlyOnceDeliveredReleasedIndependently() {
+    MessageReceiverWithAckResponse mockMessageReceiverWithAckResponse =
+        mock(MessageReceiverWithAckResponse.class);
+    MessageDispatcher messageDispatcher = getMessageDispatcher(mockMessageReceiverWithAckResponse);
+    messageDispatcher.setExactlyOnceDeliveryEnabled(true);
+
+    ReceivedMessage message1 = newReceivedMessage("ACK_ID1", "message-data1", "");
+    ReceivedMessage message2 = newReceivedMessage("ACK_ID2", "message-data2", "");
+    messageDispatcher.processReceivedMessages(Arrays.asList(message1, message2));
+
+    // A slow receipt for the first message does not hold up the second one.
+    messageDispatcher.notifyAckSuccess(AckRequestData.newBuilder("ACK_ID2").build());
+    verify(mockMessageReceiverWithAckResponse, times(1))
+        .receiveMessage(
+            argThat(new MessageDataMatcher(message2.getMessage().getData())),
+            any(AckReplyConsumerWithResponse.class));
+    verify(mockMessageReceiverWithAckResponse, never())
+        .receiveMessage(
+            argThat(new MessageDataMatcher(message1.getMessage().getData())),
+            any(AckReplyConsumerWithResponse.class));
+
+    messageDispatcher.notifyAckSuccess(AckRequestData.newBuilder("ACK_ID1").build());
+    verify(mockMessageReceiverWithAckResponse, times(1))
+        .receiveMessage(
+            argThat(new MessageDataMatcher(message1.getMessage().getData())),
+            any(AckReplyConsumerWithResponse.class));
+  }
+
+  @Test
+  public void testReceiptsForExactlyOnceDeliveredReleasedInOrderPerOrderingKey() {
+    MessageReceiverWithAckResponse mockMessageReceiverWithAckResponse =
+        mock(MessageReceiverWithAckResponse.class);
+    MessageDispatcher messageDispatcher = getMessageDispatcher(mockMessageReceiverWithAckResponse);
+    messageDispatcher.setExactlyOnceDeliveryEnabled(true);
+    messageDispatcher.setMessageOrderingEnabled(true);
+
+    ReceivedMessage message1 = newReceivedMessage("ACK_ID1", "message-data1", "KEY_A");
+    ReceivedMessage message2 = newReceivedMessage("ACK_ID2", "message-data2", "KEY_A");
+    ReceivedMessage message3 = newReceivedMessage("ACK_ID3", "message-data3", "KEY_B");
+    messageDispatcher.processReceivedMessages(Arrays.asList(message1, message2, message3));
+
+    // The second message of KEY_A waits for the first one, but KEY_B does not.
+    messageDispatcher.notifyAckSuccess(AckRequestData.newBuilder("ACK_ID2").build());
+    messageDispatcher.notifyAckSuccess(AckRequestData.newBuilder("ACK_ID3").build());
+    verify(mockMessageReceiverWithAckResponse, never())
+        .receiveMessage(
+            argThat(new MessageDataMatcher(message2.getMessage().getData())),
+            any(AckReplyConsumerWithResponse.class));
+    verify(mockMessageReceiverWithAckResponse, times(1))
+        .receiveMessage(
+            argThat(new MessageDataMatcher(message3.getMessage().getData())),
+            any(AckReplyConsumerWithResponse.class));
+
+    // A failed receipt is dropped and releases the messages behind it.
+    messageDispatcher.notifyAckFailed(AckRequestData.newBuilder("ACK_ID1").build());
+    verify(mockMessageReceiverWithAckResponse, never())
+        .receiveMessage(
+            argThat(new MessageDataMatcher(message1.getMessage().getData())),
+            any(AckReplyConsumerWithResponse.class));
+    verify(mockMessageReceiverWithAckResponse, times(1))
+        .receiveMessage(
+            argThat(new MessageDataMatcher(message2.getMessage().getData())),
+            any(AckReplyConsumerWithResponse.class));
+  }
+
+  @Test
+  public void testOptimisticExactlyOnceDelivery_ackHeldUntilReceiptConfirmed() throws Exception {
+    MessageDispatcher messageDispatcher =
+        getMessageDispatcherFromBuilder(
+            MessageDispatcher.newBuilder(messageReceiverWithAckResponse)
+                .setEnableOptimisticExactlyOnceDelivery(true),
+            MoreExecutors.directExecutor());
+    messageDispatcher.setExactlyOnceDeliveryEnabled(true);
+
+    // The message is delivered before its receipt modack completes.
+    messageDispatcher.processReceivedMessages(Collections.singletonList(TEST_MESSAGE));
+    Future<AckResponse> ackResponseFuture = consumersWithResponse.take().ack();
+    messageDispatcher.processOutstandingOperations();
+    verify(mockAckProcessor, times(1)).sendAckOperations(argThat(List::isEmpty));
+
+    messageDispatcher.notifyAckSuccess(AckRequestData.newBuilder(TEST_MESSAGE.getAckId()).build());
+    messageDispatcher.processOutstandingOperations();
+
+    List<AckRequestData> ackRequestDataList =
+        Collections.singletonList(AckRequestData.newBuilder(TEST_MESSAGE.getAckId()).build());
+    verify(mockAckProcessor, times(1))
+        .sendAckOperations(
+            argThat(new CustomArgumentMatchers.AckRequestDataListMatcher(ackRequestDataList)));
+    assertFalse(ackResponseFuture.isDone());
+  }
+
+  @Test
+  public void testOptimisticExactlyOnceDelivery_failedReceiptDropsAck() throws Exception {
+    MessageDispatcher messageDispatcher =
+        getMessageDispatcherFromBuilder(
+            MessageDispatcher.newBuilder(messageReceiverWithAckResponse)
+                .setEnableOptimisticExactlyOnceDelivery(true),
+            MoreExecutors.directExecutor());
+    messageDispatcher.setExactlyOnceDeliveryEnabled(true);
+
+    messageDispatcher.processReceivedMessages(Collections.singletonList(TEST_MESSAGE));
+    AckReplyConsumerWithResponse consumer = consumersWithResponse.take();
+    messageDispatcher.processOutstandingOperations();
+
+    // Fail the receipt the way StreamingSubscriberConnection does for an invalid ack ID.
+    ArgumentCaptor<List<ModackRequestData>> modacks = ArgumentCaptor.forClass(List.class);
+    verify(mockAckProcessor, times(1)).sendModackOperations(modacks.capture());
+    AckRequestData receipt = modacks.getValue().get(0).getAckRequestData().get(0);
+    receipt.setResponse(AckResponse.INVALID, false);
+    messageDispatcher.notifyAckFailed(receipt);
+
+    assertEquals(AckResponse.INVALID, consumer.ack().get());
+    messageDispatcher.processOutstandingOperations();
+    verify(mockAckProcessor, times(2)).sendAckOperations(argThat(List::isEmpty));
+  }
+
+  @Test
+  public void testOptimisticExactlyOnceDelivery_failedReceiptReleasedOnExtension()
+      throws Exception {
+    MessageDispatcher messageDispatcher =
+        getMessageDispatcherFromBuilder(
+            MessageDispatcher.newBuilder(messageReceiverWithAckResponse)
+                .setEnableOptimisticExactlyOnceDelivery(true),
+            MoreExecutors.directExecutor());
+    messageDispatcher.setExactlyOnceDeliveryEnabled(true);
+
+    messageDispatcher.processReceivedMessages(Collections.singletonList(TEST_MESSAGE));
+    AckReplyConsumerWithResponse consumer = consumersWithResponse.take();
+    messageDispatcher.processOutstandingOperations();
+    ArgumentCaptor<List<ModackRequestData>> modacks = ArgumentCaptor.forClass(List.class);
+    verify(mockAckProcessor, times(1)).sendModackOperations(modacks.capture());
+    AckRequestData receipt = modacks.getValue().get(0).getAckRequestData().get(0);
+    receipt.setResponse(AckResponse.INVALID, false);
+    messageDispatcher.notifyAckFailed(receipt);
+
+    // The receiver has not replied yet, but the message no longer holds flow control.
+    messageDispatcher.extendDeadlines();
+    verify(mockFlowController, times(1)).release(1, TEST_MESSAGE.getMessage().getSerializedSize());
+    verify(mockAckProcessor, times(1)).sendModackOperations(any());
+
+    // Nor is it released again once the receiver replies.
+    consumer.ack();
+    verify(mockFlowController, times(1)).release(anyLong(), anyLong());
+  }
+
   @Test
   public void testReceiptModackForExactlyOnceDelivered() {
 
@@ -396,6 +553,350 @@ public class MessageDispatcherTest {
                 new CustomArgumentMatchers.ModackRequestDataListMatcher(modackRequestDataList)));
   }
 
+  @Test
+  public void testConsumerNackWithDelay_groupedByDelay() throws Exception {
+    MessageDispatcher messageDispatcher = getMessageDispatcher(messageReceiver);
+    String ackId1 = "ACK-ID-1";
+    String ackId2 = "ACK-ID-2";
+    String ackId3 = "ACK-ID-3";
+    messageDispatcher.processReceivedMessages(
+        Arrays.asList(
+            TEST_MESSAGE.toBuilder().setAckId(ackId1).build(),
+            TEST_MESSAGE.toBuilder().setAckId(ackId2).build(),
+            TEST_MESSAGE.toBuilder().setAckId(ackId3).build()));
+
+    consumers.take().nack(Duration.ofSeconds(30));
+    consumers.take().nack(Duration.ofMillis(29_500));
+    consumers.take().nack();
+    messageDispatcher.processOutstandingOperations();
+
+    AckRequestData ackRequestData1 = AckRequestData.newBuilder(ackId1).build();
+    AckRequestData ackRequestData2 = AckRequestData.newBuilder(ackId2).build();
+    AckRequestData ackRequestData3 = AckRequestData.newBuilder(ackId3).build();
+    List<ModackRequestData> modackRequestDataList = new ArrayList<ModackRequestData>();
+    modackRequestDataList.add(new ModackRequestData(0, ackRequestData3));
+    modackRequestDataList.add(new ModackRequestData(30, ackRequestData1, ackRequestData2));
+    modackRequestDataList.add(
+        new ModackRequestData(
+            MIN_ACK_DEADLINE_SECONDS, ackRequestData1, ackRequestData2, ackRequestData3));
+
+    verify(mockAckProcessor, times(1))
+        .sendModackOperations(
+            argThat(
+                new CustomArgumentMatchers.ModackRequestDataListMatcher(modackRequestDataList)));
+  }
+
+  @Test
+  public void testNackBackoffByDeliveryAttempt() throws Exception {
+    MessageDispatcher messageDispatcher =
+        getMessageDispatcherFromBuilder(
+            MessageDispatcher.newBuilder(messageReceiver)
+                .setNackBackoff(Duration.ofSeconds(1), Duration.ofSeconds(10)),
+            MoreExecutors.directExecutor());
+
+    assertEquals(1, messageDispatcher.getNackBackoffSeconds(0));
+    assertEquals(1, messageDispatcher.getNackBackoffSeconds(1));
+    assertEquals(2, messageDispatcher.getNackBackoffSeconds(2));
+    assertEquals(4, messageDispatcher.getNackBackoffSeconds(3));
+    assertEquals(10, messageDispatcher.getNackBackoffSeconds(5));
+    assertEquals(10, messageDispatcher.getNackBackoffSeconds(1000));
+
+    // TEST_MESSAGE is on its third delivery attempt.
+    messageDispatcher.processReceivedMessages(Collections.singletonList(TEST_MESSAGE));
+    consumers.take().nack();
+    messageDispatcher.processOutstandingOperations();
+
+    AckRequestData ackRequestData = AckRequestData.newBuilder(TEST_MESSAGE.getAckId()).build();
+    List<ModackRequestData> modackRequestDataList = new ArrayList<ModackRequestData>();
+    modackRequestDataList.add(new ModackRequestData(4, ackRequestData));
+    modackRequestDataList.add(new ModackRequestData(MIN_ACK_DEADLINE_SECONDS, ackRequestData));
+    verify(mockAckProcessor, times(1))
+        .sendModackOperations(
+            argThat(
+                new CustomArgumentMatchers.ModackRequestDataListMatcher(modackRequestDataList)));
+  }
+
+  @Test
+  public void testDuplicateSuppression_redeliveryOfAckedMessageAckedWithoutDispatch()
+      throws Exception {
+    MessageDispatcher messageDispatcher =
+        getMessageDispatcherFromBuilder(
+            MessageDispatcher.newBuilder(messageReceiver)
+                .setDeduplicator(new MessageDeduplicator(Duration.ofMinutes(10), 100, clock)),
+            MoreExecutors.directExecutor());
+    ReceivedMessage message =
+        TEST_MESSAGE
+            .toBuilder()
+            .setMessage(TEST_MESSAGE.getMessage().toBuilder().setMessageId("MESSAGE-ID"))
+            .build();
+    messageDispatcher.processReceivedMessages(Collections.singletonList(message));
+    consumers.take().ack();
+
+    // The same message redelivered under a new ack ID.
+    String redeliveryAckId = "REDELIVERY-ACK-ID";
+    messageDispatcher.processReceivedMessages(
+        Collections.singletonList(message.toBuilder().setAckId(redeliveryAckId).build()));
+    messageDispatcher.processOutstandingOperations();
+
+    assertTrue(consumers.isEmpty());
+    List<AckRequestData> ackRequestDataList =
+        Arrays.asList(
+            AckRequestData.newBuilder(TEST_MESSAGE.getAckId()).build(),
+            AckRequestData.newBuilder(redeliveryAckId).build());
+    verify(mockAckProcessor, times(1))
+        .sendAckOperations(
+            argThat(new CustomArgumentMatchers.AckRequestDataListMatcher(ackRequestDataList)));
+  }
+
+  @Test
+  public void testDuplicateSuppression_withTracingAcksWithSubscriberSpan() throws Exception {
+    OpenTelemetryPubsubTracer tracer =
+        new OpenTelemetryPubsubTracer(
+            OpenTelemetryRule.create().getOpenTelemetry().getTracer("test"), true);
+    MessageDispatcher messageDispatcher =
+        getMessageDispatcherFromBuilder(
+            MessageDispatcher.newBuilder(messageReceiver)
+                .setSubscriptionName(TRACED_SUBSCRIPTION)
+                .setTracer(tracer)
+                .setDeduplicator(new MessageDeduplicator(Duration.ofMinutes(10), 100, clock)),
+            MoreExecutors.directExecutor());
+    ReceivedMessage message =
+        TEST_MESSAGE
+            .toBuilder()
+            .setMessage(TEST_MESSAGE.getMessage().toBuilder().setMessageId("MESSAGE-ID"))
+            .build();
+    messageDispatcher.processReceivedMessages(Collections.singletonList(message));
+    consumers.take().ack();
+    messageDispatcher.processReceivedMessages(
+        Collections.singletonList(message.toBuilder().setAckId("REDELIVERY-ACK-ID").build()));
+    messageDispatcher.processOutstandingOperations();
+
+    ArgumentCaptor<List<AckRequestData>> acks = ArgumentCaptor.forClass(List.class);
+    verify(mockAckProcessor, times(1)).sendAckOperations(acks.capture());
+    assertRpcSpanLinksSubscriberSpans(tracer, "ack", acks.getValue());
+  }
+
+  @Test
+  public void testMessageFilter_rejectedMessagesAckedOrNackedWithoutDispatch() throws Exception {
+    MessageDispatcher messageDispatcher =
+        getMessageDispatcherFromBuilder(
+            MessageDispatcher.newBuilder(messageReceiver)
+                .setMessageFilter(
+                    message -> {
+                      switch (message.getAttributesOrDefault("action", "")) {
+                        case "drop":
+                          return MessageFilter.Decision.ACK;
+                        case "retry":
+                          return MessageFilter.Decision.NACK;
+                        case "fail":
+                          throw new IllegalStateException("filter failure");
+                        default:
+                          return MessageFilter.Decision.DELIVER;
+                      }
+                    }),
+            MoreExecutors.directExecutor());
+    String dropAckId = "DROP-ACK-ID";
+    String retryAckId = "RETRY-ACK-ID";
+    String failAckId = "FAIL-ACK-ID";
+    messageDispatcher.processReceivedMessages(
+        Arrays.asList(
+            withAttribute(TEST_MESSAGE, dropAckId, "drop"),
+            withAttribute(TEST_MESSAGE, retryAckId, "retry"),
+            withAttribute(TEST_MESSAGE, failAckId, "fail"),
+            TEST_MESSAGE));
+    messageDispatcher.processOutstandingOperations();
+
+    // Messages the filter fails on are delivered.
+    assertEquals(2, consumers.size());
+    verify(mockAckProcessor, times(1))
+        .sendAckOperations(
+            argThat(
+                new CustomArgumentMatchers.AckRequestDataListMatcher(
+                    Collections.singletonList(AckRequestData.newBuilder(dropAckId).build()))));
+    ArgumentCaptor<List<ModackRequestData>> modacks = ArgumentCaptor.forClass(List.class);
+    verify(mockAckProcessor, times(1)).sendModackOperations(modacks.capture());
+    ModackRequestData nack =
+        modacks.getValue().stream().filter(ModackRequestData::getIsNack).findFirst().get();
+    assertEquals(0, nack.getDeadlineExtensionSeconds());
+    assertEquals(1, nack.getAckRequestData().size());
+    assertEquals(retryAckId, nack.getAckRequestData().get(0).getAckId());
+  }
+
+  @Test
+  public void testMessageFilter_withTracingAcksAndNacksWithSubscriberSpans() throws Exception {
+    OpenTelemetryPubsubTracer tracer =
+        new OpenTelemetryPubsubTracer(
+            OpenTelemetryRule.create().getOpenTelemetry().getTracer("test"), true);
+    MessageDispatcher messageDispatcher =
+        getMessageDispatcherFromBuilder(
+            MessageDispatcher.newBuilder(messageReceiver)
+                .setSubscriptionName(TRACED_SUBSCRIPTION)
+                .setTracer(tracer)
+                .setMessageFilter(
+                    message ->
+                        message.getAttributesOrDefault("action", "").equals("drop")
+                            ? MessageFilter.Decision.ACK
+                            : MessageFilter.Decision.NACK),
+            MoreExecutors.directExecutor());
+    messageDispatcher.processReceivedMessages(
+        Arrays.asList(
+            withAttribute(TEST_MESSAGE, "DROP-ACK-ID", "drop"),
+            withAttribute(TEST_MESSAGE, "RETRY-ACK-ID", "retry")));
+    messageDispatcher.processOutstandingOperations();
+
+    assertTrue(consumers.isEmpty());
+    ArgumentCaptor<List<AckRequestData>> acks = ArgumentCaptor.forClass(List.class);
+    verify(mockAckProcessor, times(1)).sendAckOperations(acks.capture());
+    assertRpcSpanLinksSubscriberSpans(tracer, "ack", acks.getValue());
+    ArgumentCaptor<List<ModackRequestData>> modacks = ArgumentCaptor.forClass(List.class);
+    verify(mockAckProcessor, times(1)).sendModackOperations(modacks.capture());
+    ModackRequestData nack =
+        modacks.getValue().stream().filter(ModackRequestData::getIsNack).findFirst().get();
+    assertRpcSpanLinksSubscriberSpans(tracer, "nack", nack.getAckRequestData());
+  }
+
+  @Test
+  public void testMaxMessageAge_staleMessagesAckedWithoutDispatch() throws Exception {
+    MessageDispatcher messageDispatcher =
+        getMessageDispatcherFromBuilder(
+            MessageDispatcher.newBuilder(messageReceiver).setMaxMessageAge(Duration.ofMinutes(1)),
+            MoreExecutors.directExecutor());
+    clock.advance(1, TimeUnit.DAYS);
+    long nowSeconds = TimeUnit.DAYS.toSeconds(1);
+    String staleAckId = "STALE-ACK-ID";
+    messageDispatcher.processReceivedMessages(
+        Arrays.asList(
+            withPublishTime(TEST_MESSAGE, staleAckId, nowSeconds - 61),
+            withPublishTime(TEST_MESSAGE, TEST_MESSAGE.getAckId(), nowSeconds - 59)));
+    messageDispatcher.processOutstandingOperations();
+
+    assertEquals(1, consumers.size());
+    verify(mockAckProcessor, times(1))
+        .sendAckOperations(
+            argThat(
+                new CustomArgumentMatchers.AckRequestDataListMatcher(
+                    Collections.singletonList(AckRequestData.newBuilder(staleAckId).build()))));
+  }
+
+  private static ReceivedMessage withAttribute(
+      ReceivedMessage message, String ackId, String action) {
+    return message
+        .toBuilder()
+        .setAckId(ackId)
+        .setMessage(message.getMessage().toBuilder().putAttributes("action", action))
+        .build();
+  }
+
+  private static ReceivedMessage withPublishTime(
+      ReceivedMessage message, String ackId, long publishTimeSeconds) {
+    return message
+        .toBuilder()
+        .setAckId(ackId)
+        .setMessage(
+            message
+                .getMessage()
+                .toBuilder()
+                .setPublishTime(Timestamp.newBuilder().setSeconds(publishTimeSeconds)))
+        .build();
+  }
+
+  @Test
+  public void testReceiverWithDeliveryContext_contextPassedWithoutCopyingMessage()
+      throws Exception {
+    clock.advance(42, TimeUnit.SECONDS);
+    LinkedBlockingQueue<PubsubMessage> messages = new LinkedBlockingQueue<>();
+    LinkedBlockingQueue<DeliveryContext> contexts = new LinkedBlockingQueue<>();
+    MessageReceiverWithDeliveryContext receiver =
+        (message, context, consumer) -> {
+          messages.add(message);
+          contexts.add(context);
+          consumer.ack();
+        };
+    MessageDispatcher messageDispatcher =
+        getMessageDispatcherFromBuilder(
+            MessageDispatcher.newBuilder(receiver)
+                .setSubscriptionName("projects/p/subscriptions/s")
+                .setEnableDeliveryAttemptAttribute(false),
+            MoreExecutors.directExecutor());
+    messageDispatcher.processReceivedMessages(Collections.singletonList(TEST_MESSAGE));
+
+    assertSame(TEST_MESSAGE.getMessage(), messages.take());
+    DeliveryContext context = contexts.take();
+    assertEquals("projects/p/subscriptions/s", context.getSubscription());
+    assertEquals(TEST_MESSAGE.getAckId(), context.getAckId());
+    assertEquals(DELIVERY_INFO_COUNT, context.getDeliveryAttempt());
+    assertEquals(Instant.ofEpochSecond(42), context.getReceiveTime());
+  }
+
+  @Test
+  public void testReceiverWithAckResponseAndDeliveryContext_contextPassed() throws Exception {
+    LinkedBlockingQueue<DeliveryContext> contexts = new LinkedBlockingQueue<>();
+    MessageReceiverWithAckResponseAndDeliveryContext receiver =
+        (message, context, consumer) -> {
+          // The attribute is still added when enabled.
+          assertThat(Subscriber.getDeliveryAttempt(message)).isEqualTo(DELIVERY_INFO_COUNT);
+          contexts.add(context);
+          consumer.ack();
+        };
+    MessageDispatcher messageDispatcher =
+        getMessageDispatcherFromBuilder(
+            MessageDispatcher.newBuilder(receiver), MoreExecutors.directExecutor());
+    messageDispatcher.setExactlyOnceDeliveryEnabled(true);
+    messageDispatcher.processReceivedMessages(Collections.singletonList(TEST_MESSAGE));
+    messageDispatcher.notifyAckSuccess(AckRequestData.newBuilder(TEST_MESSAGE.getAckId()).build());
+
+    assertEquals(DELIVERY_INFO_COUNT, contexts.take().getDeliveryAttempt());
+  }
+
+  @Test
+  public void testSharedBuffers_releasedWithLastMessage() throws Exception {
+    LinkedBlockingQueue<AckReplyConsumer> receivedConsumers = new LinkedBlockingQueue<>();
+    MessageDispatcher messageDispatcher =
+        getMessageDispatcherFromBuilder(
+            MessageDispatcher.newBuilder(
+                    (MessageReceiver) (message, consumer) -> receivedConsumers.add(consumer))
+                .setMessageFilter(
+                    message ->
+                        message.getAttributesOrDefault("action", "").equals("drop")
+                            ? MessageFilter.Decision.ACK
+                            : MessageFilter.Decision.DELIVER),
+            MoreExecutors.directExecutor());
+    AtomicInteger releases = new AtomicInteger();
+    messageDispatcher.processReceivedMessages(
+        Arrays.asList(
+            TEST_MESSAGE,
+            TEST_MESSAGE.toBuilder().setAckId("ACK-ID-2").build(),
+            withAttribute(TEST_MESSAGE, "FILTERED-ACK-ID", "drop")),
+        releases::incrementAndGet);
+
+    assertEquals(2, receivedConsumers.size());
+    receivedConsumers.take().ack();
+    assertEquals(0, releases.get());
+    receivedConsumers.take().nack();
+    assertEquals(1, releases.get());
+  }
+
+  @Test
+  public void testSharedBuffers_heldUntilReceiverReturns() throws Exception {
+    AtomicInteger releases = new AtomicInteger();
+    List<Integer> releasesAfterAck = new ArrayList<>();
+    MessageDispatcher messageDispatcher =
+        getMessageDispatcherFromBuilder(
+            MessageDispatcher.newBuilder(
+                (MessageReceiver)
+                    (message, consumer) -> {
+                      consumer.ack();
+                      // The receiver can still read the message after acking it.
+                      releasesAfterAck.add(releases.get());
+                    }),
+            MoreExecutors.directExecutor());
+    messageDispatcher.processReceivedMessages(
+        Collections.singletonList(TEST_MESSAGE), releases::incrementAndGet);
+
+    assertEquals(Collections.singletonList(0), releasesAfterAck);
+    assertEquals(1, releases.get());
+  }
+
   @Test
   public void testExtension() {
     MessageDispatcher messageDispatcher = getMessageDispatcher();
@@ -669,6 +1170,198 @@ public class MessageDispatcherTest {
     assertEquals(maxAckDeadline, messageDispatcher.computeDeadlineSeconds());
   }
 
+  @Test
+  public void testBatchedDispatch_workerReplacedAfterReceiverError() throws Exception {
+    final CountDownLatch received = new CountDownLatch(2);
+    MessageReceiver receiver =
+        (message, consumer) -> {
+          if (message.getData().toStringUtf8().equals("error")) {
+            throw new AssertionError("receiver failure");
+          }
+          consumer.ack();
+          received.countDown();
+        };
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      MessageDispatcher messageDispatcher =
+          getMessageDispatcherFromBuilder(
+              MessageDispatcher.newBuilder(receiver)
+                  .setEnableBatchedDispatch(true)
+                  .setMaxDispatchWorkers(1),
+              pool);
+
+      messageDispatcher.processReceivedMessages(
+          Arrays.asList(
+              withData(TEST_MESSAGE, "ERROR-ACK-ID", "error"),
+              withData(TEST_MESSAGE, "ACK-ID-1", "data-1")));
+      messageDispatcher.processReceivedMessages(
+          Collections.singletonList(withData(TEST_MESSAGE, "ACK-ID-2", "data-2")));
+
+      // The worker that hit the error must not keep holding the only worker slot.
+      assertTrue(received.await(10, TimeUnit.SECONDS));
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static ReceivedMessage withData(ReceivedMessage message, String ackId, String data) {
+    return message
+        .toBuilder()
+        .setAckId(ackId)
+        .setMessage(message.getMessage().toBuilder().setData(ByteString.copyFromUtf8(data)))
+        .build();
+  }
+
+  @Test
+  public void testBatchedDispatch_startsOneTaskPerWorker() throws Exception {
+    final int messageCount = 100;
+    final int workers = 2;
+    final CountDownLatch workersBusy = new CountDownLatch(workers);
+    final CountDownLatch releaseWorkers = new CountDownLatch(1);
+    final CountDownLatch received = new CountDownLatch(messageCount);
+    final Set<String> receivedData = Collections.synchronizedSet(new HashSet<String>());
+    MessageReceiver receiver =
+        new MessageReceiver() {
+          @Override
+          public void receiveMessage(PubsubMessage message, AckReplyConsumer consumer) {
+            if (receivedData.size() < workers) {
+              workersBusy.countDown();
+              try {
+                releaseWorkers.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            }
+            receivedData.add(message.getData().toStringUtf8());
+            consumer.ack();
+            received.countDown();
+          }
+        };
+
+    ExecutorService pool = Executors.newFixedThreadPool(workers);
+    final AtomicInteger executeCalls = new AtomicInteger();
+    Executor countingExecutor =
+        new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            executeCalls.incrementAndGet();
+            pool.execute(command);
+          }
+        };
+    try {
+      MessageDispatcher messageDispatcher =
+          getMessageDispatcherFromBuilder(
+              MessageDispatcher.newBuilder(receiver)
+                  .setEnableBatchedDispatch(true)
+                  .setMaxDispatchWorkers(workers),
+              countingExecutor);
+
+      List<ReceivedMessage> messages = new ArrayList<>();
+      for (int i = 0; i < messageCount; i++) {
+        messages.add(
+            ReceivedMessage.newBuilder()
+                .setAckId("ACK-ID-" + i)
+                .setMessage(
+                    PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8("data-" + i)))
+                .build());
+      }
+      // Hold the first messages in the receiver until every message has been queued.
+      messageDispatcher.processReceivedMessages(messages.subList(0, workers));
+      assertTrue(workersBusy.await(10, TimeUnit.SECONDS));
+      messageDispatcher.processReceivedMessages(messages.subList(workers, messageCount));
+      releaseWorkers.countDown();
+
+      assertTrue(received.await(10, TimeUnit.SECONDS));
+      assertEquals(messageCount, receivedData.size());
+      assertEquals(workers, executeCalls.get());
+
+      // Every message is still acked on its own.
+      messageDispatcher.processOutstandingOperations();
+      List<AckRequestData> ackRequestDataList = new ArrayList<>();
+      for (ReceivedMessage message : messages) {
+        ackRequestDataList.add(AckRequestData.newBuilder(message.getAckId()).build());
+      }
+      verify(mockAckProcessor, times(1))
+          .sendAckOperations(
+              argThat(new CustomArgumentMatchers.AckRequestDataListMatcher(ackRequestDataList)));
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static ReceivedMessage newReceivedMessage(String ackId, String data, String orderingKey) {
+    return ReceivedMessage.newBuilder()
+        .setAckId(ackId)
+        .setMessage(
+            PubsubMessage.newBuilder()
+                .setData(ByteString.copyFromUtf8(data))
+                .setOrderingKey(orderingKey)
+                .build())
+        .setDeliveryAttempt(DELIVERY_INFO_COUNT)
+        .build();
+  }
+
+  @Test
+  public void testOpenTelemetryMetrics() throws Exception {
+    OpenTelemetryRule openTelemetryTesting = OpenTelemetryRule.create();
+    MessageDispatcher messageDispatcher =
+        getMessageDispatcherFromBuilder(
+            MessageDispatcher.newBuilder(messageReceiver)
+                .setMetrics(
+                    OpenTelemetryPubsubMetrics.forSubscription(
+                        openTelemetryTesting
+                            .getOpenTelemetry()
+                            .getMeter(OpenTelemetryPubsubMetrics.METER_NAME),
+                        "projects/test-project/subscriptions/test-sub")),
+            MoreExecutors.directExecutor());
+
+    List<ReceivedMessage> messages = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      messages.add(TEST_MESSAGE.toBuilder().setAckId(ACK_ID + i).build());
+    }
+    messageDispatcher.processReceivedMessages(messages);
+    consumers.take().ack();
+    consumers.take().nack();
+    messageDispatcher.extendDeadlines();
+
+    assertThat(getLongSum(openTelemetryTesting, "messaging.gcp_pubsub.subscribe.received.messages"))
+        .isEqualTo(3);
+    assertThat(getLongSum(openTelemetryTesting, "messaging.gcp_pubsub.subscribe.lease_extensions"))
+        .isEqualTo(1);
+    assertThat(
+            getLongSum(openTelemetryTesting, "messaging.gcp_pubsub.subscribe.outstanding.messages"))
+        .isEqualTo(1);
+    assertThat(getLongSum(openTelemetryTesting, "messaging.gcp_pubsub.subscribe.outstanding.size"))
+        .isEqualTo(TEST_MESSAGE.getMessage().getSerializedSize());
+    Map<String, Long> completed = new HashMap<>();
+    for (LongPointData point :
+        getMetric(openTelemetryTesting, "messaging.gcp_pubsub.subscribe.completed.messages")
+            .getLongSumData()
+            .getPoints()) {
+      completed.put(
+          point.getAttributes().get(AttributeKey.stringKey("messaging.gcp_pubsub.outcome")),
+          point.getValue());
+    }
+    assertThat(completed).containsExactly("acked", 1L, "nacked", 1L);
+  }
+
+  private static MetricData getMetric(OpenTelemetryRule openTelemetryTesting, String name) {
+    for (MetricData metric : openTelemetryTesting.getMetrics()) {
+      if (metric.getName().equals(name)) {
+        return metric;
+      }
+    }
+    throw new AssertionError("No metric " + name);
+  }
+
+  private static long getLongSum(OpenTelemetryRule openTelemetryTesting, String name) {
+    long sum = 0;
+    for (LongPointData point : getMetric(openTelemetryTesting, name).getLongSumData().getPoints()) {
+      sum += point.getValue();
+    }
+    return sum;
+  }
+
   private MessageDispatcher getMessageDispatcher() {
     return getMessageDispatcher(mock(MessageReceiver.class), MoreExecutors.directExecutor());
   }
@@ -690,6 +1383,21 @@ public class MessageDispatcherTest {
         MoreExecutors.directExecutor());
   }
 
+  /**
+   * Asserts every request carries a subscriber span and that starting the subscribe RPC span for
+   * them, as the connection does when sending, succeeds.
+   */
+  private static void assertRpcSpanLinksSubscriberSpans(
+      OpenTelemetryPubsubTracer tracer, String rpcOperation, List<AckRequestData> requests) {
+    List<PubsubMessageWrapper> wrappers = new ArrayList<>();
+    for (AckRequestData request : requests) {
+      assertNotNull(request.getMessageWrapper().getSubscriberSpan());
+      wrappers.add(request.getMessageWrapper());
+    }
+    assertNotNull(
+        tracer.startSubscribeRpcSpan(TRACED_SUBSCRIPTION, rpcOperation, wrappers, 0, false));
+  }
+
   private MessageDispatcher getMessageDispatcherFromBuilder(
       MessageDispatcher.Builder builder, Executor executor) {
     MessageDispatcher messageDispatcher =
@@ -702,7 +1410,7 @@ public class MessageDispatcherTest {
             .setMaxDurationPerAckExtension(Subscriber.DEFAULT_MAX_ACK_DEADLINE_EXTENSION)
             .setMaxDurationPerAckExtensionDefaultUsed(true)
             .setAckLatencyDistribution(mock(Distribution.class))
-            .setFlowController(mock(FlowController.class))
+            .setFlowController(mockFlowController)
             .setExecutor(executor)
             .setSystemExecutor(systemExecutor)
             .setApiClock(clock)
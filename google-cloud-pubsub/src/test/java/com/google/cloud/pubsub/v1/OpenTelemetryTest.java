@@ -333,17 +333,17 @@ public class OpenTelemetryTest {
             ACK_DEADLINE,
             true);
     tracer.endSubscribeRpcSpan(subscribeModackRpcSpan);
-    tracer.addEndRpcEvent(subscribeMessageWrapper, true, true, ACK_DEADLINE);
+    tracer.addEndRpcEvent(subscribeMessageWrapper, true, true, false);
     Span subscribeAckRpcSpan =
         tracer.startSubscribeRpcSpan(
             FULL_SUBSCRIPTION_NAME.toString(), "ack", subscribeMessageWrappers, 0, false);
     tracer.endSubscribeRpcSpan(subscribeAckRpcSpan);
-    tracer.addEndRpcEvent(subscribeMessageWrapper, true, false, 0);
+    tracer.addEndRpcEvent(subscribeMessageWrapper, true, false, false);
     Span subscribeNackRpcSpan =
         tracer.startSubscribeRpcSpan(
             FULL_SUBSCRIPTION_NAME.toString(), "nack", subscribeMessageWrappers, 0, false);
     tracer.endSubscribeRpcSpan(subscribeNackRpcSpan);
-    tracer.addEndRpcEvent(subscribeMessageWrapper, true, true, 0);
+    tracer.addEndRpcEvent(subscribeMessageWrapper, true, true, true);
     tracer.endSubscriberSpan(subscribeMessageWrapper);
 
     List<SpanData> allSpans = openTelemetryTesting.getSpans();
@@ -589,6 +589,44 @@ public class OpenTelemetryTest {
         .hasEnded();
   }
 
+  @Test
+  public void testSubscribeRpcSpanSkipsMessagesWithoutSubscriberSpan() {
+    openTelemetryTesting.clearSpans();
+
+    PubsubMessageWrapper tracedWrapper =
+        PubsubMessageWrapper.newBuilder(
+                getPubsubMessage(), FULL_SUBSCRIPTION_NAME.toString(), ACK_ID, DELIVERY_ATTEMPT)
+            .build();
+    PubsubMessageWrapper untracedWrapper =
+        PubsubMessageWrapper.newBuilder(
+                getPubsubMessage(), FULL_SUBSCRIPTION_NAME.toString(), "ghi", DELIVERY_ATTEMPT)
+            .build();
+
+    Tracer openTelemetryTracer = openTelemetryTesting.getOpenTelemetry().getTracer("test");
+    OpenTelemetryPubsubTracer tracer = new OpenTelemetryPubsubTracer(openTelemetryTracer, true);
+
+    tracer.startSubscriberSpan(tracedWrapper, EXACTLY_ONCE_ENABLED);
+    Span subscribeAckRpcSpan =
+        tracer.startSubscribeRpcSpan(
+            FULL_SUBSCRIPTION_NAME.toString(),
+            "ack",
+            Arrays.asList(untracedWrapper, tracedWrapper),
+            0,
+            false);
+    tracer.endSubscribeRpcSpan(subscribeAckRpcSpan);
+    tracer.endSubscriberSpan(tracedWrapper);
+    tracer.endSubscriberSpan(untracedWrapper);
+
+    List<SpanData> allSpans = openTelemetryTesting.getSpans();
+    assertEquals(2, allSpans.size());
+    SpanData ackSpanData = allSpans.get(0);
+    SpanData subscriberSpanData = allSpans.get(1);
+    assertEquals(SUBSCRIBE_ACK_RPC_SPAN_NAME, ackSpanData.getName());
+    assertEquals(1, ackSpanData.getLinks().size());
+    assertEquals(
+        subscriberSpanData.getSpanContext(), ackSpanData.getLinks().get(0).getSpanContext());
+  }
+
   @Test
   public void testSubscribeRpcSpanFailures() {
     openTelemetryTesting.clearSpans();
@@ -614,9 +652,9 @@ public class OpenTelemetryTest {
             FULL_SUBSCRIPTION_NAME.toString(), "nack", messageWrappers, 0, false);
 
     Exception e = new Exception("test-exception");
-    tracer.setSubscribeRpcSpanException(subscribeModackRpcSpan, true, ACK_DEADLINE, e);
-    tracer.setSubscribeRpcSpanException(subscribeAckRpcSpan, false, 0, e);
-    tracer.setSubscribeRpcSpanException(subscribeNackRpcSpan, true, 0, e);
+    tracer.setSubscribeRpcSpanException(subscribeModackRpcSpan, true, false, e);
+    tracer.setSubscribeRpcSpanException(subscribeAckRpcSpan, false, false, e);
+    tracer.setSubscribeRpcSpanException(subscribeNackRpcSpan, true, true, e);
     tracer.endSubscriberSpan(messageWrapper);
 
     List<SpanData> allSpans = openTelemetryTesting.getSpans();
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class OrderingKeyFlowControllerTest {
+
+  @Test
+  public void testThrowsWhenKeyExceedsLimit() throws Exception {
+    OrderingKeyFlowController flowController =
+        new OrderingKeyFlowController(
+            FlowControlSettings.newBuilder()
+                .setMaxOutstandingElementCount(2L)
+                .setMaxOutstandingRequestBytes(100L)
+                .setLimitExceededBehavior(FlowController.LimitExceededBehavior.ThrowException)
+                .build());
+
+    flowController.acquire("a", 10);
+    flowController.acquire("a", 10);
+    assertAcquireFails(
+        flowController, "a", 10, FlowController.MaxOutstandingElementCountReachedException.class);
+    flowController.acquire("b", 90);
+    assertAcquireFails(
+        flowController, "b", 20, FlowController.MaxOutstandingRequestBytesReachedException.class);
+    assertAcquireFails(
+        flowController, "c", 101, FlowController.MaxOutstandingRequestBytesReachedException.class);
+
+    assertThat(flowController.getOutstandingMessageCount("a")).isEqualTo(2);
+    assertThat(flowController.getOutstandingBytes("a")).isEqualTo(20);
+    flowController.release("a", 10);
+    flowController.acquire("a", 10);
+    flowController.release("b", 90);
+    assertThat(flowController.getOutstandingMessageCount("b")).isEqualTo(0);
+    assertThat(flowController.getOutstandingBytes("b")).isEqualTo(0);
+  }
+
+  @Test
+  public void testBlocksOnlyKeyAtLimit() throws Exception {
+    final OrderingKeyFlowController flowController =
+        new OrderingKeyFlowController(
+            FlowControlSettings.newBuilder()
+                .setMaxOutstandingElementCount(1L)
+                .setLimitExceededBehavior(FlowController.LimitExceededBehavior.Block)
+                .build());
+    flowController.acquire("a", 10);
+
+    final CountDownLatch acquired = new CountDownLatch(1);
+    Thread blocked =
+        new Thread(
+            () -> {
+              try {
+                flowController.acquire("a", 10);
+                acquired.countDown();
+              } catch (FlowController.FlowControlException e) {
+                throw new IllegalStateException(e);
+              }
+            });
+    blocked.start();
+    flowController.acquire("b", 10);
+    assertThat(acquired.await(100, TimeUnit.MILLISECONDS)).isFalse();
+
+    flowController.release("a", 10);
+    assertThat(acquired.await(10, TimeUnit.SECONDS)).isTrue();
+    blocked.join();
+    assertThat(flowController.getOutstandingMessageCount("a")).isEqualTo(1);
+  }
+
+  @Test
+  public void testEachReleaseOfKeyLetsOneWaiterAcquire() throws Exception {
+    final OrderingKeyFlowController flowController =
+        new OrderingKeyFlowController(
+            FlowControlSettings.newBuilder()
+                .setMaxOutstandingElementCount(1L)
+                .setLimitExceededBehavior(FlowController.LimitExceededBehavior.Block)
+                .build());
+    flowController.acquire("a", 10);
+
+    final Semaphore acquired = new Semaphore(0);
+    List<Thread> waiters = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      Thread waiter =
+          new Thread(
+              () -> {
+                try {
+                  flowController.acquire("a", 10);
+                  acquired.release();
+                } catch (FlowController.FlowControlException e) {
+                  throw new IllegalStateException(e);
+                }
+              });
+      waiter.start();
+      waiters.add(waiter);
+    }
+    assertThat(acquired.tryAcquire(100, TimeUnit.MILLISECONDS)).isFalse();
+
+    // The key has nothing outstanding between a release and the next acquire, but the waiters keep
+    // waiting on it.
+    flowController.release("a", 10);
+    assertThat(acquired.tryAcquire(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(acquired.tryAcquire(100, TimeUnit.MILLISECONDS)).isFalse();
+    flowController.release("a", 10);
+    assertThat(acquired.tryAcquire(10, TimeUnit.SECONDS)).isTrue();
+    for (Thread waiter : waiters) {
+      waiter.join();
+    }
+    flowController.release("a", 10);
+    assertThat(flowController.getOutstandingMessageCount("a")).isEqualTo(0);
+  }
+
+  private static void assertAcquireFails(
+      OrderingKeyFlowController flowController,
+      String orderingKey,
+      long messageSize,
+      Class<? extends FlowController.FlowControlException> expected) {
+    try {
+      flowController.acquire(orderingKey, messageSize);
+      fail("Should have thrown " + expected.getSimpleName());
+    } catch (FlowController.FlowControlException e) {
+      assertThat(e).isInstanceOf(expected);
+    }
+  }
+}
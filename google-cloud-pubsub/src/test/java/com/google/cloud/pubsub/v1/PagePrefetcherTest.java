@@ -0,0 +1,209 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.testing.MockGrpcService;
+import com.google.api.gax.grpc.testing.MockServiceHelper;
+import com.google.api.gax.paging.AsyncPage;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.pubsub.v1.ListSubscriptionsResponse;
+import com.google.pubsub.v1.ProjectName;
+import com.google.pubsub.v1.Subscription;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PagePrefetcherTest {
+  // The futures of the requested pages, in the order they were requested.
+  private final List<SettableApiFuture<FakePage>> requestedPages = new ArrayList<>();
+
+  @Test
+  public void testIteratesOverAllPagesInOrder() {
+    FakePage firstPage = new FakePage(0, 4, false);
+
+    assertThat(PagePrefetcher.iterateAll(firstPage, 2))
+        .containsExactly(0, 1, 10, 11, 20, 21, 30, 31)
+        .inOrder();
+    assertThat(PagePrefetcher.streamAll(firstPage, 1).collect(Collectors.toList()))
+        .containsExactly(0, 1, 10, 11, 20, 21, 30, 31)
+        .inOrder();
+    assertThat(PagePrefetcher.iterateAll(new FakePage(0, 1, false), 2))
+        .containsExactly(0, 1)
+        .inOrder();
+  }
+
+  @Test
+  public void testFetchesUpToPrefetchDepthAhead() {
+    Iterator<Integer> iterator = PagePrefetcher.iterateAll(new FakePage(0, 5, true), 2).iterator();
+    // The second page is fetched before the first one is iterated over.
+    assertThat(requestedPages).hasSize(1);
+
+    completeRequestedPage(1);
+    completeRequestedPage(2);
+    // Two pages wait to be iterated over.
+    assertThat(requestedPages).hasSize(2);
+
+    assertThat(iterator.next()).isEqualTo(0);
+    assertThat(iterator.next()).isEqualTo(1);
+    assertThat(requestedPages).hasSize(2);
+    assertThat(iterator.next()).isEqualTo(10);
+    assertThat(requestedPages).hasSize(3);
+
+    completeRequestedPage(3);
+    assertThat(requestedPages).hasSize(3);
+    assertThat(iterator.next()).isEqualTo(11);
+    assertThat(iterator.next()).isEqualTo(20);
+    assertThat(requestedPages).hasSize(4);
+
+    completeRequestedPage(4);
+    assertThat(Lists.newArrayList(iterator)).containsExactly(21, 30, 31, 40, 41).inOrder();
+    assertThat(requestedPages).hasSize(4);
+  }
+
+  @Test
+  public void testFailedFetchIsThrownAfterFetchedResults() {
+    Iterator<Integer> iterator = PagePrefetcher.iterateAll(new FakePage(0, 3, true), 2).iterator();
+    completeRequestedPage(1);
+    IllegalStateException failure = new IllegalStateException("fetch failed");
+    requestedPages.get(1).setException(failure);
+
+    assertThat(ImmutableList.of(iterator.next(), iterator.next(), iterator.next(), iterator.next()))
+        .containsExactly(0, 1, 10, 11)
+        .inOrder();
+    try {
+      iterator.hasNext();
+      fail("Expected an IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertThat(e).isSameInstanceAs(failure);
+    }
+  }
+
+  @Test
+  public void testClosingStreamStopsFetching() {
+    Stream<Integer> stream = PagePrefetcher.streamAll(new FakePage(0, 5, true), 1);
+    Iterator<Integer> iterator = stream.iterator();
+    assertThat(iterator.next()).isEqualTo(0);
+
+    stream.close();
+    completeRequestedPage(1);
+    assertThat(iterator.next()).isEqualTo(1);
+    assertThat(iterator.hasNext()).isFalse();
+    assertThat(requestedPages).hasSize(1);
+  }
+
+  @Test
+  public void testStreamsSubscriptionsOfProject() throws Exception {
+    MockSubscriber mockSubscriber = new MockSubscriber();
+    MockServiceHelper serviceHelper =
+        new MockServiceHelper(
+            UUID.randomUUID().toString(), Arrays.<MockGrpcService>asList(mockSubscriber));
+    serviceHelper.start();
+    try (SubscriptionAdminClient client =
+        SubscriptionAdminClient.create(
+            SubscriptionAdminSettings.newBuilder()
+                .setTransportChannelProvider(serviceHelper.createChannelProvider())
+                .setCredentialsProvider(NoCredentialsProvider.create())
+                .build())) {
+      for (int page = 0; page < 3; page++) {
+        mockSubscriber.addResponse(
+            ListSubscriptionsResponse.newBuilder()
+                .addSubscriptions(Subscription.newBuilder().setName("subscription-" + page))
+                .setNextPageToken(page < 2 ? "token-" + (page + 1) : "")
+                .build());
+      }
+
+      try (Stream<Subscription> subscriptions =
+          PagePrefetcher.streamAll(
+              client.listSubscriptions(ProjectName.of("project")).getPage(), 2)) {
+        assertThat(subscriptions.map(Subscription::getName).collect(Collectors.toList()))
+            .containsExactly("subscription-0", "subscription-1", "subscription-2")
+            .inOrder();
+      }
+      assertThat(mockSubscriber.getRequests()).hasSize(3);
+    } finally {
+      serviceHelper.stop();
+    }
+  }
+
+  private void completeRequestedPage(int index) {
+    requestedPages.get(index - 1).set(new FakePage(index, 5, true));
+  }
+
+  /** A page with two values, whose next page is fetched immediately or when the test says so. */
+  private final class FakePage implements AsyncPage<Integer> {
+    private final int index;
+    private final int pageCount;
+    private final boolean deferred;
+
+    FakePage(int index, int pageCount, boolean deferred) {
+      this.index = index;
+      this.pageCount = pageCount;
+      this.deferred = deferred;
+    }
+
+    @Override
+    public ApiFuture<FakePage> getNextPageAsync() {
+      if (!deferred) {
+        return ApiFutures.immediateFuture(new FakePage(index + 1, pageCount, false));
+      }
+      SettableApiFuture<FakePage> nextPage = SettableApiFuture.create();
+      requestedPages.add(nextPage);
+      return nextPage;
+    }
+
+    @Override
+    public boolean hasNextPage() {
+      return index + 1 < pageCount;
+    }
+
+    @Override
+    public String getNextPageToken() {
+      return hasNextPage() ? String.valueOf(index + 1) : "";
+    }
+
+    @Override
+    public FakePage getNextPage() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterable<Integer> iterateAll() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterable<Integer> getValues() {
+      return ImmutableList.of(index * 10, index * 10 + 1);
+    }
+  }
+}
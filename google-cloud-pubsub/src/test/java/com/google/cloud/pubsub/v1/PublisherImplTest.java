@@ -24,6 +24,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
 import com.google.api.gax.batching.BatchingSettings;
 import com.google.api.gax.batching.FlowControlSettings;
 import com.google.api.gax.batching.FlowController;
@@ -37,11 +38,15 @@ import com.google.api.gax.rpc.DataLossException;
 import com.google.api.gax.rpc.FixedTransportChannelProvider;
 import com.google.api.gax.rpc.TransportChannelProvider;
 import com.google.cloud.pubsub.v1.Publisher.Builder;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.ListSchemaRevisionsResponse;
 import com.google.pubsub.v1.ProjectTopicName;
 import com.google.pubsub.v1.PublishRequest;
 import com.google.pubsub.v1.PublishResponse;
 import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.Schema;
 import io.grpc.ManagedChannel;
 import io.grpc.Server;
 import io.grpc.Status;
@@ -49,18 +54,27 @@ import io.grpc.StatusException;
 import io.grpc.inprocess.InProcessChannelBuilder;
 import io.grpc.inprocess.InProcessServerBuilder;
 import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
 import io.opentelemetry.sdk.testing.assertj.OpenTelemetryAssertions;
 import io.opentelemetry.sdk.testing.assertj.SpanDataAssert;
 import io.opentelemetry.sdk.testing.junit4.OpenTelemetryRule;
 import io.opentelemetry.sdk.trace.data.SpanData;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Before;
@@ -88,6 +102,7 @@ public class PublisherImplTest {
   private FakeScheduledExecutorService fakeExecutor;
 
   private FakePublisherServiceImpl testPublisherServiceImpl;
+  private MockSchemaServiceImpl testSchemaServiceImpl;
 
   private ManagedChannel testChannel;
 
@@ -98,7 +113,9 @@ public class PublisherImplTest {
     testPublisherServiceImpl = new FakePublisherServiceImpl();
 
     InProcessServerBuilder serverBuilder = InProcessServerBuilder.forName("test-server");
+    testSchemaServiceImpl = new MockSchemaServiceImpl();
     serverBuilder.addService(testPublisherServiceImpl);
+    serverBuilder.addService(testSchemaServiceImpl);
     testServer = serverBuilder.build();
     testChannel = InProcessChannelBuilder.forName("test-server").build();
     testServer.start();
@@ -317,6 +334,309 @@ public class PublisherImplTest {
     shutdownTestPublisher(publisher);
   }
 
+  @Test
+  public void testPublishByteBuffer_releasedWhenFutureCompletes() throws Exception {
+    Publisher publisher =
+        getTestPublisherBuilder()
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(2L)
+                    .setDelayThresholdDuration(Duration.ofSeconds(100))
+                    .build())
+            .build();
+    testPublisherServiceImpl.addPublishResponse(
+        PublishResponse.newBuilder().addMessageIds("1").addMessageIds("2"));
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(16);
+    direct.put("xxdirect".getBytes(StandardCharsets.UTF_8)).flip().position(2);
+    CountDownLatch released = new CountDownLatch(2);
+    ApiFuture<String> publishFuture1 =
+        publisher.publish(direct, Collections.singletonMap("key", "value"), released::countDown);
+    assertEquals(2, released.getCount());
+    ApiFuture<String> publishFuture2 =
+        publisher.publish(
+            ByteBuffer.wrap("heap".getBytes(StandardCharsets.UTF_8)),
+            Collections.emptyMap(),
+            released::countDown);
+
+    assertEquals("1", publishFuture1.get());
+    assertEquals("2", publishFuture2.get());
+    // The callbacks run after the futures complete.
+    assertTrue(released.await(10, TimeUnit.SECONDS));
+    assertEquals(2, direct.position());
+    PublishRequest request = testPublisherServiceImpl.getCapturedRequests().get(0);
+    assertEquals("direct", request.getMessages(0).getData().toStringUtf8());
+    assertEquals("value", request.getMessages(0).getAttributesOrThrow("key"));
+    assertEquals("heap", request.getMessages(1).getData().toStringUtf8());
+    shutdownTestPublisher(publisher);
+  }
+
+  @Test
+  public void testPublishByteBuffer_releasedWhenPublishThrows() throws Exception {
+    Publisher publisher = getTestPublisherBuilder().build();
+    shutdownTestPublisher(publisher);
+
+    AtomicInteger released = new AtomicInteger();
+    try {
+      publisher.publish(ByteBuffer.allocate(1), Collections.emptyMap(), released::incrementAndGet);
+      fail("Should have thrown an IllegalStateException");
+    } catch (IllegalStateException expected) {
+      // Expected
+    }
+    assertEquals(1, released.get());
+  }
+
+  @Test
+  public void testIncrementalSerialization_sendsBatchedMessages() throws Exception {
+    Publisher publisher =
+        getTestPublisherBuilder()
+            .setEnableIncrementalSerialization(true)
+            .setEnableMessageOrdering(true)
+            .setEnableCompression(true)
+            .setCompressionBytesThreshold(1)
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(2L)
+                    .setDelayThresholdDuration(Duration.ofSeconds(100))
+                    .build())
+            .build();
+    testPublisherServiceImpl.setAutoPublishResponse(true);
+
+    PubsubMessage message1 =
+        PubsubMessage.newBuilder()
+            .setData(ByteString.copyFromUtf8("A"))
+            .putAttributes("key", "value")
+            .setOrderingKey("OrderA")
+            .build();
+    PubsubMessage message2 =
+        PubsubMessage.newBuilder()
+            .setData(ByteString.copyFromUtf8("B"))
+            .setOrderingKey("OrderA")
+            .build();
+    PubsubMessage message3 =
+        PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8("C")).build();
+    ApiFuture<String> publishFuture1 = publisher.publish(message1);
+    ApiFuture<String> publishFuture2 = publisher.publish(message2);
+    ApiFuture<String> publishFuture3 = publisher.publish(message3);
+
+    assertEquals("1", publishFuture1.get());
+    assertEquals("2", publishFuture2.get());
+    assertFalse(publishFuture3.isDone());
+
+    // The partially filled batch is sent on shutdown.
+    shutdownTestPublisher(publisher);
+    assertEquals("3", publishFuture3.get());
+
+    List<PublishRequest> requests = testPublisherServiceImpl.getCapturedRequests();
+    assertEquals(2, requests.size());
+    assertEquals(
+        PublishRequest.newBuilder()
+            .setTopic(TEST_TOPIC.toString())
+            .addMessages(message1)
+            .addMessages(message2)
+            .build(),
+        requests.get(0));
+    assertEquals(
+        PublishRequest.newBuilder().setTopic(TEST_TOPIC.toString()).addMessages(message3).build(),
+        requests.get(1));
+  }
+
+  @Test
+  public void testCompressedRequestBytesThreshold_packsCompressibleMessages() throws Exception {
+    Publisher publisher =
+        getTestPublisherBuilder()
+            .setEnableCompression(true)
+            .setCompressedRequestBytesThreshold(5000)
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(1000L)
+                    .setDelayThresholdDuration(Duration.ofSeconds(100))
+                    .build())
+            .build();
+    testPublisherServiceImpl.setAutoPublishResponse(true);
+    String data = Strings.repeat("a", 1000);
+
+    // Until a request has been compressed, batches are limited to 5000 uncompressed bytes.
+    List<ApiFuture<String>> firstBatch = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      firstBatch.add(sendTestMessage(publisher, data));
+    }
+    ApiFuture<String> fifth = sendTestMessage(publisher, data);
+    assertEquals(4, ApiFutures.allAsList(firstBatch).get().size());
+    assertFalse(fifth.isDone());
+    assertEquals(1, testPublisherServiceImpl.getCapturedRequests().size());
+    assertEquals(4, testPublisherServiceImpl.getCapturedRequests().get(0).getMessagesCount());
+
+    // The first request compressed well, so many more messages fit in the next one.
+    for (int i = 0; i < 100; i++) {
+      sendTestMessage(publisher, data);
+    }
+    assertFalse(fifth.isDone());
+
+    shutdownTestPublisher(publisher);
+    assertEquals(2, testPublisherServiceImpl.getCapturedRequests().size());
+    assertEquals(101, testPublisherServiceImpl.getCapturedRequests().get(1).getMessagesCount());
+  }
+
+  @Test
+  public void testCompaction_replacesBatchedMessages() throws Exception {
+    Publisher publisher =
+        getTestPublisherBuilder()
+            .setEnableMessageOrdering(true)
+            .setCompactionAttribute("entity")
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(10L)
+                    .setDelayThresholdDuration(Duration.ofSeconds(100))
+                    .build())
+            .build();
+    testPublisherServiceImpl.setAutoPublishResponse(true);
+
+    ApiFuture<String> publishFuture1 = sendCompactableMessage(publisher, "m1", "OrderA", "a");
+    ApiFuture<String> publishFuture2 = sendCompactableMessage(publisher, "m2", "OrderA", "b");
+    ApiFuture<String> publishFuture3 = sendCompactableMessage(publisher, "m3", "OrderA", "a");
+    ApiFuture<String> publishFuture4 = sendTestMessageWithOrderingKey(publisher, "m4", "OrderA");
+    ApiFuture<String> publishFuture5 = sendCompactableMessage(publisher, "m5", "OrderB", "a");
+    ApiFuture<String> publishFuture6 = sendCompactableMessage(publisher, "m6", "OrderA", "a");
+
+    assertSuperseded(publishFuture1);
+    assertSuperseded(publishFuture3);
+    assertFalse(publishFuture6.isDone());
+
+    fakeExecutor.advanceTime(Duration.ofSeconds(100));
+    for (ApiFuture<String> publishFuture :
+        ImmutableList.of(publishFuture2, publishFuture4, publishFuture5, publishFuture6)) {
+      publishFuture.get();
+    }
+
+    List<String> orderA = new ArrayList<>();
+    for (PublishRequest request : testPublisherServiceImpl.getCapturedRequests()) {
+      for (PubsubMessage message : request.getMessagesList()) {
+        if (message.getOrderingKey().equals("OrderA")) {
+          orderA.add(message.getData().toStringUtf8());
+        }
+      }
+    }
+    assertEquals(ImmutableList.of("m2", "m4", "m6"), orderA);
+    shutdownTestPublisher(publisher);
+  }
+
+  @Test
+  public void testCompaction_replacesMessagesWaitingForInflightBatch() throws Exception {
+    Publisher publisher =
+        getTestPublisherBuilder()
+            .setEnableMessageOrdering(true)
+            .setCompactionAttribute("entity")
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(1L)
+                    .setDelayThresholdDuration(Duration.ofSeconds(100))
+                    .build())
+            .build();
+
+    // The first message is sent and waits for its response, the others wait for it.
+    ApiFuture<String> publishFuture1 = sendCompactableMessage(publisher, "m1", "OrderA", "a");
+    ApiFuture<String> publishFuture2 = sendCompactableMessage(publisher, "m2", "OrderA", "a");
+    ApiFuture<String> publishFuture3 = sendCompactableMessage(publisher, "m3", "OrderA", "a");
+    assertSuperseded(publishFuture2);
+    assertFalse(publishFuture3.isDone());
+
+    testPublisherServiceImpl.addPublishResponse(PublishResponse.newBuilder().addMessageIds("1"));
+    testPublisherServiceImpl.addPublishResponse(PublishResponse.newBuilder().addMessageIds("2"));
+    assertEquals("1", publishFuture1.get());
+    assertEquals("2", publishFuture3.get());
+
+    List<PublishRequest> requests = testPublisherServiceImpl.getCapturedRequests();
+    assertEquals(2, requests.size());
+    assertEquals("m3", requests.get(1).getMessages(0).getData().toStringUtf8());
+    shutdownTestPublisher(publisher);
+  }
+
+  @Test
+  public void testCompaction_supersededPublishInCancelledBatchReleasedOnce() throws Exception {
+    Publisher publisher =
+        getTestPublisherBuilder()
+            .setEnableMessageOrdering(true)
+            .setCompactionAttribute("entity")
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(1L)
+                    .setDelayThresholdDuration(Duration.ofSeconds(100))
+                    .setFlowControlSettings(
+                        FlowControlSettings.newBuilder()
+                            .setLimitExceededBehavior(
+                                FlowController.LimitExceededBehavior.ThrowException)
+                            .setMaxOutstandingElementCount(3L)
+                            .setMaxOutstandingRequestBytes(1000L)
+                            .build())
+                    .build())
+            .build();
+
+    // The first message is sent, the second is queued behind it and then superseded by the third.
+    ApiFuture<String> publishFuture1 = sendCompactableMessage(publisher, "m1", "OrderA", "a");
+    ApiFuture<String> publishFuture2 = sendCompactableMessage(publisher, "m2", "OrderA", "a");
+    ApiFuture<String> publishFuture3 = sendCompactableMessage(publisher, "m3", "OrderA", "a");
+    assertSuperseded(publishFuture2);
+
+    // The failure of the first batch cancels the queued ones without sending them.
+    testPublisherServiceImpl.addPublishError(new StatusException(Status.INVALID_ARGUMENT));
+    for (ApiFuture<String> publishFuture : ImmutableList.of(publishFuture1, publishFuture3)) {
+      try {
+        publishFuture.get();
+        fail("This should fail.");
+      } catch (ExecutionException e) {
+        // expected
+      }
+    }
+    assertSuperseded(publishFuture2);
+    assertEquals(1, testPublisherServiceImpl.getCapturedRequests().size());
+
+    // Each message was released once, so the publisher is limited as before.
+    publisher.resumePublish("OrderA");
+    for (int i = 0; i < 3; i++) {
+      sendTestMessageWithOrderingKey(publisher, "m" + i, "OrderA");
+    }
+    ApiFuture<String> overLimit = sendTestMessageWithOrderingKey(publisher, "m3", "OrderA");
+    assertTrue(overLimit.isDone());
+    try {
+      overLimit.get();
+      fail("Should have thrown an FlowController.MaxOutstandingElementCountReachedException");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause())
+          .isInstanceOf(FlowController.MaxOutstandingElementCountReachedException.class);
+    }
+    for (int i = 0; i < 3; i++) {
+      testPublisherServiceImpl.addPublishResponse(
+          PublishResponse.newBuilder().addMessageIds(Integer.toString(i)));
+    }
+    shutdownTestPublisher(publisher);
+  }
+
+  private static void assertSuperseded(ApiFuture<String> publishFuture) throws Exception {
+    try {
+      publishFuture.get();
+      fail("Should have thrown a MessageSupersededException");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(MessageSupersededException.class);
+    }
+  }
+
+  private ApiFuture<String> sendCompactableMessage(
+      Publisher publisher, String data, String orderingKey, String entity) {
+    return publisher.publish(
+        PubsubMessage.newBuilder()
+            .setOrderingKey(orderingKey)
+            .putAttributes("entity", entity)
+            .setData(ByteString.copyFromUtf8(data))
+            .build());
+  }
+
   private ApiFuture<String> sendTestMessage(Publisher publisher, String data) {
     return publisher.publish(
         PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8(data)).build());
@@ -1179,6 +1499,65 @@ public class PublisherImplTest {
     assertEquals("2", publishFuture4.get());
   }
 
+  @Test
+  public void testOrderingKeyFlowControl_limitsOnlyKeyAtLimit() throws Exception {
+    Publisher publisher =
+        getTestPublisherBuilder()
+            .setEnableMessageOrdering(true)
+            .setOrderingKeyFlowControlSettings(
+                FlowControlSettings.newBuilder()
+                    .setLimitExceededBehavior(FlowController.LimitExceededBehavior.ThrowException)
+                    .setMaxOutstandingElementCount(2L)
+                    .build())
+            .setHotOrderingKeyCount(1)
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(10L)
+                    .setDelayThresholdDuration(Duration.ofSeconds(100))
+                    .build())
+            .build();
+    testPublisherServiceImpl.setAutoPublishResponse(true);
+
+    ApiFuture<String> publishFuture1 = sendTestMessageWithOrderingKey(publisher, "m1", "OrderA");
+    ApiFuture<String> publishFuture2 = sendTestMessageWithOrderingKey(publisher, "m2", "OrderA");
+    ApiFuture<String> publishFuture3 = sendTestMessageWithOrderingKey(publisher, "m3", "OrderA");
+    ApiFuture<String> publishFuture4 = sendTestMessageWithOrderingKey(publisher, "m4", "OrderB");
+    try {
+      publishFuture3.get();
+      fail("Should have thrown an FlowController.MaxOutstandingElementCountReachedException");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause())
+          .isInstanceOf(FlowController.MaxOutstandingElementCountReachedException.class);
+    }
+
+    List<OrderingKeyStats> hotKeys = publisher.getHotOrderingKeys();
+    assertEquals(1, hotKeys.size());
+    assertEquals("OrderA", hotKeys.get(0).getOrderingKey());
+    assertEquals(2, hotKeys.get(0).getPublishedMessageCount());
+    assertEquals(2, hotKeys.get(0).getOutstandingMessageCount());
+
+    // The failed publish paused the key, which cancels its batched messages and releases them.
+    fakeExecutor.advanceTime(Duration.ofSeconds(100));
+    for (ApiFuture<String> publishFuture : ImmutableList.of(publishFuture1, publishFuture2)) {
+      try {
+        publishFuture.get();
+        fail("Should have thrown a CancellationException");
+      } catch (ExecutionException e) {
+        assertThat(e.getCause()).isInstanceOf(CancellationException.class);
+      }
+    }
+    publishFuture4.get();
+    assertEquals(0, publisher.getHotOrderingKeys().get(0).getOutstandingMessageCount());
+
+    // The key was paused by the failed publish, and is limited again once resumed.
+    publisher.resumePublish("OrderA");
+    sendTestMessageWithOrderingKey(publisher, "m5", "OrderA");
+    sendTestMessageWithOrderingKey(publisher, "m6", "OrderA");
+    assertEquals(2, publisher.getHotOrderingKeys().get(0).getOutstandingMessageCount());
+    shutdownTestPublisher(publisher);
+  }
+
   @Test
   public void testPublishFlowControl_throwExceptionWithOrderingKey() throws Exception {
     Publisher publisher =
@@ -1382,6 +1761,216 @@ public class PublisherImplTest {
         .hasEnded();
   }
 
+  @Test
+  public void testPublishOpenTelemetryMetrics() throws Exception {
+    OpenTelemetryRule openTelemetryTesting = OpenTelemetryRule.create();
+    final Publisher publisher =
+        getTestPublisherBuilder()
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(2L)
+                    .setDelayThresholdDuration(Duration.ofSeconds(5))
+                    .setFlowControlSettings(
+                        FlowControlSettings.newBuilder()
+                            .setLimitExceededBehavior(FlowController.LimitExceededBehavior.Block)
+                            .setMaxOutstandingElementCount(10L)
+                            .setMaxOutstandingRequestBytes(1000L)
+                            .build())
+                    .build())
+            .setOpenTelemetry(openTelemetryTesting.getOpenTelemetry())
+            .build();
+
+    testPublisherServiceImpl.addPublishResponse(
+        PublishResponse.newBuilder().addMessageIds("1").addMessageIds("2"));
+    ApiFuture<String> publishFuture1 = sendTestMessage(publisher, "A");
+    ApiFuture<String> publishFuture2 = sendTestMessage(publisher, "B");
+    assertEquals("1", publishFuture1.get());
+    assertEquals("2", publishFuture2.get());
+    shutdownTestPublisher(publisher);
+
+    HistogramPointData publishDuration =
+        getMetric(openTelemetryTesting, "messaging.gcp_pubsub.publish.duration")
+            .getHistogramData()
+            .getPoints()
+            .iterator()
+            .next();
+    assertEquals(2, publishDuration.getCount());
+    assertEquals(
+        "ok",
+        publishDuration.getAttributes().get(AttributeKey.stringKey("messaging.gcp_pubsub.status")));
+    assertEquals(
+        "test-topic",
+        publishDuration.getAttributes().get(AttributeKey.stringKey("messaging.destination.name")));
+    HistogramPointData batchMessages =
+        getMetric(openTelemetryTesting, "messaging.gcp_pubsub.publish.batch.messages")
+            .getHistogramData()
+            .getPoints()
+            .iterator()
+            .next();
+    assertEquals(1, batchMessages.getCount());
+    assertEquals(2.0, batchMessages.getSum(), 0.0);
+    assertEquals(
+        2,
+        getMetric(openTelemetryTesting, "messaging.gcp_pubsub.publish.flow_control.duration")
+            .getHistogramData()
+            .getPoints()
+            .iterator()
+            .next()
+            .getCount());
+    for (String name :
+        ImmutableList.of(
+            "messaging.gcp_pubsub.publish.rpcs_in_flight",
+            "messaging.gcp_pubsub.publish.outstanding.messages",
+            "messaging.gcp_pubsub.publish.outstanding.size")) {
+      assertEquals(
+          0,
+          getMetric(openTelemetryTesting, name)
+              .getLongSumData()
+              .getPoints()
+              .iterator()
+              .next()
+              .getValue());
+    }
+  }
+
+  private static MetricData getMetric(OpenTelemetryRule openTelemetryTesting, String name) {
+    for (MetricData metric : openTelemetryTesting.getMetrics()) {
+      if (metric.getName().equals(name)) {
+        return metric;
+      }
+    }
+    throw new AssertionError("No metric " + name);
+  }
+
+  @Test
+  public void testSchemaValidatorFailsInvalidMessages() throws Exception {
+    testSchemaServiceImpl.addResponse(
+        ListSchemaRevisionsResponse.newBuilder()
+            .addSchemas(
+                Schema.newBuilder()
+                    .setType(Schema.Type.AVRO)
+                    .setDefinition("\"string\"")
+                    .setRevisionId("rev-1"))
+            .build());
+    SchemaServiceClient schemaServiceClient =
+        SchemaServiceClient.create(
+            SchemaServiceSettings.newBuilder()
+                .setTransportChannelProvider(
+                    FixedTransportChannelProvider.create(GrpcTransportChannel.create(testChannel)))
+                .setCredentialsProvider(NoCredentialsProvider.create())
+                .build());
+    Publisher publisher =
+        getTestPublisherBuilder()
+            .setEnableMessageOrdering(true)
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(1L)
+                    .setDelayThresholdDuration(Duration.ofSeconds(100))
+                    .build())
+            .setSchemaValidator(
+                SchemaValidator.newBuilder(schemaServiceClient, "projects/p/schemas/s").build())
+            .build();
+
+    ApiFuture<String> invalidFuture = sendTestMessageWithOrderingKey(publisher, "m1", "orderA");
+    try {
+      invalidFuture.get();
+      fail("This should fail.");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(SchemaValidationException.class);
+    }
+    // The ordering key is paused, as after other failed publishes.
+    try {
+      sendTestMessageWithOrderingKey(publisher, "\"m2\"", "orderA").get();
+      fail("This should fail.");
+    } catch (ExecutionException e) {
+      assertEquals(SequentialExecutorService.CallbackExecutor.CANCELLATION_EXCEPTION, e.getCause());
+    }
+    assertThat(testPublisherServiceImpl.getCapturedRequests()).isEmpty();
+
+    publisher.resumePublish("orderA");
+    testPublisherServiceImpl.addPublishResponse(PublishResponse.newBuilder().addMessageIds("3"));
+    assertEquals("3", sendTestMessageWithOrderingKey(publisher, "\"m3\"", "orderA").get());
+    assertEquals(1, testPublisherServiceImpl.getCapturedRequests().size());
+
+    shutdownTestPublisher(publisher);
+    schemaServiceClient.close();
+  }
+
+  @Test
+  public void testTypedPublisher() throws Exception {
+    TypedPublisher<ProjectTopicName> publisher =
+        TypedPublisher.of(
+            getTestPublisherBuilder()
+                .setBatchingSettings(
+                    Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                        .toBuilder()
+                        .setElementCountThreshold(2L)
+                        .setDelayThresholdDuration(Duration.ofSeconds(100))
+                        .build())
+                .build(),
+            new MessageCodec<ProjectTopicName>() {
+              @Override
+              public ByteString encode(ProjectTopicName value) {
+                return ByteString.copyFromUtf8(value.getTopic());
+              }
+
+              @Override
+              public ProjectTopicName decode(ByteString data, String schemaRevisionId) {
+                throw new UnsupportedOperationException();
+              }
+            });
+    testPublisherServiceImpl.addPublishResponse(
+        PublishResponse.newBuilder().addMessageIds("1").addMessageIds("2"));
+
+    ApiFuture<String> future1 = publisher.publish(TEST_TOPIC);
+    ApiFuture<String> future2 =
+        publisher.publish(
+            TEST_TOPIC, PubsubMessage.newBuilder().putAttributes("key", "value").build());
+
+    assertEquals("1", future1.get());
+    assertEquals("2", future2.get());
+    PublishRequest request = testPublisherServiceImpl.getCapturedRequests().get(0);
+    assertEquals(
+        PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8(TEST_TOPIC.getTopic())).build(),
+        request.getMessages(0));
+    assertEquals("value", request.getMessages(1).getAttributesOrThrow("key"));
+    shutdownTestPublisher(publisher.getPublisher());
+  }
+
+  @Test
+  public void testPublishWithVirtualThreads() throws Exception {
+    // Falls back to the executor provider on runtimes without virtual threads.
+    Publisher publisher =
+        getTestPublisherBuilder()
+            .setUseVirtualThreads(true)
+            .setEnableMessageOrdering(true)
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(2L)
+                    .setDelayThresholdDuration(Duration.ofSeconds(100))
+                    .build())
+            .build();
+
+    testPublisherServiceImpl
+        .addPublishResponse(PublishResponse.newBuilder().addMessageIds("1").addMessageIds("2"))
+        .addPublishResponse(PublishResponse.newBuilder().addMessageIds("3").addMessageIds("4"));
+
+    ApiFuture<String> publishFuture1 = sendTestMessage(publisher, "A");
+    ApiFuture<String> publishFuture2 = sendTestMessage(publisher, "B");
+    assertEquals("1", publishFuture1.get());
+    assertEquals("2", publishFuture2.get());
+
+    ApiFuture<String> publishFuture3 = sendTestMessageWithOrderingKey(publisher, "C", "OrdKey");
+    ApiFuture<String> publishFuture4 = sendTestMessageWithOrderingKey(publisher, "D", "OrdKey");
+    assertEquals("3", publishFuture3.get());
+    assertEquals("4", publishFuture4.get());
+
+    shutdownTestPublisher(publisher);
+  }
+
   private Builder getTestPublisherBuilder() {
     return Publisher.newBuilder(TEST_TOPIC)
         .setExecutorProvider(FixedExecutorProvider.create(fakeExecutor))
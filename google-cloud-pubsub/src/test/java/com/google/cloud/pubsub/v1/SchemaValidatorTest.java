@@ -0,0 +1,320 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.testing.MockGrpcService;
+import com.google.api.gax.grpc.testing.MockServiceHelper;
+import com.google.api.gax.rpc.InvalidArgumentException;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.Encoding;
+import com.google.pubsub.v1.GetSchemaRequest;
+import com.google.pubsub.v1.ListSchemaRevisionsRequest;
+import com.google.pubsub.v1.ListSchemaRevisionsResponse;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.Schema;
+import com.google.pubsub.v1.SchemaSettings;
+import com.google.pubsub.v1.SchemaView;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.UUID;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SchemaValidatorTest {
+  private static final String SCHEMA_NAME = "projects/project/schemas/schema";
+
+  private static MockSchemaService mockSchemaService;
+  private static MockServiceHelper mockServiceHelper;
+
+  private final FakeScheduledExecutorService executor = new FakeScheduledExecutorService();
+  private SchemaServiceClient client;
+
+  @BeforeClass
+  public static void startStaticServer() {
+    mockSchemaService = new MockSchemaService();
+    mockServiceHelper =
+        new MockServiceHelper(
+            UUID.randomUUID().toString(), Arrays.<MockGrpcService>asList(mockSchemaService));
+    mockServiceHelper.start();
+  }
+
+  @AfterClass
+  public static void stopServer() {
+    mockServiceHelper.stop();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    mockServiceHelper.reset();
+    client =
+        SchemaServiceClient.create(
+            SchemaServiceSettings.newBuilder()
+                .setTransportChannelProvider(mockServiceHelper.createChannelProvider())
+                .setCredentialsProvider(NoCredentialsProvider.create())
+                .build());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.close();
+  }
+
+  @Test
+  public void testValidatesAgainstAnyRevision() {
+    addRevisions(revision("rev-2", "\"string\""), revision("rev-1", "\"int\""));
+    SchemaValidator validator = newValidatorBuilder().build();
+
+    validator.validate(json("\"a\""));
+    validator.validate(PubsubMessage.newBuilder().setData(json("1")).build());
+    try {
+      validator.validate(json("true"));
+      fail("Expected a SchemaValidationException");
+    } catch (SchemaValidationException e) {
+      assertThat(e.getSchemaName()).isEqualTo(SCHEMA_NAME);
+      assertThat(e.getRevisionId()).isEqualTo("rev-2");
+      assertThat(e.getMessage()).contains("Expected string");
+    }
+
+    // The revisions are fetched once.
+    assertThat(mockSchemaService.getRequests())
+        .containsExactly(
+            ListSchemaRevisionsRequest.newBuilder()
+                .setName(SCHEMA_NAME)
+                .setView(SchemaView.FULL)
+                .build());
+  }
+
+  @Test
+  public void testValidatesBinaryEncoding() {
+    addRevisions(revision("rev-1", "\"long\""));
+    SchemaValidator validator = newValidatorBuilder().setEncoding(Encoding.BINARY).build();
+
+    validator.validate(ByteString.copyFrom(new byte[] {0x02}));
+    try {
+      validator.validate(ByteString.copyFrom(new byte[] {(byte) 0x80}));
+      fail("Expected a SchemaValidationException");
+    } catch (SchemaValidationException e) {
+      assertThat(e.getRevisionId()).isEqualTo("rev-1");
+    }
+  }
+
+  @Test
+  public void testRefreshesRevisionsAfterInterval() {
+    addRevisions(revision("rev-1", "\"int\""));
+    SchemaValidator validator = newValidatorBuilder().build();
+    validator.validate(json("1"));
+    assertInvalid(validator, json("\"a\""));
+
+    addRevisions(revision("rev-2", "\"string\""), revision("rev-1", "\"int\""));
+    executor.advanceTime(Duration.ofMinutes(9));
+    assertInvalid(validator, json("\"a\""));
+    assertThat(mockSchemaService.getRequests()).hasSize(1);
+
+    executor.advanceTime(Duration.ofMinutes(1));
+    validator.validate(json("\"a\""));
+    validator.validate(json("1"));
+    assertThat(mockSchemaService.getRequests()).hasSize(2);
+  }
+
+  @Test
+  public void testKeepsRevisionsWhenRefreshFails() {
+    addRevisions(revision("rev-1", "\"int\""));
+    SchemaValidator validator = newValidatorBuilder().build();
+    validator.validate(json("1"));
+
+    mockSchemaService.addException(new StatusRuntimeException(Status.INVALID_ARGUMENT));
+    executor.advanceTime(Duration.ofMinutes(10));
+    validator.validate(json("1"));
+
+    // The refresh is retried after a backoff.
+    addRevisions(revision("rev-2", "\"string\""));
+    validator.validate(json("1"));
+    assertThat(mockSchemaService.getRequests()).hasSize(1);
+    executor.advanceTime(SchemaValidator.INITIAL_RETRY_DELAY);
+    validator.validate(json("\"a\""));
+    assertInvalid(validator, json("1"));
+    assertThat(mockSchemaService.getRequests()).hasSize(2);
+  }
+
+  @Test
+  public void testFailsWhenRevisionsCannotBeFetched() {
+    mockSchemaService.addException(new StatusRuntimeException(Status.INVALID_ARGUMENT));
+    mockSchemaService.addException(new StatusRuntimeException(Status.INVALID_ARGUMENT));
+    SchemaValidator validator = newValidatorBuilder().build();
+    addRevisions(revision("rev-1", "\"int\""));
+
+    // Validating does not fetch the revisions again, the fetch is retried with backoff.
+    assertFetchFails(validator);
+    executor.advanceTime(SchemaValidator.INITIAL_RETRY_DELAY);
+    assertFetchFails(validator);
+    executor.advanceTime(SchemaValidator.INITIAL_RETRY_DELAY);
+    assertFetchFails(validator);
+    assertThat(mockSchemaService.getRequests()).isEmpty();
+
+    executor.advanceTime(SchemaValidator.INITIAL_RETRY_DELAY);
+    validator.validate(json("1"));
+    assertInvalid(validator, json("\"a\""));
+    assertThat(mockSchemaService.getRequests()).hasSize(1);
+  }
+
+  @Test
+  public void testDoesNotValidateBeforeRevisionsAreFetched() {
+    addRevisions(revision("rev-1", "\"int\""));
+    SchemaValidator validator = SchemaValidator.newBuilder(client, SCHEMA_NAME).build();
+
+    validator.validate(json("\"a\""));
+    assertThat(mockSchemaService.getRequests()).isEmpty();
+
+    validator.start(executor);
+    assertInvalid(validator, json("\"a\""));
+    assertThat(mockSchemaService.getRequests()).hasSize(1);
+  }
+
+  @Test
+  public void testStopsRefreshingWhenStopped() {
+    addRevisions(revision("rev-1", "\"int\""));
+    SchemaValidator validator = SchemaValidator.newBuilder(client, SCHEMA_NAME).build();
+    validator.start(executor);
+    validator.stop(executor);
+
+    executor.advanceTime(SchemaValidator.DEFAULT_REFRESH_INTERVAL);
+    validator.validate(json("1"));
+    assertThat(mockSchemaService.getRequests()).hasSize(1);
+
+    // Another executor can take over.
+    FakeScheduledExecutorService otherExecutor = new FakeScheduledExecutorService();
+    addRevisions(revision("rev-2", "\"string\""));
+    validator.start(otherExecutor);
+    validator.validate(json("\"a\""));
+    assertThat(mockSchemaService.getRequests()).hasSize(2);
+  }
+
+  @Test
+  public void testValidatesAgainstRevisionRange() {
+    addRevisions(
+        revision("rev-4", "\"string\""),
+        revision("rev-3", "\"int\""),
+        revision("rev-2", "\"boolean\""),
+        revision("rev-1", "\"null\""));
+    SchemaValidator validator =
+        newValidatorBuilder().setFirstRevisionId("rev-2").setLastRevisionId("rev-3").build();
+
+    validator.validate(json("1"));
+    validator.validate(json("true"));
+    assertInvalid(validator, json("\"a\""));
+    try {
+      validator.validate(json("null"));
+      fail("Expected a SchemaValidationException");
+    } catch (SchemaValidationException e) {
+      assertThat(e.getRevisionId()).isEqualTo("rev-3");
+    }
+  }
+
+  @Test
+  public void testFetchesSingleRevisionFromSchemaSettings() {
+    mockSchemaService.addResponse(
+        revision("rev-1", "syntax = \"proto3\"; message A { int32 a = 1; }")
+            .toBuilder()
+            .setType(Schema.Type.PROTOCOL_BUFFER)
+            .build());
+    SchemaValidator validator =
+        SchemaValidator.newBuilder(
+                client,
+                SchemaSettings.newBuilder()
+                    .setSchema(SCHEMA_NAME)
+                    .setFirstRevisionId("rev-1")
+                    .setLastRevisionId("rev-1")
+                    .build())
+            .setExecutor(executor)
+            .build();
+
+    assertThat(validator.getEncoding()).isEqualTo(Encoding.JSON);
+    validator.validate(json("{\"a\": 1}"));
+    assertInvalid(validator, json("{\"b\": 1}"));
+    assertThat(mockSchemaService.getRequests())
+        .containsExactly(
+            GetSchemaRequest.newBuilder()
+                .setName(SCHEMA_NAME + "@rev-1")
+                .setView(SchemaView.FULL)
+                .build());
+  }
+
+  @Test
+  public void testFailsWithoutRevisionsInRange() {
+    addRevisions(revision("rev-1", "\"int\""));
+    SchemaValidator validator = newValidatorBuilder().setLastRevisionId("rev-0").build();
+
+    try {
+      validator.validate(json("1"));
+      fail("Expected an IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private SchemaValidator.Builder newValidatorBuilder() {
+    return SchemaValidator.newBuilder(client, SCHEMA_NAME).setExecutor(executor);
+  }
+
+  private static void addRevisions(Schema... revisions) {
+    mockSchemaService.addResponse(
+        ListSchemaRevisionsResponse.newBuilder().addAllSchemas(Arrays.asList(revisions)).build());
+  }
+
+  private static Schema revision(String revisionId, String definition) {
+    return Schema.newBuilder()
+        .setName(SCHEMA_NAME)
+        .setType(Schema.Type.AVRO)
+        .setDefinition(definition)
+        .setRevisionId(revisionId)
+        .build();
+  }
+
+  private static void assertInvalid(SchemaValidator validator, ByteString data) {
+    try {
+      validator.validate(data);
+      fail("Expected a SchemaValidationException");
+    } catch (SchemaValidationException e) {
+      // expected
+    }
+  }
+
+  private static void assertFetchFails(SchemaValidator validator) {
+    try {
+      validator.validate(json("1"));
+      fail("Expected an InvalidArgumentException");
+    } catch (InvalidArgumentException e) {
+      // expected
+    }
+  }
+
+  private static ByteString json(String json) {
+    return ByteString.copyFromUtf8(json);
+  }
+}
@@ -129,6 +129,84 @@ public class StreamingSubscriberConnectionTest {
     verify(mockSubscriberStub, times(1)).acknowledgeCallable();
   }
 
+  @Test
+  public void testSendAckOperationsExactlyOnceEnabledDelayedNackSetsMessageFuture()
+      throws Exception {
+    SettableApiFuture<AckResponse> messageFuture = SettableApiFuture.create();
+    ModackRequestData delayedNack =
+        new ModackRequestData(
+                30,
+                AckRequestData.newBuilder(MOCK_ACK_ID_NACK_SUCCESS)
+                    .setMessageFuture(messageFuture)
+                    .build())
+            .setIsNack(true);
+    ModifyAckDeadlineRequest modifyAckDeadlineRequest =
+        ModifyAckDeadlineRequest.newBuilder()
+            .setSubscription(MOCK_SUBSCRIPTION_NAME)
+            .addAckIds(MOCK_ACK_ID_NACK_SUCCESS)
+            .setAckDeadlineSeconds(30)
+            .build();
+    when(mockSubscriberStub.modifyAckDeadlineCallable().futureCall(modifyAckDeadlineRequest))
+        .thenReturn(ApiFutures.immediateFuture(null));
+
+    StreamingSubscriberConnection streamingSubscriberConnection =
+        getStreamingSubscriberConnection(true);
+    streamingSubscriberConnection.sendModackOperations(Collections.singletonList(delayedNack));
+
+    // Unlike a lease extension, a nack with a redelivery delay completes the message future.
+    assertEquals(AckResponse.SUCCESSFUL, messageFuture.get());
+  }
+
+  @Test
+  public void testDelayedNackIsTracedAsNack() {
+    ModackRequestData delayedNack =
+        new ModackRequestData(30, AckRequestData.newBuilder(MOCK_ACK_ID_NACK_SUCCESS).build())
+            .setIsNack(true);
+    ModackRequestData failedDelayedNack =
+        new ModackRequestData(60, AckRequestData.newBuilder(MOCK_ACK_ID_OTHER).build())
+            .setIsNack(true);
+    when(mockSubscriberStub
+            .modifyAckDeadlineCallable()
+            .futureCall(
+                ModifyAckDeadlineRequest.newBuilder()
+                    .setSubscription(MOCK_SUBSCRIPTION_NAME)
+                    .addAckIds(MOCK_ACK_ID_NACK_SUCCESS)
+                    .setAckDeadlineSeconds(30)
+                    .build()))
+        .thenReturn(ApiFutures.immediateFuture(null));
+    StatusException failure = new StatusException(io.grpc.Status.UNAVAILABLE);
+    when(mockSubscriberStub
+            .modifyAckDeadlineCallable()
+            .futureCall(
+                ModifyAckDeadlineRequest.newBuilder()
+                    .setSubscription(MOCK_SUBSCRIPTION_NAME)
+                    .addAckIds(MOCK_ACK_ID_OTHER)
+                    .setAckDeadlineSeconds(60)
+                    .build()))
+        .thenReturn(ApiFutures.immediateFailedFuture(failure));
+    OpenTelemetryPubsubTracer tracer = mock(OpenTelemetryPubsubTracer.class);
+
+    StreamingSubscriberConnection streamingSubscriberConnection =
+        getStreamingSubscriberConnectionFromBuilder(
+            StreamingSubscriberConnection.newBuilder(mock(MessageReceiverWithAckResponse.class))
+                .setEnableOpenTelemetryTracing(true)
+                .setTracer(tracer));
+    streamingSubscriberConnection.sendModackOperations(
+        Arrays.asList(delayedNack, failedDelayedNack));
+
+    // A nack with a redelivery delay is sent as a modack, but traced as a nack.
+    verify(tracer)
+        .startSubscribeRpcSpan(
+            eq(MOCK_SUBSCRIPTION_NAME), eq("nack"), anyList(), eq(30), eq(false));
+    verify(tracer)
+        .startSubscribeRpcSpan(
+            eq(MOCK_SUBSCRIPTION_NAME), eq("nack"), anyList(), eq(60), eq(false));
+    verify(tracer, never())
+        .startSubscribeRpcSpan(anyString(), eq("modack"), anyList(), anyInt(), anyBoolean());
+    verify(tracer, times(2)).addEndRpcEvent(any(), anyBoolean(), eq(true), eq(true));
+    verify(tracer).setSubscribeRpcSpanException(any(), eq(true), eq(true), eq(failure));
+  }
+
   @Test
   public void testSendAckOperationsExactlyOnceEnabledMessageFuturesModacks() {
     // Setup
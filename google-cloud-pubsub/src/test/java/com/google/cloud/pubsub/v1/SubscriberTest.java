@@ -120,6 +120,86 @@ public class SubscriberTest {
     subscriber.stopAsync().awaitTerminated();
   }
 
+  @Test
+  public void testSharedExecutor_usedByAllStreams() throws Exception {
+    int expectedChannelCount = 3;
+    ExecutorProvider provider =
+        new ExecutorProvider() {
+          @Override
+          public boolean shouldAutoClose() {
+            return true;
+          }
+
+          @Override
+          public ScheduledExecutorService getExecutor() {
+            throw new AssertionError("executor provider must not be used with a shared executor");
+          }
+        };
+    ForkJoinPool sharedExecutor = new ForkJoinPool(2);
+
+    try {
+      Subscriber subscriber =
+          startSubscriber(
+              getTestSubscriberBuilder(testReceiver)
+                  .setExecutorProvider(provider)
+                  .setSharedExecutor(sharedExecutor)
+                  .setParallelPullCount(expectedChannelCount));
+
+      assertEquals(
+          expectedChannelCount,
+          fakeSubscriberServiceImpl.waitForOpenedStreams(expectedChannelCount));
+
+      subscriber.stopAsync().awaitTerminated();
+
+      // The shared executor is owned by the caller and must survive the subscriber.
+      assertFalse(sharedExecutor.isShutdown());
+    } finally {
+      sharedExecutor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testUseVirtualThreads_opensStreams() throws Exception {
+    // Falls back to the executor provider on runtimes without virtual threads.
+    int expectedChannelCount = 2;
+
+    Subscriber subscriber =
+        startSubscriber(
+            getTestSubscriberBuilder(testReceiver)
+                .setUseVirtualThreads(true)
+                .setParallelPullCount(expectedChannelCount));
+
+    assertEquals(
+        expectedChannelCount, fakeSubscriberServiceImpl.waitForOpenedStreams(expectedChannelCount));
+
+    subscriber.stopAsync().awaitTerminated();
+  }
+
+  @Test
+  public void testReceiverWithDeliveryContext_opensStreams() throws Exception {
+    MessageReceiverWithDeliveryContext receiver = (message, context, consumer) -> consumer.ack();
+
+    Subscriber subscriber =
+        startSubscriber(withTestSettings(Subscriber.newBuilder(TEST_SUBSCRIPTION, receiver)));
+
+    assertEquals(1, fakeSubscriberServiceImpl.waitForOpenedStreams(1));
+
+    subscriber.stopAsync().awaitTerminated();
+  }
+
+  @Test
+  public void testReceiverWithAckResponseAndDeliveryContext_opensStreams() throws Exception {
+    MessageReceiverWithAckResponseAndDeliveryContext receiver =
+        (message, context, consumer) -> consumer.ack();
+
+    Subscriber subscriber =
+        startSubscriber(withTestSettings(Subscriber.newBuilder(TEST_SUBSCRIPTION, receiver)));
+
+    assertEquals(1, fakeSubscriberServiceImpl.waitForOpenedStreams(1));
+
+    subscriber.stopAsync().awaitTerminated();
+  }
+
   @Test
   public void testFailedChannel_recoverableError_channelReopened() throws Exception {
     int expectedChannelCount = 1;
@@ -329,7 +409,11 @@ public class SubscriberTest {
   }
 
   private Builder getTestSubscriberBuilder(MessageReceiver messageReceiver) {
-    return Subscriber.newBuilder(TEST_SUBSCRIPTION, messageReceiver)
+    return withTestSettings(Subscriber.newBuilder(TEST_SUBSCRIPTION, messageReceiver));
+  }
+
+  private Builder withTestSettings(Builder builder) {
+    return builder
         .setExecutorProvider(FixedExecutorProvider.create(fakeExecutor))
         .setSystemExecutorProvider(FixedExecutorProvider.create(fakeExecutor))
         .setChannelProvider(
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link VirtualThreads}. */
+@RunWith(JUnit4.class)
+public class VirtualThreadsTest {
+
+  @Test
+  public void testSupportMatchesRuntime() {
+    boolean hasVirtualThreads;
+    try {
+      Thread.class.getMethod("isVirtual");
+      hasVirtualThreads = true;
+    } catch (NoSuchMethodException e) {
+      hasVirtualThreads = false;
+    }
+    assertEquals(hasVirtualThreads, VirtualThreads.isSupported());
+  }
+
+  @Test
+  public void testExecutorRunsTasksOnVirtualThreads() throws Exception {
+    ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor("test-vt-");
+    if (!VirtualThreads.isSupported()) {
+      assertNull(executor);
+      return;
+    }
+    try {
+      Future<Object[]> result =
+          executor.submit(
+              () -> {
+                Thread thread = Thread.currentThread();
+                return new Object[] {
+                  thread.getName(), Thread.class.getMethod("isVirtual").invoke(thread)
+                };
+              });
+      Object[] threadInfo = result.get(10, TimeUnit.SECONDS);
+      assertTrue(((String) threadInfo[0]).startsWith("test-vt-"));
+      assertEquals(Boolean.TRUE, threadInfo[1]);
+    } finally {
+      executor.shutdown();
+    }
+  }
+}